@@ -1,6 +1,9 @@
 package com.minecraft.gancity;
 
+import com.minecraft.gancity.ai.LineOfSightCache;
 import com.minecraft.gancity.ai.MobBehaviorAI;
+import com.minecraft.gancity.ai.SwarmPlanner;
+import com.minecraft.gancity.ai.TargetFlowFieldManager;
 import com.minecraft.gancity.ai.VillagerDialogueAI;
 import com.minecraft.gancity.compat.ModCompatibility;
 import com.minecraft.gancity.config.ModdedMobTacticMappingStore;
@@ -65,6 +68,7 @@ public class GANCityMod {
     private static volatile boolean enableCrossMobLearning = true;
     private static volatile float crossMobRewardMultiplier = 3.0f;
     private static volatile boolean enableContextualDifficulty = true;
+    private static volatile float dqnTargetTau = 0.0f;
 
     private static volatile boolean enableFederatedLearning = true;
     private static volatile String cloudApiEndpoint = DEFAULT_CLOUDFLARE_ENDPOINT;
@@ -74,6 +78,26 @@ public class GANCityMod {
     private static volatile boolean visualTierIndicators = true;
     private static volatile float expRateMultiplier = 1.0f;
     private static volatile boolean syncTiersWithFederation = true;
+    private static volatile boolean tierNbtDebugMirror = true;
+
+    private static volatile boolean flowFieldNavigation = true;
+    private static volatile int flowFieldMinMobs = 8;
+    private static volatile int flowFieldRadius = 24;
+    private static volatile int flowFieldNodeBudget = 4096;
+    private static volatile boolean swarmPlanner = true;
+    private static volatile int swarmRadius = 24;
+    private static volatile int swarmMinMembers = 3;
+    private static volatile boolean projectileDodging = false;
+    private static volatile String replayStateEncoding = "float32";
+    private static volatile int learningEventCapacity = 1024;
+    private static volatile String learningEventDropPolicy = "oldest";
+    private static volatile String policyDistillationMode = "live";
+    private static volatile int policyDistillationIntervalSeconds = 60;
+    private static volatile String qNetworkInference = "float";
+    private static volatile int trainingThreads = 2;
+    private static volatile int episodeSampleInterval = 10;
+    private static volatile boolean adaptiveEpisodeSampling = true;
+    private static volatile int episodeQueueCapacity = 256;
 
     // Global (server-wide) mob weapon loadouts from config
     private static volatile Map<String, List<String>> globalMobWeaponLoadouts = Map.of();
@@ -220,6 +244,9 @@ public class GANCityMod {
         if (mobBehaviorAI != null) {
             mobBehaviorAI.shutdown();
         }
+        TargetFlowFieldManager.clear();
+        SwarmPlanner.clear();
+        LineOfSightCache.clear();
     }
     
     public static void onServerTick(MinecraftServer server) {
@@ -289,6 +316,13 @@ public class GANCityMod {
                     try {
                         mobBehaviorAI.setDifficultyMultiplier(aiDifficulty);
                         mobBehaviorAI.setLearningEnabled(enableLearning);
+                        mobBehaviorAI.setDqnTargetTau(dqnTargetTau);
+                        mobBehaviorAI.setReplayStateEncoding(replayStateEncoding);
+                        mobBehaviorAI.setLearningEvents(learningEventCapacity, learningEventDropPolicy);
+                        mobBehaviorAI.setPolicyDistillation(policyDistillationMode, policyDistillationIntervalSeconds);
+                        mobBehaviorAI.setQNetworkInference(qNetworkInference);
+                        mobBehaviorAI.setTrainingThreads(trainingThreads);
+                        mobBehaviorAI.setEpisodeSampling(episodeSampleInterval, adaptiveEpisodeSampling, episodeQueueCapacity);
                     } catch (Exception e) {
                         LOGGER.warn("Could not apply core AI config: {}", e.getMessage());
                     }
@@ -414,6 +448,7 @@ public class GANCityMod {
                 enableCrossMobLearning = parseBoolean(kv, "enableCrossMobLearning", true);
                 crossMobRewardMultiplier = parseFloat(kv, "crossMobRewardMultiplier", 3.0f);
                 enableContextualDifficulty = parseBoolean(kv, "enableContextualDifficulty", true);
+                dqnTargetTau = parseFloat(kv, "dqnTargetTau", 0.0f);
 
                 enableFederatedLearning = parseBoolean(kv, "enableFederatedLearning", true);
                 cloudApiEndpoint = parseString(kv, "cloudApiEndpoint", DEFAULT_CLOUDFLARE_ENDPOINT);
@@ -426,6 +461,26 @@ public class GANCityMod {
                 visualTierIndicators = parseBoolean(kv, "enableVisualTierIndicators", true);
                 expRateMultiplier = parseFloat(kv, "experienceRateMultiplier", 1.0f);
                 syncTiersWithFederation = parseBoolean(kv, "syncTiersWithFederation", true);
+                tierNbtDebugMirror = parseBoolean(kv, "tierNbtDebugMirror", true);
+
+                flowFieldNavigation = parseBoolean(kv, "enableFlowFieldNavigation", true);
+                flowFieldMinMobs = parseInt(kv, "flowFieldMinMobs", 8);
+                flowFieldRadius = parseInt(kv, "flowFieldRadius", 24);
+                flowFieldNodeBudget = parseInt(kv, "flowFieldNodeBudget", 4096);
+                swarmPlanner = parseBoolean(kv, "enableSwarmPlanner", true);
+                swarmRadius = parseInt(kv, "swarmRadius", 24);
+                swarmMinMembers = parseInt(kv, "swarmMinMembers", 3);
+                projectileDodging = parseBoolean(kv, "enableProjectileDodging", false);
+                replayStateEncoding = parseString(kv, "replayStateEncoding", "float32");
+                learningEventCapacity = parseInt(kv, "learningEventCapacity", 1024);
+                learningEventDropPolicy = parseString(kv, "learningEventDropPolicy", "oldest");
+                policyDistillationMode = parseString(kv, "policyDistillationMode", "live");
+                policyDistillationIntervalSeconds = parseInt(kv, "policyDistillationIntervalSeconds", 60);
+                qNetworkInference = parseString(kv, "qNetworkInference", "float");
+                trainingThreads = parseInt(kv, "trainingThreads", 2);
+                episodeSampleInterval = parseInt(kv, "episodeSampleInterval", 10);
+                adaptiveEpisodeSampling = parseBoolean(kv, "adaptiveEpisodeSampling", true);
+                episodeQueueCapacity = parseInt(kv, "episodeQueueCapacity", 256);
 
                 // Loadouts (list-of-strings)
                 globalLoadoutsDisabled = parseBoolean(kv, "disableLoadoutsGlobally", false);
@@ -477,6 +532,57 @@ public class GANCityMod {
         return java.util.Collections.unmodifiableSet(out);
     }
 
+    /**
+     * Whether mob tier tags are mirrored into entity NBT on save (F3 / data command visibility).
+     */
+    public static boolean isTierNbtDebugMirrorEnabled() {
+        loadConfigIfNeeded();
+        return tierNbtDebugMirror;
+    }
+
+    /**
+     * Whether heavily targeted players get a shared flow field for charging mobs.
+     */
+    public static boolean isFlowFieldNavigationEnabled() {
+        loadConfigIfNeeded();
+        return flowFieldNavigation;
+    }
+
+    public static int getFlowFieldMinMobs() {
+        loadConfigIfNeeded();
+        return Math.max(2, Math.min(64, flowFieldMinMobs));
+    }
+
+    public static int getFlowFieldRadius() {
+        loadConfigIfNeeded();
+        return Math.max(8, Math.min(64, flowFieldRadius));
+    }
+
+    public static int getFlowFieldNodeBudget() {
+        loadConfigIfNeeded();
+        return Math.max(256, Math.min(65536, flowFieldNodeBudget));
+    }
+
+    public static boolean isSwarmPlannerEnabled() {
+        loadConfigIfNeeded();
+        return swarmPlanner;
+    }
+
+    public static boolean isProjectileDodgingEnabled() {
+        loadConfigIfNeeded();
+        return projectileDodging;
+    }
+
+    public static int getSwarmRadius() {
+        loadConfigIfNeeded();
+        return Math.max(4, Math.min(64, swarmRadius));
+    }
+
+    public static int getSwarmMinMembers() {
+        loadConfigIfNeeded();
+        return Math.max(2, Math.min(64, swarmMinMembers));
+    }
+
     public static boolean isInfectionHiveMindEnabled() {
         loadConfigIfNeeded();
         return infectionHiveMindEnabled;
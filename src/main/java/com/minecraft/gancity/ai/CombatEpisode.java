@@ -1,34 +1,60 @@
 package com.minecraft.gancity.ai;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * Tracks a full combat encounter - multiple tactical decisions, not just one action
  * This is what should be aggregated in federation: episode-level patterns
- * 
+ *
  * Example: Zombie lifetime (30s) → 50-200 tactical samples → 1 episode
+ *
+ * Samples are stored as primitive columns (tactic ordinal, situation ordinal, damage and a few
+ * quantized state features) instead of one object per sample. Buffers are pooled: take one with
+ * {@link #acquire}, and {@link #release} it once the episode has been aggregated.
  */
 public class CombatEpisode {
-    
-    /**
-     * Single tactical decision within an episode
-     */
-    public static class TacticalSample {
-        public final TacticalActionSpace.TacticalState state;
-        public final TacticalActionSpace.TacticalAction action;
-        public final float immediateReward;  // damage dealt this tick
-        public final long timestamp;
-        
-        public TacticalSample(TacticalActionSpace.TacticalState state, 
-                            TacticalActionSpace.TacticalAction action,
-                            float immediateReward) {
-            this.state = state;
-            this.action = action;
-            this.immediateReward = immediateReward;
-            this.timestamp = System.currentTimeMillis();
+
+    /** Cap per episode; later samples are dropped (at 0.5s sampling this is over 8 minutes) */
+    public static final int MAX_SAMPLES = 1024;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int POOL_CAPACITY = 64;
+
+    // Bits of the flags column
+    private static final int FLAG_TARGET_SHIELD = 1;
+    private static final int FLAG_TARGET_LOW_HEALTH = 1 << 1;
+    private static final int FLAG_SELF_LOW_HEALTH = 1 << 2;
+    private static final int FLAG_ALLY_NEEDS_HELP = 1 << 3;
+    private static final int FLAG_TARGET_COOLDOWN = 1 << 4;
+    private static final int FLAG_TERRAIN_COVER = 1 << 5;
+    private static final int FLAG_PLAYER_SURROUNDED = 1 << 6;
+
+    private static final TacticalActionSpace.TacticalAction[] TACTICS = TacticalActionSpace.TacticalAction.values();
+    private static final boolean[] COOPERATIVE = new boolean[TACTICS.length];
+    private static final boolean[] CROSS_SPECIES = new boolean[TACTICS.length];
+
+    static {
+        for (TacticalActionSpace.TacticalAction action : EnumSet.of(
+                TacticalActionSpace.TacticalAction.COORDINATE_FLANK,
+                TacticalActionSpace.TacticalAction.PINCER_ATTACK,
+                TacticalActionSpace.TacticalAction.DISTRACT_AND_STRIKE,
+                TacticalActionSpace.TacticalAction.ROTATING_PRESSURE,
+                TacticalActionSpace.TacticalAction.PROTECT_WEAK_ALLY)) {
+            COOPERATIVE[action.ordinal()] = true;
+        }
+        for (TacticalActionSpace.TacticalAction action : EnumSet.of(
+                TacticalActionSpace.TacticalAction.RANGED_MELEE_COMBO,
+                TacticalActionSpace.TacticalAction.SACRIFICE_PLAY,
+                TacticalActionSpace.TacticalAction.AMBUSH_SETUP,
+                TacticalActionSpace.TacticalAction.LAYERED_DEFENSE)) {
+            CROSS_SPECIES[action.ordinal()] = true;
         }
     }
-    
+
+    // Buffers returned by release(), shared by the server thread and the aggregation stage
+    private static final Queue<CombatEpisode> POOL = new ArrayBlockingQueue<>(POOL_CAPACITY);
+
     /**
      * Episode outcome - what matters for learning
      */
@@ -39,202 +65,321 @@ public class CombatEpisode {
         public final float totalDamageTaken;
         public final int durationTicks;
         public final float episodeReward;  // calculated from outcome
-        
+
+        /**
+         * @param cooperativeTactics  samples using a cooperative tactic with allies nearby
+         * @param crossSpeciesTactics samples using a cross-species tactic with allies nearby
+         * @param playerSurrounded    whether any sample saw the player surrounded
+         */
         public EpisodeOutcome(boolean mobKilledPlayer, boolean playerKilledMob,
-                            float totalDamageDealt, float totalDamageTaken, 
-                            int durationTicks, List<TacticalSample> samples) {
+                            float totalDamageDealt, float totalDamageTaken,
+                            int durationTicks, int cooperativeTactics, int crossSpeciesTactics,
+                            boolean playerSurrounded) {
             this.mobKilledPlayer = mobKilledPlayer;
             this.playerKilledMob = playerKilledMob;
             this.totalDamageDealt = totalDamageDealt;
             this.totalDamageTaken = totalDamageTaken;
             this.durationTicks = durationTicks;
-            
+
             // Calculate episode reward
-            this.episodeReward = calculateEpisodeReward(samples);
+            this.episodeReward = calculateEpisodeReward(cooperativeTactics, crossSpeciesTactics, playerSurrounded);
         }
-        
-        private float calculateEpisodeReward(List<TacticalSample> samples) {
+
+        private float calculateEpisodeReward(int cooperativeTactics, int crossSpeciesTactics, boolean playerSurrounded) {
             float reward = 0;
-            
+
             // Win/loss outcome
             if (mobKilledPlayer) {
                 reward += 100.0f;
             } else if (playerKilledMob) {
                 reward -= 50.0f;
             }
-            
+
             // Damage efficiency
             reward += totalDamageDealt * 2.0f;
             reward -= totalDamageTaken * 1.0f;
-            
+
             // Time efficiency (rewarded for quick kills, penalized for long losing fights)
             if (mobKilledPlayer && durationTicks < 600) {  // < 30s
                 reward += 20.0f;
             }
-            
+
             // COOPERATIVE REWARDS: Bonus for using cooperative tactics with allies present
-            long cooperativeTactics = samples.stream()
-                .filter(s -> isCooperativeTactic(s.action) && s.state.nearbyAllies >= 1)
-                .count();
             if (cooperativeTactics > 0) {
                 // Reward successful cooperation
                 if (mobKilledPlayer) {
                     reward += cooperativeTactics * 5.0f;  // Bonus for coordinated kills
                 }
-                
+
                 // Extra bonus if player was surrounded
-                boolean playerSurrounded = samples.stream()
-                    .anyMatch(s -> s.state.playerSurrounded);
                 if (playerSurrounded && mobKilledPlayer) {
                     reward += 30.0f;  // Major bonus for successful pack tactics
                 }
             }
-            
+
             // CROSS-SPECIES REWARDS: Bonus for mixed mob coordination
-            long crossSpeciesTactics = samples.stream()
-                .filter(s -> isCrossSpeciesTactic(s.action) && s.state.nearbyAllies >= 1)
-                .count();
             if (crossSpeciesTactics > 0 && mobKilledPlayer) {
                 reward += crossSpeciesTactics * 8.0f;  // Higher bonus for advanced coordination
             }
-            
+
             return reward;
         }
-        
-        private boolean isCooperativeTactic(TacticalActionSpace.TacticalAction action) {
-            return action == TacticalActionSpace.TacticalAction.COORDINATE_FLANK ||
-                   action == TacticalActionSpace.TacticalAction.PINCER_ATTACK ||
-                   action == TacticalActionSpace.TacticalAction.DISTRACT_AND_STRIKE ||
-                   action == TacticalActionSpace.TacticalAction.ROTATING_PRESSURE ||
-                   action == TacticalActionSpace.TacticalAction.PROTECT_WEAK_ALLY;
-        }
-        
-        private boolean isCrossSpeciesTactic(TacticalActionSpace.TacticalAction action) {
-            return action == TacticalActionSpace.TacticalAction.RANGED_MELEE_COMBO ||
-                   action == TacticalActionSpace.TacticalAction.SACRIFICE_PLAY ||
-                   action == TacticalActionSpace.TacticalAction.AMBUSH_SETUP ||
-                   action == TacticalActionSpace.TacticalAction.LAYERED_DEFENSE;
-        }
-        
+
         public boolean wasSuccessful() {
             return episodeReward > 0;
         }
     }
-    
-    private final String mobId;
-    private final String mobType;
-    private final List<TacticalSample> samples;
-    private final long startTime;
+
+    private String mobId;
+    private String mobType;
+    private long startTime;
     private int startTick;
+    private int endTick;
+    private boolean mobKilledPlayer;
+    private boolean playerKilledMob;
     private float totalDamageDealt;
     private float totalDamageTaken;
     private boolean episodeEnded;
-    
-    public CombatEpisode(String mobId, String mobType) {
-        this.mobId = mobId;
-        this.mobType = mobType;
-        this.samples = new ArrayList<>();
-        this.startTime = System.currentTimeMillis();
-        this.startTick = 0;
-        this.totalDamageDealt = 0;
-        this.totalDamageTaken = 0;
-        this.episodeEnded = false;
+    private boolean pooled;
+
+    // Sample columns, one entry per sample
+    private int sampleCount;
+    private byte[] tactics;        // TacticalAction ordinal
+    private byte[] situations;     // Situation ordinal
+    private float[] rewards;       // Damage dealt at the sample
+    private byte[] health;         // Own health ratio, 1/255 steps
+    private byte[] targetHealth;   // Target health ratio, 1/255 steps
+    private byte[] distance;       // Quarter blocks, capped at 63.75
+    private byte[] allies;         // Nearby allies, capped at 255
+    private byte[] flags;          // FLAG_* bits
+
+    private CombatEpisode() {
+        allocate(INITIAL_CAPACITY);
     }
-    
+
+    /**
+     * Take a pooled buffer (or a new one) and start an episode in it.
+     */
+    public static CombatEpisode acquire(String mobId, String mobType, int startTick) {
+        CombatEpisode episode = POOL.poll();
+        if (episode == null) {
+            episode = new CombatEpisode();
+        }
+        episode.mobId = mobId;
+        episode.mobType = mobType;
+        episode.startTime = System.currentTimeMillis();
+        episode.startTick = startTick;
+        episode.pooled = false;
+        return episode;
+    }
+
+    /**
+     * Return this buffer to the pool. The episode must not be used afterwards.
+     */
+    public void release() {
+        if (pooled) {
+            return;
+        }
+        pooled = true;
+        mobId = null;
+        mobType = null;
+        startTick = 0;
+        endTick = 0;
+        mobKilledPlayer = false;
+        playerKilledMob = false;
+        totalDamageDealt = 0;
+        totalDamageTaken = 0;
+        episodeEnded = false;
+        sampleCount = 0;
+        POOL.offer(this);  // Dropped for GC when the pool is full
+    }
+
+    private void allocate(int capacity) {
+        tactics = new byte[capacity];
+        situations = new byte[capacity];
+        rewards = new float[capacity];
+        health = new byte[capacity];
+        targetHealth = new byte[capacity];
+        distance = new byte[capacity];
+        allies = new byte[capacity];
+        flags = new byte[capacity];
+    }
+
+    private void grow() {
+        int capacity = Math.min(MAX_SAMPLES, tactics.length * 2);
+        tactics = Arrays.copyOf(tactics, capacity);
+        situations = Arrays.copyOf(situations, capacity);
+        rewards = Arrays.copyOf(rewards, capacity);
+        health = Arrays.copyOf(health, capacity);
+        targetHealth = Arrays.copyOf(targetHealth, capacity);
+        distance = Arrays.copyOf(distance, capacity);
+        allies = Arrays.copyOf(allies, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+
     /**
      * Record a tactical decision during combat
-     * Call this every few ticks (e.g., every 10 ticks = 0.5s)
+     * Call this when {@link EpisodeSampleRate#isDue(int)} says so, not every tick
      */
     public void recordTacticalSample(TacticalActionSpace.TacticalState state,
                                      TacticalActionSpace.TacticalAction action,
                                      float damageThisTick) {
-        if (episodeEnded) {
+        if (episodeEnded || sampleCount >= MAX_SAMPLES) {
             return;
         }
-        
-        samples.add(new TacticalSample(state, action, damageThisTick));
+        if (sampleCount == tactics.length) {
+            grow();
+        }
+
+        int i = sampleCount++;
+        tactics[i] = (byte) action.ordinal();
+        situations[i] = (byte) TacticalActionSpace.Situation.of(state).ordinal();
+        rewards[i] = damageThisTick;
+        health[i] = quantizeRatio(state.healthRatio);
+        targetHealth[i] = quantizeRatio(state.targetHealthRatio);
+        distance[i] = (byte) Math.min(255, Math.round(Math.max(0.0f, state.distanceToTarget) * 4.0f));
+        allies[i] = (byte) Math.min(255, Math.max(0, state.nearbyAllies));
+        flags[i] = (byte) ((state.targetHasShield ? FLAG_TARGET_SHIELD : 0)
+            | (state.targetLowHealth ? FLAG_TARGET_LOW_HEALTH : 0)
+            | (state.selfLowHealth ? FLAG_SELF_LOW_HEALTH : 0)
+            | (state.allyNeedsHelp ? FLAG_ALLY_NEEDS_HELP : 0)
+            | (state.targetInCooldown ? FLAG_TARGET_COOLDOWN : 0)
+            | (state.hasTerrainCover ? FLAG_TERRAIN_COVER : 0)
+            | (state.playerSurrounded ? FLAG_PLAYER_SURROUNDED : 0));
         totalDamageDealt += Math.max(0, damageThisTick);
     }
-    
+
+    private static byte quantizeRatio(float ratio) {
+        return (byte) Math.round(Math.max(0.0f, Math.min(1.0f, ratio)) * 255.0f);
+    }
+
     /**
      * Record damage taken by the mob
      */
     public void recordDamageTaken(float damage) {
         totalDamageTaken += damage;
     }
-    
+
     /**
-     * End the episode and calculate outcome
+     * End the episode. Cheap; the outcome is computed later by {@link #computeOutcome()}.
+     * @return false if the episode had already ended
      */
-    public EpisodeOutcome endEpisode(boolean mobKilledPlayer, boolean playerKilledMob, int currentTick) {
+    public boolean finish(boolean mobKilledPlayer, boolean playerKilledMob, int currentTick) {
         if (episodeEnded) {
-            return null;
+            return false;
         }
-        
+
         episodeEnded = true;
-        int durationTicks = currentTick - startTick;
-        
+        this.mobKilledPlayer = mobKilledPlayer;
+        this.playerKilledMob = playerKilledMob;
+        this.endTick = currentTick;
+        return true;
+    }
+
+    /**
+     * Calculate the outcome of a finished episode from its sample columns
+     */
+    public EpisodeOutcome computeOutcome() {
+        int cooperativeTactics = 0;
+        int crossSpeciesTactics = 0;
+        boolean playerSurrounded = false;
+        for (int i = 0; i < sampleCount; i++) {
+            int tactic = tactics[i];
+            if (allies[i] != 0) {
+                if (COOPERATIVE[tactic]) {
+                    cooperativeTactics++;
+                }
+                if (CROSS_SPECIES[tactic]) {
+                    crossSpeciesTactics++;
+                }
+            }
+            playerSurrounded |= (flags[i] & FLAG_PLAYER_SURROUNDED) != 0;
+        }
+
         return new EpisodeOutcome(
             mobKilledPlayer,
             playerKilledMob,
             totalDamageDealt,
             totalDamageTaken,
-            durationTicks,
-            samples
+            endTick - startTick,
+            cooperativeTactics,
+            crossSpeciesTactics,
+            playerSurrounded
         );
     }
-    
+
     /**
      * Check if episode should be sampled (has enough data)
      * Federation wants dense episodes, not sparse ones
      */
     public boolean isReadyForLearning() {
         // Need at least 5 tactical samples to be meaningful
-        return samples.size() >= 5;
-    }
-    
-    /**
-     * Get all tactical samples from this episode
-     */
-    public List<TacticalSample> getSamples() {
-        return Collections.unmodifiableList(samples);
+        return sampleCount >= 5;
     }
-    
+
     /**
      * Count tactical samples
      */
     public int getSampleCount() {
-        return samples.size();
+        return sampleCount;
     }
-    
+
+    public TacticalActionSpace.TacticalAction getTactic(int sample) {
+        return TACTICS[tactics[sample]];
+    }
+
+    public TacticalActionSpace.Situation getSituation(int sample) {
+        return TacticalActionSpace.Situation.values()[situations[sample]];
+    }
+
+    public float getDamage(int sample) {
+        return rewards[sample];
+    }
+
+    /** Own health ratio at the sample, to 1/255 */
+    public float getHealthRatio(int sample) {
+        return (health[sample] & 0xFF) / 255.0f;
+    }
+
+    /** Target health ratio at the sample, to 1/255 */
+    public float getTargetHealthRatio(int sample) {
+        return (targetHealth[sample] & 0xFF) / 255.0f;
+    }
+
+    /** Distance to the target at the sample, to a quarter block (capped at 63.75) */
+    public float getDistanceToTarget(int sample) {
+        return (distance[sample] & 0xFF) / 4.0f;
+    }
+
+    public int getNearbyAllies(int sample) {
+        return allies[sample] & 0xFF;
+    }
+
+    public boolean wasPlayerSurrounded(int sample) {
+        return (flags[sample] & FLAG_PLAYER_SURROUNDED) != 0;
+    }
+
     /**
      * Get mob type
      */
     public String getMobType() {
         return mobType;
     }
-    
+
     /**
      * Get mob ID
      */
     public String getMobId() {
         return mobId;
     }
-    
+
     /**
      * Get episode duration so far (milliseconds)
      */
     public long getDuration() {
         return System.currentTimeMillis() - startTime;
     }
-    
-    /**
-     * Set start tick (for tracking episode duration in ticks)
-     */
-    public void setStartTick(int tick) {
-        this.startTick = tick;
-    }
-    
+
     /**
      * Convert episode to loggable format for federation
      * This is what gets aggregated across players
@@ -242,84 +387,49 @@ public class CombatEpisode {
     public Map<String, Object> toFederationData(EpisodeOutcome outcome) {
         Map<String, Object> data = new HashMap<>();
         data.put("mobType", mobType);
-        data.put("sampleCount", samples.size());
+        data.put("sampleCount", sampleCount);
         data.put("episodeReward", outcome.episodeReward);
         data.put("wasSuccessful", outcome.wasSuccessful());
         data.put("damageDealt", outcome.totalDamageDealt);
         data.put("damageTaken", outcome.totalDamageTaken);
         data.put("durationTicks", outcome.durationTicks);
-        
+
         // Aggregate tactical preferences from this episode
+        int[] counts = new int[TACTICS.length];
+        for (int i = 0; i < sampleCount; i++) {
+            counts[tactics[i]]++;
+        }
         Map<String, Integer> tacticCounts = new HashMap<>();
-        for (TacticalSample sample : samples) {
-            String tacticId = sample.action.id;
-            tacticCounts.put(tacticId, tacticCounts.getOrDefault(tacticId, 0) + 1);
+        for (int tactic = 0; tactic < counts.length; tactic++) {
+            if (counts[tactic] > 0) {
+                tacticCounts.put(TACTICS[tactic].id, counts[tactic]);
+            }
         }
         data.put("tacticsUsed", tacticCounts);
-        
+
         return data;
     }
-    
-    /**
-     * Extract tactical patterns for learning
-     * Returns: what tactics were used in what situations, and did they work?
-     */
-    public Map<String, Float> extractTacticalWeights(EpisodeOutcome outcome) {
-        Map<String, Float> weights = new HashMap<>();
-        
-        // Weight each tactic by how often it was used and episode success
-        float successMultiplier = outcome.wasSuccessful() ? 1.5f : 0.5f;
-        
-        for (TacticalSample sample : samples) {
-            String tacticId = sample.action.id;
-            float weight = (1.0f / samples.size()) * successMultiplier;
-            weights.put(tacticId, weights.getOrDefault(tacticId, 0.0f) + weight);
-        }
-        
-        return weights;
-    }
-    
+
     /**
-     * Get situational tactics: what tactics were used in specific situations?
-     * This enables context-aware learning
+     * Tactical patterns for learning: what tactics were used in what situations, and did they work?
+     * Accumulates into {@code global[tacticOrdinal]} (usage share, weighted by success) and
+     * {@code situational[situationOrdinal * tactics + tacticOrdinal]}. Entries for tactics the
+     * episode never used are left untouched (callers pre-fill with NaN to tell them apart).
      */
-    public Map<String, Map<String, Float>> extractSituationalTactics(EpisodeOutcome outcome) {
-        Map<String, Map<String, Float>> situationalTactics = new HashMap<>();
-        
-        float successMultiplier = outcome.wasSuccessful() ? 1.0f : -0.5f;
-        
-        for (TacticalSample sample : samples) {
-            // Categorize situation
-            String situation = categorizeSituation(sample.state);
-            String tactic = sample.action.id;
-            
-            situationalTactics.putIfAbsent(situation, new HashMap<>());
-            Map<String, Float> tacticMap = situationalTactics.get(situation);
-            tacticMap.put(tactic, tacticMap.getOrDefault(tactic, 0.0f) + successMultiplier);
+    public void accumulateTacticalWeights(EpisodeOutcome outcome, float[] global, float[] situational) {
+        if (sampleCount == 0) {
+            return;
         }
-        
-        return situationalTactics;
-    }
-    
-    /**
-     * Categorize tactical state into discrete situations
-     * Examples: "low_health", "target_low_health", "outnumbered", etc.
-     */
-    private String categorizeSituation(TacticalActionSpace.TacticalState state) {
-        if (state.selfLowHealth) {
-            return "low_health";
-        } else if (state.targetLowHealth) {
-            return "target_low_health";
-        } else if (state.targetHasShield) {
-            return "target_shielding";
-        } else if (state.nearbyAllies >= 2) {
-            return "group_combat";
-        } else if (state.distanceToTarget < 3) {
-            return "close_range";
-        } else if (state.distanceToTarget > 8) {
-            return "long_range";
-        } else {
-            return "neutral";
+        int tacticCount = TACTICS.length;
+        float globalWeight = (1.0f / sampleCount) * (outcome.wasSuccessful() ? 1.5f : 0.5f);
+        float situationalWeight = outcome.wasSuccessful() ? 1.0f : -0.5f;
+
+        for (int i = 0; i < sampleCount; i++) {
+            int tactic = tactics[i];
+            global[tactic] = (Float.isNaN(global[tactic]) ? 0.0f : global[tactic]) + globalWeight;
+
+            int cell = situations[i] * tacticCount + tactic;
+            situational[cell] = (Float.isNaN(situational[cell]) ? 0.0f : situational[cell]) + situationalWeight;
         }
     }
 }
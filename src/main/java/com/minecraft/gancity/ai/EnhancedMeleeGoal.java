@@ -21,6 +21,7 @@ public class EnhancedMeleeGoal extends Goal {
     private static final Logger LOGGER = LogUtils.getLogger();
     
     private final Mob mob;
+    private final TacticMovementExecutor movement;
     private final double speedModifier;
     private final boolean followingTargetEvenIfNotSeen;
     private final boolean enableEnvironmentalTactics;
@@ -41,6 +42,7 @@ public class EnhancedMeleeGoal extends Goal {
     public EnhancedMeleeGoal(Mob mob, double speedModifier, boolean followEvenIfNotSeen, 
                            boolean enableEnvironmental, boolean isVillager) {
         this.mob = mob;
+        this.movement = new TacticMovementExecutor(mob);
         this.speedModifier = speedModifier;
         this.followingTargetEvenIfNotSeen = followEvenIfNotSeen;
         this.enableEnvironmentalTactics = enableEnvironmental;
@@ -95,7 +97,8 @@ public class EnhancedMeleeGoal extends Goal {
     
     @Override
     public void start() {
-        this.mob.getNavigation().moveTo(this.target, this.speedModifier);
+        this.movement.reset();
+        this.movement.moveTo(this.target, this.speedModifier, currentAction);
         this.ticksUntilNextAction = 0;
         this.ticksUntilNextAIUpdate = AI_UPDATE_INTERVAL;
         this.combatTicks = 0;
@@ -125,7 +128,8 @@ public class EnhancedMeleeGoal extends Goal {
         }
         
         this.target = null;
-        this.mob.getNavigation().stop();
+        this.movement.stop();
+        this.movement.reset();
         this.combatTicks = 0;
     }
     
@@ -152,7 +156,7 @@ public class EnhancedMeleeGoal extends Goal {
             combatTicks++;
             this.mob.getLookControl().setLookAt(this.target, 30.0F, 30.0F);
             
-            if (combatTicks % 10 == 0 && target instanceof net.minecraft.world.entity.player.Player) {
+            if (EpisodeSampleRate.isDue(combatTicks) && target instanceof net.minecraft.world.entity.player.Player) {
                 if (behaviorAI != null) {
                     behaviorAI.recordTacticalSample(mobId, mob, (net.minecraft.world.entity.player.Player) target, 0);
                 }
@@ -266,7 +270,7 @@ public class EnhancedMeleeGoal extends Goal {
         
         switch (currentAction) {
             case "straight_charge":
-                mob.getNavigation().moveTo(target, baseSpeed * 1.2);
+                movement.moveTo(target, baseSpeed * 1.2, currentAction);
                 break;
             case "circle_strafe":
                 circleAroundTarget(baseSpeed);
@@ -275,19 +279,19 @@ public class EnhancedMeleeGoal extends Goal {
                 if (distance < 8.0) retreatFromTarget(baseSpeed * 1.1);
                 break;
             case "ambush":
-                if (distance > 5.0) mob.getNavigation().stop();
-                else mob.getNavigation().moveTo(target, baseSpeed * 1.5);
+                if (distance > 5.0) movement.stop();
+                else movement.moveTo(target, baseSpeed * 1.5, currentAction);
                 break;
             case "group_rush":
             case "suicide_rush":
-                mob.getNavigation().moveTo(target, baseSpeed * 1.3);
+                movement.moveTo(target, baseSpeed * 1.3, currentAction);
                 break;
             case "retreat_reload":
             case "fake_retreat":
                 if (mob.getRandom().nextFloat() < 0.7f) retreatFromTarget(baseSpeed);
                 break;
             default:
-                mob.getNavigation().moveTo(target, baseSpeed);
+                movement.moveTo(target, baseSpeed, currentAction);
                 break;
         }
         
@@ -309,7 +313,7 @@ public class EnhancedMeleeGoal extends Goal {
         double targetX = target.getX() + Math.cos(circleAngle) * distance;
         double targetZ = target.getZ() + Math.sin(circleAngle) * distance;
         
-        mob.getNavigation().moveTo(targetX, target.getY(), targetZ, speed);
+        movement.moveTo(targetX, target.getY(), targetZ, speed, currentAction);
     }
     
     private void retreatFromTarget(double speed) {
@@ -321,6 +325,6 @@ public class EnhancedMeleeGoal extends Goal {
         double targetX = mob.getX() - Math.cos(angle) * distance;
         double targetZ = mob.getZ() - Math.sin(angle) * distance;
         
-        mob.getNavigation().moveTo(targetX, mob.getY(), targetZ, speed);
+        movement.moveTo(targetX, mob.getY(), targetZ, speed, currentAction);
     }
 }
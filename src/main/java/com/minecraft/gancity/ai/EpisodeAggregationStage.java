@@ -0,0 +1,146 @@
+package com.minecraft.gancity.ai;
+
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background stage for finished combat episodes: computes the outcome, folds it into the
+ * {@link TacticalWeightAggregator} and hands it to federation, then returns the episode's
+ * buffer to the pool.
+ *
+ * The server thread only enqueues ({@link #submit}), which never blocks. The queue is bounded;
+ * when it is full the newest episode is dropped and counted, and queue fill is reported to
+ * {@link EpisodeSampleRate} so sampling slows down before that happens often.
+ */
+final class EpisodeAggregationStage {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    static final int DEFAULT_CAPACITY = 256;
+    static final int MIN_CAPACITY = 16;
+    static final int MAX_CAPACITY = 4096;
+
+    private final BlockingQueue<Job> queue;
+    private final int capacity;
+    private final Thread worker;
+    private final AtomicLong aggregated = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+    private volatile boolean running = true;
+
+    private static final class Job {
+        private final CombatEpisode episode;
+        private final TacticalWeightAggregator aggregator;
+        private final FederatedLearning federation;  // Null when federation is unavailable
+        private final String playerId;
+
+        private Job(CombatEpisode episode, TacticalWeightAggregator aggregator,
+                    FederatedLearning federation, String playerId) {
+            this.episode = episode;
+            this.aggregator = aggregator;
+            this.federation = federation;
+            this.playerId = playerId;
+        }
+    }
+
+    EpisodeAggregationStage(int requestedCapacity) {
+        this.capacity = clampCapacity(requestedCapacity);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.worker = new Thread(this::run, "MobAI-EpisodeAggregator");
+        this.worker.setDaemon(true);
+        this.worker.setPriority(Thread.MIN_PRIORITY);
+        this.worker.start();
+    }
+
+    static int clampCapacity(int requestedCapacity) {
+        return Math.max(MIN_CAPACITY, Math.min(MAX_CAPACITY, requestedCapacity));
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Enqueue a finished episode. The stage owns the episode from here on and releases it
+     * (also when it is dropped).
+     * @return false if the queue was full and the episode was dropped
+     */
+    boolean submit(CombatEpisode episode, TacticalWeightAggregator aggregator,
+                   FederatedLearning federation, String playerId) {
+        if (!running || !queue.offer(new Job(episode, aggregator, federation, playerId))) {
+            long total = dropped.incrementAndGet();
+            episode.release();
+            EpisodeSampleRate.onStagePressure(getQueueFill(), true);
+            if (total == 1 || total % 100 == 0) {
+                LOGGER.debug("Episode aggregation queue full - {} episodes dropped so far", total);
+            }
+            return false;
+        }
+        EpisodeSampleRate.onStagePressure(getQueueFill(), false);
+        return true;
+    }
+
+    private void run() {
+        while (running) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            process(job, true);
+            EpisodeSampleRate.onStagePressure(getQueueFill(), false);
+        }
+    }
+
+    private void process(Job job, boolean submitToFederation) {
+        CombatEpisode episode = job.episode;
+        try {
+            CombatEpisode.EpisodeOutcome outcome = episode.computeOutcome();
+            LOGGER.debug("Episode ended: {} samples, reward: {}, duration: {}s, ready: {}",
+                episode.getSampleCount(), String.format("%.1f", outcome.episodeReward),
+                outcome.durationTicks / 20, episode.isReadyForLearning());
+
+            job.aggregator.aggregateEpisode(episode, outcome, job.playerId != null ? job.playerId : "server");
+
+            if (submitToFederation && job.federation != null && job.federation.isEnabled()) {
+                job.federation.submitEpisodeAsync(episode, outcome, job.playerId);
+            }
+            aggregated.incrementAndGet();
+        } catch (Exception e) {
+            LOGGER.warn("Episode aggregation failed for {}: {}", episode.getMobType(), e.getMessage());
+        } finally {
+            episode.release();
+        }
+    }
+
+    private float getQueueFill() {
+        return (float) queue.size() / capacity;
+    }
+
+    /**
+     * Stop the worker, then aggregate what is still queued on the calling thread (without
+     * federation submission, which is shutting down too).
+     */
+    void shutdown() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Job job;
+        while ((job = queue.poll()) != null) {
+            process(job, false);
+        }
+    }
+
+    String getStats() {
+        return String.format("Episode aggregation: %d/%d queued, %d aggregated, %d dropped, sampling every %d ticks%s",
+            queue.size(), capacity, aggregated.get(), dropped.get(), EpisodeSampleRate.getIntervalTicks(),
+            EpisodeSampleRate.isAdaptive() ? " (adaptive)" : "");
+    }
+}
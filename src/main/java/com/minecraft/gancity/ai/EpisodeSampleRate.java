@@ -0,0 +1,83 @@
+package com.minecraft.gancity.ai;
+
+/**
+ * The single gate for tactical episode sampling ({@link MobBehaviorAI#recordTacticalSample}).
+ *
+ * Combat goals ask {@link #isDue(int)} with their combat tick count. The interval is the
+ * configured base, stretched by a slowdown factor (1x to {@value #MAX_SLOWDOWN}x) when adaptive:
+ * the episode aggregation stage reports its queue fill, the factor doubles while the queue is
+ * more than half full or dropping episodes and halves again once it drains below a quarter.
+ * The factor changes at most once per {@value #ADJUST_INTERVAL_MS} ms.
+ *
+ * Uses no Minecraft classes, so the mob mixin can call it directly.
+ */
+public final class EpisodeSampleRate {
+    public static final int DEFAULT_INTERVAL_TICKS = 10;
+    public static final int MIN_INTERVAL_TICKS = 5;
+    public static final int MAX_INTERVAL_TICKS = 40;
+
+    private static final int MAX_SLOWDOWN = 8;
+    private static final long ADJUST_INTERVAL_MS = 1000;
+
+    private static volatile int baseInterval = DEFAULT_INTERVAL_TICKS;
+    private static volatile boolean adaptive = true;
+    private static volatile int slowdown = 1;
+    private static long lastAdjustMs = 0;
+
+    private EpisodeSampleRate() {
+    }
+
+    /**
+     * @param intervalTicks base sampling interval, clamped to
+     *                      [{@value #MIN_INTERVAL_TICKS}, {@value #MAX_INTERVAL_TICKS}]
+     * @param adaptiveRate  whether aggregation backpressure may stretch the interval
+     */
+    public static synchronized void configure(int intervalTicks, boolean adaptiveRate) {
+        baseInterval = Math.max(MIN_INTERVAL_TICKS, Math.min(MAX_INTERVAL_TICKS, intervalTicks));
+        adaptive = adaptiveRate;
+        if (!adaptiveRate) {
+            slowdown = 1;
+        }
+    }
+
+    /**
+     * @return whether a combat goal should record a sample on this combat tick
+     */
+    public static boolean isDue(int combatTicks) {
+        return combatTicks > 0 && combatTicks % getIntervalTicks() == 0;
+    }
+
+    public static int getIntervalTicks() {
+        return baseInterval * slowdown;
+    }
+
+    public static int getBaseIntervalTicks() {
+        return baseInterval;
+    }
+
+    public static boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Backpressure report from the aggregation stage.
+     * @param queueFill queued episodes / capacity, 0-1
+     * @param dropped   whether an episode was dropped since the last report
+     */
+    static synchronized void onStagePressure(float queueFill, boolean dropped) {
+        if (!adaptive) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastAdjustMs < ADJUST_INTERVAL_MS) {
+            return;
+        }
+        if ((dropped || queueFill > 0.5f) && slowdown < MAX_SLOWDOWN) {
+            slowdown *= 2;
+            lastAdjustMs = now;
+        } else if (!dropped && queueFill < 0.25f && slowdown > 1) {
+            slowdown /= 2;
+            lastAdjustMs = now;
+        }
+    }
+}
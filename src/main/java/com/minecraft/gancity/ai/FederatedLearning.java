@@ -1107,30 +1107,31 @@ public class FederatedLearning {
     /**
      * Submit a combat episode asynchronously to federation
      * This is what makes federation actually work - aggregate episodes, not single actions
+     *
+     * The payload is built before returning, so the caller may release the episode's buffer
+     * as soon as this returns.
      */
     public void submitEpisodeAsync(CombatEpisode episode, CombatEpisode.EpisodeOutcome outcome, String playerId) {
         if (!syncEnabled || apiClient == null) {
-            LOGGER.warn("Cannot submit episode - sync disabled or apiClient null");
             return;
         }
         
         if (!episode.isReadyForLearning()) {
-            LOGGER.warn("Episode not ready for learning - only {} samples (need 5+)", episode.getSampleCount());
+            LOGGER.debug("Episode not ready for learning - only {} samples (need 5+)", episode.getSampleCount());
             return;  // Not enough data
         }
         
-        LOGGER.info("Submitting episode with {} samples to Cloudflare...", episode.getSampleCount());
+        Map<String, Object> episodeData = episode.toFederationData(outcome);
+        episodeData.put("playerId", playerId != null ? playerId : "unknown");
+        episodeData.put("timestamp", System.currentTimeMillis());
+        int sampleCount = episode.getSampleCount();
         
         CompletableFuture.runAsync(() -> {
             try {
-                Map<String, Object> episodeData = episode.toFederationData(outcome);
-                episodeData.put("playerId", playerId != null ? playerId : "unknown");
-                episodeData.put("timestamp", System.currentTimeMillis());
-                
                 apiClient.submitEpisodeData(episodeData);
                 
-                LOGGER.info("Successfully submitted episode: {} samples, reward: {:.1f}", 
-                    episode.getSampleCount(), outcome.episodeReward);
+                LOGGER.debug("Submitted episode: {} samples, reward: {}", 
+                    sampleCount, String.format("%.1f", outcome.episodeReward));
             } catch (Exception e) {
                 LOGGER.error("Failed to submit episode: {}", e.getMessage(), e);
             }
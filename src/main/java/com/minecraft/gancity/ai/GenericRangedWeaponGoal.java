@@ -23,6 +23,7 @@ import java.util.Objects;
  */
 public final class GenericRangedWeaponGoal extends Goal {
     private final Mob mob;
+    private final TacticMovementExecutor movement;
     private final double speedModifier;
 
     private LivingEntity target;
@@ -36,6 +37,7 @@ public final class GenericRangedWeaponGoal extends Goal {
 
     public GenericRangedWeaponGoal(Mob mob, double speedModifier) {
         this.mob = Objects.requireNonNull(mob, "mob");
+        this.movement = new TacticMovementExecutor(this.mob);
         this.speedModifier = speedModifier;
         EnumSet<Goal.Flag> goalFlags = EnumSet.of(Goal.Flag.MOVE, Goal.Flag.LOOK);
         this.setFlags(Objects.requireNonNull(goalFlags, "goalFlags"));
@@ -79,12 +81,14 @@ public final class GenericRangedWeaponGoal extends Goal {
     @Override
     public void start() {
         attackCooldownTicks = 0;
+        movement.reset();
     }
 
     @Override
     public void stop() {
         this.target = null;
-        mob.getNavigation().stop();
+        movement.stop();
+        movement.reset();
     }
 
     @Override
@@ -105,11 +109,11 @@ public final class GenericRangedWeaponGoal extends Goal {
             Vec3 retreatOffset = Objects.requireNonNull(away.normalize(), "awayNormal").scale(6.0);
             Vec3 retreatPos = Objects.requireNonNull(currentMob.position(), "mobPosition")
                 .add(Objects.requireNonNull(retreatOffset, "retreatOffset"));
-            currentMob.getNavigation().moveTo(retreatPos.x, retreatPos.y, retreatPos.z, speedModifier);
+            movement.moveTo(retreatPos.x, retreatPos.y, retreatPos.z, speedModifier, "ranged_retreat");
         } else if (distSqr > PREFERRED_MAX_DISTANCE_SQR) {
-            currentMob.getNavigation().moveTo(currentTarget, speedModifier);
+            movement.moveTo(currentTarget, speedModifier, "ranged_approach");
         } else {
-            currentMob.getNavigation().stop();
+            movement.stop();
         }
 
         if (attackCooldownTicks > 0) {
@@ -117,7 +121,7 @@ public final class GenericRangedWeaponGoal extends Goal {
             return;
         }
 
-        if (!currentMob.getSensing().hasLineOfSight(currentTarget)) {
+        if (!LineOfSightCache.hasLineOfSight(currentMob, currentTarget)) {
             return;
         }
 
@@ -0,0 +1,58 @@
+package com.minecraft.gancity.ai;
+
+import com.minecraft.gancity.ml.GeneticBehaviorEvolution;
+import com.minecraft.gancity.ml.PrioritizedReplayBuffer;
+
+/**
+ * One combat outcome on its way from the game thread to the learners ({@link LearningEventPipeline}).
+ *
+ * Instances are the pipeline's preallocated ring slots: the game thread fills one in place and
+ * publishes it, the pipeline thread hands it to each learner in order, then the slot is reused.
+ * Learners must copy anything (notably the feature arrays) they keep beyond their call.
+ */
+final class LearningEvent {
+    long position;  // Ring sequence of the current use of this slot
+
+    // Mob and action
+    String mobId;        // Learners key per-mob state (prediction cache, teams) on it
+    String profileType;  // Behavior profile whose Q head chose the action, null if unknown
+    String action;
+    GeneticBehaviorEvolution.BehaviorGenome genome;  // Null if the mob had none
+
+    // Reward components
+    float outcomeReward;  // Kill/death, health deltas and positioning (calculateReward)
+    float damageDealt;
+    float damageTaken;
+    boolean playerDied;
+    boolean mobDied;
+
+    // Feature snapshot: combined state/visual/genome features before and after the action
+    final float[] initialFeatures = new float[PrioritizedReplayBuffer.DEFAULT_STATE_SIZE];
+    final float[] finalFeatures = new float[PrioritizedReplayBuffer.DEFAULT_STATE_SIZE];
+
+    // Attribute snapshot for attribute-tactic correlation
+    boolean hasAttributes;
+    float movementSpeed;
+    float maxHealth;
+    float attackDamage;
+
+    // Set by the first pipeline stage, read by the learners after it
+    String mobType;
+    float reward;
+
+    boolean isEpisodeDone() {
+        return playerDied || mobDied;
+    }
+
+    /**
+     * Drop references so a queued slot does not keep genomes or strings alive.
+     */
+    void clear() {
+        mobId = null;
+        profileType = null;
+        action = null;
+        genome = null;
+        mobType = null;
+        hasAttributes = false;
+    }
+}
@@ -0,0 +1,170 @@
+package com.minecraft.gancity.ai;
+
+import com.minecraft.gancity.ml.SequenceRing;
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands combat outcomes from the game thread to the learners on one background thread.
+ *
+ * The game thread {@link #claim()}s a preallocated {@link LearningEvent} slot, fills it in place
+ * and {@link #publish}es it; that is its whole cost. The slots live in a {@link SequenceRing} (one
+ * CAS to claim, one ordered write to publish) that never blocks: when it is full the configured
+ * drop policy discards the oldest queued event or the new one, and counts it. The pipeline thread drains events in
+ * order and passes each one to every learner in the order they were added, so a learner sees the
+ * effects of the ones before it (e.g. the shaped reward). A learner that throws is counted and
+ * skipped for that event; the rest still run.
+ */
+final class LearningEventPipeline {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    static final int DEFAULT_CAPACITY = 1024;
+    private static final long IDLE_PARK_NANOS = 5_000_000L;  // 5ms between polls when empty
+    private static final long SHUTDOWN_WAIT_MS = 5_000L;
+
+    /**
+     * One consumer of learning events.
+     */
+    @FunctionalInterface
+    interface Learner {
+        void accept(LearningEvent event);
+    }
+
+    private final SequenceRing<LearningEvent> ring;
+
+    private final List<String> learnerNames = new ArrayList<>();
+    private final List<Learner> learners = new ArrayList<>();
+    private long[] learnerFailures = new long[0];  // Pipeline thread only
+
+    private final AtomicLong processed = new AtomicLong(0);
+    private final AtomicLong failures = new AtomicLong(0);
+
+    private Thread worker;
+    private volatile boolean running = false;
+
+    LearningEventPipeline(int requestedCapacity, SequenceRing.DropPolicy dropPolicy) {
+        this.ring = new SequenceRing<>(Math.max(64, requestedCapacity), LearningEvent::new, dropPolicy, LearningEvent::clear);
+    }
+
+    /**
+     * Append a learner; learners run in the order they are added. Only before {@link #start()}.
+     */
+    LearningEventPipeline addLearner(String name, Learner learner) {
+        if (worker != null) {
+            throw new IllegalStateException("Learners must be added before the pipeline starts");
+        }
+        learnerNames.add(name);
+        learners.add(learner);
+        return this;
+    }
+
+    LearningEventPipeline start() {
+        learnerFailures = new long[learners.size()];
+        running = true;
+        worker = new Thread(this::run, "MobAI-LearningPipeline");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+        return this;
+    }
+
+    /**
+     * Claim a slot for the caller to fill; it must be {@link #publish}ed right after.
+     * Never blocks.
+     * @return the slot, or null if the ring is full and this event is dropped (counted)
+     */
+    LearningEvent claim() {
+        long pos = ring.claim();
+        if (pos < 0) {
+            long total = ring.getDroppedCount();
+            if (total == 1 || total % 1000 == 0) {
+                LOGGER.debug("Learning event ring full - {} events dropped so far", total);
+            }
+            return null;
+        }
+        LearningEvent event = ring.slot(pos);
+        event.position = pos;
+        return event;
+    }
+
+    void publish(LearningEvent event) {
+        ring.publish(event.position);
+    }
+
+    private void run() {
+        while (running) {
+            if (!poll()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        while (poll()) {
+            // Final drain, on this thread so learners never run on two threads at once
+        }
+    }
+
+    /**
+     * Run the oldest published event through every learner; its slot is cleared and freed after.
+     * @return false if nothing was published
+     */
+    private boolean poll() {
+        return ring.poll(this::dispatch);
+    }
+
+    private void dispatch(LearningEvent event) {
+        for (int i = 0; i < learners.size(); i++) {
+            try {
+                learners.get(i).accept(event);
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                if (learnerFailures[i]++ % 100 == 0) {
+                    LOGGER.warn("Learner '{}' failed (non-fatal): {}", learnerNames.get(i), e.getMessage());
+                }
+            }
+        }
+        processed.incrementAndGet();
+    }
+
+    /**
+     * Stop the pipeline thread. It runs what is still queued through the learners before it
+     * exits, so no outcome is lost on a clean shutdown; the caller waits for that up to
+     * {@value #SHUTDOWN_WAIT_MS} ms but never drains itself while the worker may still be running.
+     */
+    void shutdown() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        LockSupport.unpark(worker);
+        try {
+            worker.join(SHUTDOWN_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            LOGGER.warn("Learning pipeline still draining after {} ms ({} events queued); leaving it to finish",
+                SHUTDOWN_WAIT_MS, size());
+        }
+    }
+
+    /**
+     * Approximate number of queued events.
+     */
+    int size() {
+        return ring.size();
+    }
+
+    int capacity() {
+        return ring.capacity();
+    }
+
+    String getStats() {
+        return String.format("Learning pipeline: %d/%d queued, %d processed, %d dropped (%s), %d learner errors (%s)",
+            ring.size(), ring.capacity(), processed.get(), ring.getDroppedCount(), ring.policy(),
+            failures.get(), String.join(" > ", learnerNames));
+    }
+}
@@ -0,0 +1,257 @@
+package com.minecraft.gancity.ai;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.Level;
+
+/**
+ * Per-tick line-of-sight cache shared by all AI subsystems.
+ *
+ * {@code hasLineOfSight} is a block raycast. Within one tick the same observer/target pair is
+ * asked by reflexes (block/dodge/counter), tactic goals and vanilla {@code Sensing}; this answers
+ * all of them from one raycast. Results are keyed by (observer id, target id) and dropped at tick
+ * start; a result may be carried over for one extra tick when neither entity moved.
+ * A block change ({@link #onBlockChanged}) drops every result whose eye-to-eye segment passes
+ * through that block's bounds, so neither a same-tick hit nor a carried result outlives the
+ * terrain it was cast against. Each result is indexed under the chunk sections its segment
+ * bounds touch, so a block change only looks at the results of its own section; segments
+ * spanning more than {@value #MAX_INDEXED_SECTIONS} sections are raycast every time instead.
+ *
+ * Server thread only (client-side callers bypass the cache); block changes reported from another
+ * thread clear the whole cache on the next lookup.
+ */
+public final class LineOfSightCache {
+    /** Carry a result into the next tick only if both entities moved less than this (blocks). */
+    private static final double REUSE_EPSILON = 0.05;
+    private static final double REUSE_EPSILON_SQR = REUSE_EPSILON * REUSE_EPSILON;
+    /** Longer segments are not cached, so one result never sits in more buckets than this. */
+    private static final int MAX_INDEXED_SECTIONS = 64;
+
+    private static Generation current = new Generation();
+    private static Generation previous = new Generation();
+    private static volatile boolean invalidateAll = false;  // Set by off-thread block changes
+
+    private static long hitCount = 0;
+    private static long carriedCount = 0;
+    private static long raycastCount = 0;
+
+    private LineOfSightCache() {
+    }
+
+    private static final class Entry {
+        private final boolean visible;
+        private final double observerX;
+        private final double observerY;
+        private final double observerZ;
+        private final double targetX;
+        private final double targetY;
+        private final double targetZ;
+        // Bounds of the raycast segment (observer eye to target eye)
+        private final double minX;
+        private final double minY;
+        private final double minZ;
+        private final double maxX;
+        private final double maxY;
+        private final double maxZ;
+        private boolean carried;
+
+        private Entry(boolean visible, Entity observer, Entity target) {
+            this.visible = visible;
+            this.observerX = observer.getX();
+            this.observerY = observer.getY();
+            this.observerZ = observer.getZ();
+            this.targetX = target.getX();
+            this.targetY = target.getY();
+            this.targetZ = target.getZ();
+            this.minX = Math.min(observerX, targetX);
+            this.minY = Math.min(observer.getEyeY(), target.getEyeY());
+            this.minZ = Math.min(observerZ, targetZ);
+            this.maxX = Math.max(observerX, targetX);
+            this.maxY = Math.max(observer.getEyeY(), target.getEyeY());
+            this.maxZ = Math.max(observerZ, targetZ);
+        }
+
+        private boolean crosses(BlockPos pos) {
+            return pos.getX() <= maxX && pos.getX() + 1 >= minX
+                && pos.getY() <= maxY && pos.getY() + 1 >= minY
+                && pos.getZ() <= maxZ && pos.getZ() + 1 >= minZ;
+        }
+
+        private boolean isStill(Entity observer, Entity target) {
+            return observer.distanceToSqr(observerX, observerY, observerZ) < REUSE_EPSILON_SQR
+                && target.distanceToSqr(targetX, targetY, targetZ) < REUSE_EPSILON_SQR;
+        }
+
+        // Section range of every block crosses() can match
+        private int minSectionX() {
+            return SectionPos.blockToSectionCoord(Mth.floor(minX) - 1);
+        }
+
+        private int minSectionY() {
+            return SectionPos.blockToSectionCoord(Mth.floor(minY) - 1);
+        }
+
+        private int minSectionZ() {
+            return SectionPos.blockToSectionCoord(Mth.floor(minZ) - 1);
+        }
+
+        private int maxSectionX() {
+            return SectionPos.blockToSectionCoord(Mth.floor(maxX));
+        }
+
+        private int maxSectionY() {
+            return SectionPos.blockToSectionCoord(Mth.floor(maxY));
+        }
+
+        private int maxSectionZ() {
+            return SectionPos.blockToSectionCoord(Mth.floor(maxZ));
+        }
+
+        private int sectionCount() {
+            return (maxSectionX() - minSectionX() + 1) * (maxSectionY() - minSectionY() + 1)
+                * (maxSectionZ() - minSectionZ() + 1);
+        }
+    }
+
+    /**
+     * One tick's results plus their section index. Section buckets may keep keys of results that
+     * were removed or replaced since; invalidation re-checks the live entry, so stale keys cost a
+     * lookup at worst.
+     */
+    private static final class Generation {
+        private final Long2ObjectOpenHashMap<Entry> entries = new Long2ObjectOpenHashMap<>();
+        private final Long2ObjectOpenHashMap<LongArrayList> sections = new Long2ObjectOpenHashMap<>();
+
+        private void put(long key, Entry entry) {
+            entries.put(key, entry);
+            for (int x = entry.minSectionX(); x <= entry.maxSectionX(); x++) {
+                for (int y = entry.minSectionY(); y <= entry.maxSectionY(); y++) {
+                    for (int z = entry.minSectionZ(); z <= entry.maxSectionZ(); z++) {
+                        long section = SectionPos.asLong(x, y, z);
+                        LongArrayList keys = sections.get(section);
+                        if (keys == null) {
+                            keys = new LongArrayList();
+                            sections.put(section, keys);
+                        }
+                        keys.add(key);
+                    }
+                }
+            }
+        }
+
+        private void invalidate(BlockPos pos) {
+            LongArrayList keys = sections.get(SectionPos.asLong(pos));
+            if (keys == null) {
+                return;
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                long key = keys.getLong(i);
+                Entry entry = entries.get(key);
+                if (entry != null && entry.crosses(pos)) {
+                    entries.remove(key);
+                }
+            }
+        }
+
+        private void clear() {
+            entries.clear();
+            sections.clear();
+        }
+    }
+
+    /**
+     * Cached {@link LivingEntity#hasLineOfSight(Entity)}.
+     */
+    public static boolean hasLineOfSight(LivingEntity observer, Entity target) {
+        if (observer == null || target == null) {
+            return false;
+        }
+        if (observer.level().isClientSide) {
+            return observer.hasLineOfSight(target);
+        }
+
+        if (invalidateAll) {
+            invalidateAll = false;
+            current.clear();
+            previous.clear();
+        }
+
+        long key = key(observer, target);
+        Entry entry = current.entries.get(key);
+        if (entry != null) {
+            hitCount++;
+            return entry.visible;
+        }
+
+        entry = previous.entries.remove(key);
+        if (entry != null && !entry.carried && entry.isStill(observer, target)) {
+            carriedCount++;
+            entry.carried = true;
+            current.put(key, entry);
+            return entry.visible;
+        }
+
+        raycastCount++;
+        boolean visible = observer.hasLineOfSight(target);
+        entry = new Entry(visible, observer, target);
+        if (entry.sectionCount() <= MAX_INDEXED_SECTIONS) {
+            current.put(key, entry);
+        }
+        return visible;
+    }
+
+    /**
+     * Start a new tick: this tick's results become carry-over candidates, older ones are dropped.
+     */
+    public static void onTickStart() {
+        Generation recycled = previous;
+        recycled.clear();
+        previous = current;
+        current = recycled;
+    }
+
+    /**
+     * Drop the results a changed block could have affected. Called for every successful
+     * {@code Level.setBlock}: two bucket lookups, then only the results indexed under the
+     * block's section are checked. A no-op on the client.
+     */
+    public static void onBlockChanged(Level level, BlockPos pos) {
+        if (level.isClientSide) {
+            return;
+        }
+        MinecraftServer server = level.getServer();
+        if (server == null || !server.isSameThread()) {
+            invalidateAll = true;
+            return;
+        }
+        current.invalidate(pos);
+        previous.invalidate(pos);
+    }
+
+    public static void clear() {
+        current.clear();
+        previous.clear();
+        hitCount = 0;
+        carriedCount = 0;
+        raycastCount = 0;
+    }
+
+    /**
+     * Short stats line for /amai stats.
+     */
+    public static String getStats() {
+        long total = hitCount + carriedCount + raycastCount;
+        double saved = total == 0 ? 0.0 : (hitCount + carriedCount) * 100.0 / total;
+        return String.format("%d lookups, %d raycasts (%.1f%% saved)", total, raycastCount, saved);
+    }
+
+    private static long key(Entity observer, Entity target) {
+        return ((long) observer.getId() << 32) | (target.getId() & 0xFFFFFFFFL);
+    }
+}
@@ -1,5 +1,6 @@
 package com.minecraft.gancity.ai;
 
+import com.minecraft.gancity.compat.OptionalHandles;
 import com.mojang.logging.LogUtils;
 import org.slf4j.Logger;
 
@@ -68,23 +69,34 @@ public class MLClassLoader {
             tacticalAggregator = loadClass("com.minecraft.gancity.ml.TacticalWeightAggregator");
             
             mlAvailable = true;
+            OptionalHandles.reportIntegration("ML systems (DJL)", true, "lazy-loaded after server start");
             LOGGER.info("✅ ML systems initialized successfully via lazy loading");
             return true;
         } catch (Throwable t) {
             LOGGER.warn("❌ ML systems not available: {}", t.getMessage());
+            OptionalHandles.reportIntegration("ML systems (DJL)", false, String.valueOf(t.getMessage()));
             mlAvailable = false;
             return false;
         }
     }
     
     private static Object loadClass(String className) throws Exception {
-        Class<?> clazz = Class.forName(className);
-        return clazz.getDeclaredConstructor().newInstance();
+        return constructorOf(className).invoke();
     }
     
     private static Object loadClass(String className, int param) throws Exception {
-        Class<?> clazz = Class.forName(className);
-        return clazz.getDeclaredConstructor(int.class).newInstance(param);
+        return constructorOf(className, int.class).invoke(param);
+    }
+    
+    private static OptionalHandles.Invoker<Object> constructorOf(String className, Class<?>... parameterTypes)
+            throws ClassNotFoundException, NoSuchMethodException {
+        // Class.forName keeps the real linkage error (e.g. DJL natives) in the failure message
+        OptionalHandles.Invoker<Object> constructor =
+            OptionalHandles.constructor(Class.forName(className), Object.class, parameterTypes);
+        if (!constructor.isPresent()) {
+            throw new NoSuchMethodException(constructor.getDescription());
+        }
+        return constructor;
     }
     
     public static boolean isMLAvailable() {
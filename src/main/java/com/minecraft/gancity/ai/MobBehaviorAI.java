@@ -43,6 +43,7 @@ public class MobBehaviorAI {
     
     // Advanced ML Systems
     private DoubleDQN doubleDQN;
+    private QHeadLayout qHeads;  // One Q-network head per behavior profile
     private PrioritizedReplayBuffer replayBuffer;
     private MultiAgentLearning multiAgent;
     private CurriculumLearning curriculum;
@@ -73,6 +74,20 @@ public class MobBehaviorAI {
     
     // Cross-mob emergent learning settings
     private boolean crossMobLearningEnabled = false;
+    private float dqnTargetTau = 0.0f;  // 0 = periodic hard target sync
+    private int trainingThreads = 2;    // CPU threads for Q-network training kernels, 0 = engine default
+    private ReplayRing.StateEncoding replayStateEncoding = ReplayRing.StateEncoding.FLOAT32;
+    
+    // Combat outcomes go to the learners through one ring publish (fan-out on the pipeline thread)
+    private volatile LearningEventPipeline learningPipeline;  // Created on first outcome
+    private int learningEventCapacity = LearningEventPipeline.DEFAULT_CAPACITY;
+    private SequenceRing.DropPolicy learningEventDropPolicy = SequenceRing.DropPolicy.DROP_OLDEST;
+    
+    // Distilled lookup-table policy (rebuilt on the training thread)
+    private final PolicyDistillationTable policyTable = new PolicyDistillationTable();
+    private volatile PolicyDistillationTable.Mode distillationMode = PolicyDistillationTable.Mode.LIVE;
+    private volatile long distillationIntervalMs = 60_000L;
+    private String qNetworkInference = "float";
     private float crossMobRewardMultiplier = 3.0f;
     
     // Contextual AI difficulty scaling (Mob Control inspired)
@@ -104,6 +119,7 @@ public class MobBehaviorAI {
     private volatile Set<String> vanillaEntityProfileKeys = Set.of();
     private final Map<String, MobState> lastStateCache = new HashMap<>();
     private final Map<String, String> lastActionCache = new HashMap<>();
+    private final Map<String, String> lastProfileCache = new HashMap<>();  // Profile (Q head) behind the cached action
     private final Map<String, VisualPerception.VisualState> lastVisualCache = new HashMap<>();
     private final Map<String, GeneticBehaviorEvolution.BehaviorGenome> activeGenomes = new HashMap<>();
     private final Random random = new Random();
@@ -115,7 +131,7 @@ public class MobBehaviorAI {
     private int globalTick = 0;
     
     // Attribute-tactic correlation tracking (Mob Control inspired)
-    private final Map<String, AttributeTacticCorrelation> attributeCorrelations = new HashMap<>();
+    private final Map<String, AttributeTacticCorrelation> attributeCorrelations = new HashMap<>();  // Learning pipeline thread only
     private static final float CORRELATION_THRESHOLD = 5.0f;  // Minimum reward to suggest
     private static final int CORRELATION_SAMPLE_SIZE = 10;  // Samples before suggesting
 
@@ -130,8 +146,9 @@ public class MobBehaviorAI {
     private static final long META_LEARNING_CACHE_TTL = 300000;  // 5 minutes
 
     // HNN-inspired tiered progression system
-    private final Map<String, Integer> globalCombatExperience = new HashMap<>();  // Total exp per mob type
-    private final Map<String, AITier> mobTypeTiers = new HashMap<>();  // Current tier per mob type
+    // Written by the learning pipeline, read by the game thread
+    private final Map<String, Integer> globalCombatExperience = new java.util.concurrent.ConcurrentHashMap<>();  // Total exp per mob type
+    private final Map<String, AITier> mobTypeTiers = new java.util.concurrent.ConcurrentHashMap<>();  // Current tier per mob type
     private boolean tierSystemEnabled = true;
     private boolean visualTierIndicatorsEnabled = true;
     
@@ -139,8 +156,8 @@ public class MobBehaviorAI {
     private TacticalWeightAggregator tacticalAggregator;
     private final Map<String, CombatEpisode> activeEpisodes = new HashMap<>();  // Track ongoing combat
     private boolean tacticalSystemEnabled = true;
-    private int episodeSampleInterval = 10;  // Sample tactical state every 10 ticks (0.5s)
-    private final Map<String, Integer> episodeTickCounters = new HashMap<>();  // Track when to sample
+    private EpisodeAggregationStage episodeStage;  // Off-thread aggregation of finished episodes, created on first use
+    private int episodeQueueCapacity = EpisodeAggregationStage.DEFAULT_CAPACITY;
 
     /**
      * Exposes all known tactic profile keys (vanilla + special profiles like villager guards).
@@ -413,6 +430,17 @@ public class MobBehaviorAI {
         VARIANT_FAMILIES.put("golem", Arrays.asList("iron_golem", "snow_golem"));
     }
     
+    // Swarm role -> role-compatible actions; a member's choice is restricted to these (see selectRoleAction)
+    private static final Map<SwarmPlanner.Role, List<String>> SWARM_ROLE_ACTIONS = new EnumMap<>(SwarmPlanner.Role.class);
+    static {
+        SWARM_ROLE_ACTIONS.put(SwarmPlanner.Role.RUSHER, Arrays.asList("group_rush", "swarm_rush", "overwhelm",
+            "aggressive_rush", "melee_rush", "charge_attack", "straight_charge", "suicide_rush", "leap_attack", "swarm_attack"));
+        SWARM_ROLE_ACTIONS.put(SwarmPlanner.Role.FLANKER, Arrays.asList("circle_strafe", "pack_hunting",
+            "coordinated_attack", "wall_climb_attack", "use_terrain"));
+        SWARM_ROLE_ACTIONS.put(SwarmPlanner.Role.RANGED, Arrays.asList("strafe_shoot", "crossbow_volley",
+            "kite_backward", "find_high_ground", "retreat_reload"));
+    }
+    
     // Dynamic think costs per mob type
     private static final Map<String, Integer> BASE_THINK_COSTS = new HashMap<>();
     static {
@@ -573,8 +601,11 @@ public class MobBehaviorAI {
             Class.forName("ai.djl.ndarray.NDManager");
             
             // Core learning - 22 input features (state + visual + genome)
-            doubleDQN = new DoubleDQN();  // Uses default 22 state features, 10 actions
-            replayBuffer = new PrioritizedReplayBuffer(10000);
+            qHeads = buildQHeadLayout();
+            doubleDQN = new DoubleDQN(qHeads);  // 22 state features, one head per behavior profile
+            doubleDQN.setTargetUpdateTau(dqnTargetTau);
+            doubleDQN.setTrainingThreads(trainingThreads);
+            replayBuffer = new PrioritizedReplayBuffer(10000, PrioritizedReplayBuffer.DEFAULT_STATE_SIZE, replayStateEncoding);
             
             // Multi-agent coordination
             multiAgent = new MultiAgentLearning();
@@ -604,6 +635,8 @@ public class MobBehaviorAI {
             // CRITICAL: Initialize performance optimizer
             performanceOptimizer = new PerformanceOptimizer();
             performanceOptimizer.setGlobalModel(doubleDQN);  // Share single model across all mobs
+            performanceOptimizer.setReplayBuffer(replayBuffer);  // The one replay store, filled by the learning pipeline, sampled by the trainer
+            performanceOptimizer.setInferenceMode(qNetworkInference);
             
             // TACTICAL SYSTEM: Initialize tactical aggregator
             tacticalAggregator = new TacticalWeightAggregator();
@@ -742,6 +775,64 @@ public class MobBehaviorAI {
         this.difficultyMultiplier = Math.max(0.1f, Math.min(5.0f, multiplier));
     }
     
+    /**
+     * Target network update mode: 0 = hard copy every 100 steps, (0, 1) = Polyak averaging per step
+     */
+    public void setDqnTargetTau(float tau) {
+        this.dqnTargetTau = Math.max(0.0f, Math.min(1.0f, tau));
+        if (doubleDQN != null) {
+            doubleDQN.setTargetUpdateTau(this.dqnTargetTau);
+        }
+    }
+    
+    /**
+     * CPU threads the background Q-network trainer may use, 0 = engine default (all cores)
+     */
+    public void setTrainingThreads(int threads) {
+        this.trainingThreads = Math.max(0, Math.min(64, threads));
+        if (doubleDQN != null) {
+            doubleDQN.setTrainingThreads(this.trainingThreads);
+        }
+    }
+    
+    /**
+     * Replay state storage: float32 (exact), float16 or int8 (smaller, lossy).
+     * Only affects buffers created after this call (ML systems initialize lazily).
+     */
+    public void setReplayStateEncoding(String encoding) {
+        this.replayStateEncoding = ReplayRing.StateEncoding.parse(encoding);
+    }
+    
+    /**
+     * Combat outcome ring feeding the learning pipeline: capacity and what to drop when it is full
+     * ("oldest" or "newest"). Takes effect when the pipeline starts.
+     */
+    public void setLearningEvents(int capacity, String dropPolicy) {
+        this.learningEventCapacity = Math.max(64, Math.min(65536, capacity));
+        this.learningEventDropPolicy = SequenceRing.DropPolicy.parse(dropPolicy);
+    }
+    
+    /**
+     * Q-network inference: "float" or "int8" (post-training quantized, used once it matches the float model)
+     */
+    public void setQNetworkInference(String mode) {
+        this.qNetworkInference = mode;
+        if (performanceOptimizer != null) {
+            performanceOptimizer.setInferenceMode(mode);
+        }
+    }
+    
+    /**
+     * Policy distillation: "live", "table" or "table_with_fallback", and how often tables are rebuilt
+     */
+    public void setPolicyDistillation(String mode, int rebuildIntervalSeconds) {
+        this.distillationMode = PolicyDistillationTable.Mode.parse(mode);
+        this.distillationIntervalMs = Math.max(10, rebuildIntervalSeconds) * 1000L;
+        if (distillationMode == PolicyDistillationTable.Mode.LIVE) {
+            policyTable.clear();
+        }
+    }
+    
     /**
      * Configure cross-mob emergent learning
      */
@@ -1346,8 +1437,20 @@ public class MobBehaviorAI {
                 (System.currentTimeMillis() - lastInitAttemptTime));
         }
         
-        // CRITICAL FIX #5: Limit action frequency - don't think every tick
-        // Use dynamic think interval based on mob type and tier
+        String throttled = throttledAction(mobType, mobId);
+        if (throttled != null) {
+            return throttled;
+        }
+        return decideMobAction(mobType, state, mobId, target);
+    }
+    
+    /**
+     * CRITICAL FIX #5: Limit action frequency - don't think every tick.
+     * Uses the dynamic think interval based on mob type and tier.
+     * @return the mob's last action while it is still within its think interval, otherwise null
+     *         (and the mob's think tick is advanced)
+     */
+    private String throttledAction(String mobType, String mobId) {
         globalTick++;
         int thinkInterval = tierSystemEnabled ? getThinkInterval(mobType) : THINK_INTERVAL;
         
@@ -1358,7 +1461,13 @@ public class MobBehaviorAI {
             return cached != null ? cached : "default_attack";
         }
         mobLastThinkTick.put(mobId, globalTick);
-        
+        return null;
+    }
+    
+    /**
+     * The full decision for one mob, past the think throttle
+     */
+    private String decideMobAction(String mobType, MobState state, String mobId, Player target) {
         // Tick performance optimizer once per game tick
         if (performanceOptimizer != null && globalTick % 20 == 0) {
             performanceOptimizer.tick();
@@ -1396,7 +1505,7 @@ public class MobBehaviorAI {
             
             // Get or create genome for this mob
             GeneticBehaviorEvolution.BehaviorGenome genome = activeGenomes.computeIfAbsent(
-                mobId, k -> geneticEvolution.selectGenome()
+                mobId, k -> geneticEvolution.selectGenome(profile.getMobType(), profile.getActions())
             );
             
             // Use advanced ML systems for action selection with caching
@@ -1406,31 +1515,40 @@ public class MobBehaviorAI {
             selectedAction = selectActionRuleBased(profile, state);
         }
         
-        // HNN-inspired accuracy check: Lower tiers make mistakes
-        if (tierSystemEnabled) {
-            AITier tier = getMobTier(mobType);
-            
-            // Accuracy check: chance the AI successfully executes its best tactic
-            if (random.nextFloat() > tier.accuracy) {
-                // Failed accuracy check - use a random/fallback action instead
-                List<String> actions = profile.getActions();
-                selectedAction = actions.get(random.nextInt(actions.size()));
-                
-                // Log occasionally for debugging (1% chance)
-                if (random.nextFloat() < 0.01f) {
-                    LOGGER.debug("{} ({}) accuracy check failed - using random action instead", 
-                        mobType, tier);
-                }
-            }
-        }
+        selectedAction = applyTierAccuracy(mobType, profile.getActions(), selectedAction);
         
         // Cache state and action for learning when outcome is recorded
         lastStateCache.put(mobId, state.copy());
         lastActionCache.put(mobId, selectedAction);
+        lastProfileCache.put(mobId, profile.getMobType());
         
         return selectedAction;
     }
     
+    /**
+     * HNN-inspired accuracy check: Lower tiers make mistakes.
+     * @return {@code selected}, or a random one of {@code actions} when the mob's tier fails the roll
+     */
+    private String applyTierAccuracy(String mobType, List<String> actions, String selected) {
+        if (!tierSystemEnabled || actions.isEmpty()) {
+            return selected;
+        }
+        AITier tier = getMobTier(mobType);
+        
+        // Accuracy check: chance the AI successfully executes its best tactic
+        if (random.nextFloat() > tier.accuracy) {
+            // Failed accuracy check - use a random/fallback action instead
+            selected = actions.get(random.nextInt(actions.size()));
+            
+            // Log occasionally for debugging (1% chance)
+            if (random.nextFloat() < 0.01f) {
+                LOGGER.debug("{} ({}) accuracy check failed - using random action instead", 
+                    mobType, tier);
+            }
+        }
+        return selected;
+    }
+    
     /**
      * Select next action for a mob based on current state (no player context)
      * Uses ML model if enabled, otherwise rule-based
@@ -1474,7 +1592,7 @@ public class MobBehaviorAI {
             difficultyMultiplier = contextDifficulty * tierDifficulty;
             
             // Select action with modified difficulty
-            String action = selectMobAction(normalizedMobType, state, mobId, (net.minecraft.world.entity.player.Player) null);
+            String action = selectMobActionOrSwarm(normalizedMobType, state, mobId, mobEntity);
             
             // Restore original difficulty
             difficultyMultiplier = originalDifficulty;
@@ -1484,12 +1602,89 @@ public class MobBehaviorAI {
         // Apply only tier difficulty
         float originalDifficulty = difficultyMultiplier;
         difficultyMultiplier *= tier.getDifficultyMultiplier();
-        String action = selectMobAction(normalizedMobType, state, mobId, (net.minecraft.world.entity.player.Player) null);
+        String action = selectMobActionOrSwarm(normalizedMobType, state, mobId, mobEntity);
         difficultyMultiplier = originalDifficulty;
         
         return action;
     }
 
+    /**
+     * Members of a planned swarm share one decision per mob type, mapped once per role, and
+     * look it up at their own think interval; everyone else decides individually
+     */
+    private String selectMobActionOrSwarm(String mobType, MobState state, String mobId,
+                                          net.minecraft.world.entity.Mob mobEntity) {
+        SwarmPlanner.Assignment swarm = mobEntity != null ? SwarmPlanner.getAssignment(mobEntity) : null;
+        MobBehaviorProfile profile = swarm != null ? behaviorProfiles.get(mobType.toLowerCase()) : null;
+        if (profile == null) {
+            return selectMobAction(mobType, state, mobId, (net.minecraft.world.entity.player.Player) null);
+        }
+        String throttled = throttledAction(mobType, mobId);
+        if (throttled != null) {
+            return throttled;
+        }
+
+        SwarmPlanner.Plan plan = swarm.getPlan();
+        SwarmPlanner.Role role = swarm.getRole();
+        String action = plan.getRoleAction(profile.getMobType(), role, () -> {
+            String groupAction = plan.getGroupAction(profile.getMobType(),
+                () -> decideMobAction(mobType, state, mobId, (net.minecraft.world.entity.player.Player) null));
+            return selectRoleAction(profile, state, role, groupAction, mobId);
+        });
+
+        lastStateCache.put(mobId, state.copy());
+        lastActionCache.put(mobId, action);
+        lastProfileCache.put(mobId, profile.getMobType());
+        return action;
+    }
+
+    /**
+     * The group's action if it already suits the role; otherwise a choice restricted to the valid
+     * role-compatible actions in the deciding member's state (argmax of the profile's Q head over
+     * that subset, or the rule-based weighting without ML, then the tier accuracy roll over the
+     * subset); the group's action if the profile has no valid action for the role.
+     * Runs once per plan, mob type and role; the other members of that role share the result.
+     */
+    private String selectRoleAction(MobBehaviorProfile profile, MobState state, SwarmPlanner.Role role,
+                                    String groupAction, String mobId) {
+        List<String> compatible = SWARM_ROLE_ACTIONS.get(role);
+        if (compatible.contains(groupAction)) {
+            return groupAction;
+        }
+        List<String> roleActions = new ArrayList<>();
+        for (String action : getValidActions(profile, state)) {
+            if (compatible.contains(action)) {
+                roleActions.add(action);
+            }
+        }
+        if (roleActions.isEmpty()) {
+            return groupAction;
+        }
+        
+        int head = qHeads != null ? qHeads.headOf(profile.getMobType()) : -1;
+        if (mlEnabled && doubleDQN != null && head >= 0) {
+            GeneticBehaviorEvolution.BehaviorGenome genome = activeGenomes.computeIfAbsent(
+                mobId, k -> geneticEvolution.selectGenome(profile.getMobType(), profile.getActions())
+            );
+            float[] combinedFeatures = combineFeatures(state, lastVisualCache.get(mobId), genome);
+            
+            int index = -1;
+            float[] qValues = performanceOptimizer != null
+                ? performanceOptimizer.getCachedQValues(mobId, combinedFeatures) : null;
+            if (qValues != null) {
+                index = bestValidAction(qValues, head, roleActions);
+            }
+            if (index < 0) {
+                float[] headQ = doubleDQN.predictHeadQValues(combinedFeatures, new int[] {head}, 1)[0];
+                index = bestValidAction(headQ, qHeads.offset(head), head, roleActions);
+            }
+            if (index >= 0) {
+                return applyTierAccuracy(profile.getMobType(), roleActions, roleActions.get(index));
+            }
+        }
+        return applyTierAccuracy(profile.getMobType(), roleActions, weightedActionSelection(roleActions, state, profile));
+    }
+
     /**
      * Advanced ML-based action selection combining all systems
      */
@@ -1505,32 +1700,22 @@ public class MobBehaviorAI {
         // Apply curriculum learning filter
         validActions = curriculum.filterActionsByStage(validActions);
         
+        // O(1) distilled decision for on-grid states (off-grid or untabled states use the live ensemble)
+        if (distillationMode != PolicyDistillationTable.Mode.LIVE) {
+            String distilled = policyTable.sample(profile.getMobType(), state, visual, validActions, random,
+                distillationMode == PolicyDistillationTable.Mode.TABLE);
+            if (distilled != null) {
+                recordDistilledDecision(profile, state, visual, genome, validActions, distilled);
+                return distilled;
+            }
+        }
+        
         // Get visual recommendations
         List<String> visualRecommendations = new ArrayList<>();
         if (visual != null) {
             visualRecommendations = visualPerception.getRecommendedActions(visual);
         }
         
-        // Check for team coordination
-        List<String> teamMembers = multiAgent.getTeamMembers(mobId);
-        if (teamMembers != null && teamMembers.size() > 1) {
-            // Share experiences with teammates
-            for (String teammateId : teamMembers) {
-                if (!teammateId.equals(mobId)) {
-                    MobState teammateState = lastStateCache.get(teammateId);
-                    String teammateAction = lastActionCache.get(teammateId);
-                    if (teammateState != null && teammateAction != null) {
-                        // Consider teammate's recent experience
-                        float[] teammateFeatures = combineFeatures(teammateState, visual, genome);
-                        int actionIndex = validActions.indexOf(teammateAction);
-                        if (actionIndex >= 0) {
-                            // Teammate used this action recently
-                        }
-                    }
-                }
-            }
-        }
-        
         // Combine all feature sources
         float[] combinedFeatures = combineFeatures(state, visual, genome);
         
@@ -1562,21 +1747,16 @@ public class MobBehaviorAI {
             actionIndex = xgboost.predictTactic(combinedFeatures, validActions.size());
         }
         
-        // 3. Fall back to cached Q-values if neither available
+        // 3. Fall back to cached Q-values (this profile's head) if neither available
+        int head = qHeads != null ? qHeads.headOf(profile.getMobType()) : -1;
         if (actionIndex < 0 && qValues != null) {
-            // Find best action from cached Q-values
-            float maxQ = Float.NEGATIVE_INFINITY;
-            for (int i = 0; i < Math.min(qValues.length, validActions.size()); i++) {
-                if (qValues[i] > maxQ) {
-                    maxQ = qValues[i];
-                    actionIndex = i;
-                }
-            }
+            actionIndex = bestValidAction(qValues, head, validActions);
         }
         
         // 4. Ultimate fallback to Double DQN if cache unavailable
-        if (actionIndex < 0 && doubleDQN != null) {
-            actionIndex = doubleDQN.selectActionIndex(combinedFeatures);
+        if (actionIndex < 0 && doubleDQN != null && head >= 0) {
+            float[] headQ = doubleDQN.predictHeadQValues(combinedFeatures, new int[] {head}, 1)[0];
+            actionIndex = bestValidAction(headQ, qHeads.offset(head), head, validActions);
         }
         
         // Map index to valid action
@@ -1586,8 +1766,8 @@ public class MobBehaviorAI {
         String selectedAction = validActions.get(Math.max(0, actionIndex));
         
         // Apply genetic modifiers
-        if (genome.actionWeights.containsKey(selectedAction)) {
-            float weight = genome.actionWeights.get(selectedAction);
+        if (genome.hasAction(selectedAction)) {
+            float weight = genome.getActionWeight(selectedAction, 1.0f);
             // Bias toward genetically preferred actions
             if (random.nextFloat() > weight && !validActions.isEmpty()) {
                 // Sometimes override with genome preference
@@ -1604,20 +1784,226 @@ public class MobBehaviorAI {
         return selectedAction;
     }
     
+    /**
+     * The live path's per-decision side effects, for decisions taken from the distilled table:
+     * the Random Forest's tactic record and the profile's record of visually sound actions
+     */
+    private void recordDistilledDecision(MobBehaviorProfile profile, MobState state,
+                                         VisualPerception.VisualState visual,
+                                         GeneticBehaviorEvolution.BehaviorGenome genome,
+                                         List<String> validActions, String action) {
+        if (randomForest != null && randomForest.isAvailable()) {
+            float[] combinedFeatures = combineFeatures(state, visual, genome);
+            double[] features = new double[combinedFeatures.length];
+            for (int i = 0; i < combinedFeatures.length; i++) {
+                features[i] = combinedFeatures[i];
+            }
+            randomForest.recordTactic("unknown", features, validActions.indexOf(action));
+        }
+        
+        if (visual != null && visualPerception.getRecommendedActions(visual).contains(action)) {
+            profile.recordAction(action, state);
+        }
+    }
+    
+    /**
+     * Q-network heads: one per behavior profile, sized to its action list
+     */
+    private QHeadLayout buildQHeadLayout() {
+        Map<String, List<String>> actionsByProfile = new HashMap<>();
+        for (MobBehaviorProfile profile : behaviorProfiles.values()) {
+            actionsByProfile.put(profile.getMobType(), profile.getActions());
+        }
+        return QHeadLayout.of(actionsByProfile);
+    }
+    
+    /**
+     * Index into {@code validActions} of the highest Q-value in {@code head}, read from a full
+     * output row; -1 if none of the valid actions belongs to the head (e.g. borrowed tactics)
+     */
+    private int bestValidAction(float[] qRow, int head, List<String> validActions) {
+        return bestValidAction(qRow, 0, head, validActions);
+    }
+    
+    /**
+     * @param rowOffset output column of {@code qRow[0]} (0 for a full row, the head offset for a head slice)
+     */
+    private int bestValidAction(float[] qRow, int rowOffset, int head, List<String> validActions) {
+        if (head < 0) {
+            return -1;
+        }
+        int best = -1;
+        float maxQ = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < validActions.size(); i++) {
+            int index = qHeads.column(head, validActions.get(i)) - rowOffset;
+            if (index >= 0 && index < qRow.length && qRow[index] > maxQ) {
+                maxQ = qRow[index];
+                best = i;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Output column of {@code action} in the profile's Q head, or -1 (no head, or a borrowed action)
+     */
+    private int qColumn(String profileType, String action) {
+        return qHeads != null ? qHeads.column(qHeads.headOf(profileType), action) : -1;
+    }
+    
+    /**
+     * Queue a rebuild of the distilled policy tables on the training thread if one is due.
+     * Server thread only (from recordCombatOutcome): the ML systems, borrowable tactics and
+     * consensus genomes are snapshotted here; evaluation runs in the background.
+     */
+    private void maybeRebuildPolicyTable() {
+        if (distillationMode == PolicyDistillationTable.Mode.LIVE || performanceOptimizer == null
+            || doubleDQN == null || geneticEvolution == null
+            || !policyTable.isRebuildDue(distillationIntervalMs) || !policyTable.beginRebuild()) {
+            return;
+        }
+        
+        // Table columns: the profile's own actions plus every tactic it could borrow; each cell is
+        // evaluated over the subset getValidActions would offer in that state
+        List<String> borrowable = getBorrowableTactics();
+        Map<String, List<String>> ownActionsByMobType = new HashMap<>();
+        Map<String, List<String>> actionsByMobType = new HashMap<>();
+        Map<String, GeneticBehaviorEvolution.BehaviorGenome> consensusByMobType = new HashMap<>();
+        for (MobBehaviorProfile profile : behaviorProfiles.values()) {
+            List<String> columns = new ArrayList<>(profile.getActions());
+            for (String action : borrowable) {
+                if (!columns.contains(action)) {
+                    columns.add(action);
+                }
+            }
+            ownActionsByMobType.put(profile.getMobType(), profile.getActions());
+            actionsByMobType.put(profile.getMobType(), columns);
+            consensusByMobType.put(profile.getMobType(),
+                geneticEvolution.getConsensusGenome(profile.getMobType(), profile.getActions()));
+        }
+        
+        boolean queued = performanceOptimizer.submitTraining(() -> policyTable.rebuild(actionsByMobType,
+            (mobType, actions, states, visuals) ->
+                evaluateDistilledPolicy(mobType, actions, ownActionsByMobType.get(mobType), borrowable,
+                    states, visuals, consensusByMobType.get(mobType))));
+        if (!queued) {
+            policyTable.cancelRebuild();
+        }
+    }
+    
+    /**
+     * What selectActionWithAdvancedML would pick in each representative state, as a distribution
+     * over {@code actions} (the table columns). Each cell is evaluated over the same list the live
+     * path uses there - getValidActions (own actions, borrowable tactics, state filter) narrowed by
+     * the curriculum stage - so ensemble indices map to the same actions: the ensemble's choice
+     * (Random Forest, else XGBoost, else the mob type's DQN head argmax over one batched pass),
+     * then the genome override - the choice is kept with probability min(1, weight) and otherwise
+     * resampled over the cell's valid actions proportionally to the genome's action weights.
+     */
+    private float[] evaluateDistilledPolicy(String mobType, List<String> actions, List<String> ownActions,
+                                            List<String> borrowable, MobState[] states,
+                                            VisualPerception.VisualState[] visuals,
+                                            GeneticBehaviorEvolution.BehaviorGenome genome) {
+        int cells = states.length;
+        int k = actions.size();
+        int width = PrioritizedReplayBuffer.DEFAULT_STATE_SIZE;
+        
+        float[] features = new float[cells * width];
+        for (int i = 0; i < cells; i++) {
+            System.arraycopy(combineFeatures(states[i], visuals[i], genome), 0, features, i * width, width);
+        }
+        int head = qHeads.headOf(mobType);
+        int[] rowHeads = new int[cells];
+        Arrays.fill(rowHeads, head);
+        float[][] qValues = doubleDQN.predictHeadQValues(features, rowHeads, cells);
+        
+        float[] out = new float[cells * k];
+        double[] rfFeatures = new double[width];
+        float[] xgbFeatures = new float[width];
+        for (int cell = 0; cell < cells; cell++) {
+            List<String> validActions = curriculum.filterActionsByStage(
+                getValidActions(mobType, ownActions, borrowable, states[cell]));
+            if (validActions.isEmpty()) {
+                continue;  // No weights: the row quantizes to uniform and sample() falls back to live
+            }
+            int valid = validActions.size();
+            
+            int chosen = -1;
+            if (randomForest != null && randomForest.isAvailable()) {
+                for (int i = 0; i < width; i++) {
+                    rfFeatures[i] = features[cell * width + i];
+                }
+                chosen = randomForest.predictTactic(rfFeatures);
+            }
+            if (chosen < 0 && xgboost != null && xgboost.isAvailable()) {
+                System.arraycopy(features, cell * width, xgbFeatures, 0, width);
+                chosen = xgboost.predictTactic(xgbFeatures, valid);
+            }
+            if (chosen < 0) {
+                chosen = bestValidAction(qValues[cell], qHeads.offset(head), head, validActions);
+            }
+            String selected = validActions.get(Math.max(0, chosen) % valid);
+            
+            int base = cell * k;
+            float keep = 1.0f;
+            if (genome.hasAction(selected)) {
+                keep = Math.max(0.0f, Math.min(1.0f, genome.getActionWeight(selected, 1.0f)));
+            }
+            out[base + actions.indexOf(selected)] += keep;
+            
+            float overrideMass = 1.0f - keep;
+            if (overrideMass > 0.0f) {
+                float resampleTotal = 0.0f;
+                for (String action : validActions) {
+                    resampleTotal += genome.getActionWeight(action, 1.0f);
+                }
+                if (resampleTotal > 0.0f) {
+                    for (String action : validActions) {
+                        out[base + actions.indexOf(action)] +=
+                            overrideMass * genome.getActionWeight(action, 1.0f) / resampleTotal;
+                    }
+                }
+            }
+        }
+        return out;
+    }
+    
+    /**
+     * Multi-head Q-network status for /amai stats
+     */
+    public String getQNetworkStats() {
+        DoubleDQN dqn = doubleDQN;
+        if (dqn == null) {
+            return "not loaded";
+        }
+        QHeadLayout heads = dqn.getHeads();
+        return String.format("%d heads, %d outputs, %d parameters (%d as separate per-type networks)",
+            heads.getHeadCount(), heads.getTotalWidth(), dqn.getParameterCount(), dqn.getSeparateNetworksParameterCount());
+    }
+    
+    /**
+     * Distilled policy table status for /amai stats
+     */
+    public String getPolicyTableStats() {
+        return distillationMode == PolicyDistillationTable.Mode.LIVE
+            ? "disabled (live ensemble)"
+            : distillationMode.name().toLowerCase() + " - " + policyTable.getStats();
+    }
+    
     /**
      * Select action weighted by genetic genome preferences
      */
     private String selectWeightedAction(List<String> actions, GeneticBehaviorEvolution.BehaviorGenome genome) {
         float totalWeight = 0.0f;
         for (String action : actions) {
-            totalWeight += genome.actionWeights.getOrDefault(action, 1.0f);
+            totalWeight += genome.getActionWeight(action, 1.0f);
         }
         
         float rand = random.nextFloat() * totalWeight;
         float cumulative = 0.0f;
         
         for (String action : actions) {
-            cumulative += genome.actionWeights.getOrDefault(action, 1.0f);
+            cumulative += genome.getActionWeight(action, 1.0f);
             if (cumulative >= rand) {
                 return action;
             }
@@ -1631,18 +2017,26 @@ public class MobBehaviorAI {
      */
     private float[] combineFeatures(MobState state, VisualPerception.VisualState visual, 
                                     GeneticBehaviorEvolution.BehaviorGenome genome) {
-        float[] stateFeatures = stateToFeatureVector(state);
-        float[] visualFeatures = visual != null ? visual.toFeatureVector() : new float[9];
-        
-        // Combine: [state(10) + visual(9) + genome(3)] = 22 features
         float[] combined = new float[22];
-        System.arraycopy(stateFeatures, 0, combined, 0, 10);
-        System.arraycopy(visualFeatures, 0, combined, 10, 9);
+        writeFeatures(state, visual, genome, combined);
+        return combined;
+    }
+    
+    /**
+     * {@link #combineFeatures} into an existing array (e.g. a learning event slot)
+     */
+    private void writeFeatures(MobState state, VisualPerception.VisualState visual,
+                               GeneticBehaviorEvolution.BehaviorGenome genome, float[] combined) {
+        // Combine: [state(10) + visual(9) + genome(3)] = 22 features
+        System.arraycopy(stateToFeatureVector(state), 0, combined, 0, 10);
+        if (visual != null) {
+            System.arraycopy(visual.toFeatureVector(), 0, combined, 10, 9);
+        } else {
+            Arrays.fill(combined, 10, 19, 0.0f);
+        }
         combined[19] = genome.aggression;
         combined[20] = genome.caution;
         combined[21] = genome.teamwork;
-        
-        return combined;
     }
     
     /**
@@ -1668,24 +2062,41 @@ public class MobBehaviorAI {
      * REVOLUTIONARY: Includes borrowed tactics from other mob types if cross-mob learning enabled
      */
     private List<String> getValidActions(MobBehaviorProfile profile, MobState state) {
-        List<String> actions = new ArrayList<>(profile.getActions());
-        
-        // EMERGENT LEARNING: Add successful tactics from other mob types
+        return getValidActions(profile.getMobType(), profile.getActions(), getBorrowableTactics(), state);
+    }
+    
+    /**
+     * High-performing global tactics (reward > 2.0) any mob type may borrow; empty unless
+     * cross-mob learning is enabled
+     */
+    private List<String> getBorrowableTactics() {
+        List<String> borrowable = new ArrayList<>();
         if (crossMobLearningEnabled && federatedLearning != null && federatedLearning.isEnabled()) {
-            List<FederatedLearning.GlobalTactic> bestGlobalTactics = federatedLearning.getBestGlobalTactics(20);
-            
-            for (FederatedLearning.GlobalTactic tactic : bestGlobalTactics) {
-                // Only borrow high-performing tactics (reward > 2.0)
-                if (tactic.avgReward > 2.0f && !actions.contains(tactic.action)) {
-                    // Check if this mob can physically perform the borrowed action
-                    if (canMobPerformAction(profile.getMobType(), tactic.action, state)) {
-                        actions.add(tactic.action);
-                        LOGGER.debug("{} borrowed '{}' from {} (reward: {:.2f})",
-                            profile.getMobType(), tactic.action, tactic.originalMobType, tactic.avgReward);
-                    }
+            for (FederatedLearning.GlobalTactic tactic : federatedLearning.getBestGlobalTactics(20)) {
+                if (tactic.avgReward > 2.0f && !borrowable.contains(tactic.action)) {
+                    borrowable.add(tactic.action);
                 }
             }
         }
+        return borrowable;
+    }
+    
+    /**
+     * Valid actions for a state, from the mob's own actions plus the borrowable tactics it can
+     * physically perform. Also used by the policy distillation rebuild, so it must not depend on
+     * anything but its arguments and the cross-mob rules.
+     */
+    private List<String> getValidActions(String mobType, List<String> ownActions, List<String> borrowable,
+                                         MobState state) {
+        List<String> actions = new ArrayList<>(ownActions);
+        
+        // EMERGENT LEARNING: Add successful tactics from other mob types
+        for (String action : borrowable) {
+            // Check if this mob can physically perform the borrowed action
+            if (!actions.contains(action) && canMobPerformAction(mobType, action, state)) {
+                actions.add(action);
+            }
+        }
         
         // Filter to only valid actions for current state
         List<String> validActions = new ArrayList<>();
@@ -1823,6 +2234,11 @@ public class MobBehaviorAI {
     /**
      * Record combat outcome to improve AI with all advanced ML systems
      * ENHANCED: Applies massive reward multiplier for successful borrowed tactics
+     *
+     * Game thread cost is one learning event publish: the reward inputs, a feature snapshot and,
+     * for cross-mob learning, the mob's attributes. Replay, XGBoost, DQN training, curriculum,
+     * multi-agent and genetic evolution are fed from it on the learning pipeline thread. When a
+     * distilled policy rebuild is due, its inputs are also snapshotted here before it is queued.
      * @param mobEntity Optional mob entity for attribute correlation tracking
      */
     public void recordCombatOutcome(String mobId, boolean playerDied, boolean mobDied, MobState finalState, 
@@ -1830,6 +2246,7 @@ public class MobBehaviorAI {
         // Get cached state and action
         MobState initialState = lastStateCache.remove(mobId);
         String action = lastActionCache.remove(mobId);
+        String profileType = lastProfileCache.remove(mobId);
         VisualPerception.VisualState visual = lastVisualCache.remove(mobId);
         GeneticBehaviorEvolution.BehaviorGenome genome = activeGenomes.remove(mobId);
         
@@ -1841,118 +2258,204 @@ public class MobBehaviorAI {
             return;
         }
         
-        // Extract mob type from mobId (format: "mobType_uuid")
-        String mobType = getMobTypeFromId(mobId);
-        
-        // Calculate reward based on outcome
-        float reward = calculateReward(initialState, finalState, playerDied, mobDied);
-        reward += damageDealt * 0.5f - damageTaken * 0.3f;  // Fine-grained feedback
-        
-        // HNN-inspired: Record combat experience for tier progression
-        if (tierSystemEnabled && mobType != null) {
-            boolean wasSuccessful = (reward > 0) || playerDied || (damageDealt > damageTaken);
-            recordCombatExperience(mobType, wasSuccessful);
+        LearningEventPipeline pipeline = learningPipeline;
+        if (pipeline == null) {
+            pipeline = startLearningPipeline();
+        }
+        LearningEvent event = pipeline.claim();
+        if (event == null) {
+            return;  // Ring full: dropped and counted by the pipeline
         }
         
-        // REVOLUTIONARY: Huge bonus for successfully using borrowed tactics from other mob types
-        if (crossMobLearningEnabled && federatedLearning != null) {
-            if (mobType != null && !isMobsNativeAction(mobType, action)) {
-                // This mob used a tactic it borrowed from another species!
-                float originalReward = reward;
-                reward *= crossMobRewardMultiplier;
-                
-                if (reward > 0) {  // Only log successful borrowed tactics
-                    LOGGER.info("\u2605 EMERGENT BEHAVIOR: {} successfully used borrowed '{}' (reward: {:.1f} -> {:.1f})",
-                        mobType, action, originalReward, reward);
-                }
-            }
+        try {
+            event.mobId = mobId;
+            event.profileType = profileType;
+            event.action = action;
+            event.genome = genome;
+            event.outcomeReward = calculateReward(initialState, finalState, playerDied, mobDied);
+            event.damageDealt = damageDealt;
+            event.damageTaken = damageTaken;
+            event.playerDied = playerDied;
+            event.mobDied = mobDied;
             
-            // Track attribute-tactic correlations (Mob Control inspired)
-            if (reward > CORRELATION_THRESHOLD && mobEntity != null) {
-                trackAttributeTacticCorrelation(mobType, action, reward, mobEntity);
+            GeneticBehaviorEvolution.BehaviorGenome traits = genome != null ? genome : new GeneticBehaviorEvolution.BehaviorGenome();
+            writeFeatures(initialState, visual, traits, event.initialFeatures);
+            writeFeatures(finalState, visual, traits, event.finalFeatures);
+            
+            // Entity attributes can only be read here; snapshot them for the correlation learner
+            event.hasAttributes = crossMobLearningEnabled && mobEntity != null;
+            if (event.hasAttributes) {
+                event.movementSpeed = (float) mobEntity.getAttributeValue(net.minecraft.world.entity.ai.attributes.Attributes.MOVEMENT_SPEED);
+                event.maxHealth = mobEntity.getMaxHealth();
+                event.attackDamage = (float) mobEntity.getAttributeValue(net.minecraft.world.entity.ai.attributes.Attributes.ATTACK_DAMAGE);
             }
+        } catch (Exception e) {
+            event.action = null;  // Published as a no-op so the ring keeps moving
+            LOGGER.debug("Could not snapshot combat outcome for {}: {}", mobId, e.getMessage());
+        } finally {
+            pipeline.publish(event);
         }
         
-        // CRITICAL FIX #1: Use background training (never blocks main thread)
-        if (mlEnabled && performanceOptimizer != null) {
-            // Combine features
-            float[] initialFeatures = combineFeatures(initialState, visual, genome != null ? genome : new GeneticBehaviorEvolution.BehaviorGenome());
-            float[] finalFeatures = combineFeatures(finalState, visual, genome != null ? genome : new GeneticBehaviorEvolution.BehaviorGenome());
-            
-            // Convert action to index
-            List<String> allActions = getAllPossibleActions();
-            int actionIndex = allActions.indexOf(action);
-            if (actionIndex < 0) actionIndex = 0;
-            
-            boolean episodeDone = playerDied || mobDied;
-            
-            // CRITICAL: Record to background queue, training happens on separate thread
-            performanceOptimizer.recordExperience(initialFeatures, actionIndex, reward, finalFeatures, episodeDone);
-            
-            // Clear cached prediction for this mob
-            performanceOptimizer.clearCache(mobId);
+        // Refresh the distilled policy as training moves the models; its inputs are read here,
+        // on the thread that owns them, and only the evaluation goes to the trainer
+        if (mlEnabled) {
+            maybeRebuildPolicyTable();
+        }
+    }
+    
+    /**
+     * Build the learning pipeline. Learners run in this order for every event; each sees the
+     * reward shaped by the first stage.
+     */
+    private synchronized LearningEventPipeline startLearningPipeline() {
+        if (learningPipeline == null) {
+            learningPipeline = new LearningEventPipeline(learningEventCapacity, learningEventDropPolicy)
+                .addLearner("reward", this::shapeReward)
+                .addLearner("tiers", this::learnTiers)
+                .addLearner("correlations", this::learnAttributeCorrelations)
+                .addLearner("replay", this::learnReplay)
+                .addLearner("xgboost", this::learnXGBoost)
+                .addLearner("dqn", this::learnDoubleDQN)
+                .addLearner("curriculum", this::learnCurriculum)
+                .addLearner("multi-agent", this::learnMultiAgent)
+                .addLearner("evolution", this::learnEvolution)
+                .start();
+        }
+        return learningPipeline;
+    }
+    
+    /**
+     * Stage 1: final reward from its components, with the borrowed-tactic multiplier
+     */
+    private void shapeReward(LearningEvent event) {
+        if (event.action == null) {
+            return;
         }
+        // Extract mob type from mobId (format: "mobType_uuid")
+        event.mobType = getMobTypeFromId(event.mobId);
         
-        // Update all ML systems if enabled
-        if (mlEnabled && doubleDQN != null) {
-            // Combine features
-            float[] initialFeatures = combineFeatures(initialState, visual, genome != null ? genome : new GeneticBehaviorEvolution.BehaviorGenome());
-            float[] finalFeatures = combineFeatures(finalState, visual, genome != null ? genome : new GeneticBehaviorEvolution.BehaviorGenome());
-            boolean episodeDone = playerDied || mobDied;
-            
-            // Convert action to index
-            List<String> allActions = getAllPossibleActions();
-            int actionIndex = allActions.indexOf(action);
-            if (actionIndex < 0) actionIndex = 0;
-            
-            // Add to prioritized replay buffer
-            replayBuffer.add(initialFeatures, actionIndex, reward, finalFeatures, episodeDone);
-            
-            // Train XGBoost if available (fast, incremental)
-            if (xgboost != null && xgboost.isAvailable() && mobType != null) {
-                xgboost.recordOutcome(mobType, initialFeatures, actionIndex, reward > 0);
-            }
+        // Calculate reward based on outcome
+        float reward = event.outcomeReward;
+        reward += event.damageDealt * 0.5f - event.damageTaken * 0.3f;  // Fine-grained feedback
+        
+        // REVOLUTIONARY: Huge bonus for successfully using borrowed tactics from other mob types
+        if (crossMobLearningEnabled && federatedLearning != null
+            && event.mobType != null && !isMobsNativeAction(event.mobType, event.action)) {
+            // This mob used a tactic it borrowed from another species!
+            float originalReward = reward;
+            reward *= crossMobRewardMultiplier;
             
-            // Sample and train Double DQN with prioritized experiences
-            if (replayBuffer.size() >= 32) {
-                PrioritizedReplayBuffer.SampledBatch batch = replayBuffer.sample(32);
-                float[] tdErrors = doubleDQN.trainBatch(batch.experiences);
-                
-                // Update priorities based on TD errors
-                List<Float> tdErrorList = new ArrayList<>();
-                for (float error : tdErrors) {
-                    tdErrorList.add(error);
-                }
-                replayBuffer.updatePriorities(batch.prioritizedExperiences, tdErrorList);
+            if (reward > 0) {  // Only log successful borrowed tactics
+                LOGGER.info("\u2605 EMERGENT BEHAVIOR: {} successfully used borrowed '{}' (reward: {} -> {})",
+                    event.mobType, event.action, String.format("%.1f", originalReward), String.format("%.1f", reward));
             }
-            
-            // Update curriculum learning
-            curriculum.recordExperience(reward > 0);
-            
-            // Update multi-agent coordination
-            List<String> team = multiAgent.getTeamMembers(mobId);
-            if (team != null && team.size() > 1) {
-                // Share this experience with teammates
-                for (String teammateId : team) {
-                    if (!teammateId.equals(mobId)) {
-                        multiAgent.recordTeamExperience(mobId, teammateId, reward);
-                    }
-                }
-                
-                // Give cooperation bonus if team performed well
-                if (reward > 0) {
-                    float teamBonus = multiAgent.getTeamCoordinationBonus(mobId);
-                    reward *= (1.0f + teamBonus);
+        }
+        event.reward = reward;
+    }
+    
+    /**
+     * HNN-inspired: Record combat experience for tier progression
+     */
+    private void learnTiers(LearningEvent event) {
+        if (event.action != null && tierSystemEnabled && event.mobType != null) {
+            boolean wasSuccessful = (event.reward > 0) || event.playerDied || (event.damageDealt > event.damageTaken);
+            recordCombatExperience(event.mobType, wasSuccessful);
+        }
+    }
+    
+    /**
+     * Track attribute-tactic correlations (Mob Control inspired)
+     */
+    private void learnAttributeCorrelations(LearningEvent event) {
+        if (event.action != null && crossMobLearningEnabled && federatedLearning != null && event.hasAttributes) {
+            trackAttributeTacticCorrelation(event.mobType, event.action, event.reward,
+                event.movementSpeed, event.maxHealth, event.attackDamage);
+        }
+    }
+    
+    /**
+     * Replay: straight into the prioritized replay buffer (this pipeline thread is its only writer;
+     * the trainer samples it under the buffer's lock), then drop the mob's cached prediction
+     */
+    private void learnReplay(LearningEvent event) {
+        if (event.action == null || !mlEnabled) {
+            return;
+        }
+        // Q-network column: the action within its profile's head (borrowed actions have none)
+        int qColumn = qColumn(event.profileType, event.action);
+        PrioritizedReplayBuffer buffer = replayBuffer;
+        if (buffer != null && doubleDQN != null && qColumn >= 0) {
+            buffer.add(event.initialFeatures, qColumn, event.reward, event.finalFeatures, event.isEpisodeDone());
+        }
+        PerformanceOptimizer optimizer = performanceOptimizer;
+        if (optimizer != null) {
+            // Clear cached prediction for this mob
+            optimizer.clearCache(event.mobId);
+        }
+    }
+    
+    /**
+     * Train XGBoost if available (fast, incremental)
+     */
+    private void learnXGBoost(LearningEvent event) {
+        if (event.action == null || !mlEnabled || doubleDQN == null || event.mobType == null
+            || xgboost == null || !xgboost.isAvailable()) {
+            return;
+        }
+        Integer actionIndex = ALL_ACTION_INDEX.get(event.action);
+        xgboost.recordOutcome(event.mobType, event.initialFeatures.clone(), actionIndex != null ? actionIndex : 0, event.reward > 0);
+    }
+    
+    /**
+     * Request a Double DQN training step with prioritized experiences
+     * CRITICAL: the optimizer's single trainer runs the batched gradient step on the background thread
+     */
+    private void learnDoubleDQN(LearningEvent event) {
+        if (event.action == null || !mlEnabled || doubleDQN == null) {
+            return;
+        }
+        if (performanceOptimizer != null) {
+            performanceOptimizer.requestTraining();
+        }
+    }
+    
+    private void learnCurriculum(LearningEvent event) {
+        if (event.action != null && mlEnabled && doubleDQN != null) {
+            curriculum.recordExperience(event.reward > 0);
+        }
+    }
+    
+    /**
+     * Share this experience with teammates
+     */
+    private void learnMultiAgent(LearningEvent event) {
+        if (event.action == null || !mlEnabled || doubleDQN == null) {
+            return;
+        }
+        List<String> team = multiAgent.getTeamMembers(event.mobId);
+        if (team != null && team.size() > 1) {
+            for (String teammateId : team) {
+                if (!teammateId.equals(event.mobId)) {
+                    multiAgent.recordTeamExperience(event.mobId, teammateId, event.reward);
                 }
             }
-            
-            // Update genetic evolution
-            if (genome != null) {
-                geneticEvolution.recordCombat(genome, playerDied, damageDealt, damageTaken);
-            }
+        }
+    }
+    
+    private void learnEvolution(LearningEvent event) {
+        if (event.action != null && mlEnabled && doubleDQN != null && event.genome != null) {
+            geneticEvolution.recordCombat(event.genome, event.playerDied, event.damageDealt, event.damageTaken);
         }
     }
     
+    /**
+     * Learning pipeline status for /amai stats
+     */
+    public String getLearningPipelineStats() {
+        LearningEventPipeline pipeline = learningPipeline;
+        return pipeline != null ? pipeline.getStats() : "Learning pipeline: idle";
+    }
+    
     /**
      * Backwards compatibility - old signature without mob entity
      */
@@ -2186,21 +2689,18 @@ public class MobBehaviorAI {
     }
     
     /**
-     * Get all possible actions across all mob types
+     * XGBoost tactic index of each action across all mob types
      */
-    private List<String> getAllPossibleActions() {
-        List<String> allActions = new ArrayList<>();
-        allActions.add("straight_charge");
-        allActions.add("circle_strafe");
-        allActions.add("kite_backward");
-        allActions.add("retreat");
-        allActions.add("ambush");
-        allActions.add("group_rush");
-        allActions.add("find_cover");
-        allActions.add("strafe_shoot");
-        allActions.add("leap_attack");
-        allActions.add("fake_retreat");
-        return allActions;
+    private static final Map<String, Integer> ALL_ACTION_INDEX = indexActions(
+        "straight_charge", "circle_strafe", "kite_backward", "retreat", "ambush",
+        "group_rush", "find_cover", "strafe_shoot", "leap_attack", "fake_retreat");
+    
+    private static Map<String, Integer> indexActions(String... actions) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < actions.length; i++) {
+            index.put(actions[i], i);
+        }
+        return Collections.unmodifiableMap(index);
     }
     
     /**
@@ -2230,6 +2730,15 @@ public class MobBehaviorAI {
      * Persist local state and shut down background services.
      */
     public void shutdown() {
+        LearningEventPipeline pipeline = learningPipeline;
+        if (pipeline != null) {
+            pipeline.shutdown();  // Feed queued outcomes to the learners before the optimizer stops
+            learningPipeline = null;
+        }
+        if (episodeStage != null) {
+            episodeStage.shutdown();  // Aggregate queued episodes before the weights are saved
+            episodeStage = null;
+        }
         saveModel();
 
         if (federatedLearning != null) {
@@ -2244,6 +2753,10 @@ public class MobBehaviorAI {
         if (tacticKnowledgeBase != null) {
             tacticKnowledgeBase.setFederatedLearning(null);
         }
+        if (reflexModule != null) {
+            reflexModule.clear();
+        }
+        policyTable.clear();
         MLClassLoader.setFederatedLearning(null);
         LOGGER.info("AI systems shut down");
     }
@@ -2506,19 +3019,7 @@ public class MobBehaviorAI {
     private String getMobTypeFromId(String mobId) {
         if (mobId == null) return null;
         
-        // Try to extract from cached state first
-        for (Map.Entry<String, MobState> entry : lastStateCache.entrySet()) {
-            if (entry.getKey().equals(mobId)) {
-                // Try to match against known profiles
-                for (String mobType : behaviorProfiles.keySet()) {
-                    if (mobId.toLowerCase().startsWith(mobType)) {
-                        return mobType;
-                    }
-                }
-            }
-        }
-        
-        // Fallback: try to parse from ID format
+        // Parse from ID format (behaviorProfiles is fixed after init, so this is safe off-thread)
         String[] parts = mobId.split("_");
         if (parts.length > 0 && behaviorProfiles.containsKey(parts[0].toLowerCase())) {
             return parts[0].toLowerCase();
@@ -2650,19 +3151,15 @@ public class MobBehaviorAI {
      * Track attribute-tactic correlations for optimization suggestions
      * Inspired by Mob Control's attribute modification system
      */
-    private void trackAttributeTacticCorrelation(String mobType, String action, float reward, 
-                                                   net.minecraft.world.entity.Mob mobEntity) {
-        if (mobEntity == null || reward < CORRELATION_THRESHOLD) return;
+    private void trackAttributeTacticCorrelation(String mobType, String action, float reward,
+                                                   float speed, float health, float damage) {
+        if (reward <= CORRELATION_THRESHOLD) return;
         
         String key = mobType + ":" + action;
         AttributeTacticCorrelation correlation = attributeCorrelations.computeIfAbsent(key, 
             k -> new AttributeTacticCorrelation(mobType, action));
         
-        // Record mob's current attributes
-        float speed = (float) mobEntity.getAttributeValue(net.minecraft.world.entity.ai.attributes.Attributes.MOVEMENT_SPEED);
-        float health = mobEntity.getMaxHealth();
-        float damage = (float) mobEntity.getAttributeValue(net.minecraft.world.entity.ai.attributes.Attributes.ATTACK_DAMAGE);
-        
+        // Record the mob's attributes (snapshotted on the game thread)
         correlation.recordSample(speed, health, damage, reward);
         
         // Log suggestion if we have enough samples
@@ -2794,43 +3291,32 @@ public class MobBehaviorAI {
      */
     public void startCombatEpisode(String mobId, String mobType, int currentTick) {
         if (!tacticalSystemEnabled || tacticalAggregator == null) {
-            LOGGER.warn("Tactical system disabled or aggregator null - skipping episode start");
             return;
         }
         
-        CombatEpisode episode = new CombatEpisode(mobId, mobType);
-        episode.setStartTick(currentTick);
-        activeEpisodes.put(mobId, episode);
-        episodeTickCounters.put(mobId, 0);
+        CombatEpisode previous = activeEpisodes.put(mobId, CombatEpisode.acquire(mobId, mobType, currentTick));
+        if (previous != null) {
+            previous.release();  // Restarted without ending (goal re-entered)
+        }
         
-        LOGGER.info("Started tactical episode for {} ({})", mobType, mobId.substring(0, 8));
+        LOGGER.debug("Started tactical episode for {} ({})", mobType, mobId.substring(0, 8));
     }
     
     /**
      * Record tactical decision during combat
-     * Call this periodically (every 10 ticks) during combat, NOT every tick
+     * Call this when {@link EpisodeSampleRate#isDue(int)} says so, NOT every tick
      */
     public void recordTacticalSample(String mobId, net.minecraft.world.entity.Mob mobEntity, 
                                      Player target, float damageThisTick) {
         if (!tacticalSystemEnabled || tacticalAggregator == null) {
-            LOGGER.warn("Tactical system disabled during sample recording");
             return;
         }
         
         CombatEpisode episode = activeEpisodes.get(mobId);
         if (episode == null) {
-            LOGGER.warn("No episode found for {} during sample recording", mobId.substring(0, 8));
             return;  // Episode not started
         }
         
-        // Throttle sampling - only every N ticks
-        int tickCounter = episodeTickCounters.getOrDefault(mobId, 0) + 1;
-        episodeTickCounters.put(mobId, tickCounter);
-        
-        if (tickCounter % episodeSampleInterval != 0) {
-            return;  // Not time to sample yet
-        }
-        
         // Build tactical state
         TacticalActionSpace.TacticalState state = 
             TacticalActionSpace.TacticalState.fromGameState(mobEntity, target);
@@ -2861,7 +3347,7 @@ public class MobBehaviorAI {
     }
     
     /**
-     * End combat episode and aggregate learning
+     * End combat episode and hand it to the aggregation stage
      * Call this when mob dies or player dies or combat ends
      */
     public void endCombatEpisode(String mobId, boolean mobKilledPlayer, boolean playerKilledMob, 
@@ -2871,44 +3357,20 @@ public class MobBehaviorAI {
         }
         
         CombatEpisode episode = activeEpisodes.remove(mobId);
-        episodeTickCounters.remove(mobId);
-        
-        if (episode == null) {
-            LOGGER.warn("No active episode found for {} when ending", mobId.substring(0, 8));
+        if (episode == null || !episode.finish(mobKilledPlayer, playerKilledMob, currentTick)) {
             return;  // No active episode
         }
         
-        // Get episode outcome
-        CombatEpisode.EpisodeOutcome outcome = episode.endEpisode(
-            mobKilledPlayer, playerKilledMob, currentTick
-        );
-        
-        if (outcome == null) {
-            LOGGER.warn("Episode ended with null outcome for {}", mobId.substring(0, 8));
-            return;
-        }
-        
-        // Log ALL episodes with sample count
-        LOGGER.info("Episode ended: {} samples, reward: {:.1f}, duration: {}s, ready: {}",
-            episode.getSampleCount(), outcome.episodeReward, outcome.durationTicks / 20,
-            episode.isReadyForLearning());
-        
-        // Aggregate episode into tactical weights
-        tacticalAggregator.aggregateEpisode(episode, outcome, playerId != null ? playerId : "server");
-        
         // Lazy-initialize federation if not yet started (handles singleplayer integrated servers)
         if (federatedLearning == null) {
-            LOGGER.info("Federation not initialized, attempting lazy init...");
             GANCityMod.initFederationIfNeeded();
         }
         
-        // Submit to federation if enabled
-        if (federatedLearning != null && federatedLearning.isEnabled()) {
-            LOGGER.info("Submitting episode to federation...");
-            federatedLearning.submitEpisodeAsync(episode, outcome, playerId);
-        } else {
-            LOGGER.debug("Federation disabled or unavailable - episode not submitted to global pool");
+        // Outcome, tactical weights and federation submission run on the stage's worker
+        if (episodeStage == null) {
+            episodeStage = new EpisodeAggregationStage(episodeQueueCapacity);
         }
+        episodeStage.submit(episode, tacticalAggregator, federatedLearning, playerId);
     }
     
     /**
@@ -3025,9 +3487,29 @@ public class MobBehaviorAI {
     }
     
     /**
-     * Set episode sample interval (how often to sample tactical state)
+     * Configure tactical episode sampling and the aggregation queue.
+     * @param intervalTicks base sample interval (see {@link EpisodeSampleRate})
+     * @param adaptive      whether aggregation backpressure may stretch the interval
+     * @param queueCapacity finished episodes the aggregation stage may hold before dropping
+     */
+    public void setEpisodeSampling(int intervalTicks, boolean adaptive, int queueCapacity) {
+        EpisodeSampleRate.configure(intervalTicks, adaptive);
+        this.episodeQueueCapacity = queueCapacity;
+        EpisodeAggregationStage stage = episodeStage;
+        if (stage != null && stage.getCapacity() != EpisodeAggregationStage.clampCapacity(queueCapacity)) {
+            episodeStage = null;  // Recreated with the new capacity on the next episode
+            stage.shutdown();
+        }
+    }
+    
+    /**
+     * Episode aggregation stage status for /amai stats
      */
-    public void setEpisodeSampleInterval(int ticks) {
-        this.episodeSampleInterval = Math.max(5, Math.min(20, ticks));  // Clamp 5-20 ticks
+    public String getEpisodeStats() {
+        EpisodeAggregationStage stage = episodeStage;
+        return stage != null
+            ? stage.getStats()
+            : String.format("Episode aggregation: idle, sampling every %d ticks%s", EpisodeSampleRate.getIntervalTicks(),
+                EpisodeSampleRate.isAdaptive() ? " (adaptive)" : "");
     }
 }
@@ -18,7 +18,9 @@ import java.util.concurrent.atomic.AtomicLong;
  * 2. Output caching (80% CPU reduction)
  * 3. Shared global model (prevents OOM with many mobs)
  * 4. Rate limiting (smooth load distribution)
- * 5. Object pooling (reduces GC pressure)
+ * 5. One prioritized replay store feeding one trainer (primitive ring, no per-experience objects)
+ * 6. Experiences arrive off the game thread (learning pipeline), never waiting on the trainer
+ * 7. Optional int8 quantized Q-network for inference
  */
 public class PerformanceOptimizer {
     private static final Logger LOGGER = LogUtils.getLogger();
@@ -59,17 +61,26 @@ public class PerformanceOptimizer {
     
     // === CRITICAL FIX #4: Rate limiting ===
     private final AtomicLong currentTick = new AtomicLong(0);
-    private static final int TRAINING_INTERVAL_TICKS = 20;  // Train once per second
     private final AtomicInteger pendingTrainingTasks = new AtomicInteger(0);
     private static final int MAX_PENDING_TASKS = 5;  // Prevent queue buildup
     
-    // === CRITICAL FIX #5: Experience object pool ===
-    private static final int POOL_SIZE = 1000;
-    private final Queue<ExperiencePooled> experiencePool = new ConcurrentLinkedQueue<>();
+    // === CRITICAL FIX #5: Single replay store ===
+    // The prioritized buffer (a preallocated primitive ring plus sum tree) is the only replay
+    // store; the learning pipeline adds to it and the one training step below samples it
+    private static final int TRAINING_BATCH_SIZE = 32;
+    private volatile PrioritizedReplayBuffer replayBuffer;
     
-    // === CRITICAL FIX #6: Fixed-size replay buffer (ring buffer) ===
-    private static final int MAX_REPLAY_SIZE = 10000;  // Never more than this
-    private final ConcurrentLinkedQueue<ExperiencePooled> replayBuffer = new ConcurrentLinkedQueue<>();
+    // === Int8 inference: quantized copy of the policy network, refreshed on the training thread ===
+    private static final int REQUANTIZE_EVERY_TRAININGS = 30;
+    private static final int MAX_REQUANTIZE_BACKOFF = 16;  // Rejections stretch the interval up to 16x
+    private static final int CALIBRATION_SAMPLES = 256;
+    private static final float MIN_ARGMAX_AGREEMENT = 0.95f;  // Worst head's agreement
+    private volatile boolean int8Inference = false;
+    private volatile QuantizedMLP quantizedModel;
+    private volatile float quantizedAgreement = 0.0f;
+    // Training thread only
+    private int trainingsUntilQuantize = 0;
+    private int requantizeBackoff = 1;
     
     // === Performance metrics ===
     private final AtomicLong totalPredictions = new AtomicLong(0);
@@ -80,10 +91,6 @@ public class PerformanceOptimizer {
     private final Map<String, PlayerCombatContext> playerContexts = new ConcurrentHashMap<>();
     
     public PerformanceOptimizer() {
-        // Pre-populate experience pool
-        for (int i = 0; i < POOL_SIZE; i++) {
-            experiencePool.offer(new ExperiencePooled());
-        }
         LOGGER.info("Performance Optimizer initialized - Background training enabled");
     }
     
@@ -95,6 +102,24 @@ public class PerformanceOptimizer {
         this.globalModel = model;
     }
     
+    /**
+     * Q-network inference mode: "float" (published float copy) or "int8" (quantized copy, validated against the float model)
+     */
+    public void setInferenceMode(String mode) {
+        this.int8Inference = mode != null && mode.trim().equalsIgnoreCase("int8");
+        if (!int8Inference) {
+            quantizedModel = null;
+        }
+    }
+    
+    /**
+     * The replay store: the learning pipeline thread adds every experience and the trainer
+     * samples it (the buffer's own lock orders the two)
+     */
+    public void setReplayBuffer(PrioritizedReplayBuffer buffer) {
+        this.replayBuffer = buffer;
+    }
+    
     /**
      * Tick the optimizer (call once per server tick)
      */
@@ -105,25 +130,47 @@ public class PerformanceOptimizer {
         if (tick % 20 == 0) {
             playerContexts.clear();
         }
+    }
+    
+    /**
+     * Queue one training step (drain, prioritized sample, gradient step, priority update) on the
+     * background thread. Called per learning event; dropped like any job when the queue is full.
+     */
+    public boolean requestTraining() {
+        return submitTraining(this::performBackgroundTraining);
+    }
+    
+    /**
+     * Run a training job on the background training thread.
+     * Dropped (returns false) when too many jobs are already queued, so a busy trainer
+     * never builds up a backlog or pushes work back onto the game thread.
+     */
+    public boolean submitTraining(Runnable job) {
+        if (pendingTrainingTasks.incrementAndGet() > MAX_PENDING_TASKS) {
+            pendingTrainingTasks.decrementAndGet();
+            return false;
+        }
         
-        // CRITICAL: Schedule training on background thread, NOT main thread
-        if (tick % TRAINING_INTERVAL_TICKS == 0 && pendingTrainingTasks.get() < MAX_PENDING_TASKS) {
-            pendingTrainingTasks.incrementAndGet();
-            
+        try {
             TRAINING_POOL.submit(() -> {
                 try {
-                    performBackgroundTraining();
+                    job.run();
+                    trainingExecutions.incrementAndGet();
                 } catch (Exception e) {
                     LOGGER.error("Training error (non-fatal): {}", e.getMessage());
                 } finally {
                     pendingTrainingTasks.decrementAndGet();
                 }
             });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pendingTrainingTasks.decrementAndGet();
+            return false;
         }
     }
     
     /**
-     * Get cached or compute Q-values
+     * Get cached or compute Q-values (the full multi-head row; callers read their head via QHeadLayout)
      * CRITICAL: Reduces neural net calls by 80%
      */
     public float[] getCachedQValues(String mobId, float[] state) {
@@ -135,89 +182,104 @@ public class PerformanceOptimizer {
             return cached.qValues;  // Return cached result
         }
         
-        // Compute new prediction
-        if (globalModel == null) {
-            return new float[10];  // Fallback
-        }
-        
-        // Use temporary manager for prediction
-        try (ai.djl.ndarray.NDManager localManager = ai.djl.ndarray.NDManager.newBaseManager()) {
-            ai.djl.ndarray.NDArray qValuesArray = globalModel.predictQValues(localManager, state);
-            float[] qValues = qValuesArray.toFloatArray();
-            
-            // Cache for future use
+        // Int8 path: integer dot products, no NDArray allocation
+        QuantizedMLP quantized = quantizedModel;
+        if (quantized != null && state.length >= quantized.getInputSize()) {
+            float[] qValues = quantized.predict(state);
             predictionCache.put(mobId, new CachedPrediction(qValues, currentTick.get()));
-            
             return qValues;
         }
-    }
-    
-    /**
-     * Record experience using object pooling
-     * CRITICAL: Prevents GC pressure from creating thousands of objects
-     */
-    public void recordExperience(float[] state, int action, float reward, float[] nextState, boolean done) {
-        // Get from pool or create new
-        ExperiencePooled exp = experiencePool.poll();
-        if (exp == null) {
-            exp = new ExperiencePooled();
+        
+        // Compute new prediction
+        DoubleDQN model = globalModel;
+        if (model == null) {
+            return new float[0];  // Fallback: no head values
         }
         
-        // Reuse existing arrays to avoid allocation
-        exp.setState(state);
-        exp.setAction(action);
-        exp.setReward(reward);
-        exp.setNextState(nextState);
-        exp.setDone(done);
+        // Published policy weights: plain float math, never waits for the trainer
+        float[] qValues = model.predictQValues(state);
         
-        // Add to replay buffer (ring buffer behavior)
-        replayBuffer.offer(exp);
+        // Cache for future use
+        predictionCache.put(mobId, new CachedPrediction(qValues, currentTick.get()));
         
-        // CRITICAL: Enforce max size to prevent OOM
-        while (replayBuffer.size() > MAX_REPLAY_SIZE) {
-            ExperiencePooled old = replayBuffer.poll();
-            if (old != null) {
-                experiencePool.offer(old);  // Return to pool for reuse
-            }
-        }
+        return qValues;
     }
     
     /**
-     * Background training (runs on separate thread)
+     * Background training (runs on separate thread): the single trainer of the global model
      * CRITICAL: NEVER blocks main game thread
      */
     private void performBackgroundTraining() {
-        if (globalModel == null || replayBuffer.size() < 32) {
+        DoubleDQN model = globalModel;
+        PrioritizedReplayBuffer buffer = replayBuffer;
+        if (model == null || buffer == null || buffer.size() < TRAINING_BATCH_SIZE) {
             return;  // Not ready yet
         }
         
-        // Sample batch from replay buffer
-        List<ExperiencePooled> batch = new ArrayList<>(32);
-        Iterator<ExperiencePooled> it = replayBuffer.iterator();
-        Random random = new Random();
+        PrioritizedReplayBuffer.SampledBatch batch = buffer.sample(TRAINING_BATCH_SIZE);
         
-        for (int i = 0; i < 32 && it.hasNext(); i++) {
-            if (random.nextFloat() < 0.1f || batch.size() < 32) {  // Sample ~10% or fill to 32
-                batch.add(it.next());
-            }
-            it.next();  // Skip some for variety
+        // CRITICAL: This runs on background thread, not game thread
+        float[] tdErrors = model.trainBatch(batch.states, batch.nextStates, batch.actions,
+            batch.rewards, batch.notDone, batch.importanceWeights, batch.count);
+        
+        // Update priorities based on TD errors
+        List<Float> tdErrorList = new ArrayList<>(tdErrors.length);
+        for (float error : tdErrors) {
+            tdErrorList.add(error);
+        }
+        buffer.updatePriorities(batch.prioritizedExperiences, tdErrorList);
+        
+        maybeRequantize(model, buffer);
+    }
+    
+    /**
+     * Rebuild the int8 model from the current policy weights every few trainings, calibrated on
+     * replay states, and publish it only if, in every head, its argmax agrees with the float model
+     * often enough. Each rejection doubles the wait before the next attempt (up to
+     * {@value #MAX_REQUANTIZE_BACKOFF}x); an accepted copy resets it. Training thread only.
+     */
+    private void maybeRequantize(DoubleDQN model, PrioritizedReplayBuffer buffer) {
+        if (!int8Inference || --trainingsUntilQuantize > 0) {
+            return;
         }
+        trainingsUntilQuantize = REQUANTIZE_EVERY_TRAININGS * requantizeBackoff;
         
-        if (batch.size() < 16) {
-            return;  // Not enough data
+        PrioritizedReplayBuffer.SampledBatch calibrationBatch = buffer.sample(CALIBRATION_SAMPLES);
+        int count = calibrationBatch.count;
+        if (count < TRAINING_BATCH_SIZE) {
+            return;
         }
+        int stateSize = calibrationBatch.stateSize;
+        float[] samples = calibrationBatch.states;
         
-        // Convert to format expected by Double DQN
-        java.util.List<com.minecraft.gancity.ml.PrioritizedReplayBuffer.Experience> experiences = batch.stream()
-            .map(exp -> new com.minecraft.gancity.ml.PrioritizedReplayBuffer.Experience(
-                exp.state, exp.action, exp.reward, exp.nextState, exp.done
-            ))
-            .collect(java.util.stream.Collectors.toList());
+        // Calibrate on one half, validate on the other
+        int calibration = count / 2;
+        int validation = count - calibration;
+        float[][] params = model.exportPolicyLayers();
+        int layers = params.length / 2;
+        float[][] weights = new float[layers][];
+        float[][] biases = new float[layers][];
+        for (int l = 0; l < layers; l++) {
+            weights[l] = params[2 * l];
+            biases[l] = params[2 * l + 1];
+        }
+        QuantizedMLP candidate = QuantizedMLP.quantize(model.getPolicyLayerSizes(), weights, biases, samples, calibration);
         
-        // CRITICAL: This runs on background thread, not game thread
-        globalModel.trainBatch(experiences);
+        float[] validationStates = Arrays.copyOfRange(samples, calibration * stateSize, count * stateSize);
+        float[] reference = model.predictQValuesBatch(validationStates, validation);
+        float agreement = candidate.worstHeadAgreement(validationStates, validation, reference, model.getHeads());
+        quantizedAgreement = agreement;
         
-        trainingExecutions.incrementAndGet();
+        if (agreement >= MIN_ARGMAX_AGREEMENT) {
+            quantizedModel = candidate;
+            requantizeBackoff = 1;
+        } else {
+            quantizedModel = null;  // Float inference until a better-behaved quantization
+            requantizeBackoff = Math.min(MAX_REQUANTIZE_BACKOFF, requantizeBackoff * 2);
+            trainingsUntilQuantize = REQUANTIZE_EVERY_TRAININGS * requantizeBackoff;
+            LOGGER.debug("Int8 Q-network rejected: {}% worst-head argmax agreement, next attempt in {} trainings",
+                String.format("%.1f", agreement * 100), trainingsUntilQuantize);
+        }
     }
     
     /**
@@ -241,12 +303,15 @@ public class PerformanceOptimizer {
     public String getPerformanceStats() {
         long total = totalPredictions.get();
         long cached = cachedPredictions.get();
+        PrioritizedReplayBuffer buffer = replayBuffer;
         float cacheHitRate = total > 0 ? (100.0f * cached / total) : 0.0f;
         
         return String.format(
-            "Predictions: %d (%.1f%% cached) | Training: %d | Buffer: %d/%d | Pending: %d",
+            "Predictions: %d (%.1f%% cached) | Training: %d | Buffer: %d/%d | Pending: %d | Inference: %s",
             total, cacheHitRate, trainingExecutions.get(), 
-            replayBuffer.size(), MAX_REPLAY_SIZE, pendingTrainingTasks.get()
+            buffer != null ? buffer.size() : 0, buffer != null ? buffer.getCapacity() : 0, pendingTrainingTasks.get(),
+            !int8Inference ? "float" : quantizedModel != null
+                ? String.format("int8 (%.1f%% worst-head agreement)", quantizedAgreement * 100) : "float (int8 pending)"
         );
     }
     
@@ -266,41 +331,6 @@ public class PerformanceOptimizer {
         LOGGER.info("Performance Optimizer shut down - Final stats: {}", getPerformanceStats());
     }
     
-    // === Pooled experience object (reusable) ===
-    private static class ExperiencePooled {
-        float[] state;
-        int action;
-        float reward;
-        float[] nextState;
-        boolean done;
-        
-        void setState(float[] state) {
-            if (this.state == null || this.state.length != state.length) {
-                this.state = new float[state.length];
-            }
-            System.arraycopy(state, 0, this.state, 0, state.length);
-        }
-        
-        void setAction(int action) {
-            this.action = action;
-        }
-        
-        void setReward(float reward) {
-            this.reward = reward;
-        }
-        
-        void setNextState(float[] nextState) {
-            if (this.nextState == null || this.nextState.length != nextState.length) {
-                this.nextState = new float[nextState.length];
-            }
-            System.arraycopy(nextState, 0, this.nextState, 0, nextState.length);
-        }
-        
-        void setDone(boolean done) {
-            this.done = done;
-        }
-    }
-    
     /**
      * Shared combat context for multiple mobs fighting same player
      * CRITICAL: Prevents duplicate observations
@@ -0,0 +1,277 @@
+package com.minecraft.gancity.ai;
+
+import com.minecraft.gancity.ml.VisualPerception;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distilled per-mob-type policy: the live ensemble evaluated once over a discretized state grid.
+ *
+ * Most combat states collapse into a few situations (health buckets, distance bands, allies
+ * 0/1/2+, night, shielded player, wall climber). For each grid cell the table stores the
+ * cumulative action distribution the live ensemble would produce there, quantized to 16 bits,
+ * so a decision is a cell index computation plus a short scan over the mob's actions.
+ *
+ * Tables are rebuilt off the server thread and published by swapping one volatile map.
+ */
+public final class PolicyDistillationTable {
+
+    /**
+     * Which policy the decision path uses.
+     */
+    public enum Mode {
+        /** Always run the live ensemble (no table). */
+        LIVE,
+        /** Use the table for every state, snapping off-grid states to the nearest cell. */
+        TABLE,
+        /** Use the table for on-grid states and the live ensemble for the rest. */
+        TABLE_WITH_FALLBACK;
+
+        public static Mode parse(String value) {
+            if (value == null) {
+                return LIVE;
+            }
+            switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "table":
+                    return TABLE;
+                case "table_with_fallback":
+                    return TABLE_WITH_FALLBACK;
+                default:
+                    return LIVE;
+            }
+        }
+    }
+
+    /**
+     * Produces the live ensemble's action probabilities for a batch of representative states.
+     * Runs on the training thread.
+     */
+    @FunctionalInterface
+    public interface Evaluator {
+        /**
+         * @return row-major {@code states.length x actions.size()} non-negative weights
+         */
+        float[] evaluate(String mobType, List<String> actions, MobBehaviorAI.MobState[] states,
+                         VisualPerception.VisualState[] visuals);
+    }
+
+    // === Grid ===
+    private static final float[] HEALTH_MIDPOINTS = {0.125f, 0.375f, 0.625f, 0.875f};
+    private static final float[] TARGET_HEALTH_MIDPOINTS = {0.17f, 0.5f, 0.83f};
+    private static final float[] DISTANCE_BAND_LIMITS = {3.0f, 8.0f, 16.0f};
+    private static final float[] DISTANCE_MIDPOINTS = {1.5f, 5.5f, 12.0f, 24.0f};
+    private static final int[] ALLY_REPRESENTATIVES = {0, 1, 3};
+
+    private static final int HEALTH_BUCKETS = HEALTH_MIDPOINTS.length;
+    private static final int TARGET_BUCKETS = TARGET_HEALTH_MIDPOINTS.length;
+    private static final int DISTANCE_BANDS = DISTANCE_MIDPOINTS.length;
+    private static final int ALLY_BUCKETS = ALLY_REPRESENTATIVES.length;
+
+    public static final int CELL_COUNT = HEALTH_BUCKETS * TARGET_BUCKETS * DISTANCE_BANDS * ALLY_BUCKETS * 2 * 2 * 2;
+
+    /** Beyond this distance the grid's last band no longer represents the state. */
+    private static final float MAX_ON_GRID_DISTANCE = 32.0f;
+
+    private static final int QUANT_SCALE = 0xFFFF;
+
+    private static final MobBehaviorAI.MobState[] CELL_STATES = new MobBehaviorAI.MobState[CELL_COUNT];
+    private static final VisualPerception.VisualState[] CELL_VISUALS = new VisualPerception.VisualState[CELL_COUNT];
+
+    static {
+        VisualPerception.VisualState plain = new VisualPerception.VisualState();
+        VisualPerception.VisualState shielded = new VisualPerception.VisualState();
+        shielded.hasShield = true;
+
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            int rest = cell;
+            int climb = rest % 2;
+            rest /= 2;
+            int shield = rest % 2;
+            rest /= 2;
+            int night = rest % 2;
+            rest /= 2;
+            int allies = rest % ALLY_BUCKETS;
+            rest /= ALLY_BUCKETS;
+            int distance = rest % DISTANCE_BANDS;
+            rest /= DISTANCE_BANDS;
+            int target = rest % TARGET_BUCKETS;
+            int health = rest / TARGET_BUCKETS;
+
+            MobBehaviorAI.MobState state = new MobBehaviorAI.MobState(
+                HEALTH_MIDPOINTS[health], TARGET_HEALTH_MIDPOINTS[target], DISTANCE_MIDPOINTS[distance]);
+            state.nearbyAlliesCount = ALLY_REPRESENTATIVES[allies];
+            state.isNight = night == 1;
+            state.canClimbWalls = climb == 1;
+            CELL_STATES[cell] = state;
+            CELL_VISUALS[cell] = shield == 1 ? shielded : plain;
+        }
+    }
+
+    private static final class MobTable {
+        private final String[] actions;
+        private final char[] cumulative;  // CELL_COUNT x actions, last entry of each row == QUANT_SCALE
+
+        private MobTable(String[] actions, char[] cumulative) {
+            this.actions = actions;
+            this.cumulative = cumulative;
+        }
+    }
+
+    private volatile Map<String, MobTable> tables = Map.of();
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private volatile long lastRebuildMs = 0;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * Grid cell for a state, or -1 if the state is off-grid and {@code snap} is false.
+     */
+    static int cellOf(MobBehaviorAI.MobState state, VisualPerception.VisualState visual, boolean snap) {
+        if (!snap && (state.hasHighGround || state.distanceToTarget > MAX_ON_GRID_DISTANCE
+            || (visual != null && (visual.isBlocking || visual.hasRangedWeapon)))) {
+            return -1;
+        }
+
+        int health = Math.min(HEALTH_BUCKETS - 1, Math.max(0, (int) (state.health * HEALTH_BUCKETS)));
+        int target = Math.min(TARGET_BUCKETS - 1, Math.max(0, (int) (state.targetHealth * TARGET_BUCKETS)));
+        int distance = 0;
+        while (distance < DISTANCE_BAND_LIMITS.length && state.distanceToTarget >= DISTANCE_BAND_LIMITS[distance]) {
+            distance++;
+        }
+        int allies = Math.min(ALLY_BUCKETS - 1, Math.max(0, state.nearbyAlliesCount));
+        int night = state.isNight ? 1 : 0;
+        int shield = visual != null && visual.hasShield ? 1 : 0;
+        int climb = state.canClimbWalls ? 1 : 0;
+
+        int cell = health;
+        cell = cell * TARGET_BUCKETS + target;
+        cell = cell * DISTANCE_BANDS + distance;
+        cell = cell * ALLY_BUCKETS + allies;
+        cell = cell * 2 + night;
+        cell = cell * 2 + shield;
+        cell = cell * 2 + climb;
+        return cell;
+    }
+
+    /**
+     * Sample an action from the distilled distribution.
+     * @return the action, or null if there is no table for this mob type, the state is off-grid
+     *         (and {@code snapOffGrid} is false) or the sampled action is not currently valid
+     */
+    public String sample(String mobType, MobBehaviorAI.MobState state, VisualPerception.VisualState visual,
+                         List<String> validActions, Random random, boolean snapOffGrid) {
+        MobTable table = tables.get(mobType);
+        int cell = table != null ? cellOf(state, visual, snapOffGrid) : -1;
+        if (cell < 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        int width = table.actions.length;
+        int base = cell * width;
+        int r = random.nextInt(QUANT_SCALE) + 1;
+        int index = width - 1;
+        for (int i = 0; i < width; i++) {
+            if (r <= table.cumulative[base + i]) {
+                index = i;
+                break;
+            }
+        }
+
+        String action = table.actions[index];
+        if (!validActions.contains(action)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return action;
+    }
+
+    public boolean isRebuildDue(long intervalMs) {
+        return !rebuilding.get() && System.currentTimeMillis() - lastRebuildMs >= intervalMs;
+    }
+
+    /**
+     * Claim the rebuild slot (returns false if a rebuild is already queued or running).
+     */
+    public boolean beginRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        lastRebuildMs = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Release the slot claimed by {@link #beginRebuild()} without rebuilding (e.g. job rejected).
+     */
+    public void cancelRebuild() {
+        rebuilding.set(false);
+    }
+
+    /**
+     * Evaluate every cell for each mob type and publish the new tables. Call after
+     * {@link #beginRebuild()}, on a background thread.
+     */
+    public void rebuild(Map<String, List<String>> actionsByMobType, Evaluator evaluator) {
+        try {
+            Map<String, MobTable> next = new HashMap<>();
+            for (Map.Entry<String, List<String>> entry : actionsByMobType.entrySet()) {
+                List<String> actions = entry.getValue();
+                if (actions.isEmpty()) {
+                    continue;
+                }
+                float[] weights = evaluator.evaluate(entry.getKey(), actions, CELL_STATES, CELL_VISUALS);
+                if (weights == null || weights.length < CELL_COUNT * actions.size()) {
+                    continue;
+                }
+                next.put(entry.getKey(), quantize(actions, weights));
+            }
+            tables = next;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private static MobTable quantize(List<String> actions, float[] weights) {
+        int width = actions.size();
+        char[] cumulative = new char[CELL_COUNT * width];
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            int base = cell * width;
+            double total = 0.0;
+            for (int i = 0; i < width; i++) {
+                total += Math.max(0.0f, weights[base + i]);
+            }
+
+            double running = 0.0;
+            for (int i = 0; i < width; i++) {
+                running += total > 0.0 ? Math.max(0.0f, weights[base + i]) / total : 1.0 / width;
+                cumulative[base + i] = (char) Math.min(QUANT_SCALE, Math.round(running * QUANT_SCALE));
+            }
+            cumulative[base + width - 1] = (char) QUANT_SCALE;
+        }
+        return new MobTable(actions.toArray(new String[0]), cumulative);
+    }
+
+    public void clear() {
+        tables = Map.of();
+    }
+
+    public int getTableCount() {
+        return tables.size();
+    }
+
+    public String getStats() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return String.format("%d tables x %d cells, %.1f%% of decisions from table",
+            tables.size(), CELL_COUNT, total == 0 ? 0.0 : h * 100.0 / total);
+    }
+}
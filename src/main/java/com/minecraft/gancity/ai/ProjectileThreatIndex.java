@@ -0,0 +1,162 @@
+package com.minecraft.gancity.ai;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.projectile.Projectile;
+import net.minecraft.world.level.entity.EntityTypeTest;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-tick index of in-flight projectile paths, queried by mobs for the ones that threaten them.
+ *
+ * Built once per level tick, on the first query of that tick: the level's projectile list is
+ * walked once, each moving projectile's predicted path ({@link #SWEEP_TICKS} ticks ahead) is
+ * bucketed into the chunk sections its bounds cover. A mob's query then only sweeps the paths
+ * bucketed in the sections around its (slightly inflated) hitbox, and the result is cached for the
+ * rest of the tick, so repeated queries (findDodge, then shouldDodge) are map lookups.
+ *
+ * Ticks are the level's game time, the clock {@link ReflexModule} times reflexes with.
+ *
+ * Server thread only.
+ */
+final class ProjectileThreatIndex {
+    /** How far ahead (ticks) a projectile's path is predicted. */
+    private static final int SWEEP_TICKS = 10;
+
+    /** Hitbox margin for near misses (matches the old per-pair check). */
+    private static final double HIT_MARGIN = 0.3;
+
+    /** Ignore projectiles that are effectively stationary (stuck arrows, tridents in ground). */
+    private static final double MIN_SPEED_SQR = 0.01;
+
+    private final Map<ServerLevel, LevelThreats> levels = new IdentityHashMap<>();
+
+    /**
+     * One projectile's predicted path for the current tick.
+     */
+    private static final class Path {
+        private final Projectile projectile;
+        private final Vec3 start;
+        private final Vec3 end;
+
+        private Path(Projectile projectile, Vec3 start, Vec3 end) {
+            this.projectile = projectile;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static final class LevelThreats {
+        private long tick = Long.MIN_VALUE;
+        private final Long2ObjectOpenHashMap<List<Path>> pathsBySection = new Long2ObjectOpenHashMap<>();
+        private final Map<Integer, List<Projectile>> threatsByMob = new HashMap<>();
+
+        private void rebuild(ServerLevel level, long now) {
+            tick = now;
+            pathsBySection.clear();
+            threatsByMob.clear();
+
+            for (Projectile projectile : level.getEntities(EntityTypeTest.forClass(Projectile.class), p -> !p.isRemoved())) {
+                Vec3 velocity = projectile.getDeltaMovement();
+                if (velocity.lengthSqr() < MIN_SPEED_SQR) {
+                    continue;
+                }
+                Vec3 start = projectile.position();
+                Vec3 end = start.add(velocity.scale(SWEEP_TICKS));
+                Path path = new Path(projectile, start, end);
+
+                // Any point where the path meets a hitbox lies in one of these sections
+                AABB bounds = new AABB(start, end);
+                int minX = SectionPos.blockToSectionCoord(Mth.floor(bounds.minX));
+                int minY = SectionPos.blockToSectionCoord(Mth.floor(bounds.minY));
+                int minZ = SectionPos.blockToSectionCoord(Mth.floor(bounds.minZ));
+                int maxX = SectionPos.blockToSectionCoord(Mth.floor(bounds.maxX));
+                int maxY = SectionPos.blockToSectionCoord(Mth.floor(bounds.maxY));
+                int maxZ = SectionPos.blockToSectionCoord(Mth.floor(bounds.maxZ));
+                for (int x = minX; x <= maxX; x++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        for (int z = minZ; z <= maxZ; z++) {
+                            pathsBySection.computeIfAbsent(SectionPos.asLong(x, y, z), k -> new ArrayList<>(2)).add(path);
+                        }
+                    }
+                }
+            }
+        }
+
+        private List<Projectile> scan(Mob mob) {
+            if (pathsBySection.isEmpty()) {
+                return Collections.emptyList();
+            }
+            AABB hitbox = mob.getBoundingBox().inflate(HIT_MARGIN);
+            int minX = SectionPos.blockToSectionCoord(Mth.floor(hitbox.minX));
+            int minY = SectionPos.blockToSectionCoord(Mth.floor(hitbox.minY));
+            int minZ = SectionPos.blockToSectionCoord(Mth.floor(hitbox.minZ));
+            int maxX = SectionPos.blockToSectionCoord(Mth.floor(hitbox.maxX));
+            int maxY = SectionPos.blockToSectionCoord(Mth.floor(hitbox.maxY));
+            int maxZ = SectionPos.blockToSectionCoord(Mth.floor(hitbox.maxZ));
+
+            List<Projectile> result = null;
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        List<Path> paths = pathsBySection.get(SectionPos.asLong(x, y, z));
+                        if (paths == null) {
+                            continue;
+                        }
+                        for (Path path : paths) {
+                            if (path.projectile.getOwner() == mob || (result != null && result.contains(path.projectile))) {
+                                continue;
+                            }
+                            if (hitbox.contains(path.start) || hitbox.clip(path.start, path.end).isPresent()) {
+                                if (result == null) {
+                                    result = new ArrayList<>(2);
+                                }
+                                result.add(path.projectile);
+                            }
+                        }
+                    }
+                }
+            }
+            return result != null ? result : Collections.emptyList();
+        }
+    }
+
+    /**
+     * Projectiles predicted to hit {@code mob} within the sweep horizon. Never null.
+     */
+    List<Projectile> getThreats(Mob mob) {
+        if (!(mob.level() instanceof ServerLevel level)) {
+            return Collections.emptyList();
+        }
+
+        LevelThreats threats = levels.get(level);
+        if (threats == null) {
+            // Forget levels the server has since unloaded
+            levels.keySet().removeIf(l -> l.getServer().getLevel(l.dimension()) != l);
+            threats = new LevelThreats();
+            levels.put(level, threats);
+        }
+        long tick = level.getGameTime();
+        if (threats.tick != tick) {
+            threats.rebuild(level, tick);
+        }
+
+        LevelThreats current = threats;
+        return current.threatsByMob.computeIfAbsent(mob.getId(), id -> current.scan(mob));
+    }
+
+    void clear() {
+        levels.clear();
+    }
+}
@@ -18,15 +18,23 @@ import java.util.*;
  * - Block incoming attacks
  * - Counter-attack windows
  * - Jump-crit timing
+ *
+ * Timing is tracked in server ticks (level game time). Projectile threats come from a shared
+ * per-tick {@link ProjectileThreatIndex}, so each mob only inspects projectiles on a collision
+ * course with it.
  */
 public class ReflexModule {
     private static final Logger LOGGER = LogUtils.getLogger();
     
-    // Reflex timing thresholds (milliseconds)
-    private static final long DODGE_WINDOW = 300;      // 300ms to dodge
-    private static final long BLOCK_WINDOW = 150;      // 150ms to raise shield
-    private static final long COUNTER_WINDOW = 500;    // 500ms after being hit
-    private static final long CRIT_WINDOW = 100;       // 100ms jump timing
+    // Reflex timing thresholds (server ticks, 20 ticks = 1 second)
+    private static final long DODGE_COOLDOWN_TICKS = 12;   // 600ms between dodges
+    private static final long BLOCK_COOLDOWN_TICKS = 9;    // 450ms between blocks
+    private static final long COUNTER_WINDOW_TICKS = 10;   // 500ms after being hit
+    private static final long CRIT_COOLDOWN_TICKS = 20;    // 1s between jump crits
+
+    /** Forget mobs that had no reflex activity for this long (1 minute). */
+    private static final long STATE_EXPIRY_TICKS = 1200;
+    private static final long CLEANUP_INTERVAL_TICKS = 200;
     
     // Reflex success rates (0.0 - 1.0)
     private static final float BASE_DODGE_CHANCE = 0.3f;
@@ -35,31 +43,57 @@ public class ReflexModule {
     
     private final Map<UUID, ReflexState> reflexStates = new HashMap<>();
     private final Random random = new Random();
+    private final ProjectileThreatIndex threatIndex = new ProjectileThreatIndex();
+    private long lastCleanupTick = 0;
+    
+    /**
+     * Projectiles predicted to hit this mob in the next few ticks (shared per-tick sweep).
+     */
+    public List<Projectile> getIncomingThreats(Mob mob) {
+        if (mob == null) {
+            return Collections.emptyList();
+        }
+        return threatIndex.getThreats(mob);
+    }
+    
+    /**
+     * Pick a threatening projectile this mob sees and successfully reacts to, or null.
+     * Convenience for goals: one call per tick instead of one per projectile.
+     */
+    public Projectile findDodge(Mob mob) {
+        List<Projectile> threats = getIncomingThreats(mob);
+        for (int i = 0; i < threats.size(); i++) {
+            Projectile projectile = threats.get(i);
+            if (shouldDodge(mob, projectile)) {
+                return projectile;
+            }
+        }
+        return null;
+    }
     
     /**
      * Check if mob should dodge incoming projectile
      */
     public boolean shouldDodge(Mob mob, Projectile projectile) {
-        if (projectile == null || !mob.hasLineOfSight(projectile)) {
+        if (mob == null || projectile == null) {
             return false;
         }
         
-        // Calculate projectile trajectory
-        Vec3 trajectory = calculateTrajectory(projectile);
-        Vec3 mobPos = mob.position();
-        
-        // Predict if projectile will hit
-        boolean willHit = predictHit(trajectory, projectile.position(), mobPos, mob.getBbWidth());
-        
-        if (!willHit) {
+        // Predict if projectile will hit (index lookup instead of a per-pair trajectory check)
+        if (!getIncomingThreats(mob).contains(projectile)) {
             return false;
         }
         
         // Get reflex state
         ReflexState state = getOrCreateState(mob);
+        long now = currentTick(mob);
+        
+        // Check if in dodge cooldown (before the raycast: most calls stop here)
+        if (now - state.lastDodgeTick < DODGE_COOLDOWN_TICKS) {
+            return false;
+        }
         
-        // Check if in dodge cooldown
-        if (System.currentTimeMillis() - state.lastDodgeTime < DODGE_WINDOW * 2) {
+        if (!LineOfSightCache.hasLineOfSight(mob, projectile)) {
             return false;
         }
         
@@ -68,7 +102,7 @@ public class ReflexModule {
         boolean success = random.nextFloat() < dodgeChance;
         
         if (success) {
-            state.lastDodgeTime = System.currentTimeMillis();
+            state.lastDodgeTick = now;
             state.successfulDodges++;
             LOGGER.debug("Mob {} dodging projectile!", mob.getType().getDescriptionId());
         }
@@ -104,17 +138,14 @@ public class ReflexModule {
                 return false;
             }
             
-            if (!mob.hasLineOfSight(attacker)) {
-                return false;
-            }
-            
             ReflexState state = getOrCreateState(mob);
             if (state == null) {
                 return false;
             }
+            long now = currentTick(mob);
             
             // Check if in block cooldown
-            if (System.currentTimeMillis() - state.lastBlockTime < BLOCK_WINDOW * 3) {
+            if (now - state.lastBlockTick < BLOCK_COOLDOWN_TICKS) {
                 return false;
             }
             
@@ -127,7 +158,7 @@ public class ReflexModule {
         // Check if attacker is winding up attack (velocity check)
         boolean attackIncoming = attacker.getDeltaMovement().length() > 0.1;
         
-        if (!attackIncoming) {
+        if (!attackIncoming || !LineOfSightCache.hasLineOfSight(mob, attacker)) {
             return false;
         }
         
@@ -136,7 +167,7 @@ public class ReflexModule {
         boolean success = random.nextFloat() < blockChance;
         
         if (success) {
-            state.lastBlockTime = System.currentTimeMillis();
+            state.lastBlockTick = now;
             state.successfulBlocks++;
             LOGGER.debug("Mob {} raising shield to block!", mob.getType().getDescriptionId());
         }
@@ -157,20 +188,21 @@ public class ReflexModule {
                 return false;
             }
             
-            if (!mob.hasLineOfSight(attacker)) {
-                return false;
-            }
-        
         ReflexState state = getOrCreateState(mob);
+        long now = currentTick(mob);
         
         // Check if within counter window after last hit
-        long timeSinceHit = System.currentTimeMillis() - state.lastHitTime;
-        if (timeSinceHit > COUNTER_WINDOW) {
+        long ticksSinceHit = now - state.lastHitTick;
+        if (ticksSinceHit > COUNTER_WINDOW_TICKS) {
             return false;
         }
         
         // Can't counter if already in counter cooldown
-        if (state.lastCounterTime > state.lastHitTime) {
+        if (state.lastCounterTick > state.lastHitTick) {
+            return false;
+        }
+        
+        if (!LineOfSightCache.hasLineOfSight(mob, attacker)) {
             return false;
         }
         
@@ -179,7 +211,7 @@ public class ReflexModule {
         boolean success = random.nextFloat() < counterChance;
         
         if (success) {
-            state.lastCounterTime = System.currentTimeMillis();
+            state.lastCounterTick = now;
             state.successfulCounters++;
             LOGGER.debug("Mob {} executing counter-attack!", mob.getType().getDescriptionId());
         }
@@ -201,6 +233,7 @@ public class ReflexModule {
             }
         
         ReflexState state = getOrCreateState(mob);
+        long now = currentTick(mob);
         
         // Check distance - optimal crit range
         double distance = mob.distanceTo(target);
@@ -209,7 +242,7 @@ public class ReflexModule {
         }
         
         // Check if in crit cooldown
-        if (System.currentTimeMillis() - state.lastCritTime < CRIT_WINDOW * 10) {
+        if (now - state.lastCritTick < CRIT_COOLDOWN_TICKS) {
             return false;
         }
         
@@ -223,7 +256,7 @@ public class ReflexModule {
         boolean success = random.nextFloat() < critChance;
         
         if (success) {
-            state.lastCritTime = System.currentTimeMillis();
+            state.lastCritTick = now;
             state.successfulCrits++;
             LOGGER.debug("Mob {} timing jump crit!", mob.getType().getDescriptionId());
         }
@@ -243,7 +276,7 @@ public class ReflexModule {
             
             ReflexState state = getOrCreateState(mob);
             if (state == null) return;
-            state.lastHitTime = System.currentTimeMillis();
+            state.lastHitTick = currentTick(mob);
             state.totalHitsTaken++;
         } catch (Exception e) {
             // Silent fail - not critical
@@ -289,50 +322,53 @@ public class ReflexModule {
     }
     
     /**
-     * Predict if projectile will hit mob
+     * Server tick used for all reflex timing
      */
-    private boolean predictHit(Vec3 trajectory, Vec3 projectilePos, Vec3 mobPos, float mobWidth) {
-        // Calculate closest point on trajectory to mob
-        Vec3 toMob = mobPos.subtract(projectilePos);
-        double projection = toMob.dot(trajectory);
-        
-        if (projection < 0) {
-            return false; // Projectile moving away
-        }
-        
-        Vec3 closestPoint = projectilePos.add(trajectory.scale(projection));
-        double distance = closestPoint.distanceTo(mobPos);
-        
-        // Hit if within mob's bounding box
-        return distance <= (mobWidth / 2.0 + 0.3); // +0.3 for safety margin
+    private static long currentTick(Mob mob) {
+        return mob.level().getGameTime();
     }
     
     /**
      * Get or create reflex state for mob
      */
     private ReflexState getOrCreateState(Mob mob) {
-        return reflexStates.computeIfAbsent(mob.getUUID(), k -> new ReflexState());
+        long now = currentTick(mob);
+        if (now - lastCleanupTick > CLEANUP_INTERVAL_TICKS || now < lastCleanupTick) {
+            lastCleanupTick = now;
+            cleanup(now);
+        }
+        ReflexState state = reflexStates.computeIfAbsent(mob.getUUID(), k -> new ReflexState());
+        state.lastActiveTick = now;
+        return state;
+    }
+    
+    /**
+     * Cleanup dead/idle mobs
+     */
+    public void cleanup(long now) {
+        reflexStates.entrySet().removeIf(entry ->
+            Math.abs(now - entry.getValue().lastActiveTick) > STATE_EXPIRY_TICKS);
     }
     
     /**
-     * Cleanup dead mobs
+     * Drop all per-mob state and the projectile index (server stop)
      */
-    public void cleanup() {
-        reflexStates.entrySet().removeIf(entry -> {
-            long timeSinceActivity = System.currentTimeMillis() - entry.getValue().lastHitTime;
-            return timeSinceActivity > 60000; // Remove after 1 minute of inactivity
-        });
+    public void clear() {
+        reflexStates.clear();
+        threatIndex.clear();
     }
     
     /**
      * Reflex state tracking for individual mob
      */
     private static class ReflexState {
-        long lastDodgeTime = 0;
-        long lastBlockTime = 0;
-        long lastCounterTime = 0;
-        long lastCritTime = 0;
-        long lastHitTime = 0;
+        // Game ticks; start far in the past so nothing begins on cooldown
+        long lastDodgeTick = Long.MIN_VALUE / 2;
+        long lastBlockTick = Long.MIN_VALUE / 2;
+        long lastCounterTick = Long.MIN_VALUE / 2;
+        long lastCritTick = Long.MIN_VALUE / 2;
+        long lastHitTick = Long.MIN_VALUE / 2;
+        long lastActiveTick = 0;
         
         int successfulDodges = 0;
         int successfulBlocks = 0;
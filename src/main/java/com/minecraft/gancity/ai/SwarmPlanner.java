@@ -0,0 +1,380 @@
+package com.minecraft.gancity.ai;
+
+import com.minecraft.gancity.GANCityMod;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.monster.RangedAttackMob;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Target-centric group planning: one decision per swarm instead of one per mob.
+ *
+ * Mobs fighting a player call {@link #register(Mob, Player)} each tick. Every
+ * {@link #PLAN_INTERVAL_TICKS} ticks, the mobs that share a target and stand within
+ * {@code swarmRadius} of it (horizontally) are grouped; a group of at least {@code swarmMinMembers} gets a
+ * {@link Plan}. The plan splits members into roles (ranged attackers, the nearest melee share as
+ * rushers, the rest as flankers) and spreads the flankers over encirclement slots placed away
+ * from the directions an angular occupancy histogram shows are already covered. The full action
+ * decision is then made once per plan and mob type and mapped once per role; members just look
+ * up the action for their role.
+ *
+ * Server thread only.
+ */
+public final class SwarmPlanner {
+    /** Replan this often; members keep their assignment in between. */
+    private static final int PLAN_INTERVAL_TICKS = 10;
+
+    /** Angular occupancy histogram resolution around the target. */
+    private static final int SECTORS = 16;
+
+    /** Share of melee members (nearest first) sent straight in; the rest flank. */
+    private static final float RUSHER_SHARE = 0.4f;
+
+    private static final Map<UUID, Group> GROUPS = new HashMap<>();
+    private static final Map<Mob, Assignment> ASSIGNMENTS = new IdentityHashMap<>();
+
+    private static long currentTick = 0;
+    private static long plansBuilt = 0;
+    private static long groupDecisions = 0;
+    private static long memberDecisions = 0;
+
+    private SwarmPlanner() {
+    }
+
+    public enum Role {
+        RUSHER,
+        FLANKER,
+        RANGED
+    }
+
+    /**
+     * One group's plan for the current planning interval.
+     */
+    public static final class Plan {
+        private final UUID targetId;
+        private final int memberCount;
+        private final int[] roleCounts = new int[Role.values().length];
+        private final Map<String, String> groupActions = new HashMap<>();  // Profile mob type -> shared decision
+        private final Map<String, String[]> roleActions = new HashMap<>(); // Profile mob type -> action per role
+
+        private Plan(UUID targetId, int memberCount) {
+            this.targetId = targetId;
+            this.memberCount = memberCount;
+        }
+
+        public UUID getTargetId() {
+            return targetId;
+        }
+
+        public int getMemberCount() {
+            return memberCount;
+        }
+
+        public int getRoleCount(Role role) {
+            return roleCounts[role.ordinal()];
+        }
+
+        /**
+         * The group's decision for {@code mobType}, made by {@code decide} for the first member
+         * of that type to ask during this plan and shared by the rest.
+         */
+        public String getGroupAction(String mobType, Supplier<String> decide) {
+            String action = groupActions.get(mobType);
+            if (action == null) {
+                action = decide.get();
+                groupActions.put(mobType, action);
+                groupDecisions++;
+            } else {
+                memberDecisions++;
+            }
+            return action;
+        }
+
+        /**
+         * The action for {@code mobType} members in {@code role}, made by {@code decide} (from the
+         * group decision) for the first such member to ask during this plan and shared by the rest.
+         */
+        public String getRoleAction(String mobType, Role role, Supplier<String> decide) {
+            String[] byRole = roleActions.computeIfAbsent(mobType, k -> new String[Role.values().length]);
+            String action = byRole[role.ordinal()];
+            if (action == null) {
+                action = decide.get();
+                byRole[role.ordinal()] = action;
+            }
+            return action;
+        }
+    }
+
+    /**
+     * A member's role and, for flankers, its encirclement slot.
+     */
+    public static final class Assignment {
+        private final Plan plan;
+        private final Role role;
+        private final double slotAngle;  // Radians around the target, NaN if no slot
+
+        private Assignment(Plan plan, Role role, double slotAngle) {
+            this.plan = plan;
+            this.role = role;
+            this.slotAngle = slotAngle;
+        }
+
+        public Plan getPlan() {
+            return plan;
+        }
+
+        public Role getRole() {
+            return role;
+        }
+
+        public boolean hasSlot() {
+            return !Double.isNaN(slotAngle);
+        }
+
+        public double getSlotAngle() {
+            return slotAngle;
+        }
+    }
+
+    private static final class Group {
+        private final UUID targetId;
+        private final List<Mob> pending = new ArrayList<>();
+        private final Map<Mob, Boolean> pendingSet = new IdentityHashMap<>();
+
+        private Group(UUID targetId) {
+            this.targetId = targetId;
+        }
+    }
+
+    /**
+     * Register that {@code mob} is fighting {@code target} this tick. Cheap; planning happens
+     * in {@link #onServerTick(MinecraftServer)}.
+     */
+    public static void register(Mob mob, Player target) {
+        if (!(mob.level() instanceof ServerLevel) || !GANCityMod.isSwarmPlannerEnabled()) {
+            return;
+        }
+        Group group = GROUPS.computeIfAbsent(target.getUUID(), Group::new);
+        if (group.pendingSet.put(mob, Boolean.TRUE) == null) {
+            group.pending.add(mob);
+        }
+    }
+
+    /**
+     * @return the mob's assignment from the latest plan, or null if it is not part of a swarm
+     */
+    public static Assignment getAssignment(Mob mob) {
+        return ASSIGNMENTS.isEmpty() ? null : ASSIGNMENTS.get(mob);
+    }
+
+    /**
+     * @return the mob's encirclement slot angle (radians around its target), or NaN if none
+     */
+    public static double getSlotAngle(Mob mob) {
+        Assignment assignment = getAssignment(mob);
+        return assignment != null ? assignment.slotAngle : Double.NaN;
+    }
+
+    /**
+     * Rebuild plans from the mobs registered since the last planning pass. Called once per server tick.
+     */
+    public static void onServerTick(MinecraftServer server) {
+        currentTick++;
+        if (currentTick % PLAN_INTERVAL_TICKS != 0) {
+            return;
+        }
+        ASSIGNMENTS.clear();
+        if (GROUPS.isEmpty()) {
+            return;
+        }
+
+        double radius = GANCityMod.getSwarmRadius();
+        int minMembers = GANCityMod.getSwarmMinMembers();
+
+        Iterator<Group> it = GROUPS.values().iterator();
+        while (it.hasNext()) {
+            Group group = it.next();
+            Player player = server.getPlayerList().getPlayer(group.targetId);
+            if (player == null || player.isRemoved() || group.pending.isEmpty()) {
+                it.remove();
+                continue;
+            }
+
+            List<Mob> members = new ArrayList<>(group.pending.size());
+            double radiusSq = radius * radius;
+            for (Mob mob : group.pending) {
+                if (mob.isAlive() && mob.level() == player.level() && mob.getTarget() == player
+                    && horizontalDistanceSq(mob, player) <= radiusSq) {
+                    members.add(mob);
+                }
+            }
+            group.pending.clear();
+            group.pendingSet.clear();
+
+            if (members.size() >= minMembers) {
+                plan(group.targetId, player, members);
+            }
+        }
+    }
+
+    /**
+     * Squared XZ distance; swarm membership and rusher order ignore height differences
+     */
+    private static double horizontalDistanceSq(Mob mob, Player player) {
+        double dx = mob.getX() - player.getX();
+        double dz = mob.getZ() - player.getZ();
+        return dx * dx + dz * dz;
+    }
+
+    private static void plan(UUID targetId, Player player, List<Mob> members) {
+        int count = members.size();
+        Plan plan = new Plan(targetId, count);
+        plansBuilt++;
+
+        double[] angles = new double[count];
+        double[] distancesSq = new double[count];
+        List<Integer> melee = new ArrayList<>(count);
+        Role[] roles = new Role[count];
+        for (int i = 0; i < count; i++) {
+            Mob mob = members.get(i);
+            angles[i] = Math.atan2(mob.getZ() - player.getZ(), mob.getX() - player.getX());
+            distancesSq[i] = horizontalDistanceSq(mob, player);
+            if (mob instanceof RangedAttackMob) {
+                roles[i] = Role.RANGED;
+            } else {
+                melee.add(i);
+            }
+        }
+
+        // Nearest melee members rush; the rest flank
+        melee.sort((a, b) -> Double.compare(distancesSq[a], distancesSq[b]));
+        int rushers = melee.isEmpty() ? 0 : Math.max(1, Math.round(melee.size() * RUSHER_SHARE));
+        List<Integer> flankers = new ArrayList<>(melee.size());
+        for (int i = 0; i < melee.size(); i++) {
+            int index = melee.get(i);
+            if (i < rushers) {
+                roles[index] = Role.RUSHER;
+            } else {
+                roles[index] = Role.FLANKER;
+                flankers.add(index);
+            }
+        }
+
+        double[] slots = assignSlots(angles, roles, flankers);
+        for (int i = 0; i < count; i++) {
+            plan.roleCounts[roles[i].ordinal()]++;
+            ASSIGNMENTS.put(members.get(i), new Assignment(plan, roles[i], slots[i]));
+        }
+    }
+
+    /**
+     * Evenly spaced flanker slots, rotated so they sit in the least occupied sectors of the
+     * histogram built from the non-flanking members, then matched to flankers by the cyclic
+     * shift of their angle order that moves them least.
+     *
+     * @return slot angle per member (NaN for non-flankers)
+     */
+    private static double[] assignSlots(double[] angles, Role[] roles, List<Integer> flankers) {
+        double[] slots = new double[angles.length];
+        Arrays.fill(slots, Double.NaN);
+        int slotCount = flankers.size();
+        if (slotCount == 0) {
+            return slots;
+        }
+
+        // Occupancy of the directions already covered, smoothed over neighbouring sectors
+        float[] occupancy = new float[SECTORS];
+        for (int i = 0; i < angles.length; i++) {
+            if (roles[i] != Role.FLANKER) {
+                int sector = sectorOf(angles[i]);
+                occupancy[sector] += 1.0f;
+                occupancy[(sector + 1) % SECTORS] += 0.5f;
+                occupancy[(sector + SECTORS - 1) % SECTORS] += 0.5f;
+            }
+        }
+
+        double spacing = 2.0 * Math.PI / slotCount;
+        double bestOffset = 0.0;
+        float bestCost = Float.MAX_VALUE;
+        for (int s = 0; s < SECTORS; s++) {
+            double offset = (s + 0.5) * 2.0 * Math.PI / SECTORS;
+            float cost = 0.0f;
+            for (int k = 0; k < slotCount; k++) {
+                cost += occupancy[sectorOf(offset + k * spacing)];
+            }
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestOffset = offset;
+            }
+        }
+
+        double[] slotAngles = new double[slotCount];
+        for (int k = 0; k < slotCount; k++) {
+            slotAngles[k] = normalize(bestOffset + k * spacing);
+        }
+        Arrays.sort(slotAngles);
+
+        List<Integer> ordered = new ArrayList<>(flankers);
+        ordered.sort((a, b) -> Double.compare(normalize(angles[a]), normalize(angles[b])));
+
+        int bestShift = 0;
+        double bestTravel = Double.MAX_VALUE;
+        for (int shift = 0; shift < slotCount; shift++) {
+            double travel = 0.0;
+            for (int k = 0; k < slotCount; k++) {
+                travel += angularDistance(angles[ordered.get(k)], slotAngles[(k + shift) % slotCount]);
+            }
+            if (travel < bestTravel) {
+                bestTravel = travel;
+                bestShift = shift;
+            }
+        }
+        for (int k = 0; k < slotCount; k++) {
+            slots[ordered.get(k)] = slotAngles[(k + bestShift) % slotCount];
+        }
+        return slots;
+    }
+
+    private static int sectorOf(double angle) {
+        return Math.min(SECTORS - 1, (int) (normalize(angle) / (2.0 * Math.PI) * SECTORS));
+    }
+
+    /** Angle in [0, 2pi) */
+    private static double normalize(double angle) {
+        double twoPi = 2.0 * Math.PI;
+        angle %= twoPi;
+        return angle < 0 ? angle + twoPi : angle;
+    }
+
+    private static double angularDistance(double a, double b) {
+        double diff = Math.abs(normalize(a) - normalize(b));
+        return Math.min(diff, 2.0 * Math.PI - diff);
+    }
+
+    public static int getAssignedMobCount() {
+        return ASSIGNMENTS.size();
+    }
+
+    public static String getStats() {
+        long decisions = groupDecisions + memberDecisions;
+        return String.format("Swarm planner: %d mobs in swarms, %d plans built, %d/%d decisions shared (%.1f%%)",
+            ASSIGNMENTS.size(), plansBuilt, memberDecisions, decisions,
+            decisions > 0 ? 100.0 * memberDecisions / decisions : 0.0);
+    }
+
+    public static void clear() {
+        GROUPS.clear();
+        ASSIGNMENTS.clear();
+    }
+}
@@ -0,0 +1,195 @@
+package com.minecraft.gancity.ai;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.navigation.GroundPathNavigation;
+import net.minecraft.world.entity.ai.navigation.PathNavigation;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Per-mob movement executor for tactic goals.
+ *
+ * Goals used to call {@code getNavigation().moveTo(...)} every tick, which asks the pathfinder
+ * for a brand-new path each time. This keeps the current path and only repaths when:
+ * - the goal moved further than a (distance-scaled) threshold,
+ * - the current path is finished or was abandoned (vanilla stops navigation when stuck),
+ * - the tactic changed.
+ * Repaths are additionally rate-limited per mob. Speed-only changes never repath.
+ *
+ * Charge/rush/surround-style tactics against a player first try the player's shared
+ * {@link TargetFlowFieldManager flow field}; the pathfinder is only used off-field and for the
+ * final approach.
+ */
+public final class TacticMovementExecutor {
+    /** Minimum ticks between two path requests for the same mob. */
+    private static final int MIN_REPATH_INTERVAL_TICKS = 5;
+
+    /** Goal displacement (blocks) that always triggers a repath. */
+    private static final double MIN_REPATH_DISTANCE = 1.0;
+
+    /** Far goals tolerate proportionally more drift before repathing. */
+    private static final double REPATH_DISTANCE_FRACTION = 0.25;
+
+    private static final double MAX_REPATH_DISTANCE = 4.0;
+
+    /** Tactics that just close distance on the target and can share a flow field. */
+    private static final Set<String> FLOW_FIELD_TACTICS = Set.of(
+        "straight_charge", "group_rush", "suicide_rush", "aggressive_rush", "rush_player",
+        "overwhelm", "swarm_rush", "swarm_attack", "surround", "surround_target"
+    );
+
+    /** How many field cells ahead to steer toward. */
+    private static final int FLOW_LOOKAHEAD_STEPS = 3;
+
+    /** Within this many steps of the player the pathfinder takes over for the final approach. */
+    private static final int FLOW_HANDOVER_STEPS = 3;
+
+    private final Mob mob;
+
+    private boolean hasGoal = false;
+    private double goalX;
+    private double goalY;
+    private double goalZ;
+    private Entity goalEntity;
+    private String tactic;
+    private int lastRepathTick = Integer.MIN_VALUE / 2;
+
+    public TacticMovementExecutor(Mob mob) {
+        this.mob = Objects.requireNonNull(mob, "mob");
+    }
+
+    /**
+     * Move toward an entity, reusing the current path while it is still good enough.
+     */
+    public void moveTo(Entity target, double speed, String tactic) {
+        if (target == null) {
+            return;
+        }
+        if (target instanceof Player player && followFlowField(player, speed, tactic)) {
+            return;
+        }
+        if (shouldRepath(target, target.getX(), target.getY(), target.getZ(), tactic)) {
+            if (mob.getNavigation().moveTo(target, speed)) {
+                remember(target, target.getX(), target.getY(), target.getZ(), tactic);
+            } else {
+                markAttempt(tactic);
+            }
+        } else {
+            mob.getNavigation().setSpeedModifier(speed);
+        }
+    }
+
+    /**
+     * Move toward a position, reusing the current path while it is still good enough.
+     */
+    public void moveTo(double x, double y, double z, double speed, String tactic) {
+        if (shouldRepath(null, x, y, z, tactic)) {
+            if (mob.getNavigation().moveTo(x, y, z, speed)) {
+                remember(null, x, y, z, tactic);
+            } else {
+                markAttempt(tactic);
+            }
+        } else {
+            mob.getNavigation().setSpeedModifier(speed);
+        }
+    }
+
+    /**
+     * Stop moving and forget the current goal.
+     */
+    public void stop() {
+        if (hasGoal || !mob.getNavigation().isDone()) {
+            mob.getNavigation().stop();
+        }
+        hasGoal = false;
+        goalEntity = null;
+    }
+
+    /**
+     * Forget all state (goal stop/start). Does not touch navigation.
+     */
+    public void reset() {
+        hasGoal = false;
+        goalEntity = null;
+        tactic = null;
+        lastRepathTick = Integer.MIN_VALUE / 2;
+    }
+
+    /**
+     * Steer along the target's shared flow field, if one covers this mob.
+     * @return false if the caller should path normally instead
+     */
+    private boolean followFlowField(Player target, double speed, String newTactic) {
+        if (!FLOW_FIELD_TACTICS.contains(newTactic) || !(mob.getNavigation() instanceof GroundPathNavigation)) {
+            return false;
+        }
+
+        TargetFlowField field = TargetFlowFieldManager.requestField(mob, target);
+        if (field == null) {
+            return false;
+        }
+
+        BlockPos from = mob.blockPosition();
+        BlockPos waypoint = field.nextWaypoint(from, FLOW_LOOKAHEAD_STEPS);
+        if (waypoint == null || waypoint.equals(from)
+            || field.distanceAt(waypoint.getX(), waypoint.getY(), waypoint.getZ()) <= FLOW_HANDOVER_STEPS) {
+            return false;
+        }
+
+        if (hasGoal || !mob.getNavigation().isDone()) {
+            mob.getNavigation().stop();
+        }
+        hasGoal = false;
+        goalEntity = null;
+        tactic = newTactic;
+        mob.getMoveControl().setWantedPosition(waypoint.getX() + 0.5, waypoint.getY(), waypoint.getZ() + 0.5, speed);
+        return true;
+    }
+
+    private boolean shouldRepath(Entity entity, double x, double y, double z, String newTactic) {
+        if (mob.tickCount - lastRepathTick < MIN_REPATH_INTERVAL_TICKS) {
+            return false;
+        }
+
+        PathNavigation navigation = mob.getNavigation();
+        if (!hasGoal || navigation.isDone() || navigation.getPath() == null) {
+            return true;
+        }
+        if (!Objects.equals(tactic, newTactic) || entity != goalEntity) {
+            return true;
+        }
+
+        double dx = x - goalX;
+        double dy = y - goalY;
+        double dz = z - goalZ;
+        double threshold = repathThreshold();
+        return dx * dx + dy * dy + dz * dz > threshold * threshold;
+    }
+
+    private double repathThreshold() {
+        double distance = Math.sqrt(mob.distanceToSqr(goalX, goalY, goalZ));
+        return Math.max(MIN_REPATH_DISTANCE, Math.min(MAX_REPATH_DISTANCE, distance * REPATH_DISTANCE_FRACTION));
+    }
+
+    private void remember(Entity entity, double x, double y, double z, String newTactic) {
+        hasGoal = true;
+        goalEntity = entity;
+        goalX = x;
+        goalY = y;
+        goalZ = z;
+        tactic = newTactic;
+        lastRepathTick = mob.tickCount;
+    }
+
+    private void markAttempt(String newTactic) {
+        // Unreachable goal: keep rate-limiting so we don't retry the pathfinder every tick.
+        hasGoal = false;
+        goalEntity = null;
+        tactic = newTactic;
+        lastRepathTick = mob.tickCount;
+    }
+}
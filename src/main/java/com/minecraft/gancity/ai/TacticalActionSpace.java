@@ -70,6 +70,56 @@ public class TacticalActionSpace {
         }
     }
     
+    /**
+     * Coarse combat situation a tactical state falls into (first matching rule wins).
+     * Ordinals index the situational weight tensor; ids are the federation/export names.
+     */
+    public enum Situation {
+        LOW_HEALTH("low_health"),
+        TARGET_LOW_HEALTH("target_low_health"),
+        TARGET_SHIELDING("target_shielding"),
+        GROUP_COMBAT("group_combat"),
+        CLOSE_RANGE("close_range"),
+        LONG_RANGE("long_range"),
+        NEUTRAL("neutral");
+        
+        public final String id;
+        
+        Situation(String id) {
+            this.id = id;
+        }
+        
+        public static Situation of(TacticalState state) {
+            if (state.selfLowHealth) {
+                return LOW_HEALTH;
+            } else if (state.targetLowHealth) {
+                return TARGET_LOW_HEALTH;
+            } else if (state.targetHasShield) {
+                return TARGET_SHIELDING;
+            } else if (state.nearbyAllies >= 2) {
+                return GROUP_COMBAT;
+            } else if (state.distanceToTarget < 3) {
+                return CLOSE_RANGE;
+            } else if (state.distanceToTarget > 8) {
+                return LONG_RANGE;
+            } else {
+                return NEUTRAL;
+            }
+        }
+        
+        /**
+         * @return the situation with this id, or null if unknown
+         */
+        public static Situation fromId(String id) {
+            for (Situation situation : values()) {
+                if (situation.id.equals(id)) {
+                    return situation;
+                }
+            }
+            return null;
+        }
+    }
+    
     /**
      * Tactical state - high-level combat situation
      */
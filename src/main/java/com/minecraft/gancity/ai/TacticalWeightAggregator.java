@@ -5,6 +5,10 @@ import org.slf4j.Logger;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Tactical weight aggregation for federation
@@ -16,32 +20,64 @@ import java.util.concurrent.ConcurrentHashMap;
  * - 10 players × 50 zombies = visible learning in hours, not weeks
  * - Aggregate patterns, not gradients
  * - Learn "zombies punish shield spam now" not "Q-value delta 0.0003"
+ * 
+ * Storage is a dense weights[mobTypeId][situation][tactic] tensor indexed by
+ * {@link TacticalActionSpace.Situation} and {@link TacticalActionSpace.TacticalAction} ordinals.
+ * Each cell is updated with its own CAS, so concurrent episodes and federation imports never
+ * lose updates and readers never lock. NaN marks a tactic with no learned weight yet.
  */
 public class TacticalWeightAggregator {
     private static final Logger LOGGER = LogUtils.getLogger();
     
+    private static final TacticalActionSpace.TacticalAction[] TACTICS = TacticalActionSpace.TacticalAction.values();
+    private static final int TACTIC_COUNT = TACTICS.length;
+    private static final int SITUATION_COUNT = TacticalActionSpace.Situation.values().length;
+    private static final int NO_WEIGHT = Float.floatToRawIntBits(Float.NaN);
+    
+    // Exact id lookup (TacticalAction.fromString maps unknown ids to DEFAULT_MELEE)
+    private static final Map<String, TacticalActionSpace.TacticalAction> TACTICS_BY_ID = new HashMap<>();
+    
+    static {
+        for (TacticalActionSpace.TacticalAction tactic : TACTICS) {
+            TACTICS_BY_ID.put(tactic.id, tactic);
+        }
+    }
+    
     /**
-     * Global tactical weights per mob type
-     * Maps: mobType -> tactic -> weight
+     * One mob type's slice of the tensor, stored as float bits.
      * 
      * Positive weight = tactic works well
      * Negative weight = tactic fails often
+     * 
+     * Example: zombie -> TARGET_LOW_HEALTH -> RUSH_PLAYER -> +0.87
      */
-    private final Map<String, Map<String, Float>> globalTacticalWeights;
+    private static final class MobWeights {
+        private final String mobType;
+        private final AtomicIntegerArray global = new AtomicIntegerArray(TACTIC_COUNT);
+        private final AtomicIntegerArray situational = new AtomicIntegerArray(SITUATION_COUNT * TACTIC_COUNT);
+        
+        private MobWeights(String mobType) {
+            this.mobType = mobType;
+            for (int i = 0; i < global.length(); i++) {
+                global.set(i, NO_WEIGHT);
+            }
+            for (int i = 0; i < situational.length(); i++) {
+                situational.set(i, NO_WEIGHT);
+            }
+        }
+    }
     
     /**
-     * Situational tactical weights
-     * Maps: mobType -> situation -> tactic -> weight
-     * 
-     * Example: zombie -> "target_low_health" -> "rush_player" -> +0.87
+     * mobType -> mobTypeId (index into {@link #weights}); ids are never reused until reset
      */
-    private final Map<String, Map<String, Map<String, Float>>> situationalWeights;
+    private final Map<String, Integer> mobTypeIds = new ConcurrentHashMap<>();
+    private volatile MobWeights[] weights = new MobWeights[0];
     
     /**
      * Contribution tracking
      */
-    private int totalEpisodesAggregated;
-    private int totalSamplesAggregated;
+    private final AtomicInteger totalEpisodesAggregated = new AtomicInteger(0);
+    private final AtomicLong totalSamplesAggregated = new AtomicLong(0);
     private final Set<String> contributingPlayers;
     
     /**
@@ -50,10 +86,6 @@ public class TacticalWeightAggregator {
     private static final float LEARNING_RATE = 0.05f;
     
     public TacticalWeightAggregator() {
-        this.globalTacticalWeights = new ConcurrentHashMap<>();
-        this.situationalWeights = new ConcurrentHashMap<>();
-        this.totalEpisodesAggregated = 0;
-        this.totalSamplesAggregated = 0;
         this.contributingPlayers = ConcurrentHashMap.newKeySet();
     }
     
@@ -67,68 +99,95 @@ public class TacticalWeightAggregator {
         }
         
         String mobType = episode.getMobType();
+        MobWeights mob = weightsFor(mobType, true);
         
-        // Update global tactical weights
-        Map<String, Float> episodeWeights = episode.extractTacticalWeights(outcome);
-        updateGlobalWeights(mobType, episodeWeights);
+        float[] episodeGlobal = new float[TACTIC_COUNT];
+        float[] episodeSituational = new float[SITUATION_COUNT * TACTIC_COUNT];
+        Arrays.fill(episodeGlobal, Float.NaN);
+        Arrays.fill(episodeSituational, Float.NaN);
+        episode.accumulateTacticalWeights(outcome, episodeGlobal, episodeSituational);
         
-        // Update situational weights
-        Map<String, Map<String, Float>> situationalTactics = episode.extractSituationalTactics(outcome);
-        updateSituationalWeights(mobType, situationalTactics);
+        // Exponential moving average toward this episode, only for tactics it used
+        blendRow(mob.global, episodeGlobal, LEARNING_RATE);
+        blendRow(mob.situational, episodeSituational, LEARNING_RATE);
         
         // Track contribution
-        totalEpisodesAggregated++;
-        totalSamplesAggregated += episode.getSampleCount();
+        int episodes = totalEpisodesAggregated.incrementAndGet();
+        long samples = totalSamplesAggregated.addAndGet(episode.getSampleCount());
         contributingPlayers.add(playerId);
         
         // Log significant changes
-        if (totalEpisodesAggregated % 50 == 0) {
+        if (episodes % 50 == 0) {
             LOGGER.info("Federation: {} episodes, {} samples, {} players contributing", 
-                totalEpisodesAggregated, totalSamplesAggregated, contributingPlayers.size());
+                episodes, samples, contributingPlayers.size());
             logTopTactics(mobType);
         }
     }
     
     /**
-     * Update global tactical weights using exponential moving average
+     * Blend each non-NaN incoming value into its cell: an empty cell takes the value,
+     * otherwise {@code old + (value - old) * share}.
      */
-    private void updateGlobalWeights(String mobType, Map<String, Float> episodeWeights) {
-        globalTacticalWeights.putIfAbsent(mobType, new ConcurrentHashMap<>());
-        Map<String, Float> currentWeights = globalTacticalWeights.get(mobType);
-        
-        for (Map.Entry<String, Float> entry : episodeWeights.entrySet()) {
-            String tactic = entry.getKey();
-            float newWeight = entry.getValue();
-            
-            // Exponential moving average
-            currentWeights.merge(tactic, newWeight, (old, delta) -> 
-                old * (1 - LEARNING_RATE) + delta * LEARNING_RATE
-            );
+    private static void blendRow(AtomicIntegerArray cells, float[] incoming, float share) {
+        for (int i = 0; i < incoming.length; i++) {
+            if (!Float.isNaN(incoming[i])) {
+                blend(cells, i, incoming[i], share);
+            }
+        }
+    }
+    
+    private static void blend(AtomicIntegerArray cells, int index, float value, float share) {
+        while (true) {
+            int oldBits = cells.get(index);
+            float old = Float.intBitsToFloat(oldBits);
+            float next = Float.isNaN(old) ? value : old + (value - old) * share;
+            if (cells.compareAndSet(index, oldBits, Float.floatToRawIntBits(next))) {
+                return;
+            }
+        }
+    }
+    
+    private static float weightAt(AtomicIntegerArray cells, int index) {
+        return Float.intBitsToFloat(cells.get(index));
+    }
+    
+    private static boolean hasAnyWeight(AtomicIntegerArray cells, int from) {
+        for (int i = from; i < from + TACTIC_COUNT; i++) {
+            if (cells.get(i) != NO_WEIGHT) {
+                return true;
+            }
         }
+        return false;
     }
     
     /**
-     * Update situational weights
+     * @param create register the mob type if it has no slice yet
+     * @return the mob type's slice, or null if absent and {@code create} is false
      */
-    private void updateSituationalWeights(String mobType, Map<String, Map<String, Float>> situationalTactics) {
-        situationalWeights.putIfAbsent(mobType, new ConcurrentHashMap<>());
-        Map<String, Map<String, Float>> mobSituational = situationalWeights.get(mobType);
+    private MobWeights weightsFor(String mobType, boolean create) {
+        Integer id = mobTypeIds.get(mobType);
+        if (id != null) {
+            MobWeights[] current = weights;
+            if (id < current.length && current[id].mobType.equals(mobType)) {
+                return current[id];
+            }
+        }
+        if (!create) {
+            return null;
+        }
         
-        for (Map.Entry<String, Map<String, Float>> situationEntry : situationalTactics.entrySet()) {
-            String situation = situationEntry.getKey();
-            Map<String, Float> tactics = situationEntry.getValue();
-            
-            mobSituational.putIfAbsent(situation, new ConcurrentHashMap<>());
-            Map<String, Float> currentTactics = mobSituational.get(situation);
-            
-            for (Map.Entry<String, Float> tacticEntry : tactics.entrySet()) {
-                String tactic = tacticEntry.getKey();
-                float weight = tacticEntry.getValue();
-                
-                currentTactics.merge(tactic, weight, (old, delta) ->
-                    old * (1 - LEARNING_RATE) + delta * LEARNING_RATE
-                );
+        synchronized (this) {
+            id = mobTypeIds.get(mobType);
+            if (id != null) {
+                return weights[id];
             }
+            MobWeights[] current = weights;
+            MobWeights[] grown = Arrays.copyOf(current, current.length + 1);
+            MobWeights mob = new MobWeights(mobType);
+            grown[current.length] = mob;
+            weights = grown;  // Publish the slice before its id
+            mobTypeIds.put(mobType, current.length);
+            return mob;
         }
     }
     
@@ -139,24 +198,23 @@ public class TacticalWeightAggregator {
     public TacticalActionSpace.TacticalAction selectTactic(String mobType, 
                                                            TacticalActionSpace.TacticalState state,
                                                            List<TacticalActionSpace.TacticalAction> availableActions) {
-        // Categorize situation
-        String situation = categorizeSituation(state);
-        
-        // Get situational weights
-        Map<String, Float> tacticWeights = getSituationalWeights(mobType, situation);
-        
-        if (tacticWeights.isEmpty()) {
-            // Fall back to global weights
-            tacticWeights = getGlobalWeights(mobType);
+        MobWeights mob = weightsFor(mobType, false);
+        if (mob == null) {
+            // No learned data yet, use random
+            return availableActions.get(ThreadLocalRandom.current().nextInt(availableActions.size()));
         }
         
-        if (tacticWeights.isEmpty()) {
-            // No learned data yet, use random
-            return availableActions.get(new Random().nextInt(availableActions.size()));
+        // Situational row first, global row as fallback
+        int situationBase = TacticalActionSpace.Situation.of(state).ordinal() * TACTIC_COUNT;
+        if (hasAnyWeight(mob.situational, situationBase)) {
+            return selectWithExploration(availableActions, mob.situational, situationBase);
+        }
+        if (hasAnyWeight(mob.global, 0)) {
+            return selectWithExploration(availableActions, mob.global, 0);
         }
         
-        // Select tactic with highest weight (softmax-style exploration)
-        return selectWithExploration(availableActions, tacticWeights);
+        // No learned data yet, use random
+        return availableActions.get(ThreadLocalRandom.current().nextInt(availableActions.size()));
     }
     
     /**
@@ -165,29 +223,24 @@ public class TacticalWeightAggregator {
      */
     private TacticalActionSpace.TacticalAction selectWithExploration(
             List<TacticalActionSpace.TacticalAction> availableActions,
-            Map<String, Float> weights) {
+            AtomicIntegerArray cells, int base) {
         
         // Calculate softmax probabilities
-        float[] probabilities = new float[availableActions.size()];
+        int count = availableActions.size();
+        float[] probabilities = new float[count];
         float sumExp = 0;
         
-        for (int i = 0; i < availableActions.size(); i++) {
-            String tacticId = availableActions.get(i).id;
-            float weight = weights.getOrDefault(tacticId, 0.0f);
-            float exp = (float) Math.exp(weight);
+        for (int i = 0; i < count; i++) {
+            float weight = weightAt(cells, base + availableActions.get(i).ordinal());
+            float exp = (float) Math.exp(Float.isNaN(weight) ? 0.0f : weight);
             probabilities[i] = exp;
             sumExp += exp;
         }
         
-        // Normalize
-        for (int i = 0; i < probabilities.length; i++) {
-            probabilities[i] /= sumExp;
-        }
-        
         // Sample from distribution
-        float rand = new Random().nextFloat();
+        float rand = ThreadLocalRandom.current().nextFloat() * sumExp;
         float cumulative = 0;
-        for (int i = 0; i < probabilities.length; i++) {
+        for (int i = 0; i < count; i++) {
             cumulative += probabilities[i];
             if (rand <= cumulative) {
                 return availableActions.get(i);
@@ -195,65 +248,31 @@ public class TacticalWeightAggregator {
         }
         
         // Fallback
-        return availableActions.get(availableActions.size() - 1);
-    }
-    
-    /**
-     * Get global weights for a mob type
-     */
-    private Map<String, Float> getGlobalWeights(String mobType) {
-        return globalTacticalWeights.getOrDefault(mobType, new HashMap<>());
-    }
-    
-    /**
-     * Get situational weights for a mob type and situation
-     */
-    private Map<String, Float> getSituationalWeights(String mobType, String situation) {
-        Map<String, Map<String, Float>> mobSituational = situationalWeights.get(mobType);
-        if (mobSituational == null) {
-            return new HashMap<>();
-        }
-        return mobSituational.getOrDefault(situation, new HashMap<>());
-    }
-    
-    /**
-     * Categorize situation (same as in CombatEpisode)
-     */
-    private String categorizeSituation(TacticalActionSpace.TacticalState state) {
-        if (state.selfLowHealth) {
-            return "low_health";
-        } else if (state.targetLowHealth) {
-            return "target_low_health";
-        } else if (state.targetHasShield) {
-            return "target_shielding";
-        } else if (state.nearbyAllies >= 2) {
-            return "group_combat";
-        } else if (state.distanceToTarget < 3) {
-            return "close_range";
-        } else if (state.distanceToTarget > 8) {
-            return "long_range";
-        } else {
-            return "neutral";
-        }
+        return availableActions.get(count - 1);
     }
     
     /**
      * Log top tactics for debugging
      */
     private void logTopTactics(String mobType) {
-        Map<String, Float> weights = getGlobalWeights(mobType);
-        if (weights.isEmpty()) {
+        MobWeights mob = weightsFor(mobType, false);
+        if (mob == null || !hasAnyWeight(mob.global, 0)) {
             return;
         }
         
         // Sort by weight
-        List<Map.Entry<String, Float>> sorted = new ArrayList<>(weights.entrySet());
-        sorted.sort((a, b) -> Float.compare(b.getValue(), a.getValue()));
+        List<TacticalActionSpace.TacticalAction> sorted = new ArrayList<>();
+        for (TacticalActionSpace.TacticalAction tactic : TACTICS) {
+            if (!Float.isNaN(weightAt(mob.global, tactic.ordinal()))) {
+                sorted.add(tactic);
+            }
+        }
+        sorted.sort((a, b) -> Float.compare(weightAt(mob.global, b.ordinal()), weightAt(mob.global, a.ordinal())));
         
         StringBuilder msg = new StringBuilder(String.format("%s top tactics: ", mobType));
         for (int i = 0; i < Math.min(3, sorted.size()); i++) {
-            Map.Entry<String, Float> entry = sorted.get(i);
-            msg.append(String.format("%s(%.2f) ", entry.getKey(), entry.getValue()));
+            TacticalActionSpace.TacticalAction tactic = sorted.get(i);
+            msg.append(String.format("%s(%.2f) ", tactic.id, weightAt(mob.global, tactic.ordinal())));
         }
         
         LOGGER.info(msg.toString());
@@ -263,29 +282,65 @@ public class TacticalWeightAggregator {
      * Get aggregation statistics for monitoring
      */
     public Map<String, Object> getStatistics() {
+        int episodes = totalEpisodesAggregated.get();
+        long samples = totalSamplesAggregated.get();
+        
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalEpisodes", totalEpisodesAggregated);
-        stats.put("totalSamples", totalSamplesAggregated);
+        stats.put("totalEpisodes", episodes);
+        stats.put("totalSamples", (int) Math.min(Integer.MAX_VALUE, samples));
         stats.put("contributors", contributingPlayers.size());
-        stats.put("mobTypesLearned", globalTacticalWeights.keySet().size());
+        stats.put("mobTypesLearned", mobTypeIds.size());
         
         // Calculate average samples per episode
-        if (totalEpisodesAggregated > 0) {
-            stats.put("avgSamplesPerEpisode", totalSamplesAggregated / (float) totalEpisodesAggregated);
+        if (episodes > 0) {
+            stats.put("avgSamplesPerEpisode", samples / (float) episodes);
         }
         
         return stats;
     }
     
     /**
-     * Export weights for federation sync
+     * Export weights for federation sync (a snapshot, not a live view)
      * Returns: mobType -> tactic -> weight
      */
     public Map<String, Map<String, Float>> exportWeights() {
         Map<String, Map<String, Float>> export = new HashMap<>();
         
-        for (Map.Entry<String, Map<String, Float>> entry : globalTacticalWeights.entrySet()) {
-            export.put(entry.getKey(), new HashMap<>(entry.getValue()));
+        for (MobWeights mob : weights) {
+            Map<String, Float> tactics = new HashMap<>();
+            for (TacticalActionSpace.TacticalAction tactic : TACTICS) {
+                float weight = weightAt(mob.global, tactic.ordinal());
+                if (!Float.isNaN(weight)) {
+                    tactics.put(tactic.id, weight);
+                }
+            }
+            export.put(mob.mobType, tactics);
+        }
+        
+        return export;
+    }
+    
+    /**
+     * Export situational weights (snapshot)
+     * Returns: mobType -> situation -> tactic -> weight
+     */
+    public Map<String, Map<String, Map<String, Float>>> exportSituationalWeights() {
+        Map<String, Map<String, Map<String, Float>>> export = new HashMap<>();
+        
+        for (MobWeights mob : weights) {
+            Map<String, Map<String, Float>> situations = new HashMap<>();
+            for (TacticalActionSpace.Situation situation : TacticalActionSpace.Situation.values()) {
+                int base = situation.ordinal() * TACTIC_COUNT;
+                for (TacticalActionSpace.TacticalAction tactic : TACTICS) {
+                    float weight = weightAt(mob.situational, base + tactic.ordinal());
+                    if (!Float.isNaN(weight)) {
+                        situations.computeIfAbsent(situation.id, k -> new HashMap<>()).put(tactic.id, weight);
+                    }
+                }
+            }
+            if (!situations.isEmpty()) {
+                export.put(mob.mobType, situations);
+            }
         }
         
         return export;
@@ -293,37 +348,58 @@ public class TacticalWeightAggregator {
     
     /**
      * Import weights from federation (merge with existing)
+     * Unknown tactic ids are ignored.
      */
     public void importWeights(Map<String, Map<String, Float>> incomingWeights) {
         for (Map.Entry<String, Map<String, Float>> mobEntry : incomingWeights.entrySet()) {
-            String mobType = mobEntry.getKey();
-            Map<String, Float> incomingTactics = mobEntry.getValue();
-            
-            globalTacticalWeights.putIfAbsent(mobType, new ConcurrentHashMap<>());
-            Map<String, Float> currentTactics = globalTacticalWeights.get(mobType);
+            MobWeights mob = weightsFor(mobEntry.getKey(), true);
             
             // Merge: average of local and incoming
-            for (Map.Entry<String, Float> tacticEntry : incomingTactics.entrySet()) {
-                String tactic = tacticEntry.getKey();
-                float incomingWeight = tacticEntry.getValue();
-                
-                currentTactics.merge(tactic, incomingWeight, (local, incoming) ->
-                    (local + incoming) / 2.0f
-                );
+            for (Map.Entry<String, Float> tacticEntry : mobEntry.getValue().entrySet()) {
+                TacticalActionSpace.TacticalAction tactic = TACTICS_BY_ID.get(tacticEntry.getKey());
+                Float incomingWeight = tacticEntry.getValue();
+                if (tactic != null && incomingWeight != null && Float.isFinite(incomingWeight)) {
+                    blend(mob.global, tactic.ordinal(), incomingWeight, 0.5f);
+                }
             }
         }
         
         LOGGER.info("Imported tactical weights from federation server");
     }
     
+    /**
+     * Import situational weights (merge with existing, same averaging as {@link #importWeights})
+     * Unknown situation or tactic ids are ignored.
+     */
+    public void importSituationalWeights(Map<String, Map<String, Map<String, Float>>> incomingWeights) {
+        for (Map.Entry<String, Map<String, Map<String, Float>>> mobEntry : incomingWeights.entrySet()) {
+            MobWeights mob = weightsFor(mobEntry.getKey(), true);
+            
+            for (Map.Entry<String, Map<String, Float>> situationEntry : mobEntry.getValue().entrySet()) {
+                TacticalActionSpace.Situation situation = TacticalActionSpace.Situation.fromId(situationEntry.getKey());
+                if (situation == null) {
+                    continue;
+                }
+                int base = situation.ordinal() * TACTIC_COUNT;
+                for (Map.Entry<String, Float> tacticEntry : situationEntry.getValue().entrySet()) {
+                    TacticalActionSpace.TacticalAction tactic = TACTICS_BY_ID.get(tacticEntry.getKey());
+                    Float incomingWeight = tacticEntry.getValue();
+                    if (tactic != null && incomingWeight != null && Float.isFinite(incomingWeight)) {
+                        blend(mob.situational, base + tactic.ordinal(), incomingWeight, 0.5f);
+                    }
+                }
+            }
+        }
+    }
+    
     /**
      * Reset aggregator (for testing)
      */
-    public void reset() {
-        globalTacticalWeights.clear();
-        situationalWeights.clear();
-        totalEpisodesAggregated = 0;
-        totalSamplesAggregated = 0;
+    public synchronized void reset() {
+        mobTypeIds.clear();
+        weights = new MobWeights[0];
+        totalEpisodesAggregated.set(0);
+        totalSamplesAggregated.set(0);
         contributingPlayers.clear();
     }
     
@@ -331,8 +407,8 @@ public class TacticalWeightAggregator {
      * Check if a mob type has learned tactical knowledge
      */
     public boolean hasLearnedTactics(String mobType) {
-        Map<String, Float> weights = getGlobalWeights(mobType);
-        return !weights.isEmpty() && totalEpisodesAggregated >= 10;
+        MobWeights mob = weightsFor(mobType, false);
+        return mob != null && hasAnyWeight(mob.global, 0) && totalEpisodesAggregated.get() >= 10;
     }
     
     /**
@@ -340,17 +416,22 @@ public class TacticalWeightAggregator {
      * Returns delta magnitude to show if learning is happening
      */
     public float getDeltaMagnitude(String mobType) {
-        Map<String, Float> weights = getGlobalWeights(mobType);
-        if (weights.isEmpty()) {
+        MobWeights mob = weightsFor(mobType, false);
+        if (mob == null) {
             return 0.0f;
         }
         
-        // Sum absolute values of weights (proxy for learning activity)
+        // Mean absolute weight (proxy for learning activity)
         float magnitude = 0;
-        for (float weight : weights.values()) {
-            magnitude += Math.abs(weight);
+        int count = 0;
+        for (int i = 0; i < TACTIC_COUNT; i++) {
+            float weight = weightAt(mob.global, i);
+            if (!Float.isNaN(weight)) {
+                magnitude += Math.abs(weight);
+                count++;
+            }
         }
         
-        return magnitude / weights.size();
+        return count > 0 ? magnitude / count : 0.0f;
     }
 }
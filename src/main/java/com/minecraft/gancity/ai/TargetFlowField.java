@@ -0,0 +1,440 @@
+package com.minecraft.gancity.ai;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.pathfinder.PathComputationType;
+
+import java.util.Arrays;
+
+/**
+ * Bounded-radius BFS distance field around a heavily targeted player.
+ *
+ * Cells are "standable" block positions (passable feet + head, solid below). Distances are
+ * walking steps from the player, so a mob can follow the gradient downhill instead of running
+ * its own A* toward nearly the same goal as every other mob in the siege.
+ *
+ * Construction is time-sliced: {@link #step(int)} expands at most {@code budget} nodes, so the
+ * manager can spread a rebuild across ticks while mobs keep following the previous field. A
+ * retired field's arrays are reused for the next build ({@link #reset}), and a complete field
+ * can be patched in place after a block change ({@link #repair}) instead of rebuilt.
+ */
+public final class TargetFlowField {
+    static final short UNREACHED = -1;
+
+    private static final byte WALK_UNKNOWN = 0;
+    private static final byte WALK_YES = 1;
+    private static final byte WALK_NO = 2;
+
+    /** Mob climbs at most 1 block and drops at most this many per step. */
+    private static final int MAX_DROP = 2;
+
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DZ = {0, 0, 1, -1};
+
+    private ServerLevel level;
+    private int originX;
+    private int originY;
+    private int originZ;
+    private final int radius;
+    private final int verticalRadius;
+    private final int sizeXZ;
+    private final int sizeY;
+
+    private final short[] distance;
+    private final byte[] walkable;
+    private final int[] queue;
+    private int head = 0;
+    private int tail = 0;
+    private boolean complete = false;
+
+    // Repair scratch, allocated on first repair: cleared cells with their old distances, then seeds
+    private int[] repairCells;
+    private short[] repairDistances;
+    private long[] repairSeeds;
+
+    TargetFlowField(ServerLevel level, BlockPos origin, int radius, int verticalRadius) {
+        this.radius = radius;
+        this.verticalRadius = verticalRadius;
+        this.sizeXZ = radius * 2 + 1;
+        this.sizeY = verticalRadius * 2 + 1;
+
+        int cells = sizeXZ * sizeXZ * sizeY;
+        this.distance = new short[cells];
+        this.walkable = new byte[cells];
+        this.queue = new int[cells];
+        reset(level, origin);
+    }
+
+    /**
+     * Start a new build around {@code origin}, reusing this field's arrays.
+     */
+    void reset(ServerLevel level, BlockPos origin) {
+        this.level = level;
+        this.originX = origin.getX();
+        this.originY = origin.getY();
+        this.originZ = origin.getZ();
+        Arrays.fill(distance, UNREACHED);
+        Arrays.fill(walkable, WALK_UNKNOWN);
+        head = 0;
+        tail = 0;
+        complete = false;
+
+        int start = indexOf(originX, originY, originZ);
+        if (start >= 0 && isStandable(start, originX, originY, originZ)) {
+            distance[start] = 0;
+            queue[tail++] = start;
+        } else {
+            complete = true;
+        }
+    }
+
+    /**
+     * Expand up to {@code budget} nodes.
+     * @return true once the field is fully built
+     */
+    boolean step(int budget) {
+        while (!complete && budget-- > 0) {
+            if (head >= tail) {
+                complete = true;
+                break;
+            }
+
+            int current = queue[head++];
+            int cx = xOf(current);
+            int cy = yOf(current);
+            int cz = zOf(current);
+            short next = (short) (distance[current] + 1);
+
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = cx + DX[dir];
+                int nz = cz + DZ[dir];
+                // Expanding outward from the player: the mob later walks neighbor -> current,
+                // so the neighbor may sit up to MAX_DROP above (mob drops) or 1 below (mob climbs).
+                for (int ny = cy - 1; ny <= cy + MAX_DROP; ny++) {
+                    int idx = indexOf(nx, ny, nz);
+                    if (idx < 0 || distance[idx] != UNREACHED) {
+                        continue;
+                    }
+                    if (isStandable(idx, nx, ny, nz)) {
+                        distance[idx] = next;
+                        queue[tail++] = idx;
+                    }
+                }
+            }
+        }
+        return complete;
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+
+    int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Patch a complete field after the block at {@code changed} changed, touching only the region
+     * that depends on it: the three cells whose standability reads that block (feet, head and
+     * floor) are re-evaluated; distances derived through a cell that became blocked are cleared
+     * and re-seeded from intact neighbours; new or shorter routes are propagated outward.
+     * @return false if the player's own cell is affected or the repair needs more than
+     *         {@code maxCells} cells; the caller then rebuilds the field (mobs keep following
+     *         the partly repaired one meanwhile)
+     */
+    boolean repair(BlockPos changed, int maxCells) {
+        if (!complete) {
+            return false;
+        }
+        if (repairCells == null || repairCells.length < maxCells) {
+            repairCells = new int[maxCells];
+            repairDistances = new short[maxCells];
+            repairSeeds = new long[maxCells];
+        }
+
+        int bx = changed.getX();
+        int by = changed.getY();
+        int bz = changed.getZ();
+        int origin = indexOf(originX, originY, originZ);
+        int cleared = 0;
+        int opened = 0;  // Newly standable cells, collected from the end of repairCells
+        for (int y = by - 1; y <= by + 1; y++) {
+            int idx = indexOf(bx, y, bz);
+            if (idx < 0) {
+                continue;
+            }
+            boolean was = walkable[idx] == WALK_YES;
+            walkable[idx] = WALK_UNKNOWN;
+            boolean now = isStandable(idx, bx, y, bz);
+            if (was == now) {
+                continue;
+            }
+            if (idx == origin) {
+                return false;
+            }
+            if (now) {
+                if (cleared >= maxCells - opened - 1) {
+                    return false;
+                }
+                repairCells[maxCells - ++opened] = idx;
+            } else if (distance[idx] != UNREACHED) {
+                cleared = clearDependents(idx, cleared, maxCells - opened);
+                if (cleared < 0) {
+                    return false;
+                }
+            }
+        }
+
+        // Seed every cleared or opened cell from its best intact predecessor
+        int seeds = 0;
+        for (int i = 0; i < cleared + opened; i++) {
+            int idx = i < cleared ? repairCells[i] : repairCells[maxCells - 1 - (i - cleared)];
+            if (walkable[idx] != WALK_YES) {
+                continue;
+            }
+            int best = bestPredecessor(idx);
+            if (best != UNREACHED) {
+                distance[idx] = (short) (best + 1);
+                repairSeeds[seeds++] = ((long) (best + 1) << 32) | idx;
+            }
+        }
+        Arrays.sort(repairSeeds, 0, seeds);
+        return propagate(seeds, maxCells);
+    }
+
+    /**
+     * Clear {@code root} and every cell whose distance was derived through it (successors at
+     * exactly one more step, transitively), remembering them in {@code repairCells}.
+     * @return new count of cleared cells, or -1 past {@code limit}
+     */
+    private int clearDependents(int root, int count, int limit) {
+        int start = count;
+        if (count >= limit) {
+            return -1;
+        }
+        repairCells[count] = root;
+        repairDistances[count++] = distance[root];
+        distance[root] = UNREACHED;
+
+        for (int i = start; i < count; i++) {
+            int current = repairCells[i];
+            short next = (short) (repairDistances[i] + 1);
+            int cx = xOf(current);
+            int cy = yOf(current);
+            int cz = zOf(current);
+            for (int dir = 0; dir < 4; dir++) {
+                for (int ny = cy - 1; ny <= cy + MAX_DROP; ny++) {
+                    int idx = indexOf(cx + DX[dir], ny, cz + DZ[dir]);
+                    if (idx < 0 || distance[idx] != next) {
+                        continue;
+                    }
+                    if (count >= limit) {
+                        return -1;
+                    }
+                    repairCells[count] = idx;
+                    repairDistances[count++] = next;
+                    distance[idx] = UNREACHED;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lowest distance among the cells a mob could step to from {@code idx}, or UNREACHED.
+     */
+    private int bestPredecessor(int idx) {
+        int cx = xOf(idx);
+        int cy = yOf(idx);
+        int cz = zOf(idx);
+        int best = UNREACHED;
+        for (int dir = 0; dir < 4; dir++) {
+            for (int ny = cy - MAX_DROP; ny <= cy + 1; ny++) {
+                int d = distanceAt(cx + DX[dir], ny, cz + DZ[dir]);
+                if (d >= 0 && (best == UNREACHED || d < best)) {
+                    best = d;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * BFS outward from the seeds (sorted by distance), merged with the FIFO of relaxed cells so
+     * cells are expanded in distance order; lowers every distance a seed improves.
+     */
+    private boolean propagate(int seeds, int maxCells) {
+        int qHead = 0;
+        int qTail = 0;
+        int nextSeed = 0;
+        int expanded = 0;
+        while (nextSeed < seeds || qHead < qTail) {
+            int current;
+            if (qHead < qTail && (nextSeed >= seeds || distance[queue[qHead]] <= (int) (repairSeeds[nextSeed] >>> 32))) {
+                current = queue[qHead++];
+            } else {
+                long seed = repairSeeds[nextSeed++];
+                current = (int) seed;
+                if (distance[current] != (int) (seed >>> 32)) {
+                    continue;  // Lowered since it was seeded; expanded from the queue instead
+                }
+            }
+            if (++expanded > maxCells) {
+                return false;
+            }
+
+            short next = (short) (distance[current] + 1);
+            int cx = xOf(current);
+            int cy = yOf(current);
+            int cz = zOf(current);
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = cx + DX[dir];
+                int nz = cz + DZ[dir];
+                for (int ny = cy - 1; ny <= cy + MAX_DROP; ny++) {
+                    int idx = indexOf(nx, ny, nz);
+                    if (idx < 0 || (distance[idx] != UNREACHED && distance[idx] <= next)
+                        || !isStandable(idx, nx, ny, nz)) {
+                        continue;
+                    }
+                    if (qTail >= queue.length) {
+                        return false;
+                    }
+                    distance[idx] = next;
+                    queue[qTail++] = idx;
+                }
+            }
+        }
+        return true;
+    }
+
+    ServerLevel getLevel() {
+        return level;
+    }
+
+    boolean contains(BlockPos pos) {
+        return Math.abs(pos.getX() - originX) <= radius
+            && Math.abs(pos.getY() - originY) <= verticalRadius + 1
+            && Math.abs(pos.getZ() - originZ) <= radius;
+    }
+
+    /**
+     * Lowest corner of the block region {@link #contains} accepts.
+     */
+    BlockPos getMinCorner() {
+        return new BlockPos(originX - radius, originY - verticalRadius - 1, originZ - radius);
+    }
+
+    BlockPos getMaxCorner() {
+        return new BlockPos(originX + radius, originY + verticalRadius + 1, originZ + radius);
+    }
+
+    boolean hasOrigin(BlockPos pos) {
+        return pos.getX() == originX && pos.getY() == originY && pos.getZ() == originZ;
+    }
+
+    /**
+     * Walking distance from the player to this cell, or -1 if unknown/unreachable.
+     */
+    int distanceAt(int x, int y, int z) {
+        int idx = indexOf(x, y, z);
+        return idx < 0 ? UNREACHED : distance[idx];
+    }
+
+    /**
+     * Follow the gradient from a mob's position for up to {@code lookahead} steps.
+     * @return waypoint cell, or null if the mob is off the field
+     */
+    BlockPos nextWaypoint(BlockPos from, int lookahead) {
+        int x = from.getX();
+        int y = from.getY();
+        int z = from.getZ();
+        int d = distanceAt(x, y, z);
+        if (d < 0) {
+            // Slabs/snow layers/mid-jump: try the neighbouring vertical cells.
+            if ((d = distanceAt(x, y + 1, z)) >= 0) {
+                y++;
+            } else if ((d = distanceAt(x, y - 1, z)) >= 0) {
+                y--;
+            } else {
+                return null;
+            }
+        }
+
+        for (int step = 0; step < lookahead && d > 0; step++) {
+            int bestX = x;
+            int bestY = y;
+            int bestZ = z;
+            int best = d;
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = x + DX[dir];
+                int nz = z + DZ[dir];
+                for (int ny = y - MAX_DROP; ny <= y + 1; ny++) {
+                    int nd = distanceAt(nx, ny, nz);
+                    if (nd >= 0 && nd < best) {
+                        best = nd;
+                        bestX = nx;
+                        bestY = ny;
+                        bestZ = nz;
+                    }
+                }
+            }
+            if (best == d) {
+                break;
+            }
+            x = bestX;
+            y = bestY;
+            z = bestZ;
+            d = best;
+        }
+        return new BlockPos(x, y, z);
+    }
+
+    private boolean isStandable(int idx, int x, int y, int z) {
+        byte cached = walkable[idx];
+        if (cached != WALK_UNKNOWN) {
+            return cached == WALK_YES;
+        }
+
+        boolean result = false;
+        BlockPos feet = new BlockPos(x, y, z);
+        // Never load chunks from a flow-field build.
+        if (level.hasChunkAt(feet)) {
+            BlockPos below = feet.below();
+            BlockState belowState = level.getBlockState(below);
+            result = !belowState.getCollisionShape(level, below).isEmpty()
+                && isPassable(feet)
+                && isPassable(feet.above());
+        }
+        walkable[idx] = result ? WALK_YES : WALK_NO;
+        return result;
+    }
+
+    private boolean isPassable(BlockPos pos) {
+        BlockState state = level.getBlockState(pos);
+        return state.isPathfindable(level, pos, PathComputationType.LAND)
+            && state.getCollisionShape(level, pos).isEmpty();
+    }
+
+    private int indexOf(int x, int y, int z) {
+        int lx = x - originX + radius;
+        int ly = y - originY + verticalRadius;
+        int lz = z - originZ + radius;
+        if (lx < 0 || lx >= sizeXZ || ly < 0 || ly >= sizeY || lz < 0 || lz >= sizeXZ) {
+            return -1;
+        }
+        return (ly * sizeXZ + lz) * sizeXZ + lx;
+    }
+
+    private int xOf(int idx) {
+        return idx % sizeXZ - radius + originX;
+    }
+
+    private int zOf(int idx) {
+        return (idx / sizeXZ) % sizeXZ - radius + originZ;
+    }
+
+    private int yOf(int idx) {
+        return idx / (sizeXZ * sizeXZ) - verticalRadius + originY;
+    }
+}
@@ -0,0 +1,325 @@
+package com.minecraft.gancity.ai;
+
+import com.minecraft.gancity.GANCityMod;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared flow fields for players targeted by many mobs at once.
+ *
+ * Mobs running a charge-style tactic call {@link #requestField(Mob, Player)} each tick. Once a
+ * player is chased by at least {@code flowFieldMinMobs} mobs, one distance field is built around
+ * them (time-sliced, double-buffered) and every chasing mob follows its gradient instead of
+ * running its own pathfinder. The field is rebuilt when the player changes block, into the
+ * retired buffer so a rebuild allocates nothing. A block change inside a complete field is
+ * repaired in place around that block; only a repair that grows too large, or a change under
+ * an in-progress build, triggers a full rebuild. Fields are dropped once the crowd disperses.
+ *
+ * Server thread only, except {@link #onBlockChanged}, which may be called from any thread that
+ * sets blocks: it only checks published field bounds and queues the position for the next tick.
+ */
+public final class TargetFlowFieldManager {
+    /** Vertical half-extent of a field (blocks). */
+    private static final int VERTICAL_RADIUS = 8;
+
+    /** Rebuild even without changes this often, to pick up chunks that loaded meanwhile. */
+    private static final int REFRESH_INTERVAL_TICKS = 100;
+
+    /** Keep a field around this long after demand drops below the threshold. */
+    private static final int IDLE_EXPIRY_TICKS = 60;
+
+    /** Block changes queued per field between ticks; more than this forces a rebuild. */
+    private static final int MAX_PENDING_CHANGES = 64;
+
+    /** Block changes repaired per field per tick; the rest force a rebuild. */
+    private static final int MAX_REPAIRS_PER_TICK = 16;
+
+    private static final Map<UUID, Entry> FIELDS = new ConcurrentHashMap<>();
+
+    private static long currentTick = 0;
+
+    private TargetFlowFieldManager() {
+    }
+
+    private static final class Entry {
+        private final UUID playerId;
+        private TargetFlowField active;
+        private TargetFlowField building;
+        private TargetFlowField spare;  // Retired buffer, reset for the next build
+        private int demandThisTick;
+        private int demandLastTick;
+        private long lastDemandTick;
+        private long lastBuildTick;
+        private boolean dirty;
+
+        // Shared with block-changing threads
+        private volatile Bounds activeBounds;
+        private volatile Bounds buildingBounds;
+        private final Queue<BlockPos> changes = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingChanges = new AtomicInteger();
+        private volatile boolean changesOverflowed;
+
+        private Entry(UUID playerId) {
+            this.playerId = playerId;
+        }
+
+        private void setActive(TargetFlowField field) {
+            active = field;
+            activeBounds = Bounds.of(field);
+        }
+
+        private void setBuilding(TargetFlowField field) {
+            building = field;
+            buildingBounds = Bounds.of(field);
+        }
+
+        /**
+         * Retire the in-progress build, keeping its arrays for the next one.
+         */
+        private void abandonBuild() {
+            if (building != null) {
+                spare = building;
+                setBuilding(null);
+            }
+        }
+    }
+
+    /**
+     * Immutable copy of a field's extent, safe to read from any thread.
+     */
+    private static final class Bounds {
+        private final Level level;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+
+        private Bounds(Level level, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            this.level = level;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+        }
+
+        private static Bounds of(TargetFlowField field) {
+            if (field == null) {
+                return null;
+            }
+            BlockPos min = field.getMinCorner();
+            BlockPos max = field.getMaxCorner();
+            return new Bounds(field.getLevel(), min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+        }
+
+        private boolean contains(Level level, BlockPos pos) {
+            return this.level == level
+                && pos.getX() >= minX && pos.getX() <= maxX
+                && pos.getY() >= minY && pos.getY() <= maxY
+                && pos.getZ() >= minZ && pos.getZ() <= maxZ;
+        }
+    }
+
+    /**
+     * Register that {@code mob} is chasing {@code target} this tick.
+     * @return the target's ready flow field, or null if none is available for this mob
+     */
+    public static TargetFlowField requestField(Mob mob, Player target) {
+        if (!(mob.level() instanceof ServerLevel) || !GANCityMod.isFlowFieldNavigationEnabled()) {
+            return null;
+        }
+
+        Entry entry = FIELDS.computeIfAbsent(target.getUUID(), Entry::new);
+        entry.demandThisTick++;
+        entry.lastDemandTick = currentTick;
+
+        TargetFlowField field = entry.active;
+        if (field == null || field.getLevel() != mob.level() || !field.contains(mob.blockPosition())) {
+            return null;
+        }
+        return field;
+    }
+
+    /**
+     * Advance pending builds and retire idle fields. Called once per server tick.
+     */
+    public static void onServerTick(MinecraftServer server) {
+        currentTick++;
+        if (FIELDS.isEmpty()) {
+            return;
+        }
+
+        int minMobs = GANCityMod.getFlowFieldMinMobs();
+        int radius = GANCityMod.getFlowFieldRadius();
+        int budget = GANCityMod.getFlowFieldNodeBudget();
+
+        Iterator<Entry> it = FIELDS.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            entry.demandLastTick = entry.demandThisTick;
+            entry.demandThisTick = 0;
+
+            Player player = server.getPlayerList().getPlayer(entry.playerId);
+            if (player == null || player.isRemoved() || currentTick - entry.lastDemandTick > IDLE_EXPIRY_TICKS) {
+                it.remove();
+                continue;
+            }
+
+            applyBlockChanges(entry, budget);
+
+            if (entry.demandLastTick < minMobs) {
+                // Not enough chasers: stop building, keep the old field until it expires.
+                entry.abandonBuild();
+                if (entry.demandLastTick == 0 && entry.active != null
+                    && currentTick - entry.lastDemandTick > IDLE_EXPIRY_TICKS / 2) {
+                    entry.spare = entry.active;
+                    entry.setActive(null);
+                }
+                continue;
+            }
+
+            if (!(player.level() instanceof ServerLevel level)) {
+                continue;
+            }
+
+            BlockPos origin = standingCell(player);
+            if (entry.building == null && needsRebuild(entry, level, origin)) {
+                entry.setBuilding(obtainBuffer(entry, level, origin, radius));
+                entry.dirty = false;
+            }
+
+            if (entry.building != null) {
+                if (entry.building.getLevel() != level) {
+                    entry.abandonBuild();
+                } else if (entry.building.step(budget)) {
+                    entry.spare = entry.active;
+                    entry.setActive(entry.building);
+                    entry.setBuilding(null);
+                    entry.lastBuildTick = currentTick;
+                }
+            }
+        }
+    }
+
+    /**
+     * The entry's retired buffer reset around {@code origin}, or a new field if there is none
+     * of the configured radius.
+     */
+    private static TargetFlowField obtainBuffer(Entry entry, ServerLevel level, BlockPos origin, int radius) {
+        TargetFlowField buffer = entry.spare;
+        entry.spare = null;
+        if (buffer != null && buffer.getRadius() == radius) {
+            buffer.reset(level, origin);
+            return buffer;
+        }
+        return new TargetFlowField(level, origin, radius, VERTICAL_RADIUS);
+    }
+
+    /**
+     * Repair the active field around each block changed since the last tick. A change under an
+     * in-progress build, too many changes, or a repair over {@code budget} cells marks the entry
+     * dirty, which queues a full rebuild instead.
+     */
+    private static void applyBlockChanges(Entry entry, int budget) {
+        if (entry.changesOverflowed) {
+            entry.changesOverflowed = false;
+            entry.dirty = true;
+        }
+
+        int repairs = 0;
+        BlockPos pos;
+        while ((pos = entry.changes.poll()) != null) {
+            entry.pendingChanges.decrementAndGet();
+            if (entry.dirty) {
+                continue;  // Rebuilding anyway; just drain
+            }
+            if (entry.building != null && entry.building.contains(pos)) {
+                // An in-progress build is not restarted (constant block churn would starve it);
+                // the dirty flag queues another rebuild right after it completes.
+                entry.dirty = true;
+            } else if (entry.active != null && entry.active.contains(pos)
+                && (++repairs > MAX_REPAIRS_PER_TICK || !entry.active.repair(pos, budget))) {
+                entry.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Queue {@code pos} for the fields covering it; they are repaired on the next server tick.
+     * Safe from any thread, and a cheap no-op while no fields exist.
+     */
+    public static void onBlockChanged(Level level, BlockPos pos) {
+        if (FIELDS.isEmpty() || level.isClientSide) {
+            return;
+        }
+        for (Entry entry : FIELDS.values()) {
+            Bounds active = entry.activeBounds;
+            Bounds building = entry.buildingBounds;
+            if ((active == null || !active.contains(level, pos)) && (building == null || !building.contains(level, pos))) {
+                continue;
+            }
+            if (entry.pendingChanges.incrementAndGet() > MAX_PENDING_CHANGES) {
+                entry.pendingChanges.decrementAndGet();
+                entry.changesOverflowed = true;
+            } else {
+                entry.changes.offer(pos.immutable());
+            }
+        }
+    }
+
+    public static int getActiveFieldCount() {
+        int count = 0;
+        for (Entry entry : FIELDS.values()) {
+            if (entry.active != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void clear() {
+        FIELDS.clear();
+    }
+
+    private static boolean needsRebuild(Entry entry, ServerLevel level, BlockPos origin) {
+        TargetFlowField active = entry.active;
+        if (active == null || active.getLevel() != level || entry.dirty) {
+            return true;
+        }
+        if (!active.hasOrigin(origin)) {
+            return true;
+        }
+        return currentTick - entry.lastBuildTick > REFRESH_INTERVAL_TICKS;
+    }
+
+    /**
+     * Block the player stands in (drops to the ground while jumping/falling a short distance).
+     */
+    private static BlockPos standingCell(Player player) {
+        BlockPos pos = player.blockPosition();
+        Level level = player.level();
+        for (int i = 0; i < 3; i++) {
+            BlockPos below = pos.below();
+            if (!level.getBlockState(below).getCollisionShape(level, below).isEmpty()) {
+                return pos;
+            }
+            pos = below;
+        }
+        return player.blockPosition();
+    }
+}
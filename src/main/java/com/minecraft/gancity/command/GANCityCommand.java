@@ -1,14 +1,18 @@
 package com.minecraft.gancity.command;
 
 import com.minecraft.gancity.GANCityMod;
+import com.minecraft.gancity.ai.LineOfSightCache;
 import com.minecraft.gancity.ai.MobBehaviorAI;
+import com.minecraft.gancity.ai.SwarmPlanner;
 import com.minecraft.gancity.ai.VillagerDialogueAI;
 import com.minecraft.gancity.compat.ModCompatibility;
 import com.minecraft.gancity.config.PlayerMobLoadoutStore;
+import com.minecraft.gancity.event.MobTierAssignmentHandler;
 import com.minecraft.gancity.mca.MCAIntegration;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.DoubleArgumentType;
 import com.mojang.brigadier.arguments.BoolArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import net.minecraft.commands.CommandSourceStack;
@@ -42,6 +46,12 @@ public class GANCityCommand {
                 .executes(GANCityCommand::showFederationStatus))
             .then(Commands.literal("compat")
                 .executes(GANCityCommand::showCompatibility))
+            .then(Commands.literal("benchmark")
+                .requires(source -> source.hasPermission(2))
+                .then(Commands.literal("tierload")
+                    .executes(context -> benchmarkTierLoad(context, 500))
+                    .then(Commands.argument("count", IntegerArgumentType.integer(1, 5000))
+                        .executes(context -> benchmarkTierLoad(context, IntegerArgumentType.getInteger(context, "count"))))))
             .then(Commands.literal("loadout")
                 .then(Commands.literal("list")
                     .executes(GANCityCommand::loadoutList))
@@ -261,6 +271,22 @@ public class GANCityCommand {
         }
     }
 
+    private static int benchmarkTierLoad(CommandContext<CommandSourceStack> context, int count) {
+        CommandSourceStack source = context.getSource();
+        net.minecraft.world.phys.Vec3 pos = source.getPosition();
+
+        long[] result = MobTierAssignmentHandler.benchmarkTierAssignment(source.getLevel(), pos.x, pos.y, pos.z, count);
+        double legacyMs = result[0] / 1_000_000.0;
+        double typedMs = result[1] / 1_000_000.0;
+
+        source.sendSuccess(() -> Component.literal("§b=== Tier Assignment Benchmark (" + count + " mobs) ===§r"), false);
+        source.sendSuccess(() -> Component.literal(String.format("  Legacy NBT round-trip: §c%.2f ms§r (%.1f µs/mob)",
+            legacyMs, legacyMs * 1000.0 / count)), false);
+        source.sendSuccess(() -> Component.literal(String.format("  Typed tier state:      §a%.2f ms§r (%.1f µs/mob)",
+            typedMs, typedMs * 1000.0 / count)), false);
+        return 1;
+    }
+
     private static int showInfo(CommandContext<CommandSourceStack> context) {
         CommandSourceStack source = context.getSource();
         
@@ -287,6 +313,7 @@ public class GANCityCommand {
         source.sendSuccess(() -> Component.literal("  /amai info - Show mod information"), false);
         source.sendSuccess(() -> Component.literal("  /amai stats - View AI statistics"), false);
         source.sendSuccess(() -> Component.literal("  /amai compat - View mod compatibility report"), false);
+        source.sendSuccess(() -> Component.literal("  /amai benchmark tierload [count] - Time tier assignment for N mobs (op)"), false);
         source.sendSuccess(() -> Component.literal("  /amai test dialogue <type> - Test dialogue generation"), false);
         source.sendSuccess(() -> Component.literal("  /amai loadout ... - Configure per-player, per-mob weapon chances (supports 'none' for unarmed)"), false);
         
@@ -393,6 +420,18 @@ public class GANCityCommand {
             source.sendSuccess(() -> Component.literal(""), false);
             source.sendSuccess(() -> Component.literal("  Active mob types: 70+ (All vanilla + modded)"), false);
             source.sendSuccess(() -> Component.literal("  §aLearning: Progressive difficulty with 6 ML systems§r"), false);
+            String losStats = LineOfSightCache.getStats();
+            source.sendSuccess(() -> Component.literal("  §7Line-of-sight cache: " + losStats + "§r"), false);
+            String tableStats = behaviorAI.getPolicyTableStats();
+            source.sendSuccess(() -> Component.literal("  §7Distilled policy: " + tableStats + "§r"), false);
+            String qNetworkStats = behaviorAI.getQNetworkStats();
+            source.sendSuccess(() -> Component.literal("  §7Q-network: " + qNetworkStats + "§r"), false);
+            String swarmStats = SwarmPlanner.getStats();
+            source.sendSuccess(() -> Component.literal("  §7" + swarmStats + "§r"), false);
+            String episodeStats = behaviorAI.getEpisodeStats();
+            source.sendSuccess(() -> Component.literal("  §7" + episodeStats + "§r"), false);
+            String pipelineStats = behaviorAI.getLearningPipelineStats();
+            source.sendSuccess(() -> Component.literal("  §7" + pipelineStats + "§r"), false);
         } else {
             source.sendSuccess(() -> Component.literal("  Status: §cDisabled§r"), false);
         }
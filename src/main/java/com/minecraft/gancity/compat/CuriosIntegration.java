@@ -5,26 +5,28 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import org.slf4j.Logger;
 
-import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Curios API integration for detecting trinkets, baubles, and accessories
- * Uses reflection to avoid hard dependency
+ * Binds the API once through OptionalHandles to avoid a hard dependency
  */
 @SuppressWarnings("unused")
 public class CuriosIntegration {
     private static final Logger LOGGER = LogUtils.getLogger();
     
-    private static boolean initialized = false;
-    private static Class<?> curiosApiClass = null;
-    private static Method getCuriosInventoryMethod = null;
-    private static Method getEquippedCuriosMethod = null;
-    private static Method itemHandlerGetSlotsMethod = null;
-    private static Method itemHandlerGetStackInSlotMethod = null;
+    private static volatile boolean initialized = false;
+    private static OptionalHandles.Invoker<Optional> getCuriosInventory;
+    private static OptionalHandles.Invoker<Object> getEquippedCurios;
+    private static OptionalHandles.Invoker<Integer> itemHandlerGetSlots;
+    private static OptionalHandles.Invoker<ItemStack> itemHandlerGetStackInSlot;
     
     // Cache for frequently called methods
-    private static final Map<UUID, CachedCurioData> curioCache = new HashMap<>();
+    private static final Map<UUID, CachedCurioData> curioCache = new ConcurrentHashMap<>();
+    // Source of curio revisions; a player's revision only changes when their equipped curios do
+    private static final AtomicLong REVISIONS = new AtomicLong(0);
     private static final long CACHE_DURATION_MS = 1000; // 1 second cache
     private static final int MAX_CACHE_SIZE = 50;
     
@@ -36,23 +38,24 @@ public class CuriosIntegration {
             return;
         }
         
-        try {
-            // Load Curios API classes via reflection
-            curiosApiClass = Class.forName("top.theillusivec4.curios.api.CuriosApi");
-            Class<?> livingEntityClass = Class.forName("net.minecraft.world.entity.LivingEntity");
-            Class<?> curiosHandlerClass = Class.forName("top.theillusivec4.curios.api.type.capability.ICuriosItemHandler");
-            Class<?> itemHandlerClass = Class.forName("net.minecraftforge.items.IItemHandlerModifiable");
-
-            getCuriosInventoryMethod = curiosApiClass.getMethod("getCuriosInventory", livingEntityClass);
-            getEquippedCuriosMethod = curiosHandlerClass.getMethod("getEquippedCurios");
-            itemHandlerGetSlotsMethod = itemHandlerClass.getMethod("getSlots");
-            itemHandlerGetStackInSlotMethod = itemHandlerClass.getMethod("getStackInSlot", int.class);
-            
-            initialized = true;
+        // Bind the Curios API members once
+        Class<?> livingEntityClass = OptionalHandles.findClass("net.minecraft.world.entity.LivingEntity");
+        Class<?> curiosHandlerClass = OptionalHandles.findClass("top.theillusivec4.curios.api.type.capability.ICuriosItemHandler");
+        Class<?> itemHandlerClass = OptionalHandles.findClass("net.minecraftforge.items.IItemHandlerModifiable");
+
+        getCuriosInventory = OptionalHandles.method("top.theillusivec4.curios.api.CuriosApi", "getCuriosInventory",
+            Optional.class, Optional.empty(), livingEntityClass);
+        getEquippedCurios = OptionalHandles.method(curiosHandlerClass, "getEquippedCurios", Object.class, null);
+        itemHandlerGetSlots = OptionalHandles.method(itemHandlerClass, "getSlots", Integer.class, 0);
+        itemHandlerGetStackInSlot = OptionalHandles.method(itemHandlerClass, "getStackInSlot", ItemStack.class,
+            ItemStack.EMPTY, int.class);
+        
+        initialized = OptionalHandles.reportIntegration("Curios API",
+            getCuriosInventory, getEquippedCurios, itemHandlerGetSlots, itemHandlerGetStackInSlot);
+        if (initialized) {
             LOGGER.info("Curios API integration initialized successfully");
-        } catch (Exception e) {
-            LOGGER.warn("Failed to initialize Curios integration: {}", e.getMessage());
-            initialized = false;
+        } else {
+            LOGGER.warn("Failed to initialize Curios integration: API members not found");
         }
     }
     
@@ -103,6 +106,14 @@ public class CuriosIntegration {
     public static float getCurioEnhancementFactor(Player player) {
         return getCurioData(player).enhancement;
     }
+    
+    /**
+     * Revision of the player's equipped curios: unchanged while the same curios stay equipped
+     * (re-read at most once per cache period), different after any curio change
+     */
+    public static long getCurioRevision(Player player) {
+        return getCurioData(player).revision;
+    }
 
     private static CachedCurioData getCurioData(Player player) {
         if (!initialized) {
@@ -120,6 +131,9 @@ public class CuriosIntegration {
         }
 
         CachedCurioData refreshed = loadCurioData(player, now);
+        refreshed.revision = cached != null && sameCurios(cached.equippedCurios, refreshed.equippedCurios)
+            ? cached.revision
+            : REVISIONS.incrementAndGet();
         updateCache(playerId, refreshed);
         return refreshed;
     }
@@ -128,21 +142,20 @@ public class CuriosIntegration {
         List<ItemStack> curios = new ArrayList<>();
 
         try {
-            Object optionalInventory = getCuriosInventoryMethod.invoke(null, player);
-            if (!(optionalInventory instanceof Optional<?> inventoryOptional) || inventoryOptional.isEmpty()) {
+            Optional<?> inventoryOptional = getCuriosInventory.invoke(player);
+            if (inventoryOptional.isEmpty()) {
                 return CachedCurioData.empty(now);
             }
 
-            Object handler = inventoryOptional.get();
-            Object itemHandler = getEquippedCuriosMethod.invoke(handler);
+            Object itemHandler = getEquippedCurios.invoke(inventoryOptional.get());
             if (itemHandler == null) {
                 return CachedCurioData.empty(now);
             }
 
-            int slots = ((Number) itemHandlerGetSlotsMethod.invoke(itemHandler)).intValue();
+            int slots = itemHandlerGetSlots.invoke(itemHandler);
             for (int index = 0; index < slots; index++) {
-                Object stackObject = itemHandlerGetStackInSlotMethod.invoke(itemHandler, index);
-                if (stackObject instanceof ItemStack stack && !stack.isEmpty()) {
+                ItemStack stack = itemHandlerGetStackInSlot.invoke(itemHandler, index);
+                if (!stack.isEmpty()) {
                     curios.add(stack.copy());
                 }
             }
@@ -160,6 +173,20 @@ public class CuriosIntegration {
         );
     }
 
+    private static boolean sameCurios(List<ItemStack> a, List<ItemStack> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            ItemStack x = a.get(i);
+            ItemStack y = b.get(i);
+            if (x.getItem() != y.getItem() || x.getDamageValue() != y.getDamageValue() || x.getCount() != y.getCount()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static boolean hasMagicalCurio(List<ItemStack> curios) {
         for (ItemStack curio : curios) {
             String itemName = curio.getDescriptionId().toLowerCase(Locale.ROOT);
@@ -225,6 +252,7 @@ public class CuriosIntegration {
         final float enhancement;
         final float protectionBonus;
         final long timestamp;
+        long revision;  // Assigned before the entry is published
         
         CachedCurioData(List<ItemStack> equippedCurios, boolean hasTrinkets, float enhancement, float protectionBonus, long timestamp) {
             this.equippedCurios = equippedCurios;
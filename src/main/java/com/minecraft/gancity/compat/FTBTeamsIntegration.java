@@ -4,7 +4,6 @@ import com.mojang.logging.LogUtils;
 import net.minecraft.server.level.ServerPlayer;
 import org.slf4j.Logger;
 
-import java.lang.reflect.Method;
 import java.util.*;
 
 /**
@@ -15,10 +14,33 @@ import java.util.*;
 public class FTBTeamsIntegration {
     private static final Logger LOGGER = LogUtils.getLogger();
     
-    private static boolean initialized = false;
-    private static Class<?> ftbTeamsApiClass = null;
-    private static Method getPlayerTeamMethod = null;
-    private static Method getTeamMembersMethod = null;
+    private static volatile boolean initialized = false;
+    
+    /**
+     * FTB Teams API members, bound once on first use (only touched when the mod is loaded):
+     * FTBTeamsAPI.api().getManager().getTeamForPlayerID(id) -> Optional<Team>, Team.getMembers()
+     */
+    @SuppressWarnings("unchecked")
+    private static final class FTB {
+        static final Class<Optional<?>> OPTIONAL = (Class<Optional<?>>) (Class<?>) Optional.class;
+        static final Class<Set<?>> SET = (Class<Set<?>>) (Class<?>) Set.class;
+        
+        static final OptionalHandles.Invoker<Object> API =
+            OptionalHandles.method("dev.ftb.mods.ftbteams.api.FTBTeamsAPI", "api", Object.class, null);
+        static final OptionalHandles.Invoker<Object> GET_MANAGER =
+            OptionalHandles.method("dev.ftb.mods.ftbteams.api.FTBTeamsAPI$API", "getManager", Object.class, null);
+        static final OptionalHandles.Invoker<Optional<?>> GET_TEAM_FOR_PLAYER =
+            OptionalHandles.method("dev.ftb.mods.ftbteams.api.TeamManager", "getTeamForPlayerID",
+                OPTIONAL, Optional.empty(), UUID.class);
+        static final OptionalHandles.Invoker<Set<?>> GET_MEMBERS =
+            OptionalHandles.method("dev.ftb.mods.ftbteams.api.Team", "getMembers", SET, Collections.emptySet());
+        
+        static final boolean ACTIVE = OptionalHandles.reportIntegration("FTB Teams",
+            API, GET_MANAGER, GET_TEAM_FOR_PLAYER, GET_MEMBERS);
+        
+        private FTB() {
+        }
+    }
     
     // Cache for team lookups
     private static final Map<UUID, CachedTeamData> teamCache = new HashMap<>();
@@ -26,22 +48,18 @@ public class FTBTeamsIntegration {
     private static final int MAX_CACHE_SIZE = 100;
     
     /**
-     * Initialize FTB Teams integration via reflection
+     * Initialize FTB Teams integration (API members bound once)
      */
     public static void init() {
         if (!ModCompatibility.isFTBTeamsLoaded()) {
             return;
         }
         
-        try {
-            // Load FTB Teams API classes via reflection
-            ftbTeamsApiClass = Class.forName("dev.ftb.mods.ftbteams.api.FTBTeamsAPI");
-            
-            initialized = true;
+        initialized = FTB.ACTIVE;
+        if (initialized) {
             LOGGER.info("FTB Teams integration initialized successfully");
-        } catch (Exception e) {
-            LOGGER.warn("Failed to initialize FTB Teams integration: {}", e.getMessage());
-            initialized = false;
+        } else {
+            LOGGER.warn("Failed to initialize FTB Teams integration: API members not found");
         }
     }
     
@@ -89,13 +107,19 @@ public class FTBTeamsIntegration {
         }
         
         try {
-            // Use reflection to get team members
-            // Would be: FTBTeamsAPI.getPlayerTeam(player).getMembers()
-            
+            // FTBTeamsAPI.api().getManager().getTeamForPlayerID(player).getMembers()
             Set<UUID> teamMembers = new HashSet<>();
             teamMembers.add(playerId); // Always include self
             
-            // Placeholder - full implementation requires FTB Teams as dependency
+            Object manager = FTB.GET_MANAGER.invoke(FTB.API.invoke());
+            Optional<?> team = manager != null ? FTB.GET_TEAM_FOR_PLAYER.invoke(manager, playerId) : Optional.empty();
+            if (team.isPresent()) {
+                for (Object member : FTB.GET_MEMBERS.invoke(team.get())) {
+                    if (member instanceof UUID memberId) {
+                        teamMembers.add(memberId);
+                    }
+                }
+            }
             
             // Update cache
             teamCache.put(playerId, new CachedTeamData(teamMembers, now));
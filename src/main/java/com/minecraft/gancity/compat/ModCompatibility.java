@@ -30,6 +30,13 @@ public class ModCompatibility {
     public static final String SOPHISTICATED_BACKPACKS_ID = "sophisticatedbackpacks";
     public static final String ALEXS_MOBS_ID = "alexsmobs";
     
+    // FabricLoader.getInstance().isModLoaded(id), bound once without linking loader classes here
+    private static final OptionalHandles.Invoker<Object> LOADER_INSTANCE =
+        OptionalHandles.method("net.fabricmc.loader.api.FabricLoader", "getInstance", Object.class, null);
+    private static final OptionalHandles.Invoker<Boolean> LOADER_IS_MOD_LOADED =
+        OptionalHandles.method("net.fabricmc.loader.api.FabricLoader", "isModLoaded", Boolean.class, false,
+            String.class);
+    
     /**
      * Initialize mod compatibility checks
      */
@@ -60,10 +67,8 @@ public class ModCompatibility {
 
     private static boolean isModLoaded(String modId) {
         try {
-            Class<?> fabricLoaderClass = Class.forName("net.fabricmc.loader.api.FabricLoader");
-            Object loader = fabricLoaderClass.getMethod("getInstance").invoke(null);
-            Object result = fabricLoaderClass.getMethod("isModLoaded", String.class).invoke(loader, modId);
-            return result instanceof Boolean && (Boolean) result;
+            Object loader = LOADER_INSTANCE.invoke();
+            return loader != null && LOADER_IS_MOD_LOADED.invoke(loader, modId);
         } catch (Throwable ignored) {
             return false;
         }
@@ -159,6 +164,12 @@ public class ModCompatibility {
         appendModStatus(report, "Alex's Mobs", alexsMobsLoaded,
             "Extended mob behavior patterns");
         
+        String integrations = OptionalHandles.getIntegrationReport();
+        if (!integrations.isEmpty()) {
+            report.append("§b=== Active Integrations ===§r\n");
+            report.append(integrations);
+        }
+        
         return report.toString();
     }
     
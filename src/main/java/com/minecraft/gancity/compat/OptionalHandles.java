@@ -0,0 +1,315 @@
+package com.minecraft.gancity.compat;
+
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Binds members of optional dependencies (other mods, Smile, XGBoost, lazily loaded ML classes)
+ * once, at integration init, into {@link MethodHandle}s.
+ *
+ * Each binding is an {@link Invoker} adapted to a fixed-arity {@code Object} signature, so a call
+ * is one {@code invokeExact} instead of a lookup plus {@code Method.invoke}. A member that cannot
+ * be resolved yields an absent invoker that returns its typed fallback without throwing, and
+ * every integration records its status here for one combined report.
+ */
+public final class OptionalHandles {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    // Integration name -> status line, sorted for the report
+    private static final Map<String, String> INTEGRATIONS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Boolean> ACTIVE = new ConcurrentSkipListMap<>();
+
+    private OptionalHandles() {
+    }
+
+    /**
+     * A resolved optional member. Arguments are passed as objects (primitives boxed) and the
+     * result is cast to {@code R}; primitive results come back as their wrapper type. An absent
+     * member, or a null result, yields the fallback.
+     */
+    public static final class Invoker<R> {
+        private final String description;
+        private final MethodHandle handle;  // Generic (Object...)Object type, null when absent
+        private final Class<R> resultType;
+        private final R absent;
+
+        private Invoker(String description, MethodHandle handle, Class<R> resultType, R absent) {
+            this.description = description;
+            this.handle = handle != null
+                ? handle.asType(MethodType.genericMethodType(handle.type().parameterCount()))
+                : null;
+            this.resultType = resultType;
+            this.absent = absent;
+        }
+
+        public boolean isPresent() {
+            return handle != null;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public R invoke() throws Exception {
+            if (handle == null) {
+                return absent;
+            }
+            checkArity(0);
+            try {
+                return cast((Object) handle.invokeExact());
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public R invoke(Object a) throws Exception {
+            if (handle == null) {
+                return absent;
+            }
+            checkArity(1);
+            try {
+                return cast((Object) handle.invokeExact(a));
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public R invoke(Object a, Object b) throws Exception {
+            if (handle == null) {
+                return absent;
+            }
+            checkArity(2);
+            try {
+                return cast((Object) handle.invokeExact(a, b));
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public R invoke(Object a, Object b, Object c) throws Exception {
+            if (handle == null) {
+                return absent;
+            }
+            checkArity(3);
+            try {
+                return cast((Object) handle.invokeExact(a, b, c));
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public R invoke(Object a, Object b, Object c, Object d) throws Exception {
+            if (handle == null) {
+                return absent;
+            }
+            checkArity(4);
+            try {
+                return cast((Object) handle.invokeExact(a, b, c, d));
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public R invoke(Object a, Object b, Object c, Object d, Object e, Object f) throws Exception {
+            if (handle == null) {
+                return absent;
+            }
+            checkArity(6);
+            try {
+                return cast((Object) handle.invokeExact(a, b, c, d, e, f));
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        private void checkArity(int count) {
+            if (handle.type().parameterCount() != count) {
+                throw new IllegalArgumentException(description + " takes " + handle.type().parameterCount()
+                    + " arguments (including receiver), got " + count);
+            }
+        }
+
+        private R cast(Object value) {
+            return value == null ? absent : resultType.cast(value);
+        }
+
+        @Override
+        public String toString() {
+            return description + (handle != null ? "" : " (absent)");
+        }
+    }
+
+    private static Exception rethrow(Throwable t) {
+        if (t instanceof Error error) {
+            throw error;
+        }
+        return t instanceof Exception exception ? exception : new RuntimeException(t);
+    }
+
+    /**
+     * @return the class, or null if it is not on the classpath (or fails to initialize)
+     */
+    public static Class<?> findClass(String className) {
+        try {
+            return Class.forName(className);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * Bind a public method (static or instance; instance methods take the receiver first).
+     */
+    public static <R> Invoker<R> method(Class<?> owner, String name, Class<R> resultType, R absent,
+                                        Class<?>... parameterTypes) {
+        String description = describe(owner, name);
+        if (owner == null || parameterTypes == null) {
+            return new Invoker<>(description, null, resultType, absent);
+        }
+        for (Class<?> parameter : parameterTypes) {
+            if (parameter == null) {
+                return new Invoker<>(description, null, resultType, absent);
+            }
+        }
+        try {
+            return new Invoker<>(description, LOOKUP.unreflect(owner.getMethod(name, parameterTypes)), resultType, absent);
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            LOGGER.debug("Optional member {} unavailable: {}", description, e.getMessage());
+            return new Invoker<>(description, null, resultType, absent);
+        }
+    }
+
+    public static <R> Invoker<R> method(String ownerClass, String name, Class<R> resultType, R absent,
+                                        Class<?>... parameterTypes) {
+        Class<?> owner = findClass(ownerClass);
+        if (owner == null) {
+            String simpleName = ownerClass.substring(ownerClass.lastIndexOf('.') + 1);
+            return new Invoker<>(simpleName + "." + name, null, resultType, absent);
+        }
+        return method(owner, name, resultType, absent, parameterTypes);
+    }
+
+    /**
+     * Bind a public constructor.
+     */
+    public static <R> Invoker<R> constructor(Class<?> owner, Class<R> resultType, Class<?>... parameterTypes) {
+        String description = describe(owner, "<init>");
+        if (owner == null) {
+            return new Invoker<>(description, null, resultType, null);
+        }
+        try {
+            return new Invoker<>(description, LOOKUP.unreflectConstructor(owner.getConstructor(parameterTypes)),
+                resultType, null);
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            LOGGER.debug("Optional constructor {} unavailable: {}", description, e.getMessage());
+            return new Invoker<>(description, null, resultType, null);
+        }
+    }
+
+    /**
+     * Bind a getter for a declared (possibly private) instance field: {@code invoke(receiver)}.
+     */
+    public static <R> Invoker<R> fieldGetter(Class<?> owner, String name, Class<R> resultType) {
+        Field field = declaredField(owner, name);
+        try {
+            return new Invoker<>(describe(owner, name), field != null ? MethodHandles.lookup().unreflectGetter(field) : null,
+                resultType, null);
+        } catch (IllegalAccessException e) {
+            return new Invoker<>(describe(owner, name), null, resultType, null);
+        }
+    }
+
+    /**
+     * Bind a setter for a declared (possibly private) instance field: {@code invoke(receiver, value)}.
+     */
+    public static Invoker<Object> fieldSetter(Class<?> owner, String name) {
+        Field field = declaredField(owner, name);
+        try {
+            return new Invoker<>(describe(owner, name), field != null ? MethodHandles.lookup().unreflectSetter(field) : null,
+                Object.class, null);
+        } catch (IllegalAccessException e) {
+            return new Invoker<>(describe(owner, name), null, Object.class, null);
+        }
+    }
+
+    private static Field declaredField(Class<?> owner, String name) {
+        if (owner == null) {
+            return null;
+        }
+        try {
+            Field field = owner.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            LOGGER.debug("Optional field {} unavailable: {}", describe(owner, name), e.getMessage());
+            return null;
+        }
+    }
+
+    private static String describe(Class<?> owner, String name) {
+        return (owner != null ? owner.getSimpleName() : "?") + "." + name;
+    }
+
+    /**
+     * Record an integration's binding status for {@link #getIntegrationReport()}.
+     * @param detail short description (bound members, or why it is inactive)
+     */
+    public static void reportIntegration(String integration, boolean active, String detail) {
+        ACTIVE.put(integration, active);
+        INTEGRATIONS.put(integration, detail);
+        LOGGER.debug("Integration {}: {} ({})", integration, active ? "active" : "inactive", detail);
+    }
+
+    /**
+     * Convenience: active iff every invoker is present; the detail lists missing members.
+     */
+    public static boolean reportIntegration(String integration, Invoker<?>... required) {
+        List<String> missing = new ArrayList<>();
+        for (Invoker<?> invoker : required) {
+            if (!invoker.isPresent()) {
+                missing.add(invoker.getDescription());
+            }
+        }
+        boolean active = missing.isEmpty();
+        reportIntegration(integration, active,
+            active ? required.length + " members bound" : "missing " + String.join(", ", missing));
+        return active;
+    }
+
+    public static boolean isIntegrationActive(String integration) {
+        return ACTIVE.getOrDefault(integration, false);
+    }
+
+    public static List<String> getActiveIntegrations() {
+        List<String> active = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : ACTIVE.entrySet()) {
+            if (entry.getValue()) {
+                active.add(entry.getKey());
+            }
+        }
+        return active;
+    }
+
+    /**
+     * One line per integration that has been initialized: name, active/inactive and detail
+     */
+    public static String getIntegrationReport() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, String> entry : INTEGRATIONS.entrySet()) {
+            boolean active = ACTIVE.getOrDefault(entry.getKey(), false);
+            report.append(String.format("%s %s: %s\n", active ? "§a✓§r" : "§7○§r", entry.getKey(), entry.getValue()));
+        }
+        return report.toString();
+    }
+}
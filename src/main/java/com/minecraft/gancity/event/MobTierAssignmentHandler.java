@@ -2,9 +2,11 @@ package com.minecraft.gancity.event;
 
 import com.minecraft.gancity.GANCityMod;
 import com.minecraft.gancity.ai.GenericRangedWeaponGoal;
+import com.minecraft.gancity.ai.TacticMovementExecutor;
 import com.minecraft.gancity.ai.TacticTier;
 import com.minecraft.gancity.config.PlayerMobLoadoutStore;
 import com.minecraft.gancity.mixin.MobGoalSelectorAccessor;
+import com.minecraft.gancity.util.MobTierHolder;
 import com.minecraft.gancity.util.PersistentDataHolder;
 import com.mojang.logging.LogUtils;
 import net.minecraft.core.registries.BuiltInRegistries;
@@ -119,12 +121,9 @@ public class MobTierAssignmentHandler {
                 mob.getType().toString(), t.toString());
         }
         
-        // Use entity's own NBT data (visible in F3) instead of PersistentData
-        CompoundTag entityData = new CompoundTag();
-        mob.saveWithoutId(entityData);
-        
-        // Check if tier already assigned (prevent reassignment on world reload)
-        if (entityData.contains(TIER_TAG)) {
+        // Check if tier already assigned (prevent reassignment on world reload).
+        // Typed state only - no NBT round-trip of the whole entity.
+        if (hasTier(mob)) {
             // Even if tier already exists, apply universal weapon capability once for older mobs.
             applyUniversalWeaponRulesOnce(mob);
             return;
@@ -132,16 +131,7 @@ public class MobTierAssignmentHandler {
         
         // Assign random tier based on weights
         TacticTier tier = TacticTier.selectRandomTier(RANDOM);
-        
-        // Store tier in entity NBT (visible in F3 screen)
-        entityData.putString(TIER_TAG, tier.getName());
-        entityData.putBoolean(TIER_ASSIGNED_TAG, true);
-        mob.load(entityData);
-        
-        // Also store in PersistentData for code access
-        CompoundTag persistentData = ((PersistentDataHolder) mob).adaptivemobai$getPersistentData();
-        persistentData.putString(TIER_TAG, tier.getName());
-        persistentData.putBoolean(TIER_ASSIGNED_TAG, true);
+        setTier(mob, tier);
         
         // Apply difficulty multiplier to mob stats
         applyTierModifiers(mob, tier);
@@ -225,13 +215,8 @@ public class MobTierAssignmentHandler {
                 }
             }
 
+            // Mirrored into entity NBT (F3) at save time by writeDebugTierMirror.
             persistentData.putBoolean(UNIVERSAL_WEAPONS_TAG, true);
-
-            // Also store in entity NBT so it shows up in F3 like the tier tags.
-            CompoundTag entityData = new CompoundTag();
-            mob.saveWithoutId(entityData);
-            entityData.putBoolean(UNIVERSAL_WEAPONS_TAG, true);
-            mob.load(entityData);
         } catch (Exception e) {
             LOGGER.debug("[Universal Weapons] Could not assign weapon to {}: {}",
                 mob.getType().toString(), e.getMessage());
@@ -368,14 +353,101 @@ public class MobTierAssignmentHandler {
      * Get tier from mob entity
      */
     public static TacticTier getTierFromMob(Mob mob) {
+        TacticTier tier = ((MobTierHolder) mob).adaptivemobai$getTier();
+        return tier != null ? tier : TacticTier.VETERAN; // default
+    }
+
+    /**
+     * Store tier as typed state, plus persistent data so it survives saves.
+     */
+    private static void setTier(Mob mob, TacticTier tier) {
+        ((MobTierHolder) mob).adaptivemobai$setTier(tier);
+
+        CompoundTag persistentData = ((PersistentDataHolder) mob).adaptivemobai$getPersistentData();
+        persistentData.putString(TIER_TAG, tier.getName());
+        persistentData.putBoolean(TIER_ASSIGNED_TAG, true);
+    }
+
+    /**
+     * Resolve the persisted tier (used once per load by the typed tier holder).
+     * @return tier, or null if none was assigned
+     */
+    public static TacticTier readPersistedTier(Mob mob) {
         CompoundTag data = ((PersistentDataHolder) mob).adaptivemobai$getPersistentData();
-        
-        if (data.contains(TIER_TAG)) {
-            String tierName = data.getString(TIER_TAG);
-            return TacticTier.fromName(tierName);
+        if (!data.getBoolean(TIER_ASSIGNED_TAG) || !data.contains(TIER_TAG)) {
+            return null;
         }
-        
-        return TacticTier.VETERAN; // default
+        return TacticTier.fromName(data.getString(TIER_TAG));
+    }
+
+    /**
+     * Debug mirror: write tier/loadout flags into the entity's own NBT at save time
+     * so they stay visible in F3 / data commands. Never read back.
+     */
+    public static void writeDebugTierMirror(Mob mob, CompoundTag entityData) {
+        if (!GANCityMod.isTierNbtDebugMirrorEnabled()) {
+            return;
+        }
+
+        TacticTier tier = ((MobTierHolder) mob).adaptivemobai$getTier();
+        if (tier != null) {
+            entityData.putString(TIER_TAG, tier.getName());
+            entityData.putBoolean(TIER_ASSIGNED_TAG, true);
+        }
+
+        if (((PersistentDataHolder) mob).adaptivemobai$getPersistentData().getBoolean(UNIVERSAL_WEAPONS_TAG)) {
+            entityData.putBoolean(UNIVERSAL_WEAPONS_TAG, true);
+        }
+    }
+    
+    /**
+     * Benchmark: per-mob cost of first-tick tier assignment, legacy full NBT round-trip
+     * (saveWithoutId + load, twice) versus typed state. Mobs are created but never added
+     * to the level, so this is safe to run on a live server.
+     *
+     * @return {legacyNanos, typedNanos} totals for {@code count} mobs
+     */
+    public static long[] benchmarkTierAssignment(ServerLevel level, double x, double y, double z, int count) {
+        List<Mob> legacyMobs = new java.util.ArrayList<>(count);
+        List<Mob> typedMobs = new java.util.ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Zombie a = net.minecraft.world.entity.EntityType.ZOMBIE.create(level);
+            Zombie b = net.minecraft.world.entity.EntityType.ZOMBIE.create(level);
+            if (a == null || b == null) {
+                break;
+            }
+            a.moveTo(x, y, z);
+            b.moveTo(x, y, z);
+            legacyMobs.add(a);
+            typedMobs.add(b);
+        }
+
+        long legacyStart = System.nanoTime();
+        for (Mob mob : legacyMobs) {
+            TacticTier tier = TacticTier.selectRandomTier(RANDOM);
+            CompoundTag entityData = new CompoundTag();
+            mob.saveWithoutId(entityData);
+            entityData.putString(TIER_TAG, tier.getName());
+            entityData.putBoolean(TIER_ASSIGNED_TAG, true);
+            mob.load(entityData);
+
+            CompoundTag weaponData = new CompoundTag();
+            mob.saveWithoutId(weaponData);
+            weaponData.putBoolean(UNIVERSAL_WEAPONS_TAG, true);
+            mob.load(weaponData);
+        }
+        long legacyNanos = System.nanoTime() - legacyStart;
+
+        long typedStart = System.nanoTime();
+        for (Mob mob : typedMobs) {
+            if (!hasTier(mob)) {
+                setTier(mob, TacticTier.selectRandomTier(RANDOM));
+            }
+            ((PersistentDataHolder) mob).adaptivemobai$getPersistentData().putBoolean(UNIVERSAL_WEAPONS_TAG, true);
+        }
+        long typedNanos = System.nanoTime() - typedStart;
+
+        return new long[] {legacyNanos, typedNanos};
     }
     
     /**
@@ -394,6 +466,7 @@ public class MobTierAssignmentHandler {
      */
     static class ElitePackCoordinationGoal extends Goal {
         private final Mob mob;
+        private final TacticMovementExecutor movement;
         private Mob packLeader;
         private LivingEntity sharedTarget;
         private Player targetPlayer; // Track which player this pack is focused on
@@ -401,6 +474,7 @@ public class MobTierAssignmentHandler {
         
         public ElitePackCoordinationGoal(Mob mob) {
             this.mob = mob;
+            this.movement = new TacticMovementExecutor(mob);
             this.setFlags(EnumSet.of(Flag.MOVE, Flag.TARGET));
         }
         
@@ -513,7 +587,7 @@ public class MobTierAssignmentHandler {
             
             // Stay near pack leader (within 8 blocks)
             if (packLeader != null && mob.distanceToSqr(packLeader) > 64.0) {
-                mob.getNavigation().moveTo(packLeader, 1.0);
+                movement.moveTo(packLeader, 1.0, "pack_follow");
             }
             
             // Keep attacking shared target (only if still the same player)
@@ -524,6 +598,7 @@ public class MobTierAssignmentHandler {
         
         @Override
         public void stop() {
+            movement.reset();
             packLeader = null;
             sharedTarget = null;
             targetPlayer = null;
@@ -534,7 +609,7 @@ public class MobTierAssignmentHandler {
      * Check if mob has been assigned a tier
      */
     public static boolean hasTier(Mob mob) {
-        return ((PersistentDataHolder) mob).adaptivemobai$getPersistentData().getBoolean(TIER_ASSIGNED_TAG);
+        return ((MobTierHolder) mob).adaptivemobai$getTier() != null;
     }
     
     /**
@@ -1,6 +1,9 @@
 package com.minecraft.gancity.fabric;
 
 import com.minecraft.gancity.GANCityMod;
+import com.minecraft.gancity.ai.LineOfSightCache;
+import com.minecraft.gancity.ai.SwarmPlanner;
+import com.minecraft.gancity.ai.TargetFlowFieldManager;
 import com.minecraft.gancity.command.GANCityCommand;
 import com.minecraft.gancity.event.MobTierAssignmentHandler;
 import com.minecraft.gancity.mca.MCADialogueHandler;
@@ -31,9 +34,12 @@ public final class AdaptiveMobAIFabric implements ModInitializer {
         ServerLifecycleEvents.SERVER_STARTING.register(server -> GANCityMod.onServerStarting());
         ServerLifecycleEvents.SERVER_STOPPING.register(server -> GANCityMod.onServerStopping());
 
+        ServerTickEvents.START_SERVER_TICK.register(server -> LineOfSightCache.onTickStart());
         ServerTickEvents.END_SERVER_TICK.register(server -> {
             GANCityMod.onServerTick(server);
             MobTierAssignmentHandler.onServerTick(server);
+            TargetFlowFieldManager.onServerTick(server);
+            SwarmPlanner.onServerTick(server);
         });
 
         UseEntityCallback.EVENT.register((player, world, hand, entity, hitResult) ->
@@ -2,6 +2,7 @@ package com.minecraft.gancity.mca;
 
 import com.minecraft.gancity.GANCityMod;
 import com.minecraft.gancity.ai.VillagerDialogueAI;
+import com.minecraft.gancity.compat.OptionalHandles;
 import com.mojang.logging.LogUtils;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.player.Player;
@@ -10,7 +11,6 @@ import net.minecraft.world.InteractionHand;
 import net.minecraft.world.InteractionResult;
 import org.slf4j.Logger;
 
-import java.lang.reflect.Method;
 import java.util.UUID;
 
 /**
@@ -32,8 +32,8 @@ public class MCADialogueHandler {
             return InteractionResult.PASS;
         }
         
-        // Check if target is an MCA villager using reflection
-        if (isMCAVillager(target)) {
+        // Check if target is an MCA villager
+        if (MCAIntegration.Members.isVillager(target)) {
             try {
                 // Get villager UUID
                 UUID villagerId = target.getUUID();
@@ -43,10 +43,9 @@ public class MCADialogueHandler {
                 context.playerName = player.getName().getString();
                 context.playerId = player.getUUID();
                 
-                // Try to get villager name via reflection
+                // Try to get villager name from MCA
                 try {
-                    Method getNameMethod = target.getClass().getMethod("getVillagerName");
-                    Object name = getNameMethod.invoke(target);
+                    Object name = MCAIntegration.Members.GET_VILLAGER_NAME.invoke(target);
                     if (name != null) {
                         context.villagerName = name.toString();
                     }
@@ -58,7 +57,7 @@ public class MCADialogueHandler {
                 VillagerDialogueAI dialogueAI = GANCityMod.getVillagerDialogueAI();
                 String dialogue = dialogueAI.generateDialogue(villagerId, context);
                 
-                // Try to inject dialogue into MCA's system via reflection
+                // Try to inject dialogue into MCA's system
                 injectDialogueIntoMCA(target, dialogue);
                 
                 LOGGER.debug("Generated dialogue for MCA villager {}: {}", villagerId, dialogue);
@@ -72,19 +71,7 @@ public class MCADialogueHandler {
     }
     
     /**
-     * Check if entity is an MCA villager using reflection
-     */
-    private static boolean isMCAVillager(Entity entity) {
-        try {
-            Class<?> mcaVillagerClass = Class.forName("mca.entity.VillagerEntityMCA");
-            return mcaVillagerClass.isInstance(entity);
-        } catch (ClassNotFoundException e) {
-            return false;
-        }
-    }
-    
-    /**
-     * Inject our dialogue into MCA's dialogue system using reflection
+     * Inject our dialogue into MCA's dialogue system through the bound MCA members
      * This attempts to override MCA's dialogue text before it's displayed
      */
     private static void injectDialogueIntoMCA(Entity villager, String dialogue) {
@@ -93,33 +80,32 @@ public class MCADialogueHandler {
             // Try to find and call the setDialogue or similar method
             
             // Attempt 1: Direct dialogue field
-            try {
-                var field = villager.getClass().getDeclaredField("currentDialogue");
-                field.setAccessible(true);
-                field.set(villager, dialogue);
+            if (MCAIntegration.Members.CURRENT_DIALOGUE.isPresent()) {
+                MCAIntegration.Members.CURRENT_DIALOGUE.invoke(villager, dialogue);
                 LOGGER.debug("Injected dialogue via currentDialogue field");
                 return;
-            } catch (NoSuchFieldException ignored) {}
+            }
             
             // Attempt 2: Dialogue manager
             try {
-                var managerField = villager.getClass().getDeclaredField("dialogueManager");
-                managerField.setAccessible(true);
-                Object manager = managerField.get(villager);
-                
-                Method setMethod = manager.getClass().getMethod("setDialogue", String.class);
-                setMethod.invoke(manager, dialogue);
-                LOGGER.debug("Injected dialogue via dialogueManager");
-                return;
+                Object manager = MCAIntegration.Members.DIALOGUE_MANAGER.invoke(villager);
+                if (manager != null) {
+                    OptionalHandles.Invoker<Object> setDialogue =
+                        MCAIntegration.Members.MANAGER_SET_DIALOGUE.get(manager.getClass());
+                    if (setDialogue.isPresent()) {
+                        setDialogue.invoke(manager, dialogue);
+                        LOGGER.debug("Injected dialogue via dialogueManager");
+                        return;
+                    }
+                }
             } catch (Exception ignored) {}
             
             // Attempt 3: Set via method
-            try {
-                Method setDialogueMethod = villager.getClass().getMethod("setDialogue", String.class);
-                setDialogueMethod.invoke(villager, dialogue);
+            if (MCAIntegration.Members.SET_DIALOGUE.isPresent()) {
+                MCAIntegration.Members.SET_DIALOGUE.invoke(villager, dialogue);
                 LOGGER.debug("Injected dialogue via setDialogue method");
                 return;
-            } catch (NoSuchMethodException ignored) {}
+            }
             
             LOGGER.debug("Could not inject dialogue - MCA API may have changed");
             
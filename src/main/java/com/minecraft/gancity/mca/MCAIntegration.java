@@ -1,6 +1,8 @@
 package com.minecraft.gancity.mca;
 
+import com.minecraft.gancity.compat.OptionalHandles;
 import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.Entity;
 import net.minecraft.world.level.Level;
 
 /**
@@ -10,6 +12,53 @@ public class MCAIntegration {
     
     private static boolean mcaLoaded = false;
     
+    /**
+     * MCA members used by this package, bound once on first use (holder idiom)
+     */
+    static final class Members {
+        static final Class<?> VILLAGER_CLASS = OptionalHandles.findClass("mca.entity.VillagerEntityMCA");
+        static final OptionalHandles.Invoker<Entity> CONSTRUCTOR =
+            OptionalHandles.constructor(VILLAGER_CLASS, Entity.class, Level.class);
+        static final OptionalHandles.Invoker<Object> SET_HOME =
+            OptionalHandles.method(VILLAGER_CLASS, "setHome", Object.class, null, BlockPos.class);
+        static final OptionalHandles.Invoker<Object> GET_VILLAGER_NAME =
+            OptionalHandles.method(VILLAGER_CLASS, "getVillagerName", Object.class, null);
+        static final OptionalHandles.Invoker<Object> GET_PROFESSION =
+            OptionalHandles.method(VILLAGER_CLASS, "getProfession", Object.class, null);
+        static final OptionalHandles.Invoker<Object> SET_DIALOGUE =
+            OptionalHandles.method(VILLAGER_CLASS, "setDialogue", Object.class, null, String.class);
+        static final OptionalHandles.Invoker<Object> CURRENT_DIALOGUE =
+            OptionalHandles.fieldSetter(VILLAGER_CLASS, "currentDialogue");
+        static final OptionalHandles.Invoker<Object> DIALOGUE_MANAGER =
+            OptionalHandles.fieldGetter(VILLAGER_CLASS, "dialogueManager", Object.class);
+
+        // The dialogue manager's type is only known from an instance; bind its setter once per class
+        static final ClassValue<OptionalHandles.Invoker<Object>> MANAGER_SET_DIALOGUE = new ClassValue<>() {
+            @Override
+            protected OptionalHandles.Invoker<Object> computeValue(Class<?> type) {
+                return OptionalHandles.method(type, "setDialogue", Object.class, null, String.class);
+            }
+        };
+
+        static {
+            OptionalHandles.Invoker<?>[] optional = {CONSTRUCTOR, SET_HOME, GET_VILLAGER_NAME, GET_PROFESSION,
+                SET_DIALOGUE, CURRENT_DIALOGUE, DIALOGUE_MANAGER};
+            int bound = 0;
+            for (OptionalHandles.Invoker<?> invoker : optional) {
+                bound += invoker.isPresent() ? 1 : 0;
+            }
+            OptionalHandles.reportIntegration("MCA Reborn", VILLAGER_CLASS != null,
+                VILLAGER_CLASS != null ? bound + "/" + optional.length + " members bound" : "villager class not found");
+        }
+
+        private Members() {
+        }
+
+        static boolean isVillager(Entity entity) {
+            return VILLAGER_CLASS != null && VILLAGER_CLASS.isInstance(entity);
+        }
+    }
+    
     /**
      * Check if MCA Reborn is loaded
      */
@@ -22,6 +71,9 @@ public class MCAIntegration {
      */
     public static void setMCALoaded(boolean loaded) {
         mcaLoaded = loaded;
+        if (!loaded) {
+            OptionalHandles.reportIntegration("MCA Reborn", false, "mod not loaded");
+        }
     }
     
     /**
@@ -37,7 +89,7 @@ public class MCAIntegration {
         BlockPos spawnPos = findSpawnPosition(level, buildingPos, buildingSize);
         
         if (spawnPos != null) {
-            // Spawn MCA villager using reflection to avoid hard dependency
+            // Spawn MCA villager through bound handles to avoid hard dependency
             try {
                 spawnMCAVillager(level, spawnPos, buildingPos);
             } catch (Exception e) {
@@ -72,39 +124,27 @@ public class MCAIntegration {
     }
     
     /**
-     * Spawn an MCA villager using reflection
+     * Spawn an MCA villager through the bound MCA members
      */
     private static void spawnMCAVillager(Level level, BlockPos spawnPos, BlockPos homePos) throws Exception {
-        // Use reflection to avoid hard dependency on MCA
-        // This allows the mod to work even if MCA isn't installed
-        
-        try {
-            // Try to get MCA's villager entity class
-            Class<?> villagerEntityClass = Class.forName("mca.entity.VillagerEntityMCA");
-            
-            // Create new villager instance
-            Object villager = villagerEntityClass.getConstructor(Level.class)
-                .newInstance(level);
-            
-            // Set position
-            villagerEntityClass.getMethod("setPos", double.class, double.class, double.class)
-                .invoke(villager, spawnPos.getX() + 0.5, spawnPos.getY(), spawnPos.getZ() + 0.5);
-            
-            // Set home position if MCA supports it
-            try {
-                villagerEntityClass.getMethod("setHome", BlockPos.class)
-                    .invoke(villager, homePos);
-            } catch (NoSuchMethodException e) {
-                // Home setting might use a different method
-            }
-            
-            // Add to world
-            level.addFreshEntity((net.minecraft.world.entity.Entity) villager);
-            
-        } catch (ClassNotFoundException e) {
+        // Handles are absent (not failing) when MCA isn't installed,
+        // so the mod keeps working without it
+        if (!Members.CONSTRUCTOR.isPresent()) {
             // MCA might not be installed or uses different package structure
             throw new Exception("MCA Reborn not found or incompatible version");
         }
+        
+        // Create new villager instance
+        Entity villager = Members.CONSTRUCTOR.invoke(level);
+        
+        // Set position
+        villager.setPos(spawnPos.getX() + 0.5, spawnPos.getY(), spawnPos.getZ() + 0.5);
+        
+        // Set home position if MCA supports it (no-op when the method is absent)
+        Members.SET_HOME.invoke(villager, homePos);
+        
+        // Add to world
+        level.addFreshEntity(villager);
     }
     
     /**
@@ -216,8 +216,7 @@ public class VillagerChatHandler {
             
             // Get profession if available
             try {
-                var professionMethod = villager.getClass().getMethod("getProfession");
-                Object profession = professionMethod.invoke(villager);
+                Object profession = MCAIntegration.Members.GET_PROFESSION.invoke(villager);
                 if (profession != null) {
                     context.profession = profession.toString();
                 }
@@ -262,24 +261,18 @@ public class VillagerChatHandler {
     }
     
     /**
-     * Check if entity is MCA villager using reflection
+     * Check if entity is MCA villager
      */
     private static boolean isMCAVillager(Entity entity) {
-        try {
-            Class<?> mcaVillagerClass = Class.forName("mca.entity.VillagerEntityMCA");
-            return mcaVillagerClass.isInstance(entity);
-        } catch (ClassNotFoundException e) {
-            return false;
-        }
+        return MCAIntegration.Members.isVillager(entity);
     }
     
     /**
-     * Get villager name via reflection
+     * Get villager name from MCA
      */
     private static String getVillagerName(Entity villager) {
         try {
-            var method = villager.getClass().getMethod("getVillagerName");
-            Object name = method.invoke(villager);
+            Object name = MCAIntegration.Members.GET_VILLAGER_NAME.invoke(villager);
             return name != null ? name.toString() : "Villager";
         } catch (Exception e) {
             return "Villager";
@@ -0,0 +1,31 @@
+package com.minecraft.gancity.mixin;
+
+import com.minecraft.gancity.ai.LineOfSightCache;
+import com.minecraft.gancity.ai.TargetFlowFieldManager;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Invalidates shared flow fields and cached line-of-sight results when a block they cover changes.
+ */
+@Mixin(Level.class)
+public abstract class LevelBlockChangeMixin {
+
+    @Inject(
+        method = "setBlock(Lnet/minecraft/core/BlockPos;Lnet/minecraft/world/level/block/state/BlockState;II)Z",
+        at = @At("RETURN"),
+        require = 0
+    )
+    private void adaptivemobai$onBlockChanged(BlockPos pos, BlockState state, int flags, int maxUpdateDepth,
+                                              CallbackInfoReturnable<Boolean> cir) {
+        if (cir.getReturnValueZ()) {
+            TargetFlowFieldManager.onBlockChanged((Level) (Object) this, pos);
+            LineOfSightCache.onBlockChanged((Level) (Object) this, pos);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.minecraft.gancity.mixin;
 
 import com.minecraft.gancity.GANCityMod;
+import com.minecraft.gancity.ai.EpisodeSampleRate;
 import com.minecraft.gancity.ai.GenericRangedWeaponGoal;
+import com.minecraft.gancity.ai.ReflexModule;
+import com.minecraft.gancity.ai.SwarmPlanner;
+import com.minecraft.gancity.ai.TacticMovementExecutor;
 import com.minecraft.gancity.compat.InfectionHiveMindGoal;
 import com.minecraft.gancity.config.PerMobAiDefaultsStore;
 import com.minecraft.gancity.event.MobTierAssignmentHandler;
@@ -13,6 +17,8 @@ import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.Mob;
 import net.minecraft.world.entity.ai.goal.Goal;
 import net.minecraft.world.entity.monster.*;
+import net.minecraft.world.entity.projectile.Projectile;
+import net.minecraft.world.phys.Vec3;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
@@ -42,12 +48,15 @@ public abstract class MobAIEnhancementMixin {
     // Reflection helpers to avoid importing MobBehaviorAI (which imports ml.* which imports DJL)
     private static Class<?> mobStateClass = null;
     private static java.lang.reflect.Constructor<?> mobStateConstructor = null;
+    private static java.lang.reflect.Method recordTacticalSampleMethod = null;
     
     private static void initReflection() {
         if (mobStateClass == null) {
             try {
                 mobStateClass = Class.forName("com.minecraft.gancity.ai.MobBehaviorAI$MobState");
                 mobStateConstructor = mobStateClass.getConstructor(float.class, float.class, float.class);
+                recordTacticalSampleMethod = Class.forName("com.minecraft.gancity.ai.MobBehaviorAI").getMethod(
+                    "recordTacticalSample", String.class, Mob.class, net.minecraft.world.entity.player.Player.class, float.class);
             } catch (Exception e) {
                 System.err.println("Failed to initialize MobBehaviorAI reflection: " + e);
             }
@@ -222,6 +231,7 @@ public abstract class MobAIEnhancementMixin {
      */
     private static class AIEnhancedMeleeGoal extends Goal {
         private final Mob mob;
+        private final TacticMovementExecutor movement;  // Path reuse + repath hysteresis
         private final double speedModifier;
         private final boolean followingTargetEvenIfNotSeen;
         private final boolean enableEnvironmentalTactics;  // Block breaking, pillaring, etc.
@@ -231,6 +241,7 @@ public abstract class MobAIEnhancementMixin {
         private int ticksUntilNextAIUpdate;  // CRITICAL: Throttle AI decisions
         private String currentAction = "straight_charge";
         private final Object behaviorAI;  // MobBehaviorAI instance (use Object to avoid import)
+        private ReflexModule reflexModule;  // Resolved once per engagement in start(); null if dodging is off or ML is not up
         private final String mobId;  // Unique ID for this mob instance
         private String persistentProfile = null;  // Villager's permanent tactical profile (MCA or vanilla)
         private float initialMobHealth;
@@ -242,6 +253,7 @@ public abstract class MobAIEnhancementMixin {
         public AIEnhancedMeleeGoal(Mob mob, double speedModifier, boolean followEvenIfNotSeen, 
                                    boolean enableEnvironmental, boolean isVillager) {
             this.mob = mob;
+            this.movement = new TacticMovementExecutor(mob);
             this.speedModifier = speedModifier;
             this.followingTargetEvenIfNotSeen = followEvenIfNotSeen;
             this.enableEnvironmentalTactics = enableEnvironmental;
@@ -314,12 +326,14 @@ public abstract class MobAIEnhancementMixin {
         
         @Override
         public void start() {
-            this.mob.getNavigation().moveTo(this.target, this.speedModifier);
+            this.movement.reset();
+            this.movement.moveTo(this.target, this.speedModifier, currentAction);
             this.ticksUntilNextAction = 0;
             this.ticksUntilNextAIUpdate = AI_UPDATE_INTERVAL;
             this.combatTicks = 0;
             this.initialMobHealth = mob.getHealth() / mob.getMaxHealth();
             this.initialTargetHealth = target.getHealth() / target.getMaxHealth();
+            this.reflexModule = GANCityMod.isProjectileDodgingEnabled() ? resolveReflexModule() : null;
             
             if (behaviorAI != null) {
                 try {
@@ -376,7 +390,8 @@ public abstract class MobAIEnhancementMixin {
             }
             
             this.target = null;
-            this.mob.getNavigation().stop();
+            this.movement.stop();
+            this.movement.reset();
             this.combatTicks = 0;
         }
         
@@ -403,16 +418,24 @@ public abstract class MobAIEnhancementMixin {
             
             this.mob.getLookControl().setLookAt(this.target, 30.0F, 30.0F);
             
-            // TACTICAL EPISODE: Sample every 10 ticks (0.5s)
-            if (behaviorAI != null && combatTicks % 10 == 0 && target instanceof net.minecraft.world.entity.player.Player) {
+            // SWARM: join the target's group plan (roles and encirclement slots, replanned every 10 ticks)
+            if (target instanceof net.minecraft.world.entity.player.Player player) {
+                SwarmPlanner.register(mob, player);
+            }
+            
+            // TACTICAL EPISODE: Sample at the shared, adaptive episode rate (default every 10 ticks)
+            if (behaviorAI != null && recordTacticalSampleMethod != null && EpisodeSampleRate.isDue(combatTicks)
+                && target instanceof net.minecraft.world.entity.player.Player) {
                 try {
-                    java.lang.reflect.Method recordSampleMethod = behaviorAI.getClass().getMethod("recordTacticalSample", String.class, Mob.class, net.minecraft.world.entity.player.Player.class, int.class);
-                    recordSampleMethod.invoke(behaviorAI, mobId, mob, (net.minecraft.world.entity.player.Player) target, 0);
+                    recordTacticalSampleMethod.invoke(behaviorAI, mobId, mob, (net.minecraft.world.entity.player.Player) target, 0.0f);
                 } catch (Exception e) {
                     // Silently fail
                 }
             }
             
+            // REFLEX: sidestep projectiles on a collision course (opt-in, enableProjectileDodging)
+            tryDodgeProjectile();
+            
             // CRITICAL: Throttle AI updates to every AI_UPDATE_INTERVAL ticks
             if (--this.ticksUntilNextAIUpdate <= 0) {
                 // Re-evaluate action periodically
@@ -428,6 +451,33 @@ public abstract class MobAIEnhancementMixin {
             executeAction();
         }
         
+        private ReflexModule resolveReflexModule() {
+            if (behaviorAI == null) {
+                return null;
+            }
+            try {
+                Object module = behaviorAI.getClass().getMethod("getReflexModule").invoke(behaviorAI);
+                return module instanceof ReflexModule reflex ? reflex : null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        
+        private void tryDodgeProjectile() {
+            if (reflexModule == null || !mob.onGround()) {
+                return;
+            }
+            try {
+                Projectile threat = reflexModule.findDodge(mob);
+                if (threat != null) {
+                    Vec3 dodge = reflexModule.getDodgeDirection(mob, threat);
+                    mob.setDeltaMovement(mob.getDeltaMovement().add(dodge.x * 0.4, dodge.y, dodge.z * 0.4));
+                }
+            } catch (Exception e) {
+                // Reflexes are cosmetic; never break the goal
+            }
+        }
+        
         /**
          * Record combat outcome for ML learning
          */
@@ -573,7 +623,7 @@ public abstract class MobAIEnhancementMixin {
             switch (currentAction) {
                 case "straight_charge":
                     // Direct charge at target
-                    mob.getNavigation().moveTo(target, baseSpeed * 1.2);
+                    movement.moveTo(target, baseSpeed * 1.2, currentAction);
                     break;
                     
                 case "circle_strafe":
@@ -591,16 +641,16 @@ public abstract class MobAIEnhancementMixin {
                 case "ambush":
                     // Wait for player to get closer
                     if (distance > 5.0) {
-                        mob.getNavigation().stop();
+                        movement.stop();
                     } else {
-                        mob.getNavigation().moveTo(target, baseSpeed * 1.5);
+                        movement.moveTo(target, baseSpeed * 1.5, currentAction);
                     }
                     break;
                     
                 case "group_rush":
                 case "suicide_rush":
                     // Aggressive charge
-                    mob.getNavigation().moveTo(target, baseSpeed * 1.3);
+                    movement.moveTo(target, baseSpeed * 1.3, currentAction);
                     break;
                     
                 case "retreat_reload":
@@ -618,7 +668,7 @@ public abstract class MobAIEnhancementMixin {
                         // Break blocks between mob and target
                         breakBlocksToTarget();
                     }
-                    mob.getNavigation().moveTo(target, baseSpeed);
+                    movement.moveTo(target, baseSpeed, currentAction);
                     break;
                     
                 case "pillar_up":
@@ -628,7 +678,7 @@ public abstract class MobAIEnhancementMixin {
                             pillarUpEscape();
                         }
                     }
-                    mob.getNavigation().moveTo(target, baseSpeed);
+                    movement.moveTo(target, baseSpeed, currentAction);
                     break;
                     
                 case "use_terrain":
@@ -639,7 +689,7 @@ public abstract class MobAIEnhancementMixin {
                             climbToAdvantage();
                         }
                     }
-                    mob.getNavigation().moveTo(target, baseSpeed * 1.1);
+                    movement.moveTo(target, baseSpeed * 1.1, currentAction);
                     break;
                     
                 case "block_path":
@@ -649,12 +699,16 @@ public abstract class MobAIEnhancementMixin {
                             blockPlayerPath();
                         }
                     }
-                    mob.getNavigation().moveTo(target, baseSpeed);
+                    movement.moveTo(target, baseSpeed, currentAction);
                     break;
                     
                 default:
-                    // Default behavior
-                    mob.getNavigation().moveTo(target, baseSpeed);
+                    // Default behavior (swarm flankers approach through their encirclement slot)
+                    if (!Double.isNaN(SwarmPlanner.getSlotAngle(mob))) {
+                        circleAroundTarget(baseSpeed);
+                    } else {
+                        movement.moveTo(target, baseSpeed, currentAction);
+                    }
                     break;
             }
             
@@ -670,14 +724,29 @@ public abstract class MobAIEnhancementMixin {
         private void circleAroundTarget(double speed) {
             if (target == null) return;
             
+            double distance = 4.0; // Desired distance
+            double slotAngle = SwarmPlanner.getSlotAngle(mob);
+            if (!Double.isNaN(slotAngle)) {
+                // Swarm flanker: hold the assigned encirclement slot, close in once there
+                double slotX = target.getX() + Math.cos(slotAngle) * distance;
+                double slotZ = target.getZ() + Math.sin(slotAngle) * distance;
+                double dx = mob.getX() - slotX;
+                double dz = mob.getZ() - slotZ;
+                if (dx * dx + dz * dz < 2.25) {
+                    movement.moveTo(target, speed * 1.2, currentAction);
+                } else {
+                    movement.moveTo(slotX, target.getY(), slotZ, speed * 1.1, currentAction);
+                }
+                return;
+            }
+            
             double angle = Math.atan2(mob.getZ() - target.getZ(), mob.getX() - target.getX());
             double circleAngle = angle + Math.PI / 4; // 45 degree offset
             
-            double distance = 4.0; // Desired distance
             double targetX = target.getX() + Math.cos(circleAngle) * distance;
             double targetZ = target.getZ() + Math.sin(circleAngle) * distance;
             
-            mob.getNavigation().moveTo(targetX, target.getY(), targetZ, speed);
+            movement.moveTo(targetX, target.getY(), targetZ, speed, currentAction);
         }
         
         /**
@@ -692,7 +761,7 @@ public abstract class MobAIEnhancementMixin {
             double targetX = mob.getX() - Math.cos(angle) * distance;
             double targetZ = mob.getZ() - Math.sin(angle) * distance;
             
-            mob.getNavigation().moveTo(targetX, mob.getY(), targetZ, speed);
+            movement.moveTo(targetX, mob.getY(), targetZ, speed, currentAction);
         }
         
         // === ENVIRONMENTAL INTERACTION METHODS (Mob Control inspired) ===
@@ -762,7 +831,7 @@ public abstract class MobAIEnhancementMixin {
             
             // Find higher ground near target
             net.minecraft.core.BlockPos targetPos = target.blockPosition().above(3);
-            mob.getNavigation().moveTo(targetPos.getX(), targetPos.getY(), targetPos.getZ(), speedModifier * 1.2);
+            movement.moveTo(targetPos.getX(), targetPos.getY(), targetPos.getZ(), speedModifier * 1.2, currentAction);
         }
         
         /**
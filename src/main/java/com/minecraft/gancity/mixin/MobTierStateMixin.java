@@ -0,0 +1,59 @@
+package com.minecraft.gancity.mixin;
+
+import com.minecraft.gancity.ai.TacticTier;
+import com.minecraft.gancity.event.MobTierAssignmentHandler;
+import com.minecraft.gancity.util.MobTierHolder;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.entity.Mob;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Holds the mob's tactic tier as a typed field.
+ *
+ * The tier is resolved lazily from persistent data (so older saves keep working) and the
+ * F3-visible NBT tags are written only as a debug mirror when the mob is saved, instead of
+ * round-tripping the whole entity through NBT on first tick.
+ */
+@Mixin(Mob.class)
+public abstract class MobTierStateMixin implements MobTierHolder {
+
+    @Unique
+    private TacticTier adaptivemobai$tier;
+
+    @Unique
+    private boolean adaptivemobai$tierResolved;
+
+    @Override
+    public TacticTier adaptivemobai$getTier() {
+        if (!this.adaptivemobai$tierResolved) {
+            this.adaptivemobai$tier = MobTierAssignmentHandler.readPersistedTier((Mob) (Object) this);
+            this.adaptivemobai$tierResolved = true;
+        }
+        return this.adaptivemobai$tier;
+    }
+
+    @Override
+    public void adaptivemobai$setTier(TacticTier tier) {
+        this.adaptivemobai$tier = tier;
+        this.adaptivemobai$tierResolved = true;
+    }
+
+    @Inject(method = "readAdditionalSaveData", at = @At("TAIL"), require = 0)
+    private void adaptivemobai$invalidateTier(CompoundTag nbt, CallbackInfo ci) {
+        // Persistent data was just (re)loaded; re-resolve on next access.
+        this.adaptivemobai$tierResolved = false;
+    }
+
+    @Inject(method = "addAdditionalSaveData", at = @At("TAIL"), require = 0)
+    private void adaptivemobai$writeTierDebugMirror(CompoundTag nbt, CallbackInfo ci) {
+        try {
+            MobTierAssignmentHandler.writeDebugTierMirror((Mob) (Object) this, nbt);
+        } catch (Throwable ignored) {
+            // Never break saving for a debug mirror.
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.minecraft.gancity.mixin;
+
+import com.minecraft.gancity.ai.LineOfSightCache;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.sensing.Sensing;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+/**
+ * Lets vanilla {@link Sensing} share raycasts with the mod's AI via {@link LineOfSightCache}.
+ * Sensing keeps its own per-mob seen/unseen sets; only its cache misses reach the shared cache.
+ */
+@Mixin(Sensing.class)
+public abstract class SensingLineOfSightMixin {
+
+    @Redirect(
+        method = "hasLineOfSight",
+        at = @At(
+            value = "INVOKE",
+            target = "Lnet/minecraft/world/entity/Mob;hasLineOfSight(Lnet/minecraft/world/entity/Entity;)Z"
+        ),
+        require = 0
+    )
+    private boolean adaptivemobai$cachedLineOfSight(Mob mob, Entity target) {
+        return LineOfSightCache.hasLineOfSight(mob, target);
+    }
+}
@@ -12,7 +12,7 @@ import java.util.*;
 public class CurriculumLearning {
     private static final Logger LOGGER = LogUtils.getLogger();
     
-    private Stage currentStage = Stage.BASIC;
+    private volatile Stage currentStage = Stage.BASIC;  // Advanced on the learning pipeline thread, read by action selection
     private int stageProgress = 0;
     private static final int STAGE_THRESHOLD = 200;  // Experiences per stage
     
@@ -1,10 +1,15 @@
 package com.minecraft.gancity.ml;
 
 import ai.djl.Model;
+import ai.djl.ndarray.types.DataType;
 import ai.djl.nn.Block;
+import ai.djl.nn.Parameter;
+import ai.djl.nn.ParameterList;
 import ai.djl.nn.SequentialBlock;
 import ai.djl.nn.core.Linear;
 import ai.djl.training.DefaultTrainingConfig;
+import ai.djl.training.GradientCollector;
+import ai.djl.training.ParameterStore;
 import ai.djl.training.Trainer;
 import ai.djl.training.loss.Loss;
 import ai.djl.training.optimizer.Optimizer;
@@ -13,37 +18,76 @@ import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.types.Shape;
+import com.minecraft.gancity.compat.OptionalHandles;
 import com.mojang.logging.LogUtils;
 import org.slf4j.Logger;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Double DQN implementation - separate policy and target networks
  * Reduces overestimation bias and improves learning stability
+ * 
+ * Multi-head: a shared trunk feeds one output head per behavior profile, each sized to that
+ * profile's action registry ({@link QHeadLayout}). The heads form one output layer, so a batch
+ * mixing mob types runs in a single forward pass and each row reads (or trains) only its own
+ * head's columns.
+ * 
+ * Training ({@link #trainBatch}) is meant for a single background trainer thread and holds this
+ * instance's monitor. Prediction never does: after every optimizer step (and on load) the trainer
+ * publishes an immutable {@link FloatMLP} copy of the policy weights through a volatile field,
+ * and game-thread forward passes read only that copy, so they never wait out a gradient step.
  */
 public class DoubleDQN {
     private static final Logger LOGGER = LogUtils.getLogger();
     
-    private static final int INPUT_SIZE = 10;
+    private static final int INPUT_SIZE = 22;   // MobBehaviorAI.combineFeatures: state(10) + visual(9) + genome(3)
     private static final int HIDDEN_SIZE = 64;
-    private static final int OUTPUT_SIZE = 10;
     private static final float LEARNING_RATE = 0.001f;
+    private static final float DISCOUNT_FACTOR = 0.99f;
+    private static final float MASKED_Q = -1.0e9f;  // Added to other heads' columns before argmax
+    private static final String HEAD_LAYOUT_PROPERTY = "qHeads";
     
+    private final QHeadLayout heads;
     private Model policyNetwork;
     private Model targetNetwork;
     private NDManager manager;
     private Trainer trainer;
     private int updateCounter = 0;
     private static final int TARGET_UPDATE_FREQUENCY = 100;
-    private boolean initialized = false;
+    // 0 (or >= 1) = hard copy every TARGET_UPDATE_FREQUENCY steps; otherwise Polyak averaging every step
+    private volatile float targetUpdateTau = 0.0f;
+    private volatile int trainingThreads = 0;      // 0 = engine default
+    private int appliedTrainingThreads = 0;        // Trainer thread only
+    private volatile boolean initialized = false;
+    private volatile FloatMLP inference;  // Policy weights as of the last published step
+    private volatile boolean closed = false;  // Set by close(); predictions and training become no-ops
     
-    public DoubleDQN() {
+    public DoubleDQN(QHeadLayout heads) {
+        this.heads = heads;
         // Lazy initialization - only create when first needed
     }
     
+    /**
+     * DJL PyTorch engine thread-pool control, bound once
+     */
+    private static final class PT {
+        static final String NUM_THREADS_PROPERTY = "ai.djl.pytorch.num_threads";
+        static final String NUM_INTEROP_THREADS_PROPERTY = "ai.djl.pytorch.num_interop_threads";
+        static final OptionalHandles.Invoker<Object> SET_NUM_THREADS =
+            OptionalHandles.method("ai.djl.pytorch.jni.JniUtils", "setNumThreads", Object.class, null, int.class);
+
+        private PT() {
+        }
+    }
+    
+    public QHeadLayout getHeads() {
+        return heads;
+    }
+    
     private void ensureInitialized() {
         if (!initialized) {
             synchronized (this) {
@@ -66,6 +110,7 @@ public class DoubleDQN {
         targetNetwork = Model.newInstance("target-network");
         Block targetBlock = buildNetwork();
         targetNetwork.setBlock(targetBlock);
+        targetBlock.initialize(manager, DataType.FLOAT32, new Shape(1, INPUT_SIZE));
         
         // Initialize trainer on policy network
         DefaultTrainingConfig config = new DefaultTrainingConfig(Loss.l2Loss())
@@ -76,8 +121,10 @@ public class DoubleDQN {
         
         // Copy initial weights to target network
         syncTargetNetwork();
+        publishInference();
         
-        LOGGER.info("Double DQN initialized with separate policy and target networks");
+        LOGGER.info("Double DQN initialized with separate policy and target networks ({} heads, {} outputs, {} parameters)",
+            heads.getHeadCount(), heads.getTotalWidth(), getParameterCount());
     }
     
     private Block buildNetwork() {
@@ -86,26 +133,131 @@ public class DoubleDQN {
             .add(ai.djl.nn.Activation::relu)
             .add(Linear.builder().setUnits(HIDDEN_SIZE).build())
             .add(ai.djl.nn.Activation::relu)
-            .add(Linear.builder().setUnits(OUTPUT_SIZE).build());
+            .add(Linear.builder().setUnits(heads.getTotalWidth()).build());  // All heads side by side
+    }
+    
+    /**
+     * The published inference copy, creating the networks on first use. Never waits for a
+     * training step once initialized.
+     * @return null once closed
+     */
+    private FloatMLP inference() {
+        if (closed) {
+            return null;
+        }
+        FloatMLP snapshot = inference;
+        if (snapshot == null) {
+            ensureInitialized();
+            snapshot = inference;
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Copy the current policy weights for lock-free prediction. Caller holds the monitor.
+     */
+    private void publishInference() {
+        inference = FloatMLP.fromParameters(getPolicyLayerSizes(), policyLayers());
+    }
+    
+    /**
+     * Predict Q-values with the published policy weights (the full row, every head)
+     * @return the row, or empty once closed or for a short state
+     */
+    public float[] predictQValues(float[] state) {
+        FloatMLP snapshot = inference();
+        if (snapshot == null || state.length < INPUT_SIZE) {
+            return new float[0];
+        }
+        return snapshot.predict(state);
+    }
+    
+    /**
+     * Q-values for many states with the published policy weights
+     * @param states row-major count x INPUT_SIZE
+     * @return row-major count x total head width
+     */
+    public float[] predictQValuesBatch(float[] states, int count) {
+        FloatMLP snapshot = count > 0 ? inference() : null;
+        if (snapshot == null || states.length < count * INPUT_SIZE) {
+            return new float[0];
+        }
+        float[] out = new float[count * snapshot.getOutputSize()];
+        snapshot.predictBatch(states, count, out);
+        return out;
+    }
+    
+    /**
+     * Mixed-type batch: one policy-network pass, then each row keeps only its own head.
+     * @param states row-major count x INPUT_SIZE
+     * @param rowHeads head id per row
+     * @return per row, that head's Q-values in profile action order (empty for an unknown head,
+     *         or for every row once the network is closed)
+     */
+    public float[][] predictHeadQValues(float[] states, int[] rowHeads, int count) {
+        float[] full = predictQValuesBatch(states, count);
+        int width = heads.getTotalWidth();
+        float[][] out = new float[count][];
+        for (int i = 0; i < count; i++) {
+            int head = rowHeads[i];
+            out[i] = head >= 0 && head < heads.getHeadCount() && full.length > 0
+                ? Arrays.copyOfRange(full, i * width + heads.offset(head), i * width + heads.offset(head) + heads.width(head))
+                : new float[0];
+        }
+        return out;
+    }
+    
+    /**
+     * Policy network layer widths: input, hidden, hidden, output (all heads)
+     */
+    public int[] getPolicyLayerSizes() {
+        return new int[] {INPUT_SIZE, HIDDEN_SIZE, HIDDEN_SIZE, heads.getTotalWidth()};
+    }
+    
+    /**
+     * Parameters in one network (policy or target): shared trunk plus every head
+     */
+    public long getParameterCount() {
+        return trunkParameters() + (long) (HIDDEN_SIZE + 1) * heads.getTotalWidth();
+    }
+    
+    /**
+     * Parameters the same heads would need as separate per-type networks (trunk repeated per head)
+     */
+    public long getSeparateNetworksParameterCount() {
+        return trunkParameters() * heads.getHeadCount() + (long) (HIDDEN_SIZE + 1) * heads.getTotalWidth();
+    }
+    
+    private static long trunkParameters() {
+        return (long) (INPUT_SIZE + 1) * HIDDEN_SIZE + (long) (HIDDEN_SIZE + 1) * HIDDEN_SIZE;
     }
     
     /**
-     * Predict Q-values using policy network
+     * Snapshot of the policy network's Linear layers as float arrays, for post-training
+     * quantization: {@code [w0, b0, w1, b1, w2, b2]}, weights row-major (out x in).
      */
-    public NDArray predictQValues(NDManager localManager, float[] state) {
+    public synchronized float[][] exportPolicyLayers() {
         ensureInitialized();
-        NDArray stateArray = localManager.create(state).reshape(1, INPUT_SIZE);
-        return policyNetwork.getBlock().forward(
-            new ai.djl.training.ParameterStore(localManager, false),
-            new NDList(stateArray),
-            false
-        ).singletonOrThrow();
+        return policyLayers();
+    }
+    
+    private float[][] policyLayers() {
+        ParameterList params = policyNetwork.getBlock().getParameters();
+        float[][] layers = new float[params.size()][];
+        for (int i = 0; i < params.size(); i++) {
+            layers[i] = params.valueAt(i).getArray().toFloatArray();
+        }
+        return layers;
     }
     
     /**
-     * Get target Q-values using target network
+     * Get target Q-values using target network. Training side: holds the trainer's monitor, so
+     * game threads use {@link #predictQValues} instead.
      */
-    public NDArray getTargetQValues(NDManager localManager, float[] state) {
+    public synchronized NDArray getTargetQValues(NDManager localManager, float[] state) {
+        if (closed) {
+            return localManager.create(new float[0]);
+        }
         ensureInitialized();
         NDArray stateArray = localManager.create(state).reshape(1, INPUT_SIZE);
         return targetNetwork.getBlock().forward(
@@ -120,29 +272,82 @@ public class DoubleDQN {
      */
     public void updateStep() {
         updateCounter++;
-        if (updateCounter % TARGET_UPDATE_FREQUENCY == 0) {
+        float tau = targetUpdateTau;
+        if (tau > 0.0f && tau < 1.0f) {
+            softUpdateTargetNetwork(tau);
+        } else if (updateCounter % TARGET_UPDATE_FREQUENCY == 0) {
             syncTargetNetwork();
             LOGGER.debug("Target network synced at step {}", updateCounter);
         }
     }
     
-    private void syncTargetNetwork() {
+    /**
+     * Soft target updates: target = tau * policy + (1 - tau) * target after every step.
+     * 0 (default) keeps the hard copy every TARGET_UPDATE_FREQUENCY steps.
+     */
+    public void setTargetUpdateTau(float tau) {
+        this.targetUpdateTau = Math.max(0.0f, Math.min(1.0f, tau));
+    }
+    
+    /**
+     * Cap the CPU threads a training step's tensor kernels may use, so off-peak training can
+     * spread over idle cores while peak hours stay safe. 0 = engine default (all cores).
+     * 
+     * Before the engine loads this also fixes PyTorch's intra-op and inter-op pool sizes via
+     * their DJL system properties. After that, the intra-op cap is re-applied on the trainer
+     * thread before its next step. The inter-op pool cannot be resized once it exists.
+     */
+    public void setTrainingThreads(int threads) {
+        int capped = Math.max(0, Math.min(64, threads));
+        if (capped > 0 && !initialized) {
+            System.setProperty(PT.NUM_THREADS_PROPERTY, Integer.toString(capped));
+            System.setProperty(PT.NUM_INTEROP_THREADS_PROPERTY, Integer.toString(capped));
+        }
+        this.trainingThreads = capped;
+    }
+    
+    /**
+     * Apply a changed thread cap on the calling (trainer) thread: PyTorch's intra-op setting
+     * follows OpenMP and binds the thread that sets it.
+     */
+    private void applyTrainingThreads() {
+        int threads = trainingThreads;
+        if (threads == appliedTrainingThreads || threads <= 0) {
+            return;
+        }
+        appliedTrainingThreads = threads;
         try {
-            // Copy policy network weights to target network
-            Path tempPath = Files.createTempDirectory("ddqn");
-            policyNetwork.save(tempPath, "policy");
-            targetNetwork.load(tempPath, "policy");
-            Files.walk(tempPath)
-                .sorted((a, b) -> -a.compareTo(b))
-                .forEach(path -> {
-                    try {
-                        Files.deleteIfExists(path);
-                    } catch (IOException e) {
-                        // Ignore
-                    }
-                });
-        } catch (IOException | ai.djl.MalformedModelException e) {
-            LOGGER.error("Failed to sync target network", e);
+            PT.SET_NUM_THREADS.invoke(threads);
+        } catch (Exception e) {
+            LOGGER.debug("Could not cap training threads at {}: {}", threads, e.getMessage());
+        }
+    }
+    
+    /**
+     * Hard copy of policy weights into the target network (in memory, no file I/O)
+     */
+    private void syncTargetNetwork() {
+        ParameterList policyParams = policyNetwork.getBlock().getParameters();
+        ParameterList targetParams = targetNetwork.getBlock().getParameters();
+        for (int i = 0; i < policyParams.size(); i++) {
+            NDArray source = policyParams.valueAt(i).getArray();
+            Parameter target = targetParams.valueAt(i);
+            source.copyTo(target.getArray());
+        }
+    }
+    
+    /**
+     * Polyak averaging of policy weights into the target network
+     */
+    private void softUpdateTargetNetwork(float tau) {
+        ParameterList policyParams = policyNetwork.getBlock().getParameters();
+        ParameterList targetParams = targetNetwork.getBlock().getParameters();
+        for (int i = 0; i < policyParams.size(); i++) {
+            NDArray source = policyParams.valueAt(i).getArray();
+            NDArray target = targetParams.valueAt(i).getArray();
+            try (NDArray scaled = source.mul(tau)) {
+                target.muli(1.0f - tau).addi(scaled);
+            }
         }
     }
     
@@ -155,61 +360,163 @@ public class DoubleDQN {
     }
     
     /**
-     * Select action index based on Q-values (epsilon-greedy)
+     * Train on a batch of experiences (uniform weights)
      */
-    public int selectActionIndex(float[] state) {
-        ensureInitialized();
-        try (NDManager localManager = NDManager.newBaseManager()) {
-            NDArray qValues = predictQValues(localManager, state);
-            return (int) qValues.argMax().getLong();
+    public float[] trainBatch(List<PrioritizedReplayBuffer.Experience> experiences) {
+        return trainBatch(experiences, null);
+    }
+    
+    /**
+     * One batched Double DQN gradient step.
+     * 
+     * States are stacked into a single B x F array; the target network evaluates all next
+     * states in one pass (action chosen by the policy network, valued by the target network),
+     * and the importance-weighted squared TD error is minimised with one optimizer step.
+     * 
+     * @param weights importance-sampling weights from prioritized replay, or null
+     * @return absolute TD errors per experience (for priority updates)
+     */
+    public float[] trainBatch(List<PrioritizedReplayBuffer.Experience> experiences, List<Float> weights) {
+        int batchSize = experiences.size();
+        if (batchSize == 0) {
+            return new float[0];
+        }
+        
+        float[] states = new float[batchSize * INPUT_SIZE];
+        float[] nextStates = new float[batchSize * INPUT_SIZE];
+        int[] actions = new int[batchSize];
+        float[] rewards = new float[batchSize];
+        float[] notDone = new float[batchSize];
+        float[] sampleWeights = new float[batchSize];
+        
+        for (int i = 0; i < batchSize; i++) {
+            PrioritizedReplayBuffer.Experience exp = experiences.get(i);
+            System.arraycopy(exp.state, 0, states, i * INPUT_SIZE, Math.min(INPUT_SIZE, exp.state.length));
+            System.arraycopy(exp.nextState, 0, nextStates, i * INPUT_SIZE, Math.min(INPUT_SIZE, exp.nextState.length));
+            actions[i] = exp.action;
+            rewards[i] = exp.reward;
+            notDone[i] = exp.done ? 0.0f : 1.0f;
+            sampleWeights[i] = weights != null && i < weights.size() ? weights.get(i) : 1.0f;
         }
+        
+        return trainBatch(states, nextStates, actions, rewards, notDone, sampleWeights, batchSize);
     }
     
     /**
-     * Train on a batch of experiences
+     * Batched gradient step on flat row-major arrays (B x INPUT_SIZE), as gathered
+     * directly from the replay ring's columns.
+     * 
+     * Actions are global output columns ({@link QHeadLayout#column}); each row's next-state
+     * argmax is restricted to the head owning its action, so mixed-type batches train every
+     * head in the same pass. Rows whose column is outside the layout get zero weight.
+     * 
+     * @param weights importance-sampling weights, or null for uniform
+     * @return absolute TD errors per row
      */
-    public float[] trainBatch(java.util.List<PrioritizedReplayBuffer.Experience> experiences) {
-        ensureInitialized();
-        if (experiences.isEmpty()) {
+    public synchronized float[] trainBatch(float[] states, float[] nextStates, int[] actions, float[] rewards,
+                                           float[] notDone, float[] weights, int batchSize) {
+        if (closed || batchSize <= 0) {
             return new float[0];
         }
+        ensureInitialized();
+        applyTrainingThreads();
+        if (states.length < batchSize * INPUT_SIZE || nextStates.length < batchSize * INPUT_SIZE) {
+            throw new IllegalArgumentException("State rows must have " + INPUT_SIZE + " features");
+        }
         
-        float[] tdErrors = new float[experiences.size()];
+        int width = heads.getTotalWidth();
+        int[] clampedActions = new int[batchSize];
+        float[] sampleWeights = new float[batchSize];
+        float[] headMask = new float[batchSize * width];
+        for (int i = 0; i < batchSize; i++) {
+            int head = heads.headOfColumn(actions[i]);
+            clampedActions[i] = head >= 0 ? actions[i] : 0;
+            sampleWeights[i] = head < 0 ? 0.0f : weights != null ? weights[i] : 1.0f;
+            
+            int from = head >= 0 ? heads.offset(head) : 0;
+            int to = head >= 0 ? from + heads.width(head) : width;
+            Arrays.fill(headMask, i * width, i * width + from, MASKED_Q);
+            Arrays.fill(headMask, i * width + to, (i + 1) * width, MASKED_Q);
+        }
         
-        try (NDManager localManager = NDManager.newBaseManager()) {
-            for (int i = 0; i < experiences.size(); i++) {
-                PrioritizedReplayBuffer.Experience exp = experiences.get(i);
-                
-                // Compute target Q-value
-                NDArray currentQ = predictQValues(localManager, exp.state);
-                NDArray nextQ = getTargetQValues(localManager, exp.nextState);
-                
-                float target = exp.reward;
-                if (!exp.done) {
-                    target += 0.99f * nextQ.max().getFloat();
-                }
-                
-                // TD error for prioritization
-                float currentQValue = currentQ.getFloat(exp.action);
-                tdErrors[i] = Math.abs(target - currentQValue);
+        try (NDManager batchManager = manager.newSubManager()) {
+            Shape batchShape = new Shape(batchSize, INPUT_SIZE);
+            NDArray stateBatch = batchManager.create(rows(states, batchSize), batchShape);
+            NDArray nextStateBatch = batchManager.create(rows(nextStates, batchSize), batchShape);
+            NDArray actionMask = batchManager.create(clampedActions).oneHot(width);
+            
+            // Targets (no gradient): y = r + gamma * (1 - done) * Q_target(s', argmax_a Q_policy(s', a))
+            ParameterStore inference = new ParameterStore(batchManager, false);
+            NDArray nextPolicyQ = policyNetwork.getBlock()
+                .forward(inference, new NDList(nextStateBatch), false).singletonOrThrow();
+            NDArray nextTargetQ = targetNetwork.getBlock()
+                .forward(inference, new NDList(nextStateBatch), false).singletonOrThrow();
+            NDArray rowHeads = batchManager.create(headMask, new Shape(batchSize, width));
+            NDArray nextActionMask = nextPolicyQ.add(rowHeads).argMax(1).oneHot(width);
+            NDArray nextQ = nextTargetQ.mul(nextActionMask).sum(new int[]{1});
+            NDArray targets = batchManager.create(Arrays.copyOf(rewards, batchSize))
+                .add(nextQ.mul(batchManager.create(Arrays.copyOf(notDone, batchSize))).mul(DISCOUNT_FACTOR));
+            
+            NDArray tdError;
+            try (GradientCollector collector = trainer.newGradientCollector()) {
+                NDArray qValues = trainer.forward(new NDList(stateBatch)).singletonOrThrow();
+                NDArray chosenQ = qValues.mul(actionMask).sum(new int[]{1});
+                tdError = chosenQ.sub(targets);
+                NDArray loss = tdError.square().mul(batchManager.create(sampleWeights)).mean();
+                collector.backward(loss);
             }
+            trainer.step();
+            
+            float[] tdErrors = tdError.abs().toFloatArray();
+            updateStep();
+            publishInference();
+            return tdErrors;
         }
-        
-        updateStep();
-        return tdErrors;
     }
     
-    public void save(Path path) throws IOException {
+    private static float[] rows(float[] flat, int batchSize) {
+        int length = batchSize * INPUT_SIZE;
+        return flat.length == length ? flat : Arrays.copyOf(flat, length);
+    }
+    
+    public synchronized void save(Path path) throws IOException {
+        ensureInitialized();
+        policyNetwork.setProperty(HEAD_LAYOUT_PROPERTY, heads.signature());
         policyNetwork.save(path, "policy");
         targetNetwork.save(path, "target");
     }
     
-    public void load(Path path) throws IOException, ai.djl.MalformedModelException {
+    /**
+     * Load saved weights. Weights saved for a different head layout (profiles added, removed or
+     * resized) are discarded and training starts fresh.
+     */
+    public synchronized void load(Path path) throws IOException, ai.djl.MalformedModelException {
+        ensureInitialized();
         policyNetwork.load(path, "policy");
+        if (!heads.signature().equals(policyNetwork.getProperty(HEAD_LAYOUT_PROPERTY))) {
+            LOGGER.info("Saved Q-network was built for a different head layout, starting fresh");
+            releaseNetworks();
+            initialized = false;
+            ensureInitialized();
+            return;
+        }
         targetNetwork.load(path, "target");
+        publishInference();
     }
     
+    /**
+     * Release the networks. The closed flag is published before waiting for the lock, so game
+     * threads stop predicting instead of queueing behind a batch that is still running; the
+     * NDManager is only closed once no prediction or training step holds it.
+     */
     public void close() {
+        closed = true;
+        synchronized (this) {
+            releaseNetworks();
+        }
+    }
+    
+    private void releaseNetworks() {
         if (trainer != null) trainer.close();
         if (policyNetwork != null) policyNetwork.close();
         if (targetNetwork != null) targetNetwork.close();
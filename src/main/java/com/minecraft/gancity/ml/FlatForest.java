@@ -0,0 +1,375 @@
+package com.minecraft.gancity.ml;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A tree ensemble flattened into primitive arrays for reflection-free, allocation-free inference.
+ *
+ * All trees share one node table: {@code feature[n]} (-1 for a leaf), {@code threshold[n]},
+ * {@code left[n]} / {@code right[n]} child indices and {@code leafValue[n]}. Classification
+ * forests (Smile) vote with each tree's leaf class, as Smile's {@code RandomForest.predict}
+ * does; regression forests (XGBoost) sum leaf values onto a base score.
+ *
+ * Built once per published model by {@link #fromSmile} or {@link #fromXGBoostDump}; the
+ * evaluators are plain loops over the arrays and are safe to call from any thread.
+ */
+public final class FlatForest {
+
+    public enum Kind {
+        CLASSIFICATION,
+        REGRESSION
+    }
+
+    private final Kind kind;
+    private final int numClasses;
+    private final boolean splitInclusive;  // true: x <= t goes left (Smile), false: x < t (XGBoost)
+    private final float baseScore;
+
+    private final int[] roots;
+    private final int[] feature;
+    private final double[] threshold;
+    private final int[] left;
+    private final int[] right;
+    private final float[] leafValue;        // Class index (classification) or leaf weight (regression)
+    private final float[] leafDistribution; // numClasses per node, posterior at leaves (classification only)
+
+    private FlatForest(Kind kind, int numClasses, boolean splitInclusive, float baseScore,
+                       int[] roots, int[] feature, double[] threshold, int[] left, int[] right,
+                       float[] leafValue, float[] leafDistribution) {
+        this.kind = kind;
+        this.numClasses = numClasses;
+        this.splitInclusive = splitInclusive;
+        this.baseScore = baseScore;
+        this.roots = roots;
+        this.feature = feature;
+        this.threshold = threshold;
+        this.left = left;
+        this.right = right;
+        this.leafValue = leafValue;
+        this.leafDistribution = leafDistribution;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    public int getTreeCount() {
+        return roots.length;
+    }
+
+    public int getNodeCount() {
+        return feature.length;
+    }
+
+    /**
+     * Same trees with a different base score (shares the node arrays).
+     */
+    public FlatForest withBaseScore(float score) {
+        return new FlatForest(kind, numClasses, splitInclusive, score, roots, feature, threshold,
+            left, right, leafValue, leafDistribution);
+    }
+
+    /**
+     * Walk one tree to its leaf node index.
+     */
+    private int leafOf(int tree, double[] x) {
+        int node = roots[tree];
+        int f;
+        while ((f = feature[node]) >= 0) {
+            double v = f < x.length ? x[f] : 0.0;
+            boolean goLeft = splitInclusive ? v <= threshold[node] : v < threshold[node];
+            node = goLeft ? left[node] : right[node];
+        }
+        return node;
+    }
+
+    private int leafOf(int tree, float[] x) {
+        int node = roots[tree];
+        int f;
+        while ((f = feature[node]) >= 0) {
+            double v = f < x.length ? x[f] : 0.0;
+            boolean goLeft = splitInclusive ? v <= threshold[node] : v < threshold[node];
+            node = goLeft ? left[node] : right[node];
+        }
+        return node;
+    }
+
+    /**
+     * Majority-vote class (classification forests). {@code votes} is caller scratch of at
+     * least {@link #getNumClasses()} length, so repeated calls allocate nothing.
+     */
+    public int predictClass(double[] x, int[] votes) {
+        Arrays.fill(votes, 0, numClasses, 0);
+        for (int t = 0; t < roots.length; t++) {
+            votes[(int) leafValue[leafOf(t, x)]]++;
+        }
+        int best = 0;
+        for (int c = 1; c < numClasses; c++) {
+            if (votes[c] > votes[best]) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Averaged leaf posteriors (classification forests), written into {@code out}.
+     */
+    public void predictProbabilities(double[] x, double[] out) {
+        Arrays.fill(out, 0, numClasses, 0.0);
+        for (int t = 0; t < roots.length; t++) {
+            int base = leafOf(t, x) * numClasses;
+            for (int c = 0; c < numClasses; c++) {
+                out[c] += leafDistribution[base + c];
+            }
+        }
+        for (int c = 0; c < numClasses; c++) {
+            out[c] /= roots.length;
+        }
+    }
+
+    /**
+     * Raw ensemble score (regression forests): base score plus the sum of leaf weights.
+     */
+    public float predictScore(float[] x) {
+        float sum = baseScore;
+        for (int t = 0; t < roots.length; t++) {
+            sum += leafValue[leafOf(t, x)];
+        }
+        return sum;
+    }
+
+    /**
+     * Batched classification over the first {@code count} {@code rows} (e.g. one per mob).
+     * Trees are the outer loop so each tree's nodes stay hot in cache across the batch.
+     */
+    public void predictClassBatch(double[][] rows, int count, int[] out, int[] votesScratch) {
+        if (votesScratch.length < count * numClasses) {
+            throw new IllegalArgumentException("votes scratch needs count * numClasses entries");
+        }
+        Arrays.fill(votesScratch, 0, count * numClasses, 0);
+        for (int t = 0; t < roots.length; t++) {
+            for (int i = 0; i < count; i++) {
+                votesScratch[i * numClasses + (int) leafValue[leafOf(t, rows[i])]]++;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int base = i * numClasses;
+            int best = 0;
+            for (int c = 1; c < numClasses; c++) {
+                if (votesScratch[base + c] > votesScratch[base + best]) {
+                    best = c;
+                }
+            }
+            out[i] = best;
+        }
+    }
+
+    /**
+     * Batched regression scores.
+     */
+    public void predictScoreBatch(float[][] rows, int count, float[] out) {
+        Arrays.fill(out, 0, count, baseScore);
+        for (int t = 0; t < roots.length; t++) {
+            for (int i = 0; i < count; i++) {
+                out[i] += leafValue[leafOf(t, rows[i])];
+            }
+        }
+    }
+
+    // ==================== Exporters ====================
+
+    /**
+     * Growable node table used while exporting.
+     */
+    private static final class Builder {
+        private final int numClasses;
+        private final List<Integer> roots = new ArrayList<>();
+        private int[] feature = new int[256];
+        private double[] threshold = new double[256];
+        private int[] left = new int[256];
+        private int[] right = new int[256];
+        private float[] leafValue = new float[256];
+        private float[] leafDistribution;
+        private int size = 0;
+
+        private Builder(int numClasses) {
+            this.numClasses = Math.max(1, numClasses);
+            this.leafDistribution = new float[256 * this.numClasses];
+        }
+
+        private int newNode() {
+            if (size == feature.length) {
+                int cap = size * 2;
+                feature = Arrays.copyOf(feature, cap);
+                threshold = Arrays.copyOf(threshold, cap);
+                left = Arrays.copyOf(left, cap);
+                right = Arrays.copyOf(right, cap);
+                leafValue = Arrays.copyOf(leafValue, cap);
+                leafDistribution = Arrays.copyOf(leafDistribution, cap * numClasses);
+            }
+            feature[size] = -1;
+            return size++;
+        }
+
+        private FlatForest build(Kind kind, boolean splitInclusive, float baseScore) {
+            int[] rootArray = new int[roots.size()];
+            for (int i = 0; i < rootArray.length; i++) {
+                rootArray[i] = roots.get(i);
+            }
+            return new FlatForest(kind, numClasses, splitInclusive, baseScore, rootArray,
+                Arrays.copyOf(feature, size), Arrays.copyOf(threshold, size),
+                Arrays.copyOf(left, size), Arrays.copyOf(right, size),
+                Arrays.copyOf(leafValue, size),
+                kind == Kind.CLASSIFICATION ? Arrays.copyOf(leafDistribution, size * numClasses) : new float[0]);
+        }
+    }
+
+    /**
+     * Export a trained {@code smile.classification.RandomForest}.
+     * Reflection is used here once per model, never on the prediction path.
+     *
+     * @throws ReflectiveOperationException if the Smile tree API is not what we expect
+     */
+    public static FlatForest fromSmile(Object randomForest, int numClasses) throws ReflectiveOperationException {
+        Object trees = randomForest.getClass().getMethod("trees").invoke(randomForest);
+        int treeCount = Array.getLength(trees);
+        if (treeCount == 0) {
+            throw new ReflectiveOperationException("Random Forest has no trees");
+        }
+
+        Builder builder = new Builder(numClasses);
+        for (int t = 0; t < treeCount; t++) {
+            Object tree = Array.get(trees, t);
+            Object root = tree.getClass().getMethod("root").invoke(tree);
+            builder.roots.add(exportSmileNode(builder, root));
+        }
+        return builder.build(Kind.CLASSIFICATION, true, 0.0f);
+    }
+
+    private static int exportSmileNode(Builder builder, Object node) throws ReflectiveOperationException {
+        int index = builder.newNode();
+        Class<?> type = node.getClass();
+
+        Method trueChild = findMethod(type, "trueChild");
+        if (trueChild == null) {
+            // Leaf (DecisionNode): output class plus per-class sample counts
+            int output = ((Number) type.getMethod("output").invoke(node)).intValue();
+            if (output < 0 || output >= builder.numClasses) {
+                throw new ReflectiveOperationException("Leaf class " + output + " out of range");
+            }
+            builder.leafValue[index] = output;
+
+            Method countMethod = findMethod(type, "count");
+            int[] counts = countMethod != null ? (int[]) countMethod.invoke(node) : null;
+            int base = index * builder.numClasses;
+            if (counts != null) {
+                // Smile's posteriori estimate: (n_c + 1) / (n + k)
+                int total = 0;
+                for (int c : counts) {
+                    total += c;
+                }
+                for (int c = 0; c < builder.numClasses; c++) {
+                    int n = c < counts.length ? counts[c] : 0;
+                    builder.leafDistribution[base + c] = (n + 1.0f) / (total + builder.numClasses);
+                }
+            } else {
+                builder.leafDistribution[base + output] = 1.0f;
+            }
+            return index;
+        }
+
+        // Ordinal split: x[feature] <= value goes to the true child
+        Method valueMethod = findMethod(type, "value");
+        if (valueMethod == null) {
+            throw new ReflectiveOperationException("Unsupported split node " + type.getName());
+        }
+        int f = ((Number) type.getMethod("feature").invoke(node)).intValue();
+        double t = ((Number) valueMethod.invoke(node)).doubleValue();
+        Object yes = trueChild.invoke(node);
+        Object no = type.getMethod("falseChild").invoke(node);
+
+        builder.feature[index] = f;
+        builder.threshold[index] = t;
+        int l = exportSmileNode(builder, yes);
+        int r = exportSmileNode(builder, no);
+        builder.left[index] = l;
+        builder.right[index] = r;
+        return index;
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Export an XGBoost booster from its JSON dump ({@code Booster.getModelDump(null, false, "json")}).
+     * Missing values are not used by our dense feature vectors, so the "missing" branch is ignored.
+     *
+     * @param baseScore the booster's base_score (0.5 unless configured otherwise)
+     */
+    public static FlatForest fromXGBoostDump(String[] treeDumps, float baseScore) {
+        Builder builder = new Builder(1);
+        for (String dump : treeDumps) {
+            JsonObject root = JsonParser.parseString(dump).getAsJsonObject();
+            builder.roots.add(exportXGBoostNode(builder, root));
+        }
+        return builder.build(Kind.REGRESSION, false, baseScore);
+    }
+
+    private static int exportXGBoostNode(Builder builder, JsonObject node) {
+        int index = builder.newNode();
+        if (node.has("leaf")) {
+            builder.leafValue[index] = node.get("leaf").getAsFloat();
+            return index;
+        }
+
+        // "f12" -> 12
+        String split = node.get("split").getAsString();
+        int f = Integer.parseInt(split.startsWith("f") ? split.substring(1) : split);
+        int yesId = node.get("yes").getAsInt();
+        int noId = node.get("no").getAsInt();
+
+        JsonObject yes = null;
+        JsonObject no = null;
+        JsonArray children = node.getAsJsonArray("children");
+        for (JsonElement child : children) {
+            JsonObject c = child.getAsJsonObject();
+            int id = c.get("nodeid").getAsInt();
+            if (id == yesId) {
+                yes = c;
+            } else if (id == noId) {
+                no = c;
+            }
+        }
+        if (yes == null || no == null) {
+            throw new IllegalArgumentException("Malformed XGBoost dump at node " + node.get("nodeid"));
+        }
+
+        builder.feature[index] = f;
+        // XGBoost compares in float precision
+        builder.threshold[index] = node.get("split_condition").getAsFloat();
+        int l = exportXGBoostNode(builder, yes);
+        int r = exportXGBoostNode(builder, no);
+        builder.left[index] = l;
+        builder.right[index] = r;
+        return index;
+    }
+}
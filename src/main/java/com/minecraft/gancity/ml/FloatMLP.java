@@ -0,0 +1,119 @@
+package com.minecraft.gancity.ml;
+
+/**
+ * Plain float copy of a ReLU MLP (the DQN policy network) for inference outside DJL.
+ *
+ * {@link DoubleDQN} publishes a fresh copy after every optimizer step; game threads run their
+ * forward passes on the copy, so they never read parameters the trainer is updating and never
+ * wait for its lock. Layers are dense with ReLU between them and a linear output, matching
+ * {@code DoubleDQN.buildNetwork}.
+ *
+ * Immutable once built; forward passes are safe from any thread.
+ */
+public final class FloatMLP {
+    private final int[] sizes;          // Layer widths: sizes[0] inputs ... sizes[L] outputs
+    private final float[][] weights;    // Per layer, row-major out x in
+    private final float[][] bias;
+
+    private final ThreadLocal<float[][]> scratch;
+
+    /**
+     * @param sizes        layer widths (inputs, hidden..., outputs)
+     * @param layerWeights per layer, row-major {@code sizes[l+1] x sizes[l]}; kept, not copied
+     * @param layerBiases  per layer, {@code sizes[l+1]}; kept, not copied
+     */
+    public FloatMLP(int[] sizes, float[][] layerWeights, float[][] layerBiases) {
+        int layers = sizes.length - 1;
+        if (layerWeights.length != layers || layerBiases.length != layers) {
+            throw new IllegalArgumentException("Expected " + layers + " weight/bias pairs");
+        }
+        for (int l = 0; l < layers; l++) {
+            if (layerWeights[l].length != sizes[l] * sizes[l + 1] || layerBiases[l].length != sizes[l + 1]) {
+                throw new IllegalArgumentException("Layer " + l + " shape mismatch");
+            }
+        }
+        this.sizes = sizes.clone();
+        this.weights = layerWeights;
+        this.bias = layerBiases;
+
+        int maxWidth = 0;
+        for (int size : sizes) {
+            maxWidth = Math.max(maxWidth, size);
+        }
+        final int width = maxWidth;
+        this.scratch = ThreadLocal.withInitial(() -> new float[][] {new float[width], new float[width]});
+    }
+
+    /**
+     * From an interleaved parameter export {@code [w0, b0, w1, b1, ...]} ({@link DoubleDQN#exportPolicyLayers}).
+     */
+    public static FloatMLP fromParameters(int[] sizes, float[][] params) {
+        int layers = params.length / 2;
+        float[][] weights = new float[layers][];
+        float[][] biases = new float[layers][];
+        for (int l = 0; l < layers; l++) {
+            weights[l] = params[2 * l];
+            biases[l] = params[2 * l + 1];
+        }
+        return new FloatMLP(sizes, weights, biases);
+    }
+
+    public int getInputSize() {
+        return sizes[0];
+    }
+
+    public int getOutputSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    /**
+     * Forward one input into {@code out} (length >= output size). Allocation-free.
+     */
+    public void predict(float[] input, int inputOffset, float[] out, int outOffset) {
+        float[][] s = scratch.get();
+        float[] current = s[0];
+        float[] next = s[1];
+        System.arraycopy(input, inputOffset, current, 0, sizes[0]);
+
+        int layers = sizes.length - 1;
+        for (int l = 0; l < layers; l++) {
+            int in = sizes[l];
+            int outWidth = sizes[l + 1];
+            float[] w = weights[l];
+            boolean last = l == layers - 1;
+            float[] target = last ? out : next;
+            int targetOffset = last ? outOffset : 0;
+            for (int o = 0; o < outWidth; o++) {
+                int row = o * in;
+                float sum = bias[l][o];
+                for (int i = 0; i < in; i++) {
+                    sum += w[row + i] * current[i];
+                }
+                target[targetOffset + o] = last ? sum : Math.max(0.0f, sum);
+            }
+
+            if (!last) {
+                float[] swap = current;
+                current = next;
+                next = swap;
+            }
+        }
+    }
+
+    public float[] predict(float[] input) {
+        float[] out = new float[getOutputSize()];
+        predict(input, 0, out, 0);
+        return out;
+    }
+
+    /**
+     * Batched forward: {@code states} row-major {@code count x inputs}, {@code out} row-major {@code count x outputs}.
+     */
+    public void predictBatch(float[] states, int count, float[] out) {
+        int inputs = getInputSize();
+        int outputs = getOutputSize();
+        for (int i = 0; i < count; i++) {
+            predict(states, i * inputs, out, i * outputs);
+        }
+    }
+}
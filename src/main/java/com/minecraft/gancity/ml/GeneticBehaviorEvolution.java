@@ -4,57 +4,125 @@ import com.mojang.logging.LogUtils;
 import org.slf4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Genetic Algorithm for evolving mob behaviors over generations
  * Breeds successful behavior patterns to create increasingly effective AI
+ *
+ * Each mob type has its own population whose genomes weight that mob type's actions.
+ * Picking a genome is O(1) on the server thread; when a population has seen a generation's
+ * worth of combats, selection, crossover and mutation run as a background job that swaps the
+ * next population in atomically.
  */
 public class GeneticBehaviorEvolution {
     private static final Logger LOGGER = LogUtils.getLogger();
-    
+
     private static final int POPULATION_SIZE = 20;
     private static final int ELITE_SIZE = 4;
     private static final float MUTATION_RATE = 0.15f;
-    private static final int GENERATION_SIZE = 50;  // Combats per generation
-    
-    private List<BehaviorGenome> population = new ArrayList<>();
-    private int generationNumber = 0;
-    private int combatsInGeneration = 0;
-    
+    private static final int GENERATION_SIZE = 50;  // Combats per generation (per mob type)
+
+    // Used for genomes created without a mob type's action list
+    private static final ActionSet DEFAULT_ACTIONS = new ActionSet(Arrays.asList(
+        "straight_charge", "circle_strafe", "kite_backward", "retreat",
+        "ambush", "group_rush", "find_cover", "strafe_shoot",
+        "leap_attack", "fake_retreat"
+    ));
+
+    private final Map<String, Population> populations = new ConcurrentHashMap<>();
+
     public GeneticBehaviorEvolution() {
-        initializePopulation();
     }
-    
+
     /**
-     * Initialize random population of behavior genomes
+     * Action id table shared by every genome of a population: id = index in the mob type's action list
      */
-    private void initializePopulation() {
-        for (int i = 0; i < POPULATION_SIZE; i++) {
-            population.add(new BehaviorGenome());
+    public static final class ActionSet {
+        private final String[] names;
+        private final Map<String, Integer> ids;
+
+        public ActionSet(List<String> actions) {
+            this.names = actions.toArray(new String[0]);
+            Map<String, Integer> map = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                map.putIfAbsent(names[i], i);
+            }
+            this.ids = map;
+        }
+
+        /**
+         * @return the action's id, or -1 if this set does not contain it
+         */
+        public int idOf(String action) {
+            Integer id = ids.get(action);
+            return id != null ? id : -1;
+        }
+
+        public String nameOf(int id) {
+            return names[id];
+        }
+
+        public int size() {
+            return names.length;
         }
-        LOGGER.info("Initialized genetic population with {} genomes", POPULATION_SIZE);
     }
-    
+
     /**
-     * Select genome for current combat
+     * One mob type's population. {@link #genomes} is replaced wholesale by the evolution job.
      */
-    public BehaviorGenome selectGenome() {
-        // Tournament selection
-        Random rand = new Random();
-        BehaviorGenome best = population.get(rand.nextInt(population.size()));
-        
+    private static final class Population {
+        private final String mobType;
+        private final ActionSet actions;
+        private volatile BehaviorGenome[] genomes;
+        private volatile int generation = 0;
+        private final AtomicInteger combatsInGeneration = new AtomicInteger(0);
+        private final ModelRetrainScheduler scheduler;
+
+        private Population(String mobType, ActionSet actions) {
+            this.mobType = mobType;
+            this.actions = actions;
+            this.scheduler = new ModelRetrainScheduler("Genetic evolution (" + mobType + ")", 0L);
+
+            BehaviorGenome[] initial = new BehaviorGenome[POPULATION_SIZE];
+            for (int i = 0; i < POPULATION_SIZE; i++) {
+                initial[i] = new BehaviorGenome(mobType, actions);
+            }
+            this.genomes = initial;
+        }
+    }
+
+    private Population populationFor(String mobType, List<String> actions) {
+        return populations.computeIfAbsent(mobType, type -> {
+            LOGGER.debug("Initialized genetic population for {} with {} genomes", type, POPULATION_SIZE);
+            return new Population(type, actions == null || actions.isEmpty() ? DEFAULT_ACTIONS : new ActionSet(actions));
+        });
+    }
+
+    /**
+     * Select genome for current combat (tournament of four, O(1))
+     *
+     * @param actions the mob type's action list; fixes the genome layout the first time a mob type is seen
+     */
+    public BehaviorGenome selectGenome(String mobType, List<String> actions) {
+        BehaviorGenome[] genomes = populationFor(mobType, actions).genomes;
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        BehaviorGenome best = genomes[rand.nextInt(genomes.length)];
+
         for (int i = 0; i < 3; i++) {
-            BehaviorGenome competitor = population.get(rand.nextInt(population.size()));
+            BehaviorGenome competitor = genomes[rand.nextInt(genomes.length)];
             if (competitor.fitness > best.fitness) {
                 best = competitor;
             }
         }
-        
+
         return best;
     }
-    
+
     /**
-     * Record combat outcome and evolve if generation complete
+     * Record combat outcome; once the genome's population completes a generation, queue its evolution
      */
     public void recordCombat(BehaviorGenome genome, boolean victory, float damageDealt, float damageTaken) {
         // Update genome fitness
@@ -62,176 +130,269 @@ public class GeneticBehaviorEvolution {
         if (victory) fitness += 10.0f;
         fitness += damageDealt * 2.0f;
         fitness -= damageTaken;
-        
+
         genome.fitness += fitness;
         genome.combatCount++;
-        
-        combatsInGeneration++;
-        
-        // Evolve new generation
-        if (combatsInGeneration >= GENERATION_SIZE) {
-            evolveGeneration();
-            combatsInGeneration = 0;
+
+        Population population = genome.mobType != null ? populations.get(genome.mobType) : null;
+        if (population == null || population.combatsInGeneration.incrementAndGet() < GENERATION_SIZE) {
+            return;
+        }
+
+        // Snapshot fitness here (the learning pipeline thread owns it); the job only reads immutable genome data.
+        // If a generation is still being bred, keep counting and try again on the next combat.
+        BehaviorGenome[] current = population.genomes;
+        float[] fitnessSnapshot = new float[current.length];
+        int[] combatSnapshot = new int[current.length];
+        for (int i = 0; i < current.length; i++) {
+            fitnessSnapshot[i] = current[i].fitness;
+            combatSnapshot[i] = current[i].combatCount;
+        }
+        if (population.scheduler.trySchedule(() -> evolveGeneration(population, current, fitnessSnapshot, combatSnapshot))) {
+            population.combatsInGeneration.set(0);
         }
     }
-    
+
     /**
-     * Evolve new generation using selection, crossover, and mutation
+     * Evolve new generation using selection, crossover, and mutation (background thread)
      */
-    private void evolveGeneration() {
-        generationNumber++;
-        
+    private static void evolveGeneration(Population population, BehaviorGenome[] current,
+                                         float[] fitness, int[] combats) {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        int n = current.length;
+
         // Sort by fitness
-        population.sort((a, b) -> Float.compare(b.fitness, a.fitness));
-        
-        // Log best genome
-        float bestFitness = population.get(0).fitness / population.get(0).combatCount;
-        float avgFitness = (float) population.stream()
-            .mapToDouble(g -> g.fitness / Math.max(1, g.combatCount))
-            .average().orElse(0.0);
-        
-        LOGGER.info("Generation {} complete - Best: {:.2f}, Avg: {:.2f}", 
-            generationNumber, bestFitness, avgFitness);
-        
-        List<BehaviorGenome> newPopulation = new ArrayList<>();
-        
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(fitness[b], fitness[a]));
+
+        float bestFitness = fitness[order[0]] / Math.max(1, combats[order[0]]);
+        float avgFitness = 0.0f;
+        float totalFitness = 0.0f;
+        for (int i = 0; i < n; i++) {
+            avgFitness += fitness[i] / Math.max(1, combats[i]);
+            totalFitness += Math.max(0, fitness[i]);
+        }
+        avgFitness /= n;
+
+        BehaviorGenome[] next = new BehaviorGenome[POPULATION_SIZE];
+        int size = 0;
+
         // Elitism - keep best genomes
-        for (int i = 0; i < ELITE_SIZE; i++) {
-            newPopulation.add(population.get(i).clone());
+        for (int i = 0; i < Math.min(ELITE_SIZE, n); i++) {
+            next[size++] = current[order[i]].clone();
         }
-        
+
         // Breed new genomes
-        while (newPopulation.size() < POPULATION_SIZE) {
-            BehaviorGenome parent1 = selectParent();
-            BehaviorGenome parent2 = selectParent();
-            BehaviorGenome child = crossover(parent1, parent2);
-            mutate(child);
-            newPopulation.add(child);
-        }
-        
-        population = newPopulation;
+        while (size < POPULATION_SIZE) {
+            BehaviorGenome parent1 = current[selectParent(fitness, totalFitness, order[0], rand)];
+            BehaviorGenome parent2 = current[selectParent(fitness, totalFitness, order[0], rand)];
+            BehaviorGenome child = crossover(parent1, parent2, rand);
+            mutate(child, rand);
+            next[size++] = child;
+        }
+
+        population.genomes = next;
+        int generation = ++population.generation;
+        LOGGER.info("Generation {} complete for {} - Best: {}, Avg: {}", generation, population.mobType,
+            String.format("%.2f", bestFitness), String.format("%.2f", avgFitness));
     }
-    
+
     /**
-     * Select parent using fitness-proportional selection
+     * Select parent index using fitness-proportional selection
      */
-    private BehaviorGenome selectParent() {
-        float totalFitness = (float) population.stream()
-            .mapToDouble(g -> Math.max(0, g.fitness))
-            .sum();
-        
-        float rand = new Random().nextFloat() * totalFitness;
+    private static int selectParent(float[] fitness, float totalFitness, int fallback, ThreadLocalRandom rand) {
+        float target = rand.nextFloat() * totalFitness;
         float cumulative = 0.0f;
-        
-        for (BehaviorGenome genome : population) {
-            cumulative += Math.max(0, genome.fitness);
-            if (cumulative >= rand) {
-                return genome;
+
+        for (int i = 0; i < fitness.length; i++) {
+            cumulative += Math.max(0, fitness[i]);
+            if (cumulative >= target) {
+                return i;
             }
         }
-        
-        return population.get(0);
+
+        return fallback;
     }
-    
+
     /**
      * Crossover two parent genomes
      */
-    private BehaviorGenome crossover(BehaviorGenome parent1, BehaviorGenome parent2) {
-        BehaviorGenome child = new BehaviorGenome();
-        Random rand = new Random();
-        
+    private static BehaviorGenome crossover(BehaviorGenome parent1, BehaviorGenome parent2, ThreadLocalRandom rand) {
+        BehaviorGenome child = parent1.copyShape();
+
         // Crossover action weights
-        for (String action : parent1.actionWeights.keySet()) {
-            child.actionWeights.put(action, 
-                rand.nextBoolean() ? parent1.actionWeights.get(action) : parent2.actionWeights.get(action));
+        for (int i = 0; i < child.actionWeights.length; i++) {
+            child.actionWeights[i] = rand.nextBoolean() ? parent1.actionWeights[i] : parent2.actionWeights[i];
         }
-        
+
         // Crossover traits
         child.aggression = rand.nextBoolean() ? parent1.aggression : parent2.aggression;
         child.caution = rand.nextBoolean() ? parent1.caution : parent2.caution;
         child.teamwork = rand.nextBoolean() ? parent1.teamwork : parent2.teamwork;
-        
+
         return child;
     }
-    
+
     /**
      * Apply random mutations
      */
-    private void mutate(BehaviorGenome genome) {
-        Random rand = new Random();
-        
+    private static void mutate(BehaviorGenome genome, ThreadLocalRandom rand) {
         // Mutate action weights
-        for (String action : genome.actionWeights.keySet()) {
+        for (int i = 0; i < genome.actionWeights.length; i++) {
             if (rand.nextFloat() < MUTATION_RATE) {
                 float delta = (rand.nextFloat() - 0.5f) * 0.4f;
-                float newWeight = Math.max(0.0f, Math.min(2.0f, genome.actionWeights.get(action) + delta));
-                genome.actionWeights.put(action, newWeight);
+                genome.actionWeights[i] = Math.max(0.0f, Math.min(2.0f, genome.actionWeights[i] + delta));
             }
         }
-        
+
         // Mutate traits
         if (rand.nextFloat() < MUTATION_RATE) {
             genome.aggression += (rand.nextFloat() - 0.5f) * 0.4f;
             genome.aggression = Math.max(0.0f, Math.min(2.0f, genome.aggression));
         }
-        
+
         if (rand.nextFloat() < MUTATION_RATE) {
             genome.caution += (rand.nextFloat() - 0.5f) * 0.4f;
             genome.caution = Math.max(0.0f, Math.min(2.0f, genome.caution));
         }
-        
+
         if (rand.nextFloat() < MUTATION_RATE) {
             genome.teamwork += (rand.nextFloat() - 0.5f) * 0.4f;
             genome.teamwork = Math.max(0.0f, Math.min(2.0f, genome.teamwork));
         }
     }
-    
+
+    /**
+     * Highest generation reached by any mob type's population
+     */
     public int getGenerationNumber() {
-        return generationNumber;
+        int max = 0;
+        for (Population population : populations.values()) {
+            max = Math.max(max, population.generation);
+        }
+        return max;
+    }
+
+    public int getPopulationCount() {
+        return populations.size();
+    }
+
+    /**
+     * Population-average genome for a mob type (mean action weights and traits), used where a
+     * decision has to represent the whole population rather than one mob's genome
+     */
+    public BehaviorGenome getConsensusGenome(String mobType, List<String> actions) {
+        Population population = populationFor(mobType, actions);
+        BehaviorGenome[] genomes = population.genomes;
+        BehaviorGenome consensus = genomes[0].copyShape();
+
+        for (BehaviorGenome genome : genomes) {
+            for (int i = 0; i < consensus.actionWeights.length; i++) {
+                consensus.actionWeights[i] += genome.actionWeights[i];
+            }
+            consensus.aggression += genome.aggression;
+            consensus.caution += genome.caution;
+            consensus.teamwork += genome.teamwork;
+        }
+
+        int n = genomes.length;
+        for (int i = 0; i < consensus.actionWeights.length; i++) {
+            consensus.actionWeights[i] /= n;
+        }
+        consensus.aggression /= n;
+        consensus.caution /= n;
+        consensus.teamwork /= n;
+        return consensus;
     }
-    
+
+    /**
+     * Best average fitness across all populations
+     */
     public float getBestFitness() {
-        if (population.isEmpty()) return 0.0f;
-        BehaviorGenome best = population.stream()
-            .max(Comparator.comparing(g -> g.fitness / Math.max(1, g.combatCount)))
-            .orElse(population.get(0));
-        return best.fitness / Math.max(1, best.combatCount);
+        float best = 0.0f;
+        boolean any = false;
+        for (Population population : populations.values()) {
+            for (BehaviorGenome genome : population.genomes) {
+                float average = genome.fitness / Math.max(1, genome.combatCount);
+                if (!any || average > best) {
+                    best = average;
+                    any = true;
+                }
+            }
+        }
+        return best;
     }
-    
+
     /**
      * Genome representing behavior parameters
      */
     public static class BehaviorGenome implements Cloneable {
-        public Map<String, Float> actionWeights = new HashMap<>();
+        private final String mobType;        // Owning population, null for standalone genomes
+        private final ActionSet actions;
+        public final float[] actionWeights;  // Indexed by action id (see ActionSet)
         public float aggression = 1.0f;
         public float caution = 1.0f;
         public float teamwork = 1.0f;
         public float fitness = 0.0f;
         public int combatCount = 0;
-        
+
+        /**
+         * Standalone random genome over the default action set
+         */
         public BehaviorGenome() {
-            Random rand = new Random();
-            
-            // Initialize random action weights
-            String[] actions = {
-                "straight_charge", "circle_strafe", "kite_backward", "retreat",
-                "ambush", "group_rush", "find_cover", "strafe_shoot",
-                "leap_attack", "fake_retreat"
-            };
-            
-            for (String action : actions) {
-                actionWeights.put(action, rand.nextFloat() * 2.0f);
+            this(null, DEFAULT_ACTIONS);
+        }
+
+        private BehaviorGenome(String mobType, ActionSet actions) {
+            this.mobType = mobType;
+            this.actions = actions;
+            this.actionWeights = new float[actions.size()];
+
+            // Initialize random action weights and traits
+            ThreadLocalRandom rand = ThreadLocalRandom.current();
+            for (int i = 0; i < actionWeights.length; i++) {
+                actionWeights[i] = rand.nextFloat() * 2.0f;
             }
-            
             aggression = rand.nextFloat() * 2.0f;
             caution = rand.nextFloat() * 2.0f;
             teamwork = rand.nextFloat() * 2.0f;
         }
-        
+
+        /**
+         * Zeroed genome with the same population and action layout
+         */
+        private BehaviorGenome copyShape() {
+            BehaviorGenome copy = new BehaviorGenome(mobType, actions);
+            Arrays.fill(copy.actionWeights, 0.0f);
+            copy.aggression = 0.0f;
+            copy.caution = 0.0f;
+            copy.teamwork = 0.0f;
+            return copy;
+        }
+
+        public ActionSet getActions() {
+            return actions;
+        }
+
+        public boolean hasAction(String action) {
+            return actions.idOf(action) >= 0;
+        }
+
+        /**
+         * @return the weight for {@code action}, or {@code defaultWeight} if the genome does not cover it
+         */
+        public float getActionWeight(String action, float defaultWeight) {
+            int id = actions.idOf(action);
+            return id >= 0 ? actionWeights[id] : defaultWeight;
+        }
+
         @Override
         public BehaviorGenome clone() {
-            BehaviorGenome copy = new BehaviorGenome();
-            copy.actionWeights = new HashMap<>(this.actionWeights);
+            BehaviorGenome copy = copyShape();
+            System.arraycopy(this.actionWeights, 0, copy.actionWeights, 0, actionWeights.length);
             copy.aggression = this.aggression;
             copy.caution = this.caution;
             copy.teamwork = this.teamwork;
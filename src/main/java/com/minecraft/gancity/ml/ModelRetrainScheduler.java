@@ -0,0 +1,142 @@
+package com.minecraft.gancity.ml;
+
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs model rebuilds (Random Forest / XGBoost retraining, genetic generations) off the server thread.
+ *
+ * At most one retrain per model is in flight, and a new one only starts after a minimum
+ * interval. Requests arriving while a retrain is running or too soon are coalesced: with
+ * {@link #trySchedule} the caller keeps buffering and the next accepted request trains on
+ * everything gathered so far; with {@link #scheduleOrDefer} the latest coalesced job is kept and
+ * run once the current retrain has finished and the interval has passed.
+ */
+final class ModelRetrainScheduler {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    // Shared by all rebuild jobs; separate from the DQN training thread so a slow forest fit
+    // never delays gradient steps
+    private static final ScheduledExecutorService RETRAIN_POOL = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "MobAI-ModelRetrain");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private final String modelName;
+    private final long minIntervalMs;
+    private final AtomicBoolean inFlight = new AtomicBoolean(false);
+    private volatile long lastStartMs = 0;
+    private final AtomicReference<Runnable> deferred = new AtomicReference<>();
+    private final AtomicBoolean deferredArmed = new AtomicBoolean(false);
+
+    private final AtomicLong completed = new AtomicLong(0);
+    private final AtomicLong coalesced = new AtomicLong(0);
+
+    ModelRetrainScheduler(String modelName, long minIntervalMs) {
+        this.modelName = modelName;
+        this.minIntervalMs = minIntervalMs;
+    }
+
+    /**
+     * True if a retrain submitted now would be accepted. Lets callers skip copying their
+     * buffer when it would be coalesced anyway.
+     */
+    boolean isReady() {
+        return !inFlight.get() && System.currentTimeMillis() - lastStartMs >= minIntervalMs;
+    }
+
+    /**
+     * Submit a retrain job unless one is running or the minimum interval has not elapsed.
+     * @return false if the request was coalesced into a later retrain
+     */
+    boolean trySchedule(Runnable job) {
+        if (!isReady() || !inFlight.compareAndSet(false, true)) {
+            coalesced.incrementAndGet();
+            return false;
+        }
+        lastStartMs = System.currentTimeMillis();
+
+        try {
+            RETRAIN_POOL.execute(() -> {
+                try {
+                    job.run();
+                    completed.incrementAndGet();
+                } catch (Exception e) {
+                    LOGGER.error("{} retrain failed (non-fatal): {}", modelName, e.getMessage());
+                } finally {
+                    inFlight.set(false);
+                    armDeferred();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #trySchedule}, but a request that cannot start now is not dropped: the job is
+     * run after the current retrain (and the minimum interval). Deferred requests collapse into
+     * the latest one, so the job should train on whatever is pending when it runs.
+     * @return true if the job started now, false if it was deferred
+     */
+    boolean scheduleOrDefer(Runnable job) {
+        if (trySchedule(job)) {
+            return true;
+        }
+        deferred.set(job);
+        if (!inFlight.get()) {
+            armDeferred();  // Held back by the interval only; a running retrain arms it when it ends
+        }
+        return false;
+    }
+
+    /**
+     * Queue one attempt to start the deferred job once the minimum interval allows.
+     */
+    private void armDeferred() {
+        if (deferred.get() == null || !deferredArmed.compareAndSet(false, true)) {
+            return;
+        }
+        long delayMs = Math.max(0, lastStartMs + minIntervalMs - System.currentTimeMillis());
+        try {
+            RETRAIN_POOL.schedule(this::runDeferred, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            deferredArmed.set(false);
+        }
+    }
+
+    private void runDeferred() {
+        deferredArmed.set(false);
+        Runnable job = deferred.getAndSet(null);
+        if (job != null && !trySchedule(job)) {
+            deferred.compareAndSet(null, job);
+            if (!inFlight.get()) {
+                armDeferred();
+            }
+        }
+    }
+
+    boolean isRetraining() {
+        return inFlight.get();
+    }
+
+    long getCompletedCount() {
+        return completed.get();
+    }
+
+    long getCoalescedCount() {
+        return coalesced.get();
+    }
+}
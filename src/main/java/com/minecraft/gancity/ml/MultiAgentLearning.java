@@ -4,6 +4,7 @@ import com.mojang.logging.LogUtils;
 import org.slf4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Multi-Agent Reinforcement Learning coordinator
@@ -12,8 +13,9 @@ import java.util.*;
 public class MultiAgentLearning {
     private static final Logger LOGGER = LogUtils.getLogger();
     
-    private final Map<String, TeamState> activeTeams = new HashMap<>();
-    private final Map<String, List<String>> mobTeams = new HashMap<>();
+    // Teams are formed on the game thread and read by the learning pipeline
+    private final Map<String, TeamState> activeTeams = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> mobTeams = new ConcurrentHashMap<>();
     private float cooperationBonus = 2.0f;
     
     /**
@@ -1,163 +1,216 @@
 package com.minecraft.gancity.ml;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Prioritized Experience Replay - samples important experiences more frequently
  * Uses Sum Tree data structure for efficient priority-based sampling
- * 
+ *
+ * Experiences live in a fixed-capacity primitive {@link ReplayRing}; an array-backed sum tree
+ * over the ring slots holds priority^alpha (plus a parallel min tree for importance weights),
+ * so insert, priority update and each stratified sample are O(log n). Sampled batches are
+ * gathered straight into flat training arrays.
+ *
  * CRITICAL FIX: Thread-safe with read-write locks for concurrent training
  */
 public class PrioritizedReplayBuffer {
-    
+
+    /** Matches the combined feature vector fed to DoubleDQN (state 10 + visual 9 + genome 3). */
+    public static final int DEFAULT_STATE_SIZE = 22;
+
     private final int capacity;
-    private final Queue<Experience> buffer = new ConcurrentLinkedQueue<>();
-    private final PriorityQueue<PrioritizedExperience> priorityQueue;
+    private final ReplayRing ring;
+    private final int[] slotGeneration;   // Bumped on overwrite so stale priority updates are ignored
+    private final int treeCapacity;     // Leaves start here (power of two >= capacity)
+    private final double[] sumTree;
+    private final double[] minTree;
+    private volatile int size = 0;
+
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private float alpha = 0.6f;  // Priority exponent
-    private float beta = 0.4f;   // Importance sampling exponent
+    private float betaStart = 0.4f;   // Importance sampling exponent
     private float betaIncrement = 0.001f;
+    private final AtomicInteger sampleCalls = new AtomicInteger(0);
     private float maxPriority = 1.0f;
-    private int addCounter = 0;
-    private static final int CLEANUP_FREQUENCY = 100; // Cleanup every 100 adds
-    
+
     public PrioritizedReplayBuffer(int capacity) {
-        this.capacity = capacity;
-        this.priorityQueue = new PriorityQueue<>(
-            (a, b) -> Float.compare(b.priority, a.priority)
-        );
+        this(capacity, DEFAULT_STATE_SIZE, ReplayRing.StateEncoding.FLOAT32);
+    }
+
+    public PrioritizedReplayBuffer(int capacity, int stateSize, ReplayRing.StateEncoding encoding) {
+        this.capacity = Math.max(1, capacity);
+        this.ring = new ReplayRing(this.capacity, stateSize, encoding);
+        this.slotGeneration = new int[this.capacity];
+
+        int leaves = 1;
+        while (leaves < this.capacity) {
+            leaves <<= 1;
+        }
+        this.treeCapacity = leaves;
+        this.sumTree = new double[leaves * 2];
+        this.minTree = new double[leaves * 2];
+        Arrays.fill(minTree, Double.POSITIVE_INFINITY);
     }
-    
+
     /**
      * Add experience with default maximum priority
      * Thread-safe with write lock
      */
     public void add(float[] state, int action, float reward, float[] nextState, boolean done) {
-        Experience exp = new Experience(state, action, reward, nextState, done);
-        
         lock.writeLock().lock();
         try {
-            // Remove oldest if at capacity
-            while (buffer.size() >= capacity) {
-                Experience removed = buffer.poll();
-                // Also remove from priority queue
-                priorityQueue.removeIf(pExp -> pExp.experience == removed);
-            }
-            
-            buffer.offer(exp);
-            
-            // Add to priority queue with max priority (new experiences are important)
-            PrioritizedExperience pExp = new PrioritizedExperience(exp, maxPriority);
-            priorityQueue.offer(pExp);
-            
-            // Periodic cleanup to prevent memory bloat
-            addCounter++;
-            if (addCounter % CLEANUP_FREQUENCY == 0) {
-                cleanupQueue();
-            }
+            // Ring overwrite evicts the oldest experience in O(1)
+            int slot = ring.add(state, action, reward, nextState, done);
+            slotGeneration[slot]++;
+            size = ring.size();
+
+            // New experiences get max priority (they are important until trained on)
+            setPriority(slot, maxPriority);
         } finally {
             lock.writeLock().unlock();
         }
     }
-    
-    /**
-     * Remove stale entries from priority queue
-     */
-    private void cleanupQueue() {
-        Set<Experience> validExperiences = new HashSet<>(buffer);
-        priorityQueue.removeIf(pExp -> !validExperiences.contains(pExp.experience));
-    }
-    
+
     /**
      * Sample batch based on priorities with importance sampling weights
      * Thread-safe with read lock
      */
     public SampledBatch sample(int batchSize) {
+        // Increase beta over time (anneal to 1.0)
+        float beta = Math.min(1.0f, betaStart + betaIncrement * sampleCalls.incrementAndGet());
+
         lock.readLock().lock();
         try {
-            List<Experience> experiences = new ArrayList<>();
-            List<Float> weights = new ArrayList<>();
-            
-            // Increase beta over time (anneal to 1.0)
-            beta = Math.min(1.0f, beta + betaIncrement);
-            
-            // Calculate total priority
-            float totalPriority = 0.0f;
-            for (PrioritizedExperience pExp : priorityQueue) {
-                totalPriority += Math.pow(pExp.priority, alpha);
-            }
-            
-            // Sample experiences based on priority
-            List<PrioritizedExperience> sampledList = new ArrayList<>();
-            Random rand = new Random();
-            
-            for (int i = 0; i < Math.min(batchSize, priorityQueue.size()); i++) {
-                float randValue = rand.nextFloat() * totalPriority;
-                float cumSum = 0.0f;
-                
-                for (PrioritizedExperience pExp : priorityQueue) {
-                    cumSum += Math.pow(pExp.priority, alpha);
-                    if (cumSum >= randValue) {
-                        experiences.add(pExp.experience);
-                        sampledList.add(pExp);
-                        
-                        // Calculate importance sampling weight
-                        float probability = (float) (Math.pow(pExp.priority, alpha) / totalPriority);
-                        float weight = (float) Math.pow(buffer.size() * probability, -beta);
-                        weights.add(weight);
-                        break;
-                    }
-                }
+            int count = Math.min(batchSize, size);
+            double total = sumTree[1];
+            if (count <= 0 || total <= 0.0) {
+                return new SampledBatch(ring, new int[0], new int[0], new float[0], 0);
             }
-            
-            // Normalize weights
-            if (!weights.isEmpty()) {
-                float maxWeight = Collections.max(weights);
-                for (int i = 0; i < weights.size(); i++) {
-                    weights.set(i, weights.get(i) / maxWeight);
-                }
+
+            int[] slots = new int[count];
+            int[] generations = new int[count];
+            float[] weights = new float[count];
+
+            // Max weight comes from the smallest priority: w_max = (N * p_min)^-beta
+            double minProbability = minTree[1] / total;
+            double maxWeight = Math.pow(size * minProbability, -beta);
+
+            // Stratified sampling: one draw per equal-mass segment
+            ThreadLocalRandom rand = ThreadLocalRandom.current();
+            double segment = total / count;
+            for (int i = 0; i < count; i++) {
+                double target = (i + rand.nextDouble()) * segment;
+                int slot = findSlot(target);
+                double probability = sumTree[treeCapacity + slot] / total;
+
+                slots[i] = slot;
+                generations[i] = slotGeneration[slot];
+                weights[i] = (float) (Math.pow(size * probability, -beta) / maxWeight);
             }
-            
-            return new SampledBatch(experiences, weights, sampledList);
+
+            // Sequential column copy while still holding the lock
+            return new SampledBatch(ring, slots, generations, weights, count);
         } finally {
             lock.readLock().unlock();
         }
     }
-    
+
     /**
      * Update priorities based on TD errors
      */
     public void updatePriorities(List<PrioritizedExperience> experiences, List<Float> tdErrors) {
-        for (int i = 0; i < experiences.size(); i++) {
-            PrioritizedExperience pExp = experiences.get(i);
-            float tdError = Math.abs(tdErrors.get(i)) + 1e-6f;  // Small constant to avoid zero priority
-            pExp.priority = tdError;
-            maxPriority = Math.max(maxPriority, tdError);
+        // Called from the training thread while the game thread keeps adding
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < experiences.size() && i < tdErrors.size(); i++) {
+                PrioritizedExperience pExp = experiences.get(i);
+                if (slotGeneration[pExp.slot] != pExp.generation) {
+                    continue;  // Overwritten by a newer experience since sampling
+                }
+                float tdError = Math.abs(tdErrors.get(i)) + 1e-6f;  // Small constant to avoid zero priority
+                setPriority(pExp.slot, tdError);
+                maxPriority = Math.max(maxPriority, tdError);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
-        
-        // Rebuild priority queue
-        List<PrioritizedExperience> tempList = new ArrayList<>(priorityQueue);
-        priorityQueue.clear();
-        priorityQueue.addAll(tempList);
     }
-    
+
     public int size() {
-        return buffer.size();
+        return size;
     }
-    
+
+    public int getCapacity() {
+        return capacity;
+    }
+
     /**
      * Get top N experiences by reward (for Cloudflare sync)
      */
     public List<Experience> getTopExperiences(int n) {
-        return buffer.stream()
-            .sorted((e1, e2) -> Float.compare(e2.reward, e1.reward))
-            .limit(n)
-            .collect(java.util.stream.Collectors.toList());
+        lock.readLock().lock();
+        try {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Float.compare(ring.reward(b), ring.reward(a)));
+
+            List<Experience> top = new ArrayList<>(Math.min(n, size));
+            for (int i = 0; i < order.length && i < n; i++) {
+                top.add(ring.toExperience(order[i]));
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate memory used by stored experiences (bytes)
+     */
+    public long memoryBytes() {
+        return ring.memoryBytes();
     }
-    
+
+    /**
+     * Set a slot's priority and propagate sums/mins to the root. Caller holds the write lock.
+     */
+    private void setPriority(int slot, float priority) {
+        int node = treeCapacity + slot;
+        double value = Math.pow(priority, alpha);
+        sumTree[node] = value;
+        minTree[node] = value;
+        node >>= 1;
+        while (node >= 1) {
+            int left = node << 1;
+            sumTree[node] = sumTree[left] + sumTree[left + 1];
+            minTree[node] = Math.min(minTree[left], minTree[left + 1]);
+            node >>= 1;
+        }
+    }
+
+    /**
+     * Descend the sum tree to the leaf whose cumulative range contains {@code target}.
+     */
+    private int findSlot(double target) {
+        int node = 1;
+        while (node < treeCapacity) {
+            int left = node << 1;
+            if (target <= sumTree[left] || sumTree[left + 1] <= 0.0) {
+                node = left;
+            } else {
+                target -= sumTree[left];
+                node = left + 1;
+            }
+        }
+        return Math.max(0, Math.min(node - treeCapacity, size - 1));
+    }
+
     public static class Experience {
         final float[] state;
         final int action;
@@ -173,27 +226,85 @@ public class PrioritizedReplayBuffer {
             this.done = done;
         }
     }
-    
+
     private static class PrioritizedExperience {
-        final Experience experience;
-        float priority;
+        final int slot;
+        final int generation;
 
-        PrioritizedExperience(Experience experience, float priority) {
-            this.experience = experience;
-            this.priority = priority;
+        PrioritizedExperience(int slot, int generation) {
+            this.slot = slot;
+            this.generation = generation;
         }
     }
-    
+
+    /**
+     * A sampled batch as flat row-major training arrays (count x stateSize), plus
+     * list views for callers that still work with {@link Experience} objects.
+     */
     public static class SampledBatch {
+        public final int count;
+        public final int stateSize;
+        public final float[] states;
+        public final float[] nextStates;
+        public final int[] actions;
+        public final float[] rewards;
+        public final float[] notDone;
+        public final float[] importanceWeights;
+
         public final List<Experience> experiences;
         public final List<Float> weights;
         public final List<PrioritizedExperience> prioritizedExperiences;
 
-        public SampledBatch(List<Experience> experiences, List<Float> weights, 
-                           List<PrioritizedExperience> prioritizedExperiences) {
-            this.experiences = experiences;
-            this.weights = weights;
-            this.prioritizedExperiences = prioritizedExperiences;
+        private SampledBatch(ReplayRing ring, int[] slots, int[] generations, float[] weights, int count) {
+            this.count = count;
+            this.stateSize = ring.stateSize();
+            this.states = new float[count * stateSize];
+            this.nextStates = new float[count * stateSize];
+            this.actions = new int[count];
+            this.rewards = new float[count];
+            this.notDone = new float[count];
+            this.importanceWeights = weights;
+            ring.gather(slots, count, states, nextStates, actions, rewards, notDone);
+
+            List<PrioritizedExperience> handles = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                handles.add(new PrioritizedExperience(slots[i], generations[i]));
+            }
+            this.prioritizedExperiences = handles;
+            this.experiences = new ExperienceView();
+            this.weights = new AbstractList<Float>() {
+                @Override
+                public Float get(int index) {
+                    return importanceWeights[index];
+                }
+
+                @Override
+                public int size() {
+                    return SampledBatch.this.count;
+                }
+            };
+        }
+
+        /**
+         * Lazily materialized rows (allocates only when a caller actually asks for objects).
+         */
+        private final class ExperienceView extends AbstractList<Experience> {
+            @Override
+            public Experience get(int index) {
+                int from = index * stateSize;
+                return new Experience(
+                    Arrays.copyOfRange(states, from, from + stateSize),
+                    actions[index],
+                    rewards[index],
+                    Arrays.copyOfRange(nextStates, from, from + stateSize),
+                    notDone[index] == 0.0f
+                );
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
         }
     }
 }
@@ -0,0 +1,137 @@
+package com.minecraft.gancity.ml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Output heads of the multi-head Q-network ({@link DoubleDQN}).
+ *
+ * Each head belongs to one behavior profile and has one output per action in that profile's
+ * registry. Heads are laid side by side in a single output row, sorted by name so the layout
+ * is stable across restarts: head {@code h} owns columns {@code [offset(h), offset(h) + width(h))}.
+ * Replay and training address actions by their global column, so a batch may mix heads freely.
+ *
+ * Immutable.
+ */
+public final class QHeadLayout {
+    private final String[] names;
+    private final int[] offsets;  // heads + 1 entries; offsets[heads] = total width
+    private final String[][] actions;
+    private final Map<String, Integer> headIds = new HashMap<>();
+    private final List<Map<String, Integer>> actionIds = new ArrayList<>();
+
+    private QHeadLayout(Map<String, List<String>> actionsByHead) {
+        int heads = actionsByHead.size();
+        this.names = new String[heads];
+        this.offsets = new int[heads + 1];
+        this.actions = new String[heads][];
+
+        int head = 0;
+        for (Map.Entry<String, List<String>> entry : actionsByHead.entrySet()) {
+            names[head] = entry.getKey();
+            actions[head] = entry.getValue().toArray(new String[0]);
+            offsets[head + 1] = offsets[head] + actions[head].length;
+            headIds.put(entry.getKey(), head);
+
+            Map<String, Integer> ids = new HashMap<>();
+            for (int a = 0; a < actions[head].length; a++) {
+                ids.putIfAbsent(actions[head][a], a);
+            }
+            actionIds.add(ids);
+            head++;
+        }
+    }
+
+    /**
+     * @param actionsByHead head name (profile mob type) -> that profile's actions, in output order;
+     *                      heads without actions are skipped
+     */
+    public static QHeadLayout of(Map<String, List<String>> actionsByHead) {
+        Map<String, List<String>> sorted = new TreeMap<>();
+        for (Map.Entry<String, List<String>> entry : actionsByHead.entrySet()) {
+            if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                sorted.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (sorted.isEmpty()) {
+            throw new IllegalArgumentException("Q-network needs at least one head with actions");
+        }
+        return new QHeadLayout(sorted);
+    }
+
+    public int getHeadCount() {
+        return names.length;
+    }
+
+    /** Width of the full output row (all heads). */
+    public int getTotalWidth() {
+        return offsets[names.length];
+    }
+
+    /**
+     * @return the head id for {@code name}, or -1 if there is none
+     */
+    public int headOf(String name) {
+        Integer head = name != null ? headIds.get(name) : null;
+        return head != null ? head : -1;
+    }
+
+    public String getHeadName(int head) {
+        return names[head];
+    }
+
+    public int offset(int head) {
+        return offsets[head];
+    }
+
+    public int width(int head) {
+        return actions[head].length;
+    }
+
+    /**
+     * @return the global output column of {@code action} in {@code head}, or -1 if the head has no such action
+     */
+    public int column(int head, String action) {
+        if (head < 0 || head >= names.length) {
+            return -1;
+        }
+        Integer local = actionIds.get(head).get(action);
+        return local != null ? offsets[head] + local : -1;
+    }
+
+    /**
+     * @return the head owning a global column, or -1 if the column is out of range
+     */
+    public int headOfColumn(int column) {
+        if (column < 0 || column >= getTotalWidth()) {
+            return -1;
+        }
+        // Offsets strictly increase (empty heads are dropped), so an exact hit is the head's first column
+        int index = Arrays.binarySearch(offsets, column);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    public String actionOf(int column) {
+        int head = headOfColumn(column);
+        return head >= 0 ? actions[head][column - offsets[head]] : null;
+    }
+
+    /**
+     * Identifies the layout for persisted weights: head names and each head's action ids, in
+     * column order, so a renamed or reordered action invalidates saved weights like a resize does.
+     */
+    public String signature() {
+        StringBuilder signature = new StringBuilder();
+        for (int head = 0; head < names.length; head++) {
+            if (head > 0) {
+                signature.append(',');
+            }
+            signature.append(names[head]).append(':').append(String.join("|", actions[head]));
+        }
+        return signature.toString();
+    }
+}
@@ -0,0 +1,310 @@
+package com.minecraft.gancity.ml;
+
+/**
+ * Int8 post-training quantized copy of a ReLU MLP (the DQN policy network).
+ *
+ * Each layer's weights are quantized to int8 with a per-layer scale and zero-point; each
+ * layer's input activations get their own scale/zero-point calibrated from sample states.
+ * A forward pass quantizes the activations, accumulates {@code (qw - zw) * (qx - zx)} in
+ * int32 and rescales to float once per output (plus the float bias), so the weights take a
+ * quarter of the float model's memory and the inner loop is integer multiply-adds.
+ *
+ * Immutable once built; forward passes are safe from any thread.
+ */
+public final class QuantizedMLP {
+    private static final int QMIN = -128;
+    private static final int QMAX = 127;
+
+    private final int[] sizes;           // Layer widths: sizes[0] inputs ... sizes[L] outputs
+    private final byte[][] weights;      // Per layer, row-major out x in
+    private final float[] weightScale;
+    private final int[] weightZero;
+    private final int[][] weightRowSums; // Sum of quantized weights per output row (zero-point correction)
+    private final float[][] bias;
+    private final float[] inputScale;    // Per layer input activation quantization
+    private final int[] inputZero;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    private static final class Scratch {
+        private final byte[] q;
+        private final float[] a;
+        private final float[] b;
+
+        private Scratch(int maxWidth) {
+            this.q = new byte[maxWidth];
+            this.a = new float[maxWidth];
+            this.b = new float[maxWidth];
+        }
+    }
+
+    private QuantizedMLP(int[] sizes, byte[][] weights, float[] weightScale, int[] weightZero,
+                         int[][] weightRowSums, float[][] bias, float[] inputScale, int[] inputZero) {
+        this.sizes = sizes;
+        this.weights = weights;
+        this.weightScale = weightScale;
+        this.weightZero = weightZero;
+        this.weightRowSums = weightRowSums;
+        this.bias = bias;
+        this.inputScale = inputScale;
+        this.inputZero = inputZero;
+
+        int maxWidth = 0;
+        for (int size : sizes) {
+            maxWidth = Math.max(maxWidth, size);
+        }
+        final int width = maxWidth;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(width));
+    }
+
+    /**
+     * Quantize a float MLP.
+     *
+     * @param sizes        layer widths (inputs, hidden..., outputs)
+     * @param layerWeights per layer, row-major {@code sizes[l+1] x sizes[l]}
+     * @param layerBiases  per layer, {@code sizes[l+1]}
+     * @param calibration  row-major {@code count x sizes[0]} sample inputs used to fix activation ranges
+     */
+    public static QuantizedMLP quantize(int[] sizes, float[][] layerWeights, float[][] layerBiases,
+                                        float[] calibration, int count) {
+        int layers = sizes.length - 1;
+        if (layerWeights.length != layers || layerBiases.length != layers) {
+            throw new IllegalArgumentException("Expected " + layers + " weight/bias pairs");
+        }
+
+        byte[][] weights = new byte[layers][];
+        float[] weightScale = new float[layers];
+        int[] weightZero = new int[layers];
+        int[][] rowSums = new int[layers][];
+        float[][] bias = new float[layers][];
+        for (int l = 0; l < layers; l++) {
+            int in = sizes[l];
+            int out = sizes[l + 1];
+            float[] w = layerWeights[l];
+            if (w.length != in * out || layerBiases[l].length != out) {
+                throw new IllegalArgumentException("Layer " + l + " shape mismatch");
+            }
+
+            float[] range = minMax(w, 0, w.length);
+            weightScale[l] = scaleFor(range[0], range[1]);
+            weightZero[l] = zeroPointFor(range[0], weightScale[l]);
+            weights[l] = new byte[w.length];
+            rowSums[l] = new int[out];
+            for (int o = 0; o < out; o++) {
+                int sum = 0;
+                for (int i = 0; i < in; i++) {
+                    int q = quantizeValue(w[o * in + i], weightScale[l], weightZero[l]);
+                    weights[l][o * in + i] = (byte) q;
+                    sum += q;
+                }
+                rowSums[l][o] = sum;
+            }
+            bias[l] = layerBiases[l].clone();
+        }
+
+        // Calibrate per-layer input ranges with a float forward pass over the samples
+        float[] inputMin = new float[layers];
+        float[] inputMax = new float[layers];
+        for (int l = 0; l < layers; l++) {
+            inputMin[l] = Float.POSITIVE_INFINITY;
+            inputMax[l] = Float.NEGATIVE_INFINITY;
+        }
+        int maxWidth = 0;
+        for (int size : sizes) {
+            maxWidth = Math.max(maxWidth, size);
+        }
+        float[] current = new float[maxWidth];
+        float[] next = new float[maxWidth];
+        for (int s = 0; s < count; s++) {
+            System.arraycopy(calibration, s * sizes[0], current, 0, sizes[0]);
+            for (int l = 0; l < layers; l++) {
+                int in = sizes[l];
+                int out = sizes[l + 1];
+                float[] range = minMax(current, 0, in);
+                inputMin[l] = Math.min(inputMin[l], range[0]);
+                inputMax[l] = Math.max(inputMax[l], range[1]);
+
+                float[] w = layerWeights[l];
+                for (int o = 0; o < out; o++) {
+                    float sum = layerBiases[l][o];
+                    for (int i = 0; i < in; i++) {
+                        sum += w[o * in + i] * current[i];
+                    }
+                    next[o] = l < layers - 1 ? Math.max(0.0f, sum) : sum;
+                }
+                float[] swap = current;
+                current = next;
+                next = swap;
+            }
+        }
+
+        float[] inputScale = new float[layers];
+        int[] inputZero = new int[layers];
+        for (int l = 0; l < layers; l++) {
+            float lo = count > 0 ? inputMin[l] : -1.0f;
+            float hi = count > 0 ? inputMax[l] : 1.0f;
+            inputScale[l] = scaleFor(lo, hi);
+            inputZero[l] = zeroPointFor(lo, inputScale[l]);
+        }
+
+        return new QuantizedMLP(sizes.clone(), weights, weightScale, weightZero, rowSums, bias, inputScale, inputZero);
+    }
+
+    public int getInputSize() {
+        return sizes[0];
+    }
+
+    public int getOutputSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    /**
+     * Forward one input into {@code out} (length >= output size). Allocation-free.
+     */
+    public void predict(float[] input, int inputOffset, float[] out, int outOffset) {
+        Scratch s = scratch.get();
+        float[] current = s.a;
+        float[] next = s.b;
+        System.arraycopy(input, inputOffset, current, 0, sizes[0]);
+
+        int layers = sizes.length - 1;
+        for (int l = 0; l < layers; l++) {
+            int in = sizes[l];
+            int outWidth = sizes[l + 1];
+            byte[] q = s.q;
+
+            // Quantize activations for this layer
+            float invScale = 1.0f / inputScale[l];
+            int zx = inputZero[l];
+            int sumX = 0;
+            for (int i = 0; i < in; i++) {
+                int v = Math.round(current[i] * invScale) + zx;
+                v = Math.max(QMIN, Math.min(QMAX, v));
+                q[i] = (byte) v;
+                sumX += v;
+            }
+
+            // int32 accumulation with zero-point correction:
+            // sum((qw - zw)(qx - zx)) = sum(qw*qx) - zx*sum(qw) - zw*sum(qx) + n*zw*zx
+            byte[] w = weights[l];
+            int zw = weightZero[l];
+            int constant = in * zw * zx - zw * sumX;
+            float rescale = weightScale[l] * inputScale[l];
+            boolean last = l == layers - 1;
+            float[] target = last ? out : next;
+            int targetOffset = last ? outOffset : 0;
+            for (int o = 0; o < outWidth; o++) {
+                int row = o * in;
+                int acc = 0;
+                for (int i = 0; i < in; i++) {
+                    acc += w[row + i] * q[i];
+                }
+                acc += constant - zx * weightRowSums[l][o];
+                float value = acc * rescale + bias[l][o];
+                target[targetOffset + o] = last ? value : Math.max(0.0f, value);
+            }
+
+            if (!last) {
+                float[] swap = current;
+                current = next;
+                next = swap;
+            }
+        }
+    }
+
+    public float[] predict(float[] input) {
+        float[] out = new float[getOutputSize()];
+        predict(input, 0, out, 0);
+        return out;
+    }
+
+    /**
+     * Batched forward: {@code states} row-major {@code count x inputs}, {@code out} row-major {@code count x outputs}.
+     */
+    public void predictBatch(float[] states, int count, float[] out) {
+        int inputs = getInputSize();
+        int outputs = getOutputSize();
+        for (int i = 0; i < count; i++) {
+            predict(states, i * inputs, out, i * outputs);
+        }
+    }
+
+    /**
+     * Argmax agreement with {@code reference} (row-major {@code count x outputs}) the way decisions
+     * are made: per head of {@code heads}, each sample's argmax within that head's columns. Returns
+     * the worst head's fraction of matching samples, so one head that disagrees fails the whole copy.
+     */
+    public float worstHeadAgreement(float[] states, int count, float[] reference, QHeadLayout heads) {
+        int outputs = getOutputSize();
+        if (count <= 0 || heads.getHeadCount() == 0 || heads.getTotalWidth() != outputs) {
+            return 0.0f;
+        }
+        float[] quantized = new float[count * outputs];
+        predictBatch(states, count, quantized);
+
+        float worst = 1.0f;
+        for (int head = 0; head < heads.getHeadCount(); head++) {
+            int offset = heads.offset(head);
+            int width = heads.width(head);
+            int agree = 0;
+            for (int i = 0; i < count; i++) {
+                int row = i * outputs + offset;
+                if (argmax(quantized, row, width) == argmax(reference, row, width)) {
+                    agree++;
+                }
+            }
+            worst = Math.min(worst, (float) agree / count);
+        }
+        return worst;
+    }
+
+    /**
+     * Bytes held by quantized weights plus float biases/scales.
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (int l = 0; l < weights.length; l++) {
+            bytes += weights[l].length + bias[l].length * 4L + weightRowSums[l].length * 4L + 16;
+        }
+        return bytes;
+    }
+
+    private static int argmax(float[] values, int offset, int length) {
+        int best = 0;
+        for (int i = 1; i < length; i++) {
+            if (values[offset + i] > values[offset + best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static float[] minMax(float[] values, int from, int to) {
+        float lo = Float.POSITIVE_INFINITY;
+        float hi = Float.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            lo = Math.min(lo, values[i]);
+            hi = Math.max(hi, values[i]);
+        }
+        return new float[] {lo, hi};
+    }
+
+    /**
+     * Affine scale covering [lo, hi] (always including 0 so zero is exactly representable).
+     */
+    private static float scaleFor(float lo, float hi) {
+        lo = Math.min(0.0f, lo);
+        hi = Math.max(0.0f, hi);
+        float span = hi - lo;
+        return span > 0.0f ? span / (QMAX - QMIN) : 1.0f;
+    }
+
+    private static int zeroPointFor(float lo, float scale) {
+        lo = Math.min(0.0f, lo);
+        return Math.max(QMIN, Math.min(QMAX, QMIN - Math.round(lo / scale)));
+    }
+
+    private static int quantizeValue(float value, float scale, int zeroPoint) {
+        return Math.max(QMIN, Math.min(QMAX, Math.round(value / scale) + zeroPoint));
+    }
+}
@@ -0,0 +1,322 @@
+package com.minecraft.gancity.ml;
+
+import java.util.Locale;
+
+/**
+ * Fixed-capacity replay storage laid out as primitive columns (struct-of-arrays).
+ *
+ * States and next-states are stored row-major in one contiguous array each
+ * ({@code capacity * stateSize}), alongside int action, float reward and a done bitset.
+ * Gathering a training batch is a sequential copy per row instead of chasing two
+ * {@code float[]} per experience object. States can optionally be stored as half floats or
+ * 8-bit values with a per-row scale (2x / ~4x smaller state columns).
+ *
+ * Not thread-safe: owners guard it with their own lock.
+ */
+public final class ReplayRing {
+
+    /**
+     * How state vectors are stored.
+     */
+    public enum StateEncoding {
+        FLOAT32,
+        FLOAT16,
+        INT8;
+
+        public static StateEncoding parse(String value) {
+            if (value == null) {
+                return FLOAT32;
+            }
+            switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "float16":
+                case "fp16":
+                case "half":
+                    return FLOAT16;
+                case "int8":
+                case "8bit":
+                case "byte":
+                    return INT8;
+                default:
+                    return FLOAT32;
+            }
+        }
+    }
+
+    private final int capacity;
+    private final int stateSize;
+    private final StateEncoding encoding;
+
+    // Exactly one pair of state columns is allocated, depending on the encoding
+    private final float[] states32;
+    private final float[] nextStates32;
+    private final short[] states16;
+    private final short[] nextStates16;
+    private final byte[] states8;
+    private final byte[] nextStates8;
+    private final float[] stateScales;
+    private final float[] nextStateScales;
+
+    private final int[] actions;
+    private final float[] rewards;
+    private final long[] doneBits;
+
+    private int writeIndex = 0;
+    private int size = 0;
+
+    public ReplayRing(int capacity, int stateSize, StateEncoding encoding) {
+        this.capacity = Math.max(1, capacity);
+        this.stateSize = Math.max(1, stateSize);
+        this.encoding = encoding != null ? encoding : StateEncoding.FLOAT32;
+
+        int cells = this.capacity * this.stateSize;
+        this.states32 = this.encoding == StateEncoding.FLOAT32 ? new float[cells] : null;
+        this.nextStates32 = this.encoding == StateEncoding.FLOAT32 ? new float[cells] : null;
+        this.states16 = this.encoding == StateEncoding.FLOAT16 ? new short[cells] : null;
+        this.nextStates16 = this.encoding == StateEncoding.FLOAT16 ? new short[cells] : null;
+        this.states8 = this.encoding == StateEncoding.INT8 ? new byte[cells] : null;
+        this.nextStates8 = this.encoding == StateEncoding.INT8 ? new byte[cells] : null;
+        this.stateScales = this.encoding == StateEncoding.INT8 ? new float[this.capacity] : null;
+        this.nextStateScales = this.encoding == StateEncoding.INT8 ? new float[this.capacity] : null;
+
+        this.actions = new int[this.capacity];
+        this.rewards = new float[this.capacity];
+        this.doneBits = new long[(this.capacity + 63) >>> 6];
+    }
+
+    /**
+     * Append an experience, overwriting the oldest one when full.
+     * States shorter than {@code stateSize} are zero-padded, longer ones truncated.
+     * @return the slot written
+     */
+    public int add(float[] state, int action, float reward, float[] nextState, boolean done) {
+        int slot = writeIndex;
+        writeRow(slot, state, false);
+        writeRow(slot, nextState, true);
+        actions[slot] = action;
+        rewards[slot] = reward;
+        if (done) {
+            doneBits[slot >>> 6] |= 1L << slot;
+        } else {
+            doneBits[slot >>> 6] &= ~(1L << slot);
+        }
+
+        writeIndex = (writeIndex + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+        return slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int stateSize() {
+        return stateSize;
+    }
+
+    public StateEncoding encoding() {
+        return encoding;
+    }
+
+    public int action(int slot) {
+        return actions[slot];
+    }
+
+    public float reward(int slot) {
+        return rewards[slot];
+    }
+
+    public boolean done(int slot) {
+        return (doneBits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Decode a slot's state into {@code out[offset .. offset + stateSize)}.
+     */
+    public void readState(int slot, float[] out, int offset) {
+        readRow(slot, out, offset, false);
+    }
+
+    public void readNextState(int slot, float[] out, int offset) {
+        readRow(slot, out, offset, true);
+    }
+
+    /**
+     * Copy {@code count} slots into flat row-major training arrays (B x stateSize).
+     * {@code notDone} receives 1 for non-terminal transitions, 0 otherwise.
+     */
+    public void gather(int[] slots, int count, float[] statesOut, float[] nextStatesOut,
+                       int[] actionsOut, float[] rewardsOut, float[] notDoneOut) {
+        for (int i = 0; i < count; i++) {
+            int slot = slots[i];
+            readRow(slot, statesOut, i * stateSize, false);
+            readRow(slot, nextStatesOut, i * stateSize, true);
+            actionsOut[i] = actions[slot];
+            rewardsOut[i] = rewards[slot];
+            notDoneOut[i] = done(slot) ? 0.0f : 1.0f;
+        }
+    }
+
+    /**
+     * Materialize one slot as an object (for callers that still want {@code Experience}s).
+     */
+    public PrioritizedReplayBuffer.Experience toExperience(int slot) {
+        float[] state = new float[stateSize];
+        float[] nextState = new float[stateSize];
+        readRow(slot, state, 0, false);
+        readRow(slot, nextState, 0, true);
+        return new PrioritizedReplayBuffer.Experience(state, actions[slot], rewards[slot], nextState, done(slot));
+    }
+
+    /**
+     * Approximate bytes used by the columns (for stats).
+     */
+    public long memoryBytes() {
+        long cells = (long) capacity * stateSize * 2;
+        long stateBytes;
+        switch (encoding) {
+            case FLOAT16:
+                stateBytes = cells * 2;
+                break;
+            case INT8:
+                stateBytes = cells + capacity * 8L;
+                break;
+            default:
+                stateBytes = cells * 4;
+                break;
+        }
+        return stateBytes + capacity * 8L + doneBits.length * 8L;
+    }
+
+    private void writeRow(int slot, float[] values, boolean next) {
+        int base = slot * stateSize;
+        int n = values != null ? Math.min(stateSize, values.length) : 0;
+        switch (encoding) {
+            case FLOAT16: {
+                short[] column = next ? nextStates16 : states16;
+                for (int i = 0; i < stateSize; i++) {
+                    column[base + i] = toHalf(i < n ? values[i] : 0.0f);
+                }
+                break;
+            }
+            case INT8: {
+                byte[] column = next ? nextStates8 : states8;
+                float maxAbs = 0.0f;
+                for (int i = 0; i < n; i++) {
+                    maxAbs = Math.max(maxAbs, Math.abs(values[i]));
+                }
+                float scale = maxAbs > 0.0f ? maxAbs / 127.0f : 0.0f;
+                (next ? nextStateScales : stateScales)[slot] = scale;
+                for (int i = 0; i < stateSize; i++) {
+                    column[base + i] = (i < n && scale > 0.0f) ? (byte) Math.round(values[i] / scale) : 0;
+                }
+                break;
+            }
+            default: {
+                float[] column = next ? nextStates32 : states32;
+                if (n > 0) {
+                    System.arraycopy(values, 0, column, base, n);
+                }
+                for (int i = n; i < stateSize; i++) {
+                    column[base + i] = 0.0f;
+                }
+                break;
+            }
+        }
+    }
+
+    private void readRow(int slot, float[] out, int offset, boolean next) {
+        int base = slot * stateSize;
+        switch (encoding) {
+            case FLOAT16: {
+                short[] column = next ? nextStates16 : states16;
+                for (int i = 0; i < stateSize; i++) {
+                    out[offset + i] = fromHalf(column[base + i]);
+                }
+                break;
+            }
+            case INT8: {
+                byte[] column = next ? nextStates8 : states8;
+                float scale = (next ? nextStateScales : stateScales)[slot];
+                for (int i = 0; i < stateSize; i++) {
+                    out[offset + i] = column[base + i] * scale;
+                }
+                break;
+            }
+            default:
+                System.arraycopy(next ? nextStates32 : states32, base, out, offset, stateSize);
+                break;
+        }
+    }
+
+    /**
+     * IEEE 754 binary16 encode (round to nearest, overflow clamps to the largest finite value).
+     */
+    static short toHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int rawExp = (bits >>> 23) & 0xFF;
+        int mant = bits & 0x7FFFFF;
+
+        if (rawExp == 0xFF) {
+            return (short) (sign | 0x7C00 | (mant != 0 ? 0x200 : 0));  // Inf / NaN
+        }
+
+        int exp = rawExp - 127 + 15;
+        if (exp >= 31) {
+            return (short) (sign | 0x7BFF);
+        }
+        if (exp <= 0) {
+            if (exp < -10) {
+                return (short) sign;  // Underflows to zero
+            }
+            mant |= 0x800000;
+            int shift = 14 - exp;
+            int half = mant >> shift;
+            if (((mant >> (shift - 1)) & 1) != 0) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+
+        int half = (exp << 10) | (mant >> 13);
+        if ((mant & 0x1000) != 0) {
+            half++;  // Carry into the exponent is still correctly rounded
+        }
+        if (half >= 0x7C00) {
+            half = 0x7BFF;
+        }
+        return (short) (sign | half);
+    }
+
+    /**
+     * IEEE 754 binary16 decode.
+     */
+    static float fromHalf(short value) {
+        int h = value & 0xFFFF;
+        int sign = (h & 0x8000) << 16;
+        int exp = (h >>> 10) & 0x1F;
+        int mant = h & 0x3FF;
+
+        if (exp == 0) {
+            if (mant == 0) {
+                return Float.intBitsToFloat(sign);
+            }
+            // Subnormal: normalise the mantissa
+            while ((mant & 0x400) == 0) {
+                mant <<= 1;
+                exp--;
+            }
+            exp++;
+            mant &= 0x3FF;
+        } else if (exp == 31) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mant << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mant << 13));
+    }
+}
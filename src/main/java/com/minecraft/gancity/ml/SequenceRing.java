@@ -0,0 +1,198 @@
+package com.minecraft.gancity.ml;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded lock-free hand-off from any number of producers to one consumer, over preallocated,
+ * reusable slot objects.
+ *
+ * Sequence-based ring (one sequence number per slot): a producer {@link #claim}s a slot with one
+ * CAS on the tail, fills the slot object in place and {@link #publish}es it by advancing the slot
+ * sequence; the consumer {@link #poll}s published slots in order. Nothing ever blocks: when the
+ * ring is full the configured {@link DropPolicy} decides which entry is lost, and every loss is
+ * counted.
+ *
+ * @param <T> slot type; consumers must copy anything they keep beyond their callback, since the
+ *            slot is refilled by a later producer
+ */
+public final class SequenceRing<T> {
+
+    /**
+     * What to do when a producer finds the ring full.
+     */
+    public enum DropPolicy {
+        /** Discard the oldest queued entry to make room (favours fresh data). */
+        DROP_OLDEST,
+        /** Reject the incoming entry. */
+        DROP_NEWEST;
+
+        public static DropPolicy parse(String value) {
+            if (value == null) {
+                return DROP_OLDEST;
+            }
+            String v = value.trim().toLowerCase(Locale.ROOT);
+            return v.equals("newest") || v.equals("drop_newest") ? DROP_NEWEST : DROP_OLDEST;
+        }
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final DropPolicy policy;
+    private final Consumer<T> recycler;  // Runs on every slot as it is freed, null for none
+
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong(0);
+    private final AtomicLong tail = new AtomicLong(0);
+    private final Object[] slots;
+
+    private final AtomicLong claimed = new AtomicLong(0);
+    private final AtomicLong droppedOldest = new AtomicLong(0);
+    private final AtomicLong droppedNewest = new AtomicLong(0);
+
+    /**
+     * @param requestedCapacity rounded up to a power of two
+     * @param slotFactory       creates each preallocated slot once
+     * @param recycler          clears a slot after it is consumed or evicted (e.g. drops references), or null
+     */
+    public SequenceRing(int requestedCapacity, Supplier<T> slotFactory, DropPolicy policy, Consumer<T> recycler) {
+        int size = 2;
+        while (size < requestedCapacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.policy = policy != null ? policy : DropPolicy.DROP_OLDEST;
+        this.recycler = recycler;
+
+        this.sequences = new AtomicLongArray(size);
+        this.slots = new Object[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+            slots[i] = slotFactory.get();
+        }
+    }
+
+    /**
+     * Claim the next slot for the caller to fill; it must be {@link #publish}ed right after.
+     * Never blocks.
+     * @return the claimed position, or -1 if the ring was full and this entry is dropped
+     */
+    public long claim() {
+        claimed.incrementAndGet();
+        boolean evicted = false;
+
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    return pos;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // Full. Drop-oldest gets one eviction attempt; if the oldest slot is mid-read
+                // or another producer raced us, drop this one instead of spinning.
+                if (policy == DropPolicy.DROP_OLDEST && !evicted && poll(null)) {
+                    droppedOldest.incrementAndGet();
+                    evicted = true;
+                    pos = tail.get();
+                } else {
+                    droppedNewest.incrementAndGet();
+                    return -1;
+                }
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * The slot object at a claimed position.
+     */
+    @SuppressWarnings("unchecked")
+    public T slot(long position) {
+        return (T) slots[(int) (position & mask)];
+    }
+
+    /**
+     * Make a claimed, filled slot visible to the consumer.
+     */
+    public void publish(long position) {
+        sequences.set((int) (position & mask), position + 1);
+    }
+
+    /**
+     * Take the oldest published slot, hand it to {@code consumer} (null = discard) and free it.
+     * Meant for the single consumer; producers also use it with a null consumer to evict under
+     * drop-oldest.
+     * @return false if nothing was published (empty, or the oldest slot is still being written)
+     */
+    public boolean poll(Consumer<T> consumer) {
+        long pos = head.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = head.get();
+            }
+        }
+
+        int index = (int) (pos & mask);
+        T slot = slot(pos);
+        try {
+            if (consumer != null) {
+                consumer.accept(slot);
+            }
+        } finally {
+            if (recycler != null) {
+                recycler.accept(slot);
+            }
+            sequences.set(index, pos + capacity);  // Free for the producer one lap ahead
+        }
+        return true;
+    }
+
+    /**
+     * Approximate number of queued entries.
+     */
+    public int size() {
+        long n = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(capacity, n));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public DropPolicy policy() {
+        return policy;
+    }
+
+    public long getClaimedCount() {
+        return claimed.get();
+    }
+
+    public long getDroppedOldestCount() {
+        return droppedOldest.get();
+    }
+
+    public long getDroppedNewestCount() {
+        return droppedNewest.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedOldest.get() + droppedNewest.get();
+    }
+}
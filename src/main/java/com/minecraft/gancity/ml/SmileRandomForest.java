@@ -1,5 +1,6 @@
 package com.minecraft.gancity.ml;
 
+import com.minecraft.gancity.compat.OptionalHandles;
 import com.mojang.logging.LogUtils;
 import org.slf4j.Logger;
 
@@ -7,6 +8,7 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Smile Random Forest for ensemble tactic prediction.
@@ -18,18 +20,54 @@ import java.util.*;
  * - Out-of-bag error estimation
  * - Fast training and inference
  * - No external dependencies (pure Java)
+ * 
+ * Forests are fitted on a background thread from a snapshot of the training buffer and
+ * published through a volatile reference, so prediction never sees a half-built model.
+ * Each new forest is also exported to a {@link FlatForest} and, once it predicts identically
+ * on the training snapshot, serves predictions without calling into Smile.
  */
 public class SmileRandomForest {
     private static final Logger LOGGER = LogUtils.getLogger();
     
-    private Object randomForest; // smile.classification.RandomForest (dynamically loaded)
-    private final Map<String, List<TrainingExample>> trainingBuffer = new HashMap<>();
-    private final Map<String, double[]> featureImportance = new HashMap<>();
+    private volatile Object randomForest; // smile.classification.RandomForest (dynamically loaded)
+    private volatile FlatForest flatForest; // Reflection-free copy of randomForest (null if export/parity failed)
+    private static final ThreadLocal<int[]> VOTE_SCRATCH = ThreadLocal.withInitial(() -> new int[64]);
+    private static final int PARITY_SAMPLE_SIZE = 200;
+    private final Map<String, List<TrainingExample>> trainingBuffer = new HashMap<>();  // Server thread only
+    private final Map<String, double[]> featureImportance = new ConcurrentHashMap<>();
     private boolean isAvailable = false;
     private static final int BATCH_SIZE = 200;
+    private static final int MAX_BUFFERED_EXAMPLES = BATCH_SIZE * 5;  // Cap while a retrain is pending
+    private static final long MIN_RETRAIN_INTERVAL_MS = 30_000;
+    private final ModelRetrainScheduler retrainScheduler =
+        new ModelRetrainScheduler("Random Forest", MIN_RETRAIN_INTERVAL_MS);
     private static final int NUM_TREES = 100;
     private static final int MAX_DEPTH = 20;
     
+    /**
+     * Smile members, bound once when the first forest is created
+     */
+    private static final class Smile {
+        static final Class<?> FOREST_CLASS = OptionalHandles.findClass("smile.classification.RandomForest");
+        static final OptionalHandles.Invoker<Object> FIT =
+            OptionalHandles.method(FOREST_CLASS, "fit", Object.class, null, double[][].class, int[].class);
+        static final OptionalHandles.Invoker<Integer> PREDICT =
+            OptionalHandles.method(FOREST_CLASS, "predict", Integer.class, -1, double[].class);
+        static final OptionalHandles.Invoker<Integer> PREDICT_PROBABILITIES =
+            OptionalHandles.method(FOREST_CLASS, "predict", Integer.class, -1, double[].class, double[].class);
+        static final OptionalHandles.Invoker<double[]> IMPORTANCE =
+            OptionalHandles.method(FOREST_CLASS, "importance", double[].class, null);
+        static final OptionalHandles.Invoker<Double> ERROR =
+            OptionalHandles.method(FOREST_CLASS, "error", Double.class, -1.0);
+
+        static {
+            OptionalHandles.reportIntegration("Smile Random Forest", FIT, PREDICT);
+        }
+
+        private Smile() {
+        }
+    }
+    
     /**
      * Training example with mob state features and tactic label
      */
@@ -44,14 +82,12 @@ public class SmileRandomForest {
     }
     
     public SmileRandomForest() {
-        try {
-            // Check if Smile is available
-            Class.forName("smile.classification.RandomForest");
-            isAvailable = true;
+        // Check if Smile is available
+        isAvailable = Smile.FOREST_CLASS != null;
+        if (isAvailable) {
             LOGGER.info("Smile ML available - Random Forest enabled for tactic prediction");
-        } catch (ClassNotFoundException e) {
+        } else {
             LOGGER.debug("Smile not found - using DQN/XGBoost/rules only");
-            isAvailable = false;
         }
     }
     
@@ -85,17 +121,19 @@ public class SmileRandomForest {
      * Predict best tactic using Random Forest
      */
     public int predictTactic(double[] features) {
-        if (!isAvailable || randomForest == null) {
+        FlatForest flat = flatForest;
+        if (flat != null) {
+            return flat.predictClass(features, voteScratch(flat.getNumClasses()));
+        }
+        
+        Object forest = randomForest;
+        if (!isAvailable || forest == null) {
             return -1; // Fall back to other ML systems
         }
         
         try {
-            // Call Smile RandomForest.predict() via reflection
-            Class<?> forestClass = Class.forName("smile.classification.RandomForest");
-            int prediction = (int) forestClass.getMethod("predict", double[].class)
-                .invoke(randomForest, features);
-            
-            return prediction;
+            // Call Smile RandomForest.predict() through the bound handle
+            return Smile.PREDICT.invoke(forest, features);
         } catch (Exception e) {
             LOGGER.warn("Smile Random Forest prediction failed: {}", e.getMessage());
             return -1;
@@ -106,17 +144,25 @@ public class SmileRandomForest {
      * Get prediction confidence/probability distribution
      */
     public double[] predictProbabilities(double[] features, int numClasses) {
-        if (!isAvailable || randomForest == null) {
+        FlatForest flat = flatForest;
+        if (flat != null) {
+            double[] probabilities = new double[Math.max(numClasses, flat.getNumClasses())];
+            flat.predictProbabilities(features, probabilities);
+            return numClasses == probabilities.length ? probabilities : Arrays.copyOf(probabilities, numClasses);
+        }
+        
+        Object forest = randomForest;
+        if (!isAvailable || forest == null) {
             return null;
         }
         
         try {
             // Get probability estimates from forest
-            Class<?> forestClass = Class.forName("smile.classification.RandomForest");
+            if (!Smile.PREDICT_PROBABILITIES.isPresent()) {
+                return null;
+            }
             double[] probabilities = new double[numClasses];
-            
-            forestClass.getMethod("predict", double[].class, double[].class)
-                .invoke(randomForest, features, probabilities);
+            Smile.PREDICT_PROBABILITIES.invoke(forest, features, probabilities);
             
             return probabilities;
         } catch (Exception e) {
@@ -134,18 +180,41 @@ public class SmileRandomForest {
         trainingBuffer.computeIfAbsent(mobType, k -> new ArrayList<>())
             .add(new TrainingExample(features, tacticIndex));
         
-        // Train when buffer is full
-        if (trainingBuffer.get(mobType).size() >= BATCH_SIZE) {
-            trainForest(mobType);
+        // Retrain in the background when buffer is full
+        List<TrainingExample> examples = trainingBuffer.get(mobType);
+        if (examples.size() >= BATCH_SIZE) {
+            scheduleRetrain(mobType, examples);
         }
     }
     
     /**
-     * Train Random Forest on buffered examples
+     * Hand a snapshot of the buffer to the background trainer (coalesced while one is running)
      */
-    private void trainForest(String mobType) {
-        List<TrainingExample> examples = trainingBuffer.get(mobType);
-        if (examples == null || examples.size() < 10) return; // Need minimum data
+    private void scheduleRetrain(String mobType, List<TrainingExample> examples) {
+        if (!retrainScheduler.isReady()) {
+            // Keep accumulating for the next retrain, but bounded
+            if (examples.size() > MAX_BUFFERED_EXAMPLES) {
+                examples.subList(0, examples.size() - MAX_BUFFERED_EXAMPLES).clear();
+            }
+            return;
+        }
+        
+        List<TrainingExample> snapshot = new ArrayList<>(examples);
+        if (retrainScheduler.trySchedule(() -> trainForest(mobType, snapshot))) {
+            // Clear buffer but keep some examples for incremental learning
+            if (examples.size() > BATCH_SIZE) {
+                examples.subList(0, BATCH_SIZE / 2).clear();
+            } else {
+                examples.clear();
+            }
+        }
+    }
+    
+    /**
+     * Train Random Forest on a buffer snapshot (background thread)
+     */
+    private void trainForest(String mobType, List<TrainingExample> examples) {
+        if (examples.size() < 10) return; // Need minimum data
         
         try {
             // Prepare training data
@@ -160,30 +229,28 @@ public class SmileRandomForest {
                 y[i] = ex.tacticLabel;
             }
             
-            // Train Random Forest via reflection
-            Class<?> forestClass = Class.forName("smile.classification.RandomForest");
-            Class.forName("smile.data.formula.Formula");
-            
             // Use simple fit method: RandomForest.fit(x, y)
-            randomForest = forestClass.getMethod("fit", double[][].class, int[].class)
-                .invoke(null, x, y);
+            if (!Smile.FIT.isPresent()) {
+                throw new IllegalStateException("RandomForest.fit(double[][], int[]) not available");
+            }
+            Object forest = Smile.FIT.invoke(x, y);
             
             // Extract feature importance
             try {
-                Object importance = forestClass.getMethod("importance").invoke(randomForest);
-                if (importance instanceof double[]) {
-                    featureImportance.put(mobType, (double[]) importance);
+                double[] importance = Smile.IMPORTANCE.invoke(forest);
+                if (importance != null) {
+                    featureImportance.put(mobType, importance);
                 }
             } catch (Exception e) {
                 LOGGER.debug("Feature importance extraction failed: {}", e.getMessage());
             }
             
-            // Clear buffer but keep some examples for incremental learning
-            if (examples.size() > BATCH_SIZE) {
-                examples.subList(0, BATCH_SIZE / 2).clear();
-            } else {
-                examples.clear();
-            }
+            // Flatten for direct array inference (only used if it matches the real forest)
+            FlatForest flat = exportFlat(forest, x, y);
+            
+            // Publish only once fully built
+            flatForest = flat;
+            randomForest = forest;
             
             LOGGER.info("Random Forest trained for {} - {} examples, {} trees, max depth {}",
                 mobType, numExamples, NUM_TREES, MAX_DEPTH);
@@ -192,6 +259,53 @@ public class SmileRandomForest {
         }
     }
     
+    /**
+     * Export {@code forest} to flat arrays and check it predicts exactly like Smile on the
+     * training rows. Returns null (handle-based path stays in use) on any export error or mismatch.
+     */
+    private FlatForest exportFlat(Object forest, double[][] x, int[] y) {
+        int numClasses = 0;
+        for (int label : y) {
+            numClasses = Math.max(numClasses, label + 1);
+        }
+        
+        try {
+            FlatForest flat = FlatForest.fromSmile(forest, numClasses);
+            int[] votes = new int[flat.getNumClasses()];
+            int step = Math.max(1, x.length / PARITY_SAMPLE_SIZE);
+            int mismatches = 0;
+            int checked = 0;
+            for (int i = 0; i < x.length; i += step) {
+                int expected = Smile.PREDICT.invoke(forest, x[i]);
+                if (flat.predictClass(x[i], votes) != expected) {
+                    mismatches++;
+                }
+                checked++;
+            }
+            
+            if (mismatches > 0) {
+                LOGGER.warn("Flat Random Forest disagreed on {}/{} samples - keeping Smile predictions",
+                    mismatches, checked);
+                return null;
+            }
+            LOGGER.debug("Flat Random Forest ready: {} trees, {} nodes (parity {}/{})",
+                flat.getTreeCount(), flat.getNodeCount(), checked, checked);
+            return flat;
+        } catch (Exception e) {
+            LOGGER.debug("Random Forest flattening unavailable: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private static int[] voteScratch(int numClasses) {
+        int[] votes = VOTE_SCRATCH.get();
+        if (votes.length < numClasses) {
+            votes = new int[numClasses];
+            VOTE_SCRATCH.set(votes);
+        }
+        return votes;
+    }
+    
     /**
      * Get feature importance scores (higher = more important)
      */
@@ -246,7 +360,8 @@ public class SmileRandomForest {
      * Save model to disk
      */
     public void saveModel(Path modelPath) {
-        if (!isAvailable || randomForest == null) return;
+        Object forest = randomForest;
+        if (!isAvailable || forest == null) return;
         
         try {
             Files.createDirectories(modelPath.getParent());
@@ -254,7 +369,7 @@ public class SmileRandomForest {
             // Smile models are serializable
             try (ObjectOutputStream oos = new ObjectOutputStream(
                     new FileOutputStream(modelPath.toFile()))) {
-                oos.writeObject(randomForest);
+                oos.writeObject(forest);
             }
             
             LOGGER.info("Random Forest model saved to {}", modelPath);
@@ -272,7 +387,9 @@ public class SmileRandomForest {
         try {
             try (ObjectInputStream ois = new ObjectInputStream(
                     new FileInputStream(modelPath.toFile()))) {
-                randomForest = ois.readObject();
+                Object forest = ois.readObject();
+                flatForest = null;  // Re-flattened (with a parity check) on the next retrain
+                randomForest = forest;
             }
             
             LOGGER.info("Random Forest model loaded from {}", modelPath);
@@ -301,14 +418,11 @@ public class SmileRandomForest {
      * Get out-of-bag error estimate (if available)
      */
     public double getOOBError() {
-        if (!isAvailable || randomForest == null) return -1.0;
+        Object forest = randomForest;
+        if (!isAvailable || forest == null) return -1.0;
         
         try {
-            Class<?> forestClass = Class.forName("smile.classification.RandomForest");
-            Object error = forestClass.getMethod("error").invoke(randomForest);
-            if (error instanceof Double) {
-                return (Double) error;
-            }
+            return Smile.ERROR.invoke(forest);
         } catch (Exception e) {
             LOGGER.debug("OOB error not available: {}", e.getMessage());
         }
@@ -320,6 +434,13 @@ public class SmileRandomForest {
         return isAvailable;
     }
     
+    /**
+     * True while a background retrain is running
+     */
+    public boolean isRetraining() {
+        return retrainScheduler.isRetraining();
+    }
+    
     /**
      * Get training statistics
      */
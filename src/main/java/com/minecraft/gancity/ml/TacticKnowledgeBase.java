@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 /**
  * RAG (Retrieval-Augmented Generation) Knowledge Base
@@ -17,12 +18,18 @@ import java.util.concurrent.ConcurrentHashMap;
  * - Counter-tactics database
  * - Learning from past encounters
  * - Federated learning integration for global knowledge sharing
+ * 
+ * Conditions are compiled into predicates when a tactic is added. Each category keeps a
+ * name index plus a copy-on-write array ranked by success rate, so queries are a predicate
+ * scan over a pre-sorted snapshot and readers never lock. Full-text search goes through a
+ * {@link TacticSearchIndex} kept in step with inserts and evictions.
  */
 public class TacticKnowledgeBase {
     private static final Logger LOGGER = LogUtils.getLogger();
     
     // Knowledge storage
-    private final Map<String, List<TacticEntry>> tacticsByCategory = new ConcurrentHashMap<>();
+    private final Map<String, Category> tacticsByCategory = new ConcurrentHashMap<>();
+    private final TacticSearchIndex searchIndex = new TacticSearchIndex();
     private final Map<String, PlayerBehaviorProfile> playerProfiles = new ConcurrentHashMap<>();
     private final Map<String, Float> tacticSuccessRates = new ConcurrentHashMap<>();
     
@@ -102,27 +109,26 @@ public class TacticKnowledgeBase {
             TacticType.POSITIONING
         ));
         
-        LOGGER.info("Knowledge Base initialized with {} baseline tactics", 
-            tacticsByCategory.values().stream().mapToInt(List::size).sum());
+        LOGGER.info("Knowledge Base initialized with {} baseline tactics", getTotalTactics());
     }
     
     /**
      * Query knowledge base for relevant tactics
      */
     public List<TacticEntry> queryTactics(String category, Map<String, Object> context) {
-        List<TacticEntry> candidates = tacticsByCategory.getOrDefault(category, new ArrayList<>());
-        List<TacticEntry> relevant = new ArrayList<>();
+        Category entries = tacticsByCategory.get(category);
+        if (entries == null) {
+            return new ArrayList<>();
+        }
         
-        for (TacticEntry tactic : candidates) {
-            // Check if tactic conditions are met
-            if (matchesConditions(tactic, context)) {
+        // Snapshot is already ranked by success rate
+        List<TacticEntry> relevant = new ArrayList<>();
+        for (TacticEntry tactic : entries.ranked) {
+            if (tactic.matches(context)) {
                 relevant.add(tactic);
             }
         }
         
-        // Sort by success rate
-        relevant.sort((a, b) -> Float.compare(b.successRate, a.successRate));
-        
         return relevant;
     }
     
@@ -130,43 +136,26 @@ public class TacticKnowledgeBase {
      * Get best tactic for situation
      */
     public TacticEntry getBestTactic(String category, Map<String, Object> context) {
-        List<TacticEntry> tactics = queryTactics(category, context);
-        
-        if (tactics.isEmpty()) {
+        Category entries = tacticsByCategory.get(category);
+        if (entries == null) {
             return null;
         }
         
-        // Return highest success rate
-        return tactics.get(0);
+        // First match in the ranked snapshot has the highest success rate
+        for (TacticEntry tactic : entries.ranked) {
+            if (tactic.matches(context)) {
+                return tactic;
+            }
+        }
+        return null;
     }
     
     /**
      * Add new tactic from experience
      */
     public void addTactic(String category, TacticEntry tactic) {
-        List<TacticEntry> entries = tacticsByCategory.computeIfAbsent(
-            category, k -> new ArrayList<>()
-        );
-        
-        // Check if tactic already exists
-        Optional<TacticEntry> existing = entries.stream()
-            .filter(e -> e.name.equals(tactic.name))
-            .findFirst();
-        
-        if (existing.isPresent()) {
-            // Update existing tactic
-            TacticEntry existingTactic = existing.get();
-            existingTactic.updateSuccessRate(tactic.successRate);
-            existingTactic.lastUsed = System.currentTimeMillis();
-        } else {
-            // Add new tactic
-            entries.add(tactic);
-            
-            // Evict old tactics if limit exceeded
-            if (entries.size() > MAX_ENTRIES_PER_CATEGORY) {
-                evictOldTactics(entries);
-            }
-        }
+        // Updates an existing tactic of the same name, otherwise inserts (evicting the weakest)
+        tacticsByCategory.computeIfAbsent(category, k -> new Category(searchIndex)).addOrUpdate(tactic);
         
         LOGGER.debug("Added tactic '{}' to category '{}'", tactic.name, category);
     }
@@ -186,25 +175,12 @@ public class TacticKnowledgeBase {
         
         tacticSuccessRates.put(key, newRate);
         
-        // Update tactic in knowledge base
+        // Update tactic in knowledge base (name index lookup per category)
         String category = null;
-        Map<String, String> conditions = new HashMap<>();
-        
-        for (Map.Entry<String, List<TacticEntry>> catEntry : tacticsByCategory.entrySet()) {
-            for (TacticEntry entry : catEntry.getValue()) {
-                if (entry.name.equalsIgnoreCase(tacticName)) {
-                    entry.updateSuccessRate(newRate);
-                    entry.timesUsed++;
-                    category = catEntry.getKey();
-                    
-                    // Extract conditions for federated learning
-                    for (String cond : entry.conditions) {
-                        String[] parts = cond.split(" ");
-                        if (parts.length >= 2) {
-                            conditions.put(parts[0], parts.length > 2 ? parts[2] : parts[1]);
-                        }
-                    }
-                }
+        String nameKey = tacticName.toLowerCase(Locale.ROOT);
+        for (Map.Entry<String, Category> catEntry : tacticsByCategory.entrySet()) {
+            if (catEntry.getValue().recordUse(nameKey, newRate)) {
+                category = catEntry.getKey();
             }
         }
         
@@ -259,24 +235,18 @@ public class TacticKnowledgeBase {
     
     /**
      * Search knowledge base (RAG query)
+     * Query words match name, description and condition words, or any word they are a prefix of
      */
     public List<TacticEntry> search(String query) {
-        List<TacticEntry> results = new ArrayList<>();
-        String lowerQuery = query.toLowerCase();
-        
-        for (List<TacticEntry> entries : tacticsByCategory.values()) {
-            for (TacticEntry entry : entries) {
-                if (entry.name.toLowerCase().contains(lowerQuery) ||
-                    entry.description.toLowerCase().contains(lowerQuery)) {
-                    results.add(entry);
-                }
-            }
-        }
-        
-        // Sort by relevance (success rate)
-        results.sort((a, b) -> Float.compare(b.successRate, a.successRate));
-        
-        return results;
+        return search(query, 0);
+    }
+    
+    /**
+     * Search knowledge base, ranked by matched query words then success rate
+     * @param limit maximum results (<= 0 for all)
+     */
+    public List<TacticEntry> search(String query, int limit) {
+        return searchIndex.search(query, limit);
     }
     
     /**
@@ -285,12 +255,9 @@ public class TacticKnowledgeBase {
     public Map<String, Object> getStats() {
         Map<String, Object> stats = new HashMap<>();
         
-        int totalTactics = tacticsByCategory.values().stream()
-            .mapToInt(List::size)
-            .sum();
-        
-        stats.put("total_tactics", totalTactics);
+        stats.put("total_tactics", getTotalTactics());
         stats.put("categories", tacticsByCategory.size());
+        stats.put("indexed_terms", searchIndex.termCount());
         stats.put("player_profiles", playerProfiles.size());
         stats.put("success_rates", tacticSuccessRates.size());
         
@@ -310,7 +277,7 @@ public class TacticKnowledgeBase {
     public void cleanup() {
         long currentTime = System.currentTimeMillis();
         
-        for (List<TacticEntry> entries : tacticsByCategory.values()) {
+        for (Category entries : tacticsByCategory.values()) {
             entries.removeIf(entry -> 
                 (currentTime - entry.lastUsed) > ENTRY_EXPIRATION_MS &&
                 entry.successRate < MIN_SUCCESS_RATE
@@ -325,48 +292,203 @@ public class TacticKnowledgeBase {
      */
     
     private void addBaselineTactic(String category, TacticEntry tactic) {
-        List<TacticEntry> entries = tacticsByCategory.computeIfAbsent(
-            category, k -> new ArrayList<>()
-        );
-        entries.add(tactic);
+        tacticsByCategory.computeIfAbsent(category, k -> new Category(searchIndex)).addOrUpdate(tactic);
     }
     
-    private boolean matchesConditions(TacticEntry tactic, Map<String, Object> context) {
-        for (String condition : tactic.conditions) {
-            if (!evaluateCondition(condition, context)) {
-                return false;
-            }
+    private int getTotalTactics() {
+        int total = 0;
+        for (Category entries : tacticsByCategory.values()) {
+            total += entries.ranked.length;
         }
-        return true;
+        return total;
     }
     
-    private boolean evaluateCondition(String condition, Map<String, Object> context) {
-        // Simple condition parsing (can be enhanced with actual expression evaluator)
-        // Format: "key operator value"
-        String[] parts = condition.split(" ");
+    /**
+     * One category: name index plus a ranked copy-on-write snapshot.
+     * Writers synchronize on the category; readers only read the volatile array.
+     */
+    private static final class Category {
+        private final TacticSearchIndex searchIndex;
+        private final Map<String, TacticEntry> byName = new ConcurrentHashMap<>();  // Lower-case name
+        private volatile TacticEntry[] ranked = new TacticEntry[0];  // Success rate, descending
         
-        if (parts.length < 2) {
-            return true; // Invalid condition, skip
+        Category(TacticSearchIndex searchIndex) {
+            this.searchIndex = searchIndex;
         }
         
-        String key = parts[0];
-        Object value = context.get(key);
+        synchronized void addOrUpdate(TacticEntry tactic) {
+            String key = tactic.name.toLowerCase(Locale.ROOT);
+            TacticEntry existing = byName.get(key);
+            if (existing != null) {
+                // Update existing tactic
+                existing.updateSuccessRate(tactic.successRate);
+                existing.lastUsed = System.currentTimeMillis();
+                reposition(existing);
+                return;
+            }
+            
+            byName.put(key, tactic);
+            ranked = insertRanked(ranked, tactic);
+            searchIndex.add(tactic);
+            
+            // Evict lowest success rate tactics if limit exceeded
+            if (ranked.length > MAX_ENTRIES_PER_CATEGORY) {
+                TacticEntry[] kept = Arrays.copyOf(ranked, MAX_ENTRIES_PER_CATEGORY);
+                for (int i = MAX_ENTRIES_PER_CATEGORY; i < ranked.length; i++) {
+                    byName.remove(ranked[i].name.toLowerCase(Locale.ROOT));
+                    searchIndex.remove(ranked[i]);
+                }
+                ranked = kept;
+            }
+        }
         
-        if (value == null) {
-            return false;
+        /**
+         * @return true if the category holds a tactic with this (lower-case) name
+         */
+        synchronized boolean recordUse(String nameKey, float newRate) {
+            TacticEntry entry = byName.get(nameKey);
+            if (entry == null) {
+                return false;
+            }
+            entry.updateSuccessRate(newRate);
+            entry.timesUsed++;
+            reposition(entry);
+            return true;
         }
         
-        // Simple existence check for now
-        return true;
+        synchronized void removeIf(Predicate<TacticEntry> filter) {
+            List<TacticEntry> kept = new ArrayList<>(ranked.length);
+            for (TacticEntry entry : ranked) {
+                if (filter.test(entry)) {
+                    byName.remove(entry.name.toLowerCase(Locale.ROOT));
+                    searchIndex.remove(entry);
+                } else {
+                    kept.add(entry);
+                }
+            }
+            if (kept.size() != ranked.length) {
+                ranked = kept.toArray(new TacticEntry[0]);
+            }
+        }
+        
+        /**
+         * Move one entry to its new rank after its success rate changed (caller holds the lock)
+         */
+        private void reposition(TacticEntry entry) {
+            TacticEntry[] current = ranked;
+            int index = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == entry) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+            boolean inOrder = (index == 0 || current[index - 1].successRate >= entry.successRate)
+                && (index == current.length - 1 || current[index + 1].successRate <= entry.successRate);
+            if (inOrder) {
+                return;
+            }
+            
+            TacticEntry[] without = new TacticEntry[current.length - 1];
+            System.arraycopy(current, 0, without, 0, index);
+            System.arraycopy(current, index + 1, without, index, current.length - index - 1);
+            ranked = insertRanked(without, entry);
+        }
+        
+        private static TacticEntry[] insertRanked(TacticEntry[] current, TacticEntry entry) {
+            int position = 0;
+            while (position < current.length && current[position].successRate >= entry.successRate) {
+                position++;
+            }
+            TacticEntry[] next = new TacticEntry[current.length + 1];
+            System.arraycopy(current, 0, next, 0, position);
+            next[position] = entry;
+            System.arraycopy(current, position, next, position + 1, current.length - position);
+            return next;
+        }
     }
     
-    private void evictOldTactics(List<TacticEntry> entries) {
-        // Remove lowest success rate tactics
-        entries.sort((a, b) -> Float.compare(a.successRate, b.successRate));
+    /**
+     * Compiled tactic condition. Formats: {@code "key"} (flag: present and not false) or
+     * {@code "key op value"} with op one of {@code > >= < <= == !=}; numeric values compare
+     * numerically, anything else compares as case-insensitive text.
+     */
+    static final class Condition implements Predicate<Map<String, Object>> {
+        private enum Op { PRESENT, GT, GE, LT, LE, EQ, NE }
+        
+        final String key;
+        private final Op op;
+        private final String literal;
+        private final double number;  // NaN when the literal is not numeric
+        
+        private Condition(String key, Op op, String literal) {
+            this.key = key;
+            this.op = op;
+            this.literal = literal;
+            double parsed = Double.NaN;
+            if (literal != null) {
+                try {
+                    parsed = Double.parseDouble(literal);
+                } catch (NumberFormatException ignored) {}
+            }
+            this.number = parsed;
+        }
+        
+        /**
+         * @return the compiled condition, or null if the text is blank (always satisfied)
+         */
+        static Condition compile(String text) {
+            String[] parts = text.trim().split("\\s+");
+            if (parts[0].isEmpty()) {
+                return null;
+            }
+            Op op = parts.length >= 3 ? parseOp(parts[1]) : null;
+            if (op == null) {
+                // Bare flag, or an unrecognized operator: existence check
+                return new Condition(parts[0], Op.PRESENT, null);
+            }
+            return new Condition(parts[0], op, parts[2]);
+        }
         
-        int toRemove = entries.size() - MAX_ENTRIES_PER_CATEGORY;
-        for (int i = 0; i < toRemove; i++) {
-            entries.remove(0);
+        private static Op parseOp(String symbol) {
+            switch (symbol) {
+                case ">": return Op.GT;
+                case ">=": return Op.GE;
+                case "<": return Op.LT;
+                case "<=": return Op.LE;
+                case "==": case "=": return Op.EQ;
+                case "!=": return Op.NE;
+                default: return null;
+            }
+        }
+        
+        @Override
+        public boolean test(Map<String, Object> context) {
+            Object value = context.get(key);
+            if (value == null) {
+                return false;
+            }
+            if (op == Op.PRESENT) {
+                return !Boolean.FALSE.equals(value);
+            }
+            
+            if (value instanceof Number n && !Double.isNaN(number)) {
+                int cmp = Double.compare(n.doubleValue(), number);
+                switch (op) {
+                    case GT: return cmp > 0;
+                    case GE: return cmp >= 0;
+                    case LT: return cmp < 0;
+                    case LE: return cmp <= 0;
+                    case EQ: return cmp == 0;
+                    default: return cmp != 0;
+                }
+            }
+            
+            boolean equal = String.valueOf(value).equalsIgnoreCase(literal);
+            return op == Op.EQ ? equal : op == Op.NE && !equal;
         }
     }
     
@@ -387,16 +509,18 @@ public class TacticKnowledgeBase {
         public final String name;
         public final String description;
         public final List<String> conditions;
-        public float successRate;
+        private final Condition[] compiledConditions;
+        public volatile float successRate;  // Written under the owning category's lock
         public final TacticType type;
-        public long lastUsed;
-        public int timesUsed;
+        public volatile long lastUsed;
+        public volatile int timesUsed;
         
         public TacticEntry(String name, String description, List<String> conditions, 
                           float successRate, TacticType type) {
             this.name = name;
             this.description = description;
-            this.conditions = new ArrayList<>(conditions);
+            this.conditions = List.copyOf(conditions);
+            this.compiledConditions = compile(this.conditions);
             this.successRate = successRate;
             this.type = type;
             this.lastUsed = System.currentTimeMillis();
@@ -407,6 +531,29 @@ public class TacticKnowledgeBase {
             // Exponential moving average
             this.successRate = 0.7f * this.successRate + 0.3f * newRate;
         }
+        
+        /**
+         * All compiled conditions hold for {@code context}
+         */
+        public boolean matches(Map<String, Object> context) {
+            for (Condition condition : compiledConditions) {
+                if (!condition.test(context)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private static Condition[] compile(List<String> conditions) {
+            List<Condition> compiled = new ArrayList<>(conditions.size());
+            for (String text : conditions) {
+                Condition condition = Condition.compile(text);
+                if (condition != null) {
+                    compiled.add(condition);
+                }
+            }
+            return compiled.toArray(new Condition[0]);
+        }
     }
     
     /**
@@ -0,0 +1,228 @@
+package com.minecraft.gancity.ml;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index for {@link TacticKnowledgeBase#search(String)}.
+ *
+ * Name, description and condition text are split into lower-case word tokens; each token maps
+ * to a sorted posting list of entry ids. The term dictionary is sorted, so a query token also
+ * matches every term it is a prefix of through one range view. Results are ranked by how many
+ * query tokens matched, then by success rate.
+ *
+ * Writers (add/remove, called under a category lock) take the write lock; searches share the
+ * read lock.
+ */
+final class TacticSearchIndex {
+    private static final int ID_BITS = 24;  // Ids are packed into search rank keys
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final int MAX_RANKED_MATCHES = 0xFF;
+
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private TacticKnowledgeBase.TacticEntry[] entries = new TacticKnowledgeBase.TacticEntry[64];  // By id
+    private final Map<TacticKnowledgeBase.TacticEntry, Integer> ids = new IdentityHashMap<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();  // Reused so ids stay dense
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int nextId = 0;
+
+    /**
+     * Sorted, growable int posting list.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    void add(TacticKnowledgeBase.TacticEntry entry) {
+        lock.writeLock().lock();
+        try {
+            if (ids.containsKey(entry) || (freeIds.isEmpty() && nextId > ID_MASK)) {
+                return;  // Already indexed, or the 16M id space is full (entry is then not searchable)
+            }
+            int id = freeIds.isEmpty() ? nextId++ : freeIds.pop();
+            if (id >= entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            ids.put(entry, id);
+            entries[id] = entry;
+            for (String token : tokensOf(entry)) {
+                terms.computeIfAbsent(token, t -> new Postings()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(TacticKnowledgeBase.TacticEntry entry) {
+        lock.writeLock().lock();
+        try {
+            Integer id = ids.remove(entry);
+            if (id == null) {
+                return;
+            }
+            entries[id] = null;
+            freeIds.push(id);
+            for (String token : tokensOf(entry)) {
+                Postings postings = terms.get(token);
+                if (postings != null) {
+                    postings.remove(id);
+                    if (postings.size == 0) {
+                        terms.remove(token);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param limit maximum results (<= 0 for all)
+     * @return matching entries, most query tokens matched first, then highest success rate;
+     *         a query without tokens returns every entry by success rate
+     */
+    List<TacticKnowledgeBase.TacticEntry> search(String query, int limit) {
+        Set<String> queryTokens = tokenize(query);
+
+        lock.readLock().lock();
+        try {
+            // counts[id] = query tokens matched; seen[id] = last token index that counted it
+            int[] counts = new int[nextId];
+            int candidates = 0;
+            if (queryTokens.isEmpty()) {
+                for (int id = 0; id < nextId; id++) {
+                    if (entries[id] != null) {
+                        counts[id] = 1;
+                        candidates++;
+                    }
+                }
+            } else {
+                int[] seen = new int[nextId];
+                int tokenIndex = 0;
+                for (String token : queryTokens) {
+                    tokenIndex++;
+                    // Exact term plus every term that extends it
+                    for (Postings postings : terms.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                        for (int i = 0; i < postings.size; i++) {
+                            int id = postings.ids[i];
+                            if (seen[id] != tokenIndex) {
+                                seen[id] = tokenIndex;
+                                if (counts[id]++ == 0) {
+                                    candidates++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            // Rank with one primitive sort: key = matches | success rate bits | id, ascending
+            long[] keys = new long[candidates];
+            int k = 0;
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) {
+                    keys[k++] = rankKey(counts[id], entries[id].successRate, id);
+                }
+            }
+            Arrays.sort(keys);
+
+            int resultCount = limit > 0 ? Math.min(limit, keys.length) : keys.length;
+            List<TacticKnowledgeBase.TacticEntry> results = new ArrayList<>(resultCount);
+            for (int i = keys.length - 1; i >= keys.length - resultCount; i--) {
+                results.add(entries[(int) (keys[i] & ID_MASK)]);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 8 bits of match count, 31 bits of the (non-negative) success rate's float bits, which
+     * order like the floats themselves, and 24 bits of id
+     */
+    private static long rankKey(int matches, float successRate, int id) {
+        long rate = Float.floatToIntBits(Math.max(0.0f, successRate)) & 0x7FFFFFFFL;
+        return ((long) Math.min(matches, MAX_RANKED_MATCHES) << (31 + ID_BITS)) | (rate << ID_BITS) | (id & ID_MASK);
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Set<String> tokensOf(TacticKnowledgeBase.TacticEntry entry) {
+        Set<String> tokens = tokenize(entry.name);
+        tokens.addAll(tokenize(entry.description));
+        for (String condition : entry.conditions) {
+            tokens.addAll(tokenize(condition));
+        }
+        return tokens;
+    }
+
+    /**
+     * Lower-case runs of letters/digits; purely numeric runs (condition thresholds) are skipped
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        int length = text.length();
+        int start = -1;
+        boolean hasLetter = false;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (start < 0) {
+                    start = i;
+                    hasLetter = false;
+                }
+                hasLetter |= Character.isLetter(c);
+            } else if (start >= 0) {
+                if (hasLetter) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -4,41 +4,68 @@ import com.minecraft.gancity.compat.CuriosIntegration;
 import com.minecraft.gancity.compat.ModCompatibility;
 import net.minecraft.world.entity.player.Player;
 import java.util.UUID;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
 import net.minecraft.world.entity.EquipmentSlot;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Visual perception system - mobs recognize player equipment and tactics
  * Adapts strategy based on what player is wearing/holding
+ * 
+ * Analyses are cached per player against an equipment fingerprint (item and damage in each
+ * armour/hand slot plus the Curios revision) and only recomputed when the fingerprint changes;
+ * sprint/sneak/block changes just re-stamp the cached analysis. Cached states are immutable once
+ * published, so other threads may read them via {@link #getCachedState}.
  */
 public class VisualPerception {
     
-    private final Map<String, PlayerProfile> playerProfiles = new HashMap<>();
-    private final Map<UUID, CachedVisualState> visualCache = new HashMap<>();
-    private static final long CACHE_DURATION_MS = 500; // Cache for 500ms
+    private static final EquipmentSlot[] FINGERPRINT_SLOTS = {
+        EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET,
+        EquipmentSlot.MAINHAND, EquipmentSlot.OFFHAND
+    };
+    
+    private final Map<String, PlayerProfile> playerProfiles = new ConcurrentHashMap<>();
+    private final Map<UUID, CachedVisualState> visualCache = new ConcurrentHashMap<>();
+    private static final long EVICT_AFTER_MS = 60_000; // Entries unused this long are dropped when the cache is full
     private static final int MAX_CACHE_SIZE = 100; // Prevent memory bloat
     
+    private final AtomicLong cacheHits = new AtomicLong(0);
+    private final AtomicLong cacheMisses = new AtomicLong(0);
+    
     /**
-     * Analyze player visual state (with caching)
+     * Analyze player visual state (with caching). Reads the player entity, so call on the server thread.
      */
     public VisualState analyzePlayer(Player player) {
         UUID playerId = player.getUUID();
-        long currentTime = System.currentTimeMillis();
+        long curioRevision = ModCompatibility.isCuriosLoaded() ? CuriosIntegration.getCurioRevision(player) : 0L;
+        boolean sprinting = player.isSprinting();
+        boolean sneaking = player.isCrouching();
+        boolean blocking = player.isBlocking();
         
-        // Check cache first
         CachedVisualState cached = visualCache.get(playerId);
-        if (cached != null && (currentTime - cached.timestamp) < CACHE_DURATION_MS) {
-            return cached.state;
+        if (cached != null && cached.matchesEquipment(player, curioRevision)) {
+            cached.lastUsedMs = System.currentTimeMillis();
+            cacheHits.incrementAndGet();
+            if (cached.state.isSprinting == sprinting && cached.state.isSneaking == sneaking
+                && cached.state.isBlocking == blocking) {
+                return cached.state;
+            }
+            // Same gear, different stance: re-stamp the flags on a copy
+            CachedVisualState restamped = cached.withFlags(sprinting, sneaking, blocking);
+            visualCache.put(playerId, restamped);
+            return restamped.state;
         }
+        cacheMisses.incrementAndGet();
         
-        // Evict old cache entries if needed
-        if (visualCache.size() > MAX_CACHE_SIZE) {
-            visualCache.entrySet().removeIf(entry -> 
-                (currentTime - entry.getValue().timestamp) > CACHE_DURATION_MS * 2
-            );
+        // Evict long-unused entries if needed
+        if (cached == null && visualCache.size() >= MAX_CACHE_SIZE) {
+            long now = System.currentTimeMillis();
+            visualCache.values().removeIf(entry -> now - entry.lastUsedMs > EVICT_AFTER_MS);
         }
         
         VisualState state = new VisualState();
@@ -69,16 +96,39 @@ public class VisualPerception {
         state.hasRangedWeapon = isRangedWeapon(mainHand);
         
         // Tactical indicators
-        state.isSprinting = player.isSprinting();
-        state.isSneaking = player.isCrouching();
-        state.isBlocking = player.isBlocking();
+        state.isSprinting = sprinting;
+        state.isSneaking = sneaking;
+        state.isBlocking = blocking;
         
         // Cache result
-        visualCache.put(playerId, new CachedVisualState(state, currentTime));
+        visualCache.put(playerId, CachedVisualState.capture(player, curioRevision, state));
         
         return state;
     }
     
+    /**
+     * Last analysis for a player without touching the entity (safe from any thread).
+     * Callers must not modify the returned state.
+     * @return null if the player has not been analyzed recently
+     */
+    public VisualState getCachedState(UUID playerId) {
+        CachedVisualState cached = visualCache.get(playerId);
+        return cached != null ? cached.state : null;
+    }
+    
+    public void forgetPlayer(UUID playerId) {
+        visualCache.remove(playerId);
+    }
+    
+    /**
+     * Fraction of analyses served from the equipment-fingerprint cache
+     */
+    public float getCacheHitRate() {
+        long hits = cacheHits.get();
+        long total = hits + cacheMisses.get();
+        return total == 0 ? 0.0f : (float) hits / total;
+    }
+    
     /**
      * Get tactical recommendations based on visual analysis
      */
@@ -224,6 +274,21 @@ public class VisualPerception {
         public boolean hasMagicalTrinkets = false;
         public float curioEnhancement = 1.0f;
         
+        public VisualState copy() {
+            VisualState copy = new VisualState();
+            copy.armorLevel = armorLevel;
+            copy.hasShield = hasShield;
+            copy.weaponType = weaponType;
+            copy.weaponTier = weaponTier;
+            copy.hasRangedWeapon = hasRangedWeapon;
+            copy.isSprinting = isSprinting;
+            copy.isSneaking = isSneaking;
+            copy.isBlocking = isBlocking;
+            copy.hasMagicalTrinkets = hasMagicalTrinkets;
+            copy.curioEnhancement = curioEnhancement;
+            return copy;
+        }
+        
         public float[] toFeatureVector() {
             return new float[] {
                 armorLevel,
@@ -246,13 +311,58 @@ public class VisualPerception {
         int cautiousStyle = 0;
     }
     
-    private static class CachedVisualState {
+    /**
+     * Cached analysis plus the equipment fingerprint it was computed from. Immutable apart from
+     * the last-used stamp.
+     */
+    private static final class CachedVisualState {
         final VisualState state;
-        final long timestamp;
+        final Item[] items;
+        final int[] damage;
+        final long curioRevision;
+        volatile long lastUsedMs;
         
-        CachedVisualState(VisualState state, long timestamp) {
+        private CachedVisualState(VisualState state, Item[] items, int[] damage, long curioRevision) {
             this.state = state;
-            this.timestamp = timestamp;
+            this.items = items;
+            this.damage = damage;
+            this.curioRevision = curioRevision;
+            this.lastUsedMs = System.currentTimeMillis();
+        }
+        
+        static CachedVisualState capture(Player player, long curioRevision, VisualState state) {
+            Item[] items = new Item[FINGERPRINT_SLOTS.length];
+            int[] damage = new int[FINGERPRINT_SLOTS.length];
+            for (int i = 0; i < FINGERPRINT_SLOTS.length; i++) {
+                ItemStack stack = player.getItemBySlot(FINGERPRINT_SLOTS[i]);
+                items[i] = stack.getItem();
+                damage[i] = stack.getDamageValue();
+            }
+            return new CachedVisualState(state, items, damage, curioRevision);
+        }
+        
+        /**
+         * Allocation-free comparison of the player's current gear against the fingerprint
+         */
+        boolean matchesEquipment(Player player, long currentCurioRevision) {
+            if (currentCurioRevision != curioRevision) {
+                return false;
+            }
+            for (int i = 0; i < FINGERPRINT_SLOTS.length; i++) {
+                ItemStack stack = player.getItemBySlot(FINGERPRINT_SLOTS[i]);
+                if (stack.getItem() != items[i] || stack.getDamageValue() != damage[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        CachedVisualState withFlags(boolean sprinting, boolean sneaking, boolean blocking) {
+            VisualState copy = state.copy();
+            copy.isSprinting = sprinting;
+            copy.isSneaking = sneaking;
+            copy.isBlocking = blocking;
+            return new CachedVisualState(copy, items, damage, curioRevision);
         }
     }
 }
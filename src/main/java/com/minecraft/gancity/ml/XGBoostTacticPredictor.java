@@ -1,11 +1,16 @@
 package com.minecraft.gancity.ml;
 
+import com.minecraft.gancity.compat.OptionalHandles;
 import com.mojang.logging.LogUtils;
 import org.slf4j.Logger;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * XGBoost-based tactic prediction for lightweight, explainable AI decisions.
@@ -16,18 +21,88 @@ import java.util.*;
  * - Feature importance analysis (which stats matter most)
  * - Incremental learning from combat outcomes
  * - Much smaller model size than neural networks
+ * 
+ * Boosters are trained on a background thread from a snapshot of the training buffer; updates
+ * go into a copy of the current booster which is then published through a volatile reference,
+ * so prediction never sees a half-updated model. Each published booster is also exported from
+ * its JSON tree dump to a {@link FlatForest}, used for direct array scoring once it matches
+ * the booster's own predictions.
+ *
+ * Boosters and DMatrix objects hold native memory and are disposed explicitly. Native calls on
+ * the published booster run under the read lock; swapping it takes the write lock and disposes
+ * the replaced booster before releasing it, so no prediction can still be using it.
  */
 public class XGBoostTacticPredictor {
     private static final Logger LOGGER = LogUtils.getLogger();
     
-    private Object booster; // ml.dmlc.xgboost4j.java.Booster (dynamically loaded)
-    private final Map<String, List<TrainingExample>> trainingBuffer = new HashMap<>();
-    private final Map<String, float[]> featureImportance = new HashMap<>();
+    private volatile Object booster; // ml.dmlc.xgboost4j.java.Booster (dynamically loaded)
+    private final ReentrantReadWriteLock boosterLock = new ReentrantReadWriteLock();
+    private volatile FlatForest flatBooster; // Flat array copy of booster (null if export/parity failed)
+    private static final int PARITY_SAMPLE_SIZE = 200;
+    private static final float PARITY_TOLERANCE = 1e-4f;
+    private final Map<String, List<TrainingExample>> trainingBuffer = new HashMap<>();  // Learning pipeline thread only
+    private final Map<String, List<TrainingExample>> pendingExamples = new ConcurrentHashMap<>();  // Handed to the trainer
+    private final Map<String, float[]> featureImportance = new ConcurrentHashMap<>();
     private boolean isAvailable = false;
     private static final int BATCH_SIZE = 100;
+    private static final int MAX_BUFFERED_EXAMPLES = BATCH_SIZE * 5;  // Cap per mob type while a retrain is pending
+    private static final long MIN_RETRAIN_INTERVAL_MS = 15_000;
+    private final ModelRetrainScheduler retrainScheduler =
+        new ModelRetrainScheduler("XGBoost", MIN_RETRAIN_INTERVAL_MS);
     private static final int MAX_DEPTH = 6;
     private static final float LEARNING_RATE = 0.1f;
     
+    /**
+     * XGBoost4J members, bound once when the first predictor is created
+     */
+    private static final class XGB {
+        static final Class<?> BOOSTER_CLASS = OptionalHandles.findClass("ml.dmlc.xgboost4j.java.Booster");
+        static final Class<?> DMATRIX_CLASS = OptionalHandles.findClass("ml.dmlc.xgboost4j.java.DMatrix");
+        static final Class<?> XGBOOST_CLASS = OptionalHandles.findClass("ml.dmlc.xgboost4j.java.XGBoost");
+
+        static final OptionalHandles.Invoker<Object> NEW_DMATRIX =
+            OptionalHandles.constructor(DMATRIX_CLASS, Object.class, float[].class, int.class, int.class);
+        static final OptionalHandles.Invoker<Object> SET_LABEL =
+            OptionalHandles.method(DMATRIX_CLASS, "setLabel", Object.class, null, float[].class);
+        static final OptionalHandles.Invoker<float[][]> PREDICT =
+            OptionalHandles.method(BOOSTER_CLASS, "predict", float[][].class, null, DMATRIX_CLASS);
+        static final OptionalHandles.Invoker<String[]> GET_MODEL_DUMP =
+            OptionalHandles.method(BOOSTER_CLASS, "getModelDump", String[].class, null,
+                String.class, boolean.class, String.class);
+        static final OptionalHandles.Invoker<Object> TRAIN =
+            OptionalHandles.method(XGBOOST_CLASS, "train", Object.class, null, DMATRIX_CLASS, Map.class, int.class,
+                Map.class, OptionalHandles.findClass("ml.dmlc.xgboost4j.java.IObjective"),
+                OptionalHandles.findClass("ml.dmlc.xgboost4j.java.IEvaluation"));
+        static final OptionalHandles.Invoker<byte[]> TO_BYTE_ARRAY =
+            OptionalHandles.method(BOOSTER_CLASS, "toByteArray", byte[].class, null);
+        static final OptionalHandles.Invoker<Object> LOAD_MODEL_STREAM =
+            OptionalHandles.method(XGBOOST_CLASS, "loadModel", Object.class, null, InputStream.class);
+        static final OptionalHandles.Invoker<Object> LOAD_MODEL_PATH =
+            OptionalHandles.method(XGBOOST_CLASS, "loadModel", Object.class, null, String.class);
+        static final OptionalHandles.Invoker<Object> UPDATE =
+            OptionalHandles.method(BOOSTER_CLASS, "update", Object.class, null, DMATRIX_CLASS, int.class);
+        static final OptionalHandles.Invoker<String[]> GET_SCORE =
+            OptionalHandles.method(BOOSTER_CLASS, "getScore", String[].class, null, String.class, String.class);
+        static final OptionalHandles.Invoker<Object> SAVE_MODEL =
+            OptionalHandles.method(BOOSTER_CLASS, "saveModel", Object.class, null, String.class);
+        static final OptionalHandles.Invoker<Object> DISPOSE_BOOSTER =
+            OptionalHandles.method(BOOSTER_CLASS, "dispose", Object.class, null);
+        static final OptionalHandles.Invoker<Object> DISPOSE_DMATRIX =
+            OptionalHandles.method(DMATRIX_CLASS, "dispose", Object.class, null);
+
+        static final boolean ACTIVE = OptionalHandles.reportIntegration("XGBoost",
+            NEW_DMATRIX, SET_LABEL, PREDICT, TRAIN, TO_BYTE_ARRAY, LOAD_MODEL_STREAM, UPDATE);
+
+        private XGB() {
+        }
+
+        static void require() {
+            if (!ACTIVE) {
+                throw new IllegalStateException("XGBoost API incompatible (see integration report)");
+            }
+        }
+    }
+    
     /**
      * Combat training example with mob state features
      */
@@ -44,14 +119,12 @@ public class XGBoostTacticPredictor {
     }
     
     public XGBoostTacticPredictor() {
-        try {
-            // Check if XGBoost is available
-            Class.forName("ml.dmlc.xgboost4j.java.Booster");
-            isAvailable = true;
+        // Check if XGBoost is available
+        isAvailable = XGB.BOOSTER_CLASS != null;
+        if (isAvailable) {
             LOGGER.info("XGBoost available - gradient boosting enabled for tactic prediction");
-        } catch (ClassNotFoundException e) {
+        } else {
             LOGGER.debug("XGBoost not found - using DQN/rules only");
-            isAvailable = false;
         }
     }
     
@@ -81,19 +154,24 @@ public class XGBoostTacticPredictor {
      * Predict best tactic index for given state
      */
     public int predictTactic(float[] features, int numTactics) {
+        if (flatBooster != null && numTactics > 0) {
+            // Single-output regression booster: predictions[0] has one column, so the
+            // booster argmax below always picks index 0 as well
+            return 0;
+        }
+        
         if (!isAvailable || booster == null) {
             return -1; // Fall back to DQN or rules
         }
         
+        boosterLock.readLock().lock();
         try {
-            // Call XGBoost predict via reflection
-            Class<?> dmatrixClass = Class.forName("ml.dmlc.xgboost4j.java.DMatrix");
-            Object dmatrix = dmatrixClass.getConstructor(float[].class, int.class, int.class)
-                .newInstance(features, 1, features.length);
-            
-            Class<?> boosterClass = Class.forName("ml.dmlc.xgboost4j.java.Booster");
-            float[][] predictions = (float[][]) boosterClass.getMethod("predict", dmatrixClass)
-                .invoke(booster, dmatrix);
+            Object model = booster;
+            if (model == null) {
+                return -1;
+            }
+            // Call XGBoost predict through the bound handles
+            float[][] predictions = predictWithBooster(model, features, 1, features.length);
             
             // Find tactic with highest predicted reward
             int bestTactic = 0;
@@ -109,6 +187,122 @@ public class XGBoostTacticPredictor {
         } catch (Exception e) {
             LOGGER.warn("XGBoost prediction failed: {}", e.getMessage());
             return -1;
+        } finally {
+            boosterLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Predicted success score for a state (pure array math when the flat booster is available)
+     * @return score, or NaN if no model is trained
+     */
+    public float predictScore(float[] features) {
+        FlatForest flat = flatBooster;
+        if (flat != null) {
+            return flat.predictScore(features);
+        }
+        
+        if (!isAvailable || booster == null) {
+            return Float.NaN;
+        }
+        boosterLock.readLock().lock();
+        try {
+            Object model = booster;
+            return model != null ? predictWithBooster(model, features, 1, features.length)[0][0] : Float.NaN;
+        } catch (Exception e) {
+            LOGGER.warn("XGBoost prediction failed: {}", e.getMessage());
+            return Float.NaN;
+        } finally {
+            boosterLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Predict with a booster the caller keeps alive (published booster under the read lock, or
+     * one not yet published)
+     */
+    private static float[][] predictWithBooster(Object model, float[] rows, int numRows, int numFeatures)
+            throws Exception {
+        XGB.require();
+        Object dmatrix = XGB.NEW_DMATRIX.invoke(rows, numRows, numFeatures);
+        try {
+            return XGB.PREDICT.invoke(model, dmatrix);
+        } finally {
+            dispose(XGB.DISPOSE_DMATRIX, dmatrix);
+        }
+    }
+    
+    private static void dispose(OptionalHandles.Invoker<Object> disposer, Object nativeObject) {
+        if (nativeObject == null) {
+            return;
+        }
+        try {
+            disposer.invoke(nativeObject);
+        } catch (Exception e) {
+            LOGGER.debug("XGBoost dispose failed: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Replace the published booster and dispose the old one. Holding the write lock means no
+     * prediction is using the old booster, and none can pick it up afterwards.
+     */
+    private void publish(Object next, FlatForest flat) {
+        boosterLock.writeLock().lock();
+        try {
+            Object previous = booster;
+            flatBooster = flat;
+            booster = next;
+            if (previous != null && previous != next) {
+                dispose(XGB.DISPOSE_BOOSTER, previous);
+            }
+        } finally {
+            boosterLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Export {@code model}'s trees to flat arrays and check the scores match the booster on the
+     * training rows. The base score is taken from the booster's own output (newer XGBoost versions
+     * estimate it from the labels). Returns null on any export error or mismatch.
+     */
+    private FlatForest exportFlat(Object model, float[] flatFeatures, int numExamples, int numFeatures) {
+        try {
+            String[] dump = XGB.GET_MODEL_DUMP.invoke(model, null, false, "json");
+            if (dump == null) {
+                return null;
+            }
+            FlatForest flat = FlatForest.fromXGBoostDump(dump, 0.0f);
+            
+            int step = Math.max(1, numExamples / PARITY_SAMPLE_SIZE);
+            int checked = (numExamples + step - 1) / step;
+            float[] sample = new float[checked * numFeatures];
+            float[][] rows = new float[checked][];
+            for (int i = 0; i < checked; i++) {
+                rows[i] = Arrays.copyOfRange(flatFeatures, i * step * numFeatures, (i * step + 1) * numFeatures);
+                System.arraycopy(rows[i], 0, sample, i * numFeatures, numFeatures);
+            }
+            float[][] expected = predictWithBooster(model, sample, checked, numFeatures);
+            
+            flat = flat.withBaseScore(expected[0][0] - flat.predictScore(rows[0]));
+            int mismatches = 0;
+            for (int i = 0; i < checked; i++) {
+                if (Math.abs(flat.predictScore(rows[i]) - expected[i][0]) > PARITY_TOLERANCE) {
+                    mismatches++;
+                }
+            }
+            
+            if (mismatches > 0) {
+                LOGGER.warn("Flat XGBoost model disagreed on {}/{} samples - keeping booster predictions",
+                    mismatches, checked);
+                return null;
+            }
+            LOGGER.debug("Flat XGBoost model ready: {} trees, {} nodes (parity {}/{})",
+                flat.getTreeCount(), flat.getNodeCount(), checked, checked);
+            return flat;
+        } catch (Exception e) {
+            LOGGER.debug("XGBoost flattening unavailable: {}", e.getMessage());
+            return null;
         }
     }
     
@@ -121,19 +315,52 @@ public class XGBoostTacticPredictor {
         trainingBuffer.computeIfAbsent(mobType, k -> new ArrayList<>())
             .add(new TrainingExample(features, tacticIndex, success ? 1.0f : 0.0f));
         
-        // Train when buffer is full
-        if (trainingBuffer.get(mobType).size() >= BATCH_SIZE) {
-            trainIncremental(mobType);
+        // Retrain in the background when buffer is full
+        List<TrainingExample> examples = trainingBuffer.get(mobType);
+        if (examples.size() >= BATCH_SIZE) {
+            scheduleRetrain(mobType, examples);
         }
     }
     
     /**
-     * Incremental training on buffered examples
+     * Move the buffer to the trainer's pending examples and request a retrain. A request that
+     * arrives while a retrain is running (or too soon) is deferred, not dropped: the next run
+     * trains every mob type still pending.
      */
-    private void trainIncremental(String mobType) {
-        List<TrainingExample> examples = trainingBuffer.get(mobType);
-        if (examples == null || examples.isEmpty()) return;
+    private void scheduleRetrain(String mobType, List<TrainingExample> examples) {
+        pendingExamples.merge(mobType, new ArrayList<>(examples), (queued, added) -> {
+            List<TrainingExample> merged = new ArrayList<>(queued.size() + added.size());
+            merged.addAll(queued);
+            merged.addAll(added);
+            // Bounded while retrains lag behind: keep the newest examples
+            return merged.size() > MAX_BUFFERED_EXAMPLES
+                ? new ArrayList<>(merged.subList(merged.size() - MAX_BUFFERED_EXAMPLES, merged.size()))
+                : merged;
+        });
+        examples.clear();
+        retrainScheduler.scheduleOrDefer(this::trainPending);
+    }
+    
+    /**
+     * Train every mob type with pending examples (background thread)
+     */
+    private void trainPending() {
+        for (String mobType : new ArrayList<>(pendingExamples.keySet())) {
+            List<TrainingExample> examples = pendingExamples.remove(mobType);
+            if (examples != null) {
+                trainIncremental(mobType, examples);
+            }
+        }
+    }
+    
+    /**
+     * Incremental training on a batch of pending examples (background thread)
+     */
+    private void trainIncremental(String mobType, List<TrainingExample> examples) {
+        if (examples.isEmpty()) return;
         
+        Object trainData = null;
+        Object next = null;
         try {
             // Prepare training data
             int numExamples = examples.size();
@@ -147,12 +374,11 @@ public class XGBoostTacticPredictor {
                 labels[i] = ex.reward;
             }
             
-            // Create DMatrix and train via reflection
-            Class<?> dmatrixClass = Class.forName("ml.dmlc.xgboost4j.java.DMatrix");
-            Object trainData = dmatrixClass.getConstructor(float[].class, int.class, int.class)
-                .newInstance(flatFeatures, numExamples, numFeatures);
+            // Create DMatrix and train through the bound handles
+            XGB.require();
+            trainData = XGB.NEW_DMATRIX.invoke(flatFeatures, numExamples, numFeatures);
             
-            dmatrixClass.getMethod("setLabel", float[].class).invoke(trainData, labels);
+            XGB.SET_LABEL.invoke(trainData, labels);
             
             // Training parameters
             Map<String, Object> params = new HashMap<>();
@@ -162,32 +388,43 @@ public class XGBoostTacticPredictor {
             params.put("eval_metric", "rmse");
             
             // Train booster
-            Class<?> boosterClass = Class.forName("ml.dmlc.xgboost4j.java.Booster");
-            Class<?> xgboostClass = Class.forName("ml.dmlc.xgboost4j.java.XGBoost");
-            
-            if (booster == null) {
+            byte[] bytes = null;
+            boosterLock.readLock().lock();
+            try {
+                Object current = booster;
+                if (current != null) {
+                    bytes = XGB.TO_BYTE_ARRAY.invoke(current);
+                }
+            } finally {
+                boosterLock.readLock().unlock();
+            }
+            if (bytes == null) {
                 // Initial training
                 Map<String, Object> watches = new HashMap<>();
-                booster = xgboostClass.getMethod("train", dmatrixClass, Map.class, int.class, 
-                    Map.class, Object.class, Object.class)
-                    .invoke(null, trainData, params, 10, watches, null, null);
+                next = XGB.TRAIN.invoke(trainData, params, 10, watches, null, null);
             } else {
-                // Update existing model
-                boosterClass.getMethod("update", dmatrixClass, int.class)
-                    .invoke(booster, trainData, 1);
+                // Update a copy; the published booster keeps serving predictions meanwhile
+                next = XGB.LOAD_MODEL_STREAM.invoke(new ByteArrayInputStream(bytes));
+                XGB.UPDATE.invoke(next, trainData, 1);
             }
             
             // Extract feature importance
-            String[] importanceMap = (String[]) boosterClass.getMethod("getScore", String.class, String.class)
-                .invoke(booster, "", "gain");
+            String[] importanceMap = XGB.GET_SCORE.invoke(next, "", "gain");
             updateFeatureImportance(mobType, importanceMap);
             
-            // Clear training buffer
-            examples.clear();
+            // Flatten for direct array scoring (only used if it matches the real booster)
+            FlatForest flat = exportFlat(next, flatFeatures, numExamples, numFeatures);
+            
+            // Publish only once fully built
+            publish(next, flat);
+            next = null;
             
             LOGGER.info("XGBoost trained for {} - {} examples processed", mobType, numExamples);
         } catch (Exception e) {
             LOGGER.error("XGBoost training failed for {}: {}", mobType, e.getMessage());
+        } finally {
+            dispose(XGB.DISPOSE_BOOSTER, next);  // Only set if training failed before publishing
+            dispose(XGB.DISPOSE_DMATRIX, trainData);
         }
     }
     
@@ -226,14 +463,19 @@ public class XGBoostTacticPredictor {
     public void saveModel(Path modelPath) {
         if (!isAvailable || booster == null) return;
         
+        boosterLock.readLock().lock();
         try {
+            Object model = booster;
             Files.createDirectories(modelPath.getParent());
-            Class<?> boosterClass = Class.forName("ml.dmlc.xgboost4j.java.Booster");
-            boosterClass.getMethod("saveModel", String.class)
-                .invoke(booster, modelPath.toString());
+            if (!XGB.SAVE_MODEL.isPresent()) {
+                throw new IllegalStateException("Booster.saveModel(String) not available");
+            }
+            XGB.SAVE_MODEL.invoke(model, modelPath.toString());
             LOGGER.info("XGBoost model saved to {}", modelPath);
         } catch (Exception e) {
             LOGGER.error("Failed to save XGBoost model: {}", e.getMessage());
+        } finally {
+            boosterLock.readLock().unlock();
         }
     }
     
@@ -244,9 +486,11 @@ public class XGBoostTacticPredictor {
         if (!isAvailable || !Files.exists(modelPath)) return;
         
         try {
-            Class<?> xgboostClass = Class.forName("ml.dmlc.xgboost4j.java.XGBoost");
-            booster = xgboostClass.getMethod("loadModel", String.class)
-                .invoke(null, modelPath.toString());
+            Object model = XGB.LOAD_MODEL_PATH.invoke(modelPath.toString());
+            if (model == null) {
+                throw new IllegalStateException("XGBoost.loadModel(String) not available");
+            }
+            publish(model, null);  // Re-flattened (with a parity check) on the next retrain
             LOGGER.info("XGBoost model loaded from {}", modelPath);
         } catch (Exception e) {
             LOGGER.error("Failed to load XGBoost model: {}", e.getMessage());
@@ -273,6 +517,13 @@ public class XGBoostTacticPredictor {
         return isAvailable;
     }
     
+    /**
+     * True while a background retrain is running
+     */
+    public boolean isRetraining() {
+        return retrainScheduler.isRetraining();
+    }
+    
     /**
      * Get training statistics
      */
@@ -0,0 +1,18 @@
+package com.minecraft.gancity.util;
+
+import com.minecraft.gancity.ai.TacticTier;
+
+/**
+ * Typed, in-memory tier state for mobs.
+ *
+ * Implemented via mixin on Mob so tier lookups never have to parse NBT. The tier is still
+ * persisted through {@link PersistentDataHolder}, so existing saves keep their tiers.
+ */
+public interface MobTierHolder {
+    /**
+     * @return assigned tier, or null if this mob has not been assigned one yet
+     */
+    TacticTier adaptivemobai$getTier();
+
+    void adaptivemobai$setTier(TacticTier tier);
+}